@@ -0,0 +1,132 @@
+package com.checkout.payment.gateway.exception;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.logging.RateLimitingTurboFilter;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Rejected requests per second through the rejection path: raising the validation exception
+ * and handling it in {@link CommonExceptionHandler}, with logging written to a discarding stream
+ * using Spring Boot's console pattern.
+ * <p>
+ * {@code stackTrace} replays the previous flow, where the exception captured the stack of a
+ * request thread, about 120 frames deep in Tomcat and Spring MVC, and was logged at ERROR with
+ * that trace by a synchronous appender. {@code stackless} raises the exception the gateway raises
+ * now through the same synchronous appender, and {@code sampled} adds the asynchronous appender
+ * and the per-category rate limit the gateway is configured with.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RejectionBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RejectionBenchmark.class);
+  private static final int REQUEST_STACK_DEPTH = 120;
+  private static final String VIOLATIONS = "CVV must be numeric.";
+
+  @Param({"stackTrace", "stackless", "sampled"})
+  public String mode;
+
+  private CommonExceptionHandler commonExceptionHandler;
+  private LoggerContext loggerContext;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+    loggerContext.reset();
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(loggerContext);
+    encoder.setPattern(
+        "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+    encoder.start();
+    OutputStreamAppender<ILoggingEvent> console = new OutputStreamAppender<>();
+    console.setContext(loggerContext);
+    console.setEncoder(encoder);
+    console.setOutputStream(OutputStream.nullOutputStream());
+    console.start();
+    Appender<ILoggingEvent> appender = console;
+    if (mode.equals("sampled")) {
+      RateLimitingTurboFilter rateLimit = new RateLimitingTurboFilter();
+      rateLimit.setContext(loggerContext);
+      rateLimit.setCategories("PAYMENT_OUTCOME:200:100,CLIENT_ERROR:20:1000,BANK:20:100");
+      rateLimit.start();
+      loggerContext.addTurboFilter(rateLimit);
+      AsyncAppender async = new AsyncAppender();
+      async.setContext(loggerContext);
+      async.setQueueSize(8192);
+      async.setNeverBlock(true);
+      async.addAppender(console);
+      async.start();
+      appender = async;
+    }
+    ch.qos.logback.classic.Logger root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.setLevel(ch.qos.logback.classic.Level.INFO);
+    root.addAppender(appender);
+
+    commonExceptionHandler = new CommonExceptionHandler(
+        new PaymentMetrics(new SimpleMeterRegistry(), CurrencyRegistry.defaults()),
+        new TimeOrderedPaymentIdGenerator());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    loggerContext.stop();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object rejectSingleThread() {
+    return reject();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object rejectContended() {
+    return reject();
+  }
+
+  private Object reject() {
+    if (mode.equals("stackTrace")) {
+      RuntimeException ex = atRequestDepth(REQUEST_STACK_DEPTH);
+      LOG.error("Validation failed for request data. Error(s): {}", ex.getMessage(), ex);
+      return ex;
+    }
+    ResponseEntity<?> response = commonExceptionHandler.handlePaymentValidationException(
+        new PaymentValidationException(VIOLATIONS));
+    return response.getBody();
+  }
+
+  private static RuntimeException atRequestDepth(int depth) {
+    return depth == 0 ? new RuntimeException(VIOLATIONS) : atRequestDepth(depth - 1);
+  }
+}
@@ -0,0 +1,54 @@
+package com.checkout.payment.gateway.id;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a payment ID from {@link UUID#randomUUID()}, which shares one {@code SecureRandom}
+ * across threads, against {@link TimeOrderedPaymentIdGenerator}, which buffers output from a DRBG
+ * per thread. The contended variants run eight threads, more than the request pool has cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PaymentIdBenchmark {
+
+  private final PaymentIdGenerator timeOrdered = new TimeOrderedPaymentIdGenerator();
+
+  @Benchmark
+  @Threads(1)
+  public UUID randomSingleThread() {
+    return UUID.randomUUID();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public UUID randomContended() {
+    return UUID.randomUUID();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public UUID timeOrderedSingleThread() {
+    return timeOrdered.next();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public UUID timeOrderedContended() {
+    return timeOrdered.next();
+  }
+}
@@ -0,0 +1,96 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Instrumentation cost of one payment submission against the Prometheus registry the gateway
+ * exposes: a clock read pair and a histogram update for each of the six stages, plus the status,
+ * currency and bank status-class counters. The budget is 1 µs per request. The statistics
+ * benchmarks measure the {@link PaymentStatistics} update on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PaymentMetricsBenchmark {
+
+  private static final Stage[] STAGES = Stage.values();
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+  private static final CurrencyUnit GBP = CURRENCIES.lookup("GBP");
+
+  private PaymentMetrics paymentMetrics;
+  private PaymentStatistics paymentStatistics;
+
+  @Setup
+  public void setUp() {
+    paymentMetrics = new PaymentMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+        CURRENCIES);
+    paymentStatistics = new PaymentStatistics(CURRENCIES);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void requestSingleThread() {
+    recordRequest();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void requestContended() {
+    recordRequest();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void statisticsSingleThread() {
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, GBP, 1050);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void statisticsContended() {
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, GBP, 1050);
+  }
+
+  /**
+   * The clock reads alone, to tell the cost of timing a stage from the cost of recording it.
+   */
+  @Benchmark
+  @Threads(1)
+  public long clockReadsOnly() {
+    long elapsed = 0;
+    for (int i = 0; i < STAGES.length; i++) {
+      long started = System.nanoTime();
+      elapsed += System.nanoTime() - started;
+    }
+    return elapsed;
+  }
+
+  private void recordRequest() {
+    for (Stage stage : STAGES) {
+      long started = System.nanoTime();
+      paymentMetrics.recordStage(stage, System.nanoTime() - started);
+    }
+    paymentMetrics.recordBankResponse(200);
+    paymentMetrics.recordPayment(PaymentStatus.AUTHORIZED, GBP);
+  }
+}
@@ -0,0 +1,84 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson (de)serialization of the payment API bodies, with readers and writers resolved once as
+ * Spring MVC's message converter does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+  private ObjectReader requestReader;
+  private ObjectWriter requestWriter;
+  private ObjectReader responseReader;
+  private ObjectWriter responseWriter;
+  private byte[] requestJson;
+  private byte[] responseJson;
+  private PostPaymentRequest paymentRequest;
+  private PostPaymentResponse paymentResponse;
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    requestReader = objectMapper.readerFor(PostPaymentRequest.class);
+    requestWriter = objectMapper.writerFor(PostPaymentRequest.class);
+    responseReader = objectMapper.readerFor(PostPaymentResponse.class);
+    responseWriter = objectMapper.writerFor(PostPaymentResponse.class);
+    requestJson = ("{\"card_number\":\"2222405343248877\",\"expiry_month\":\"04\","
+        + "\"expiry_year\":\"2030\",\"currency\":\"GBP\",\"amount\":100,\"cvv\":\"123\"}")
+        .getBytes(StandardCharsets.UTF_8);
+    paymentRequest = requestReader.readValue(requestJson);
+    paymentResponse = new PostPaymentResponse();
+    paymentResponse.setId(UUID.randomUUID());
+    paymentResponse.setStatus(PaymentStatus.AUTHORIZED);
+    paymentResponse.setCardNumberLastFour("8877");
+    paymentResponse.setExpiryDate("04/2030");
+    paymentResponse.setCurrency(CurrencyRegistry.defaults().lookup("GBP"));
+    paymentResponse.setAmount(100);
+    responseJson = responseWriter.writeValueAsBytes(paymentResponse);
+  }
+
+  @Benchmark
+  public PostPaymentRequest readRequest() throws IOException {
+    return requestReader.readValue(requestJson);
+  }
+
+  @Benchmark
+  public byte[] writeRequest() throws IOException {
+    return requestWriter.writeValueAsBytes(paymentRequest);
+  }
+
+  @Benchmark
+  public PostPaymentResponse readResponse() throws IOException {
+    return responseReader.readValue(responseJson);
+  }
+
+  @Benchmark
+  public byte[] writeResponse() throws IOException {
+    return responseWriter.writeValueAsBytes(paymentResponse);
+  }
+}
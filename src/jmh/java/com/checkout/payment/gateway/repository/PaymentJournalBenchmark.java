@@ -0,0 +1,160 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PaymentJournal} write and recovery costs.
+ * <p>
+ * {@code append} runs with several writers in sample mode: with {@code syncOnAppend} its
+ * percentiles are the latency of a group commit, without it the cost of copying a record into the
+ * mapped segment. {@code recover} replays a journal of {@code records} payments from disk.
+ */
+@Fork(2)
+public class PaymentJournalBenchmark {
+
+  private static final int SEGMENT_SIZE = 64 << 20;
+
+  @State(Scope.Benchmark)
+  public static class Appending {
+
+    @Param({"false", "true"})
+    public boolean syncOnAppend;
+
+    private Path directory;
+    private PaymentJournal journal;
+    private PostPaymentResponse[] payments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      directory = Files.createTempDirectory("journal-append");
+      // Frequent empty snapshots compact the segments away so long runs do not fill the disk.
+      journal = new PaymentJournal(directory, SEGMENT_SIZE, syncOnAppend, Duration.ofMillis(1),
+          Duration.ofSeconds(1), CurrencyRegistry.defaults());
+      journal.open(payment -> { }, live -> { });
+      payments = new PostPaymentResponse[1024];
+      for (int i = 0; i < payments.length; i++) {
+        payments[i] = PaymentsRepositoryBenchmark.payment(UUID.randomUUID());
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      journal.close();
+      delete(directory);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Recovering {
+
+    @Param({"1000000"})
+    public int records;
+
+    private Path directory;
+    private Set<Path> written;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      directory = Files.createTempDirectory("journal-recover");
+      try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE, false,
+          Duration.ofMillis(10), Duration.ofDays(1), CurrencyRegistry.defaults())) {
+        journal.open(payment -> { }, live -> { });
+        for (int i = 0; i < records; i++) {
+          journal.append(PaymentsRepositoryBenchmark.payment(UUID.randomUUID()));
+        }
+      }
+      written = list(directory);
+    }
+
+    /**
+     * Opening the journal starts a new segment; remove it so every run replays the same files.
+     */
+    @TearDown(Level.Invocation)
+    public void removeNewSegments() throws IOException {
+      for (Path path : list(directory)) {
+        if (!written.contains(path)) {
+          Files.delete(path);
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      delete(directory);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  @Threads(4)
+  public void append(Appending appending, Cursor cursor) {
+    appending.journal.append(appending.payments[cursor.next++ & 1023]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public long recover(Recovering recovering) {
+    long[] replayed = new long[1];
+    try (PaymentJournal journal = new PaymentJournal(recovering.directory, SEGMENT_SIZE, false,
+        Duration.ofMillis(10), Duration.ofDays(1), CurrencyRegistry.defaults())) {
+      journal.open(payment -> replayed[0]++, live -> { });
+    }
+    return replayed[0];
+  }
+
+  private static Set<Path> list(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.collect(Collectors.toSet());
+    }
+  }
+
+  private static void delete(Path directory) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      List<Path> paths = files.sorted(Comparator.reverseOrder()).toList();
+      for (Path path : paths) {
+        Files.delete(path);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * First pages of typical searches over ten million payments in an off-heap repository, created
+ * over one week: 80% authorized, 15% declined and 5% rejected, in three currencies, with random
+ * amounts and cards. {@code scan} answers the selective query by visiting the store, as the
+ * gateway would without indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1200m", "-XX:MaxDirectMemorySize=512m"})
+@State(Scope.Benchmark)
+public class PaymentSearchBenchmark {
+
+  private static final int PAYMENTS = 10_000_000;
+  private static final int PAGE = 50;
+  private static final int QUERIES = 1024;
+  private static final long START = 1_700_000_000_000L;
+  private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+  private static final String[] CODES = {"GBP", "USD", "EUR"};
+  private static final int MAX_AMOUNT = 100_000;
+
+  private PaymentsRepository paymentsRepository;
+  private final PaymentQuery[] statusAndCurrency = new PaymentQuery[QUERIES];
+  private final PaymentQuery[] lastFour = new PaymentQuery[QUERIES];
+  private final PaymentQuery[] hour = new PaymentQuery[QUERIES];
+  private final PaymentQuery[] selective = new PaymentQuery[QUERIES];
+
+  @Setup
+  public void setUp() {
+    paymentsRepository = new PaymentsRepository(
+        new OffHeapPaymentStore(64, PAYMENTS + PAYMENTS / 4), null);
+    SplittableRandom random = new SplittableRandom(42);
+    long[] now = {START};
+    TimeOrderedPaymentIdGenerator ids = new TimeOrderedPaymentIdGenerator(() -> now[0]);
+    for (int i = 0; i < PAYMENTS; i++) {
+      now[0] = START + WEEK * i / PAYMENTS;
+      int outcome = random.nextInt(100);
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(ids.next());
+      payment.setStatus(outcome < 80 ? PaymentStatus.AUTHORIZED
+          : outcome < 95 ? PaymentStatus.DECLINED : PaymentStatus.REJECTED);
+      payment.setCardNumberLastFour(String.format("%04d", random.nextInt(10_000)));
+      payment.setExpiryDate("04/2030");
+      payment.setCurrency(CURRENCIES.lookup(CODES[random.nextInt(CODES.length)]));
+      payment.setAmount(1 + random.nextInt(MAX_AMOUNT));
+      paymentsRepository.add(payment);
+    }
+    for (int q = 0; q < QUERIES; q++) {
+      CurrencyUnit currency = CURRENCIES.lookup(CODES[random.nextInt(CODES.length)]);
+      long from = START + random.nextLong(WEEK - TimeUnit.DAYS.toMillis(1));
+      statusAndCurrency[q] = new PaymentQuery(PaymentStatus.DECLINED, currency, 0,
+          Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, null);
+      lastFour[q] = new PaymentQuery(null, null, 0, Integer.MAX_VALUE, Long.MIN_VALUE,
+          Long.MAX_VALUE, String.format("%04d", random.nextInt(10_000)));
+      hour[q] = new PaymentQuery(null, null, 0, Integer.MAX_VALUE, from,
+          from + TimeUnit.HOURS.toMillis(1), null);
+      // Around 700 of the 1.4 million payments of the day match.
+      selective[q] = new PaymentQuery(PaymentStatus.DECLINED, currency, MAX_AMOUNT - 1000,
+          MAX_AMOUNT, from, from + TimeUnit.DAYS.toMillis(1), null);
+    }
+  }
+
+  @Benchmark
+  public PaymentSearchResult statusAndCurrency() {
+    return paymentsRepository.search(statusAndCurrency[next()], -1, PAGE);
+  }
+
+  @Benchmark
+  public PaymentSearchResult lastFour() {
+    return paymentsRepository.search(lastFour[next()], -1, PAGE);
+  }
+
+  @Benchmark
+  public PaymentSearchResult hour() {
+    return paymentsRepository.search(hour[next()], -1, PAGE);
+  }
+
+  @Benchmark
+  public PaymentSearchResult selective() {
+    return paymentsRepository.search(selective[next()], -1, PAGE);
+  }
+
+  @Benchmark
+  public List<PostPaymentResponse> scan() {
+    PaymentQuery query = selective[next()];
+    List<PostPaymentResponse> found = new ArrayList<>();
+    paymentsRepository.forEach(payment -> {
+      long created = TimeOrderedPaymentIdGenerator.timestamp(payment.getId());
+      if (query.matches(payment) && created >= query.fromMillis() && created < query.toMillis()) {
+        found.add(payment);
+      }
+    });
+    return found.size() > PAGE ? found.subList(0, PAGE) : found;
+  }
+
+  private static int next() {
+    return ThreadLocalRandom.current().nextInt(QUERIES);
+  }
+}
@@ -0,0 +1,83 @@
+package com.checkout.payment.gateway.repository;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to fill a store and the memory each stored payment keeps: heap and direct memory per
+ * record are printed after every iteration. Payments are created inside the measured fill, as
+ * they are when requests arrive, so the heap store is charged for the response objects it holds.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PaymentStoreFootprintBenchmark {
+
+  private static final int RECORDS = 500_000;
+
+  @Param({"heap", "off-heap"})
+  public String mode;
+
+  private PaymentStore store;
+  private long heapBefore;
+  private long directBefore;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    store = null;
+    heapBefore = usedHeap();
+    directBefore = usedDirect();
+  }
+
+  @Benchmark
+  public PaymentStore fill() {
+    store = "off-heap".equals(mode) ? new OffHeapPaymentStore(64, RECORDS * 2)
+        : new StripedPaymentStore(64, RECORDS * 2);
+    for (int i = 0; i < RECORDS; i++) {
+      store.put(PaymentsRepositoryBenchmark.payment(UUID.randomUUID()));
+    }
+    return store;
+  }
+
+  @TearDown(Level.Iteration)
+  public void report() {
+    long heap = usedHeap() - heapBefore;
+    long direct = usedDirect() - directBefore;
+    System.out.printf("%n%s store: %d heap bytes/record, %d direct bytes/record%n", mode,
+        heap / store.size(), direct / store.size());
+    store = null;
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long usedDirect() {
+    return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+        .filter(pool -> pool.getName().equals("direct"))
+        .mapToLong(BufferPoolMXBean::getMemoryUsed)
+        .sum();
+  }
+}
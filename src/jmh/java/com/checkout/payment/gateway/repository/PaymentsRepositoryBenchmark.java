@@ -0,0 +1,93 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent reads and writes on a preloaded {@link PaymentsRepository}, for both store modes.
+ * Writers overwrite preloaded payments so the store never fills up during a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Group)
+public class PaymentsRepositoryBenchmark {
+
+  private static final int PAYMENTS = 1 << 17;
+  private static final CurrencyUnit GBP = CurrencyRegistry.defaults().lookup("GBP");
+
+  @Param({"heap", "off-heap"})
+  public String mode;
+
+  private PaymentsRepository paymentsRepository;
+  private PostPaymentResponse[] payments;
+
+  @Setup
+  public void setUp() {
+    paymentsRepository = new PaymentsRepository(
+        "off-heap".equals(mode) ? new OffHeapPaymentStore(64, PAYMENTS * 2)
+            : new StripedPaymentStore(64, PAYMENTS * 2), null);
+    payments = new PostPaymentResponse[PAYMENTS];
+    for (int i = 0; i < PAYMENTS; i++) {
+      payments[i] = payment(UUID.randomUUID());
+      paymentsRepository.add(payments[i]);
+    }
+  }
+
+  @Benchmark
+  @Group("readMostly")
+  @GroupThreads(3)
+  public Optional<PostPaymentResponse> get() {
+    return paymentsRepository.get(randomPayment().getId());
+  }
+
+  @Benchmark
+  @Group("readMostly")
+  @GroupThreads(1)
+  public void add() {
+    paymentsRepository.add(randomPayment());
+  }
+
+  @Benchmark
+  @Group("readOnly")
+  @GroupThreads(1)
+  public Optional<PostPaymentResponse> getUncontended() {
+    return paymentsRepository.get(randomPayment().getId());
+  }
+
+  private PostPaymentResponse randomPayment() {
+    return payments[ThreadLocalRandom.current().nextInt(PAYMENTS)];
+  }
+
+  static PostPaymentResponse payment(UUID id) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour("8877");
+    payment.setExpiryDate("04/2030");
+    payment.setCurrency(GBP);
+    payment.setAmount(100);
+    return payment;
+  }
+}
@@ -0,0 +1,61 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Time for each thread to add {@value #PAYMENTS_PER_THREAD} new payments to a
+ * {@link PaymentsRepository} and read each one back, from one thread and from eight. Each
+ * iteration starts from a fresh repository with room for twice the batch, so every add inserts
+ * rather than overwrites. With writes spread over the stripes, the time should stay roughly flat
+ * as threads are added, up to the number of cores.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = PaymentsRepositoryScalingBenchmark.PAYMENTS_PER_THREAD)
+@Measurement(iterations = 10, batchSize = PaymentsRepositoryScalingBenchmark.PAYMENTS_PER_THREAD)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PaymentsRepositoryScalingBenchmark {
+
+  static final int PAYMENTS_PER_THREAD = 50_000;
+
+  private PaymentsRepository paymentsRepository;
+
+  @Setup(Level.Iteration)
+  public void setUp(BenchmarkParams params) {
+    paymentsRepository = new PaymentsRepository(64, 2 * params.getThreads() * PAYMENTS_PER_THREAD);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public PostPaymentResponse addSingleThread() {
+    return addAndGet();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public PostPaymentResponse addContended() {
+    return addAndGet();
+  }
+
+  private PostPaymentResponse addAndGet() {
+    PostPaymentResponse payment = PaymentsRepositoryBenchmark.payment(UUID.randomUUID());
+    paymentsRepository.add(payment);
+    return paymentsRepository.get(payment.getId()).orElseThrow();
+  }
+}
@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link IdempotencyCache} under a retry storm: many threads resubmitting a small set of keys,
+ * which hits the replay path, against every submission carrying a fresh key, which inserts and
+ * evicts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(8)
+@State(Scope.Benchmark)
+public class IdempotencyCacheBenchmark {
+
+  private static final int RETRIED_KEYS = 64;
+  private static final byte[] FINGERPRINT = new byte[32];
+
+  private IdempotencyCache idempotencyCache;
+  private String[] retriedKeys;
+  private Supplier<CompletableFuture<PostPaymentResponse>> payment;
+
+  @State(Scope.Thread)
+  public static class ThreadKeys {
+
+    private final String prefix = UUID.randomUUID() + "-";
+    private int next;
+
+    String nextKey() {
+      return prefix + next++;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    idempotencyCache = new IdempotencyCache(100_000, Duration.ofMinutes(10), System::nanoTime);
+    retriedKeys = new String[RETRIED_KEYS];
+    for (int i = 0; i < RETRIED_KEYS; i++) {
+      retriedKeys[i] = "order-" + i;
+    }
+    PostPaymentResponse response = new PostPaymentResponse();
+    response.setId(UUID.randomUUID());
+    CompletableFuture<PostPaymentResponse> completed = CompletableFuture.completedFuture(response);
+    payment = () -> completed;
+  }
+
+  @Benchmark
+  public CompletableFuture<PostPaymentResponse> retryStorm(ThreadKeys threadKeys) {
+    String key = retriedKeys[threadKeys.next++ & (RETRIED_KEYS - 1)];
+    return idempotencyCache.execute(key, FINGERPRINT, payment);
+  }
+
+  @Benchmark
+  public CompletableFuture<PostPaymentResponse> freshKeys(ThreadKeys threadKeys) {
+    return idempotencyCache.execute(threadKeys.nextKey(), FINGERPRINT, payment);
+  }
+}
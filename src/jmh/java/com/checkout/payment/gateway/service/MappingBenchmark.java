@@ -0,0 +1,108 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Object mapping done by {@link PaymentGatewayService} around the bank call. The repository is
+ * backed by a store that discards payments, so only the mapping itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+  private PaymentGatewayService paymentGatewayService;
+  private PostPaymentRequest paymentRequest;
+  private UUID id;
+
+  @Setup
+  public void setUp() {
+    CurrencyRegistry currencies = CurrencyRegistry.defaults();
+    PaymentsRepository paymentsRepository = new PaymentsRepository(new DiscardingStore(), null);
+    paymentGatewayService = new PaymentGatewayService(paymentsRepository, null,
+        new IdempotencyCache(1, Duration.ofMinutes(1), System::nanoTime),
+        new PaymentRequestValidator(currencies, false), currencies, UUID::randomUUID,
+        new PaymentMetrics(new SimpleMeterRegistry(), currencies),
+        new PaymentStatistics(currencies),
+        new PaymentReadCache(1024, Duration.ofSeconds(1), 1024, System::nanoTime),
+        new ObjectMapper());
+    paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth("04");
+    paymentRequest.setExpiryYear("2030");
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(100);
+    paymentRequest.setCvv("123");
+    id = UUID.randomUUID();
+  }
+
+  @Benchmark
+  public BankPaymentRequest mapToBankPaymentRequest() {
+    return paymentGatewayService.mapToBankPaymentRequest(paymentRequest);
+  }
+
+  @Benchmark
+  public PostPaymentResponse mapToPaymentResponse() {
+    return paymentGatewayService.mapToPaymentResponse(paymentRequest, PaymentStatus.AUTHORIZED, id);
+  }
+
+  @Benchmark
+  public String getExpiryDate() {
+    return paymentRequest.getExpiryDate();
+  }
+
+  private static final class DiscardingStore implements PaymentStore {
+
+    @Override
+    public boolean put(PostPaymentResponse payment) {
+      return false;
+    }
+
+    @Override
+    public PostPaymentResponse get(UUID id) {
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return 0;
+    }
+
+    @Override
+    public int capacity() {
+      return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void forEach(Consumer<PostPaymentResponse> action) {
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import com.checkout.payment.gateway.model.BankPaymentResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.resilience.HedgingPolicy;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A burst of payments arriving at once, against a bank that answers after {@code bankMillis} and
+ * takes at most {@value #BANK_CONNECTIONS} calls at a time; further calls fail straight away, as
+ * they do when the bulkhead is full.
+ * <p>
+ * {@code synchronous} submits every payment to the bank as it arrives and measures until the last
+ * one has its answer. {@code async} accepts every payment into a {@link PaymentWorkQueue} drained
+ * by as many workers as the bank has connections, and measures only until the last one is
+ * accepted; the queue drains before the next burst. Accepted and rejected payments, and for
+ * {@code async} the longest time a payment waited in the queue, are printed after every burst.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentBurstBenchmark {
+
+  private static final int BURST = 5_000;
+  private static final int BANK_CONNECTIONS = 64;
+
+  @Param({"5"})
+  public long bankMillis;
+
+  @Param({"1000", "10000"})
+  public int queueCapacity;
+
+  private final Semaphore bankConnections = new Semaphore(BANK_CONNECTIONS);
+  private final AtomicInteger bankAnswers = new AtomicInteger();
+  private final AtomicInteger accepted = new AtomicInteger();
+  private final AtomicInteger rejected = new AtomicInteger();
+  private final CurrencyRegistry currencies = CurrencyRegistry.defaults();
+  private ScheduledExecutorService bankClock;
+  private PaymentGatewayService paymentGatewayService;
+  private PaymentWorkQueue paymentWorkQueue;
+  private AsyncPaymentService asyncPaymentService;
+  private Timer waitTimer;
+  private PostPaymentRequest paymentRequest;
+
+  @Setup
+  public void setUp() {
+    bankClock = Executors.newSingleThreadScheduledExecutor();
+    paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth("04");
+    paymentRequest.setExpiryYear("2030");
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(100);
+    paymentRequest.setCvv("123");
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpBurst() {
+    paymentGatewayService = new PaymentGatewayService(
+        new PaymentsRepository(64, BURST * 2), new SlowBank(),
+        new IdempotencyCache(1, Duration.ofMinutes(1), System::nanoTime),
+        new PaymentRequestValidator(currencies, false), currencies,
+        new TimeOrderedPaymentIdGenerator(),
+        new PaymentMetrics(new SimpleMeterRegistry(), currencies),
+        new PaymentStatistics(currencies),
+        new PaymentReadCache(1024, Duration.ofSeconds(1), 1024, System::nanoTime),
+        new ObjectMapper());
+    waitTimer = Timer.builder("payment.queue.wait").register(new SimpleMeterRegistry());
+    paymentWorkQueue = new PaymentWorkQueue(queueCapacity, BANK_CONNECTIONS, Duration.ofSeconds(1),
+        Duration.ofSeconds(30), Duration.ofSeconds(20), waitTimer, System::nanoTime);
+    paymentWorkQueue.start();
+    asyncPaymentService = new AsyncPaymentService(paymentGatewayService,
+        new IdempotencyCache(1, Duration.ofMinutes(1), System::nanoTime), paymentWorkQueue);
+    bankAnswers.set(0);
+    accepted.set(0);
+    rejected.set(0);
+  }
+
+  @TearDown(Level.Iteration)
+  public void drainAndPrint() throws InterruptedException {
+    // Only async leaves work behind: every accepted payment gets one bank answer or failure.
+    while (bankAnswers.get() < accepted.get()) {
+      Thread.sleep(1);
+    }
+    paymentWorkQueue.close();
+    System.out.printf("%naccepted %d, rejected %d, longest queue wait %.0f ms%n",
+        accepted.get(), rejected.get(), waitTimer.max(TimeUnit.MILLISECONDS));
+  }
+
+  @TearDown
+  public void tearDown() {
+    bankClock.shutdownNow();
+  }
+
+  @Benchmark
+  public void synchronous() {
+    CompletableFuture<?>[] results = new CompletableFuture<?>[BURST];
+    for (int i = 0; i < BURST; i++) {
+      results[i] = paymentGatewayService.processPayment(paymentRequest, null)
+          .handle((payment, ex) -> {
+            if (ex == null) {
+              accepted.incrementAndGet();
+            } else {
+              rejected.incrementAndGet();
+            }
+            return null;
+          });
+    }
+    CompletableFuture.allOf(results).join();
+  }
+
+  @Benchmark
+  public void async() {
+    for (int i = 0; i < BURST; i++) {
+      try {
+        asyncPaymentService.acceptPayment(paymentRequest, null);
+        accepted.incrementAndGet();
+      } catch (BankUnavailableException ex) {
+        rejected.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Answers after {@code bankMillis}, or fails at once when all connections are busy.
+   */
+  private final class SlowBank extends BankService {
+
+    private SlowBank() {
+      super(null, null, null, null, null, null, (HedgingPolicy) null, null, null, 0, 1, null);
+    }
+
+    @Override
+    public CompletableFuture<BankPaymentResponse> processPaymentWithBank(
+        BankPaymentRequest paymentRequestToBank, UUID uuid) {
+      if (!bankConnections.tryAcquire()) {
+        bankAnswers.incrementAndGet();
+        return CompletableFuture.failedFuture(
+            new BankUnavailableException("All bank connections are busy"));
+      }
+      CompletableFuture<BankPaymentResponse> answer = new CompletableFuture<>();
+      bankClock.schedule(() -> {
+        bankConnections.release();
+        bankAnswers.incrementAndGet();
+        BankPaymentResponse bankPaymentResponse = new BankPaymentResponse();
+        bankPaymentResponse.setAuthorized(true);
+        answer.complete(bankPaymentResponse);
+      }, bankMillis, TimeUnit.MILLISECONDS);
+      return answer;
+    }
+  }
+}
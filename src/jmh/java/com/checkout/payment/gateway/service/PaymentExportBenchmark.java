@@ -0,0 +1,141 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.OffHeapPaymentStore;
+import com.checkout.payment.gateway.repository.PaymentQuery;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.StripedPaymentStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to export one million payments as NDJSON, plain and gzip-compressed, into a stream that
+ * discards the bytes. While the export runs, a writer thread keeps adding payments; the slowest of
+ * its adds is printed after every iteration, to show the export does not hold up submits.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class PaymentExportBenchmark {
+
+  private static final int PAYMENTS = 1_000_000;
+  private static final CurrencyUnit GBP = CurrencyRegistry.defaults().lookup("GBP");
+  private static final PaymentQuery ALL = new PaymentQuery(null, null, 0, Integer.MAX_VALUE,
+      Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+  @Param({"heap", "off-heap"})
+  public String mode;
+
+  @Param({"false", "true"})
+  public boolean gzip;
+
+  private PaymentsRepository paymentsRepository;
+  private PaymentSearchService paymentSearchService;
+  private final TimeOrderedPaymentIdGenerator ids = new TimeOrderedPaymentIdGenerator();
+  private Thread writer;
+  private volatile boolean writing;
+  private volatile long slowestAddNanos;
+
+  @Setup
+  public void setUp() {
+    // Room for the payments the writer adds during every iteration.
+    PaymentStore store = "off-heap".equals(mode) ? new OffHeapPaymentStore(64, PAYMENTS * 4)
+        : new StripedPaymentStore(64, PAYMENTS * 4);
+    paymentsRepository = new PaymentsRepository(store, null);
+    paymentSearchService = new PaymentSearchService(paymentsRepository,
+        CurrencyRegistry.defaults(), new TimeOrderedPaymentIdGenerator(), new ObjectMapper(), 50,
+        1000, 1024);
+    for (int i = 0; i < PAYMENTS; i++) {
+      paymentsRepository.add(payment(i));
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void startWriter() {
+    writing = true;
+    slowestAddNanos = 0;
+    writer = new Thread(() -> {
+      int added = 0;
+      while (writing) {
+        long started = System.nanoTime();
+        paymentsRepository.add(payment(added++));
+        slowestAddNanos = Math.max(slowestAddNanos, System.nanoTime() - started);
+        // At most around 10k submits per second.
+        LockSupport.parkNanos(100_000);
+      }
+    });
+    writer.start();
+  }
+
+  @TearDown(Level.Iteration)
+  public void stopWriter() throws InterruptedException {
+    writing = false;
+    writer.join();
+    System.out.printf("%nslowest concurrent add: %d us%n",
+        TimeUnit.NANOSECONDS.toMicros(slowestAddNanos));
+  }
+
+  @Benchmark
+  public long export() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    if (!gzip) {
+      paymentSearchService.export(ALL, out);
+      return out.count;
+    }
+    GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true);
+    paymentSearchService.export(ALL, gzipOut);
+    gzipOut.finish();
+    return out.count;
+  }
+
+  private PostPaymentResponse payment(int i) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(ids.next());
+    payment.setStatus(i % 5 == 0 ? PaymentStatus.DECLINED : PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(String.format("%04d", i % 10_000));
+    payment.setExpiryDate("04/2030");
+    payment.setCurrency(GBP);
+    payment.setAmount(1 + i % 100_000);
+    return payment;
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads of stored payments as {@code GET /payment/{id}} produces them, without the HTTP layer:
+ * {@code encodeEveryRead} serializes the payment with Jackson on each read, as the endpoint did
+ * before payments were kept encoded; {@code preEncoded} writes the bytes cached at write time;
+ * {@code notModified} compares the ETag a polling merchant sends and writes nothing. The body
+ * bytes per read are printed after every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentReadBenchmark {
+
+  private static final int PAYMENTS = 1024;
+
+  private PaymentsRepository paymentsRepository;
+  private PaymentGatewayService paymentGatewayService;
+  private ObjectWriter writer;
+  private final UUID[] ids = new UUID[PAYMENTS];
+  private final String[] etags = new String[PAYMENTS];
+  private final CountingOutputStream out = new CountingOutputStream();
+  private long reads;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    CurrencyRegistry currencies = CurrencyRegistry.defaults();
+    ObjectMapper objectMapper = new ObjectMapper();
+    writer = objectMapper.writerFor(PostPaymentResponse.class);
+    paymentsRepository = new PaymentsRepository(64, PAYMENTS * 2);
+    paymentGatewayService = new PaymentGatewayService(paymentsRepository, null,
+        new IdempotencyCache(1, Duration.ofMinutes(1), System::nanoTime),
+        new PaymentRequestValidator(currencies, false), currencies, UUID::randomUUID,
+        new PaymentMetrics(new SimpleMeterRegistry(), currencies),
+        new PaymentStatistics(currencies),
+        new PaymentReadCache(PAYMENTS * 2, Duration.ofSeconds(1), 1024, System::nanoTime),
+        objectMapper);
+    for (int i = 0; i < PAYMENTS; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(UUID.randomUUID());
+      payment.setStatus(PaymentStatus.AUTHORIZED);
+      payment.setCardNumberLastFour(String.format("%04d", i));
+      payment.setExpiryDate("04/2030");
+      payment.setCurrency(currencies.lookup("GBP"));
+      payment.setAmount(1 + i * 100);
+      paymentsRepository.add(payment);
+      ids[i] = payment.getId();
+      etags[i] = paymentGatewayService.getEncodedPaymentById(payment.getId()).etag();
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void resetCounts() {
+    out.count = 0;
+    reads = 0;
+  }
+
+  @TearDown(Level.Iteration)
+  public void printBytesPerRead() {
+    System.out.printf("%nbody bytes per read: %d%n", reads == 0 ? 0 : out.count / reads);
+  }
+
+  @Benchmark
+  public void encodeEveryRead() throws IOException {
+    PostPaymentResponse payment = paymentsRepository.get(ids[nextIndex()]).orElseThrow();
+    writer.writeValue(out, payment);
+  }
+
+  @Benchmark
+  public void preEncoded() {
+    out.write(paymentGatewayService.getEncodedPaymentById(ids[nextIndex()]).json());
+  }
+
+  @Benchmark
+  public boolean notModified() {
+    int index = nextIndex();
+    return paymentGatewayService.getEncodedPaymentById(ids[index]).etag().equals(etags[index]);
+  }
+
+  private int nextIndex() {
+    reads++;
+    int index = next;
+    next = (next + 1) & (PAYMENTS - 1);
+    return index;
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b) {
+      count += b.length;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.OffHeapPaymentStore;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Payment lookups by ID over one million payments in an off-heap repository, with IDs drawn from a
+ * Zipfian distribution (exponent 0.99) and 5% of the lookups for IDs that do not exist.
+ * {@code cached} reads through {@link PaymentReadCache}, {@code uncached} goes to the repository
+ * every time, encoding the payment's JSON for every read. {@code loadMicros} adds a busy wait to every repository read, standing in for a
+ * round trip to durable or remote storage. The cache's hit ratio and evictions are printed after
+ * every iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class PaymentReadCacheBenchmark {
+
+  private static final int PAYMENTS = 1_000_000;
+  private static final int LOOKUPS = 1 << 20;
+  private static final double EXPONENT = 0.99;
+  private static final int UNKNOWN_PERCENT = 5;
+  // The unknown IDs are drawn from their own, smaller pool, as a client retrying them would.
+  private static final int UNKNOWN_IDS = 10_000;
+
+  @Param({"10000", "100000"})
+  public int cacheSize;
+
+  @Param({"0", "20"})
+  public long loadMicros;
+
+  private PaymentsRepository paymentsRepository;
+  private PaymentReadCache paymentReadCache;
+  private Function<UUID, EncodedPayment> loader;
+  private final UUID[] lookups = new UUID[LOOKUPS];
+  private int next;
+
+  @Setup
+  public void setUp() {
+    paymentsRepository = new PaymentsRepository(
+        new OffHeapPaymentStore(64, PAYMENTS + PAYMENTS / 4), null);
+    long loadNanos = TimeUnit.MICROSECONDS.toNanos(loadMicros);
+    ObjectWriter writer = new ObjectMapper().writerFor(PostPaymentResponse.class);
+    loader = id -> {
+      long until = System.nanoTime() + loadNanos;
+      while (System.nanoTime() - until < 0) {
+        Thread.onSpinWait();
+      }
+      return paymentsRepository.get(id)
+          .map(payment -> EncodedPayment.encode(payment, writer))
+          .orElse(null);
+    };
+    TimeOrderedPaymentIdGenerator ids = new TimeOrderedPaymentIdGenerator();
+    UUID[] stored = new UUID[PAYMENTS];
+    for (int i = 0; i < PAYMENTS; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(ids.next());
+      payment.setStatus(PaymentStatus.AUTHORIZED);
+      payment.setCardNumberLastFour(String.format("%04d", i % 10_000));
+      payment.setExpiryDate("04/2030");
+      payment.setCurrency(CurrencyRegistry.defaults().lookup("GBP"));
+      payment.setAmount(1 + i % 100_000);
+      paymentsRepository.add(payment);
+      stored[i] = payment.getId();
+    }
+    SplittableRandom random = new SplittableRandom(42);
+    // Popularity does not follow age: rank k is a random payment.
+    for (int i = PAYMENTS - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      UUID swapped = stored[i];
+      stored[i] = stored[j];
+      stored[j] = swapped;
+    }
+    double[] cumulative = new double[PAYMENTS];
+    double sum = 0;
+    for (int k = 0; k < PAYMENTS; k++) {
+      sum += 1 / Math.pow(k + 1, EXPONENT);
+      cumulative[k] = sum;
+    }
+    UUID[] unknown = new UUID[UNKNOWN_IDS];
+    Arrays.setAll(unknown, i -> UUID.randomUUID());
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (random.nextInt(100) < UNKNOWN_PERCENT) {
+        lookups[i] = unknown[random.nextInt(UNKNOWN_IDS)];
+        continue;
+      }
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      lookups[i] = stored[Math.min(PAYMENTS - 1, rank < 0 ? -rank - 1 : rank)];
+    }
+    paymentReadCache = new PaymentReadCache(cacheSize, Duration.ofSeconds(1), 10_000,
+        System::nanoTime);
+  }
+
+  @TearDown(Level.Iteration)
+  public void printCacheStatistics() {
+    System.out.printf("%nhit ratio %.3f, %d not found hits, %d evictions, %d cached%n",
+        paymentReadCache.getHitRatio(), paymentReadCache.getNegativeHitCount(),
+        paymentReadCache.getEvictionCount(), paymentReadCache.size());
+  }
+
+  @Benchmark
+  public EncodedPayment cached() {
+    return paymentReadCache.get(nextLookup(), loader);
+  }
+
+  @Benchmark
+  public EncodedPayment uncached() {
+    return loader.apply(nextLookup());
+  }
+
+  private UUID nextLookup() {
+    UUID id = lookups[next];
+    next = (next + 1) & (LOOKUPS - 1);
+    return id;
+  }
+}
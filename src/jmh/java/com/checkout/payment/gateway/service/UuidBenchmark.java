@@ -0,0 +1,36 @@
+package com.checkout.payment.gateway.service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Payment ID generation. {@link UUID#randomUUID()} draws from one shared {@code SecureRandom},
+ * so its cost under contention is what every concurrent submission pays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UuidBenchmark {
+
+  @Benchmark
+  @Threads(1)
+  public UUID randomUuidSingleThread() {
+    return UUID.randomUUID();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public UUID randomUuidContended() {
+    return UUID.randomUUID();
+  }
+}
@@ -0,0 +1,115 @@
+package com.checkout.payment.gateway.validation;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.time.YearMonth;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of validating a submitted payment. Bean validation runs the {@code @Pattern} regexes, the
+ * size checks and {@link CurrencyValidator}, and an invalid request also pays for message
+ * interpolation of every violation. {@link PaymentRequestValidator} does the same checks by hand
+ * and replaces bean validation on the submit endpoints. The expiry benchmarks compare parsing and
+ * {@code YearMonth.now()} per request with the validator's cached current month.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+  private ValidatorFactory validatorFactory;
+  private Validator validator;
+  private final CurrencyValidator currencyValidator = new CurrencyValidator();
+  private final PaymentRequestValidator paymentRequestValidator =
+      new PaymentRequestValidator(CurrencyRegistry.defaults(), false);
+  private final PaymentRequestValidator luhnValidator =
+      new PaymentRequestValidator(CurrencyRegistry.defaults(), true);
+  private PostPaymentRequest validRequest;
+  private PostPaymentRequest invalidRequest;
+
+  @Setup
+  public void setUp() {
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    validator = validatorFactory.getValidator();
+    validRequest = request("4111111111111111", "04", "2030", "GBP", 100, "123");
+    invalidRequest = request("22224053432488x", "13", "30", "XYZ", 0, "12a45");
+  }
+
+  @TearDown
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<PostPaymentRequest>> validRequest() {
+    return validator.validate(validRequest);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<PostPaymentRequest>> invalidRequest() {
+    return validator.validate(invalidRequest);
+  }
+
+  @Benchmark
+  public String handWrittenValidRequest() {
+    return paymentRequestValidator.validate(validRequest);
+  }
+
+  @Benchmark
+  public String handWrittenValidRequestWithLuhn() {
+    return luhnValidator.validate(validRequest);
+  }
+
+  @Benchmark
+  public String handWrittenInvalidRequest() {
+    return paymentRequestValidator.validate(invalidRequest);
+  }
+
+  @Benchmark
+  public boolean expiryYearMonthNow() {
+    YearMonth expiry = YearMonth.of(Integer.parseInt(validRequest.getExpiryYear()),
+        Integer.parseInt(validRequest.getExpiryMonth()));
+    return expiry.isAfter(YearMonth.now());
+  }
+
+  @Benchmark
+  public boolean expiryCachedMonth() {
+    return paymentRequestValidator.isExpiryInFuture(validRequest);
+  }
+
+  @Benchmark
+  public boolean currencyValidator() {
+    return currencyValidator.isValid(validRequest.getCurrency(), null);
+  }
+
+  private static PostPaymentRequest request(String cardNumber, String expiryMonth,
+      String expiryYear, String currency, int amount, String cvv) {
+    PostPaymentRequest paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber(cardNumber);
+    paymentRequest.setExpiryMonth(expiryMonth);
+    paymentRequest.setExpiryYear(expiryYear);
+    paymentRequest.setCurrency(currency);
+    paymentRequest.setAmount(amount);
+    paymentRequest.setCvv(cvv);
+    return paymentRequest;
+  }
+}
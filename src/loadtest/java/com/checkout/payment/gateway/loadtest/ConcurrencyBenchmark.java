@@ -0,0 +1,303 @@
+package com.checkout.payment.gateway.loadtest;
+
+import com.checkout.payment.gateway.simulator.BankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import com.checkout.payment.gateway.simulator.SimulatorSettings;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Submission latency and throughput of the gateway with platform and virtual threads, for each
+ * combination of in-flight payments and bank latency.
+ * <p>
+ * Every scenario starts the boot jar given with {@code --boot-jar} against an embedded
+ * {@link BankSimulator} answering after a constant {@code --bank-latency}, then keeps
+ * {@code --in-flight} payments outstanding (closed loop): each of that many clients submits a
+ * payment as soon as its previous one is answered. Clients start spread over the first half of
+ * {@code --warmup}, and only payments submitted after it are measured. The gateway's bulkhead and
+ * connection pool are sized to the in-flight count, up to {@code --bank-connections} connections,
+ * and its circuit breaker and timeouts are relaxed, so the scenarios compare the execution model
+ * rather than the protection in front of the bank.
+ * <p>
+ * The gateway, the simulator and the clients share the machine, so results only compare scenarios
+ * run on the same host.
+ */
+public class ConcurrencyBenchmark {
+
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+  private static final Duration TIMEOUT = Duration.ofMinutes(2);
+  private static final String PAYMENT = "{\"card_number\":\"2222405343248877\","
+      + "\"expiry_month\":\"04\",\"expiry_year\":\"2030\",\"currency\":\"GBP\","
+      + "\"amount\":100,\"cvv\":\"123\"}";
+
+  private record Scenario(String threads, int inFlight, Duration bankLatency) {
+
+  }
+
+  private record Result(Scenario scenario, Histogram latencies, double throughput,
+                        Map<Integer, Long> errors, long peakThreads, long rssKb) {
+
+  }
+
+  private final Path bootJar;
+  private final int bankConnections;
+  private final Duration duration;
+  private final Duration warmup;
+
+  ConcurrencyBenchmark(Path bootJar, int bankConnections, Duration duration, Duration warmup) {
+    this.bootJar = bootJar;
+    this.bankConnections = bankConnections;
+    this.duration = duration;
+    this.warmup = warmup;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Path bootJar = null;
+    List<String> threads = List.of("platform", "virtual");
+    List<Integer> inFlight = List.of(1_000, 10_000);
+    List<Duration> bankLatencies = List.of(Duration.ofMillis(500));
+    int bankConnections = 4_096;
+    Duration duration = Duration.ofSeconds(30);
+    Duration warmup = Duration.ofSeconds(15);
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2 || !option[0].startsWith("--")) {
+        throw new IllegalArgumentException("Expected --option=value but got: " + arg);
+      }
+      switch (option[0]) {
+        case "--boot-jar" -> bootJar = Path.of(option[1]);
+        case "--threads" -> threads = List.of(option[1].split(","));
+        case "--in-flight" -> inFlight = Arrays.stream(option[1].split(","))
+            .map(Integer::valueOf).toList();
+        case "--bank-latency" -> bankLatencies = Arrays.stream(option[1].split(","))
+            .map(LatencyDistribution::parseDuration).toList();
+        case "--bank-connections" -> bankConnections = Integer.parseInt(option[1]);
+        case "--duration" -> duration = LatencyDistribution.parseDuration(option[1]);
+        case "--warmup" -> warmup = LatencyDistribution.parseDuration(option[1]);
+        default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+      }
+    }
+    if (bootJar == null) {
+      throw new IllegalArgumentException("--boot-jar is required");
+    }
+    for (String mode : threads) {
+      if (!mode.equals("platform") && !mode.equals("virtual")) {
+        throw new IllegalArgumentException("Unknown threads: " + mode);
+      }
+    }
+
+    // The simulator's HttpServer otherwise closes idle connections beyond 200, so pooled
+    // connections the gateway is about to reuse fail with a reset.
+    System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(bankConnections));
+    ConcurrencyBenchmark benchmark =
+        new ConcurrencyBenchmark(bootJar, bankConnections, duration, warmup);
+    List<Result> results = new ArrayList<>();
+    for (Duration bankLatency : bankLatencies) {
+      for (int payments : inFlight) {
+        for (String mode : threads) {
+          Result result = benchmark.run(new Scenario(mode, payments, bankLatency));
+          System.out.println(format(List.of(result)));
+          results.add(result);
+        }
+      }
+    }
+    System.out.printf("%n%ds measured after %ds warm-up per scenario%n%n%s%n",
+        duration.toSeconds(), warmup.toSeconds(), format(results));
+  }
+
+  Result run(Scenario scenario) throws IOException, InterruptedException {
+    SimulatorSettings settings = SimulatorSettings.defaults().withPort(0)
+        .withLatency(LatencyDistribution.parse("constant:" + scenario.bankLatency().toMillis()
+            + "ms"));
+    try (BankSimulator bank = new BankSimulator(settings).start();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        ExecutorService exchanges = Executors.newVirtualThreadPerTaskExecutor()) {
+      int port;
+      try (ServerSocket socket = new ServerSocket(0)) {
+        port = socket.getLocalPort();
+      }
+      Path log = Files.createTempFile("gateway-concurrency", ".log");
+      Process gateway = new ProcessBuilder(gatewayCommand(scenario, port, bank.getUrl()))
+          .redirectErrorStream(true).redirectOutput(log.toFile()).start();
+      try {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .executor(exchanges)
+            .build();
+        HttpRequest payment = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/payment/submit"))
+            .header("Content-Type", "application/json")
+            .timeout(TIMEOUT)
+            .POST(HttpRequest.BodyPublishers.ofString(PAYMENT))
+            .build();
+        awaitFirstPayment(gateway, httpClient, payment, log);
+
+        Recorder latencies = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        LongAdder ok = new LongAdder();
+        Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long rampNanos = warmup.toNanos() / 2;
+        for (int i = 0; i < scenario.inFlight(); i++) {
+          long startAt = start + rampNanos * i / scenario.inFlight();
+          clients.execute(() -> {
+            LockSupport.parkNanos(startAt - System.nanoTime());
+            while (true) {
+              long sent = System.nanoTime();
+              if (sent >= end) {
+                return;
+              }
+              int status;
+              try {
+                status = httpClient.send(payment, HttpResponse.BodyHandlers.discarding())
+                    .statusCode();
+              } catch (IOException ex) {
+                status = 0;
+              } catch (InterruptedException ex) {
+                return;
+              }
+              if (sent >= measureFrom) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent);
+                latencies.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                if (status / 100 == 2) {
+                  ok.increment();
+                } else {
+                  errors.computeIfAbsent(status, code -> new LongAdder()).increment();
+                }
+              }
+            }
+          });
+        }
+        long peakThreads = 0;
+        while (System.nanoTime() < end) {
+          Thread.sleep(1_000);
+          peakThreads = Math.max(peakThreads, procStatus(gateway.pid(), "Threads:"));
+        }
+        long rssKb = procStatus(gateway.pid(), "VmRSS:");
+        clients.shutdown();
+        if (!clients.awaitTermination(TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+          throw new IllegalStateException("Payments still in flight after " + TIMEOUT);
+        }
+        Map<Integer, Long> errorCounts = new TreeMap<>();
+        errors.forEach((status, count) -> errorCounts.put(status, count.sum()));
+
+        gateway.destroy();
+        if (!gateway.waitFor(TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+          throw new IllegalStateException("Gateway did not stop, see " + log);
+        }
+        Files.delete(log);
+        return new Result(scenario, latencies.getIntervalHistogram(),
+            ok.sum() / (duration.toMillis() / 1000.0), errorCounts, peakThreads, rssKb);
+      } finally {
+        gateway.destroyForcibly();
+      }
+    }
+  }
+
+  private List<String> gatewayCommand(Scenario scenario, int port, String bankUrl) {
+    int payments = scenario.inFlight();
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.add("-jar");
+    command.add(bootJar.toString());
+    command.add("--server.port=" + port);
+    command.add("--server.tomcat.max-connections=" + (payments + 1_000));
+    command.add("--server.tomcat.accept-count=" + payments);
+    command.add("--spring.mvc.async.request-timeout=" + TIMEOUT.toMillis());
+    command.add("--bank.api.url=" + bankUrl);
+    command.add("--payment.threads.virtual=" + scenario.threads().equals("virtual"));
+    command.add("--payment.warmup.enabled=false");
+    command.add("--bank.bulkhead.max-concurrent-calls=" + payments);
+    command.add("--bank.client.max-connections=" + Math.min(payments, bankConnections));
+    // Waiting for a pooled connection is bounded by the connect timeout.
+    command.add("--bank.client.connect-timeout-ms=" + TIMEOUT.toMillis());
+    command.add("--bank.client.read-timeout-ms=" + TIMEOUT.toMillis());
+    command.add("--bank.client.total-timeout-ms=" + TIMEOUT.toMillis());
+    command.add("--bank.circuit-breaker.slow-call-threshold-ms=" + TIMEOUT.toMillis());
+    command.add("--bank.retry.max-attempts=1");
+    return command;
+  }
+
+  private static void awaitFirstPayment(Process gateway, HttpClient httpClient,
+      HttpRequest payment, Path log) throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (true) {
+      if (!gateway.isAlive() || System.nanoTime() > deadline) {
+        throw new IllegalStateException("Gateway did not accept a payment, see " + log);
+      }
+      try {
+        if (httpClient.send(payment, HttpResponse.BodyHandlers.discarding()).statusCode() / 100
+            == 2) {
+          return;
+        }
+      } catch (IOException ex) {
+        // Not listening yet.
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  private static String format(List<Result> results) {
+    StringBuilder report = new StringBuilder(String.format(
+        "%-9s %9s %9s %10s %9s %9s %9s %9s %8s %8s %8s  %s%n", "threads", "in-flight",
+        "bank ms", "ok/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "OS thr", "RSS MB",
+        "errors", "error statuses"));
+    for (Result result : results) {
+      Scenario scenario = result.scenario();
+      Histogram latencies = result.latencies();
+      long errors = result.errors().values().stream().mapToLong(Long::longValue).sum();
+      report.append(String.format(
+          "%-9s %9d %9d %10.0f %9.1f %9.1f %9.1f %9.1f %8d %8d %8d  %s%n",
+          scenario.threads(), scenario.inFlight(), scenario.bankLatency().toMillis(),
+          result.throughput(), millis(latencies.getValueAtPercentile(50)),
+          millis(latencies.getValueAtPercentile(99)),
+          millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()),
+          result.peakThreads(), result.rssKb() / 1024, errors,
+          result.errors().isEmpty() ? "-" : result.errors()));
+    }
+    return report.toString();
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  /**
+   * @return the numeric value of the {@code /proc/<pid>/status} field, or -1 where {@code /proc}
+   * is not available
+   */
+  private static long procStatus(long pid, String field) throws IOException {
+    Path status = Path.of("/proc", String.valueOf(pid), "status");
+    if (!Files.exists(status)) {
+      return -1;
+    }
+    for (String line : Files.readAllLines(status)) {
+      if (line.startsWith(field)) {
+        return Long.parseLong(line.replaceAll("\\D", ""));
+      }
+    }
+    return -1;
+  }
+}
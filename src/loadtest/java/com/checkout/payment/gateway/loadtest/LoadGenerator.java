@@ -0,0 +1,201 @@
+package com.checkout.payment.gateway.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Open-loop load generator for the payment gateway.
+ * <p>
+ * Requests are started on a fixed schedule at the target rate whether or not earlier ones have
+ * been answered, and each latency is measured from the time the request was due rather than from
+ * when it was actually sent, so a stalled gateway shows up in the percentiles instead of silently
+ * lowering the offered load. Submissions use random valid cards, apart from the invalid share,
+ * which the gateway rejects without calling the bank; reads fetch payments created earlier in the
+ * run. Requests due during the warm-up are sent but not recorded.
+ */
+public class LoadGenerator {
+
+  enum Operation {
+    SUBMIT("POST /payment/submit"),
+    SUBMIT_BATCH("POST /payment/submit/batch"),
+    GET("GET /payment/{id}");
+
+    final String label;
+
+    Operation(String label) {
+      this.label = label;
+    }
+  }
+
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+  private static final int KNOWN_IDS = 1 << 16;
+  private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+
+  private final LoadSettings settings;
+  private final HttpClient httpClient;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+  private final Map<Operation, Map<Integer, LongAdder>> statuses = new EnumMap<>(Operation.class);
+  private final AtomicReferenceArray<String> knownIds = new AtomicReferenceArray<>(KNOWN_IDS);
+  private final AtomicLong createdIds = new AtomicLong();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder dropped = new LongAdder();
+
+  public LoadGenerator(LoadSettings settings) {
+    this.settings = settings;
+    this.httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(executor)
+        .build();
+    for (Operation operation : Operation.values()) {
+      latencies.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+      statuses.put(operation, new ConcurrentHashMap<>());
+    }
+  }
+
+  public static void main(String[] args) {
+    LoadSettings settings = LoadSettings.parse(args);
+    System.out.println(new LoadGenerator(settings).run().format());
+  }
+
+  /**
+   * Runs the warm-up and the measured period, then waits for the requests still in flight.
+   */
+  public LoadReport run() {
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rps();
+    long start = System.nanoTime();
+    long measureFrom = start + settings.warmup().toNanos();
+    long end = measureFrom + settings.duration().toNanos();
+    for (long due = start; due < end; due += intervalNanos) {
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      if (inFlight.get() >= settings.maxInFlight()) {
+        if (due >= measureFrom) {
+          dropped.increment();
+        }
+        continue;
+      }
+      send(due, due >= measureFrom);
+    }
+    long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    executor.shutdownNow();
+
+    LoadReport report = new LoadReport(settings, dropped.sum());
+    latencies.forEach((operation, recorder) -> report.add(operation.label,
+        operation == Operation.SUBMIT_BATCH ? settings.batchSize() : 1,
+        recorder.getIntervalHistogram(), statuses.get(operation)));
+    return report;
+  }
+
+  private void send(long due, boolean measured) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long created = createdIds.get();
+    Operation operation;
+    HttpRequest.Builder request;
+    if (created > 0 && random.nextDouble() < settings.getRatio()) {
+      operation = Operation.GET;
+      String id = knownIds.get((int) (random.nextLong(Math.min(created, KNOWN_IDS))));
+      request = HttpRequest.newBuilder(settings.gatewayUrl().resolve("/payment/" + id)).GET();
+    } else if (settings.batchSize() > 1) {
+      operation = Operation.SUBMIT_BATCH;
+      StringBuilder batch = new StringBuilder("[");
+      for (int i = 0; i < settings.batchSize(); i++) {
+        batch.append(i == 0 ? "" : ",").append(submittedPaymentJson(random));
+      }
+      request = post(settings.gatewayUrl().resolve("/payment/submit/batch"), batch.append(']'));
+    } else {
+      operation = Operation.SUBMIT;
+      request = post(settings.gatewayUrl().resolve("/payment/submit"),
+          submittedPaymentJson(random));
+    }
+    inFlight.incrementAndGet();
+    httpClient.sendAsync(request.timeout(Duration.ofSeconds(60)).build(),
+            HttpResponse.BodyHandlers.ofString())
+        .whenComplete((response, ex) -> {
+          inFlight.decrementAndGet();
+          // Rejections carry an error ID rather than a payment ID.
+          if (operation != Operation.GET && response != null && response.statusCode() != 400) {
+            rememberIds(response.body());
+          }
+          if (measured) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+            latencies.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            statuses.get(operation)
+                .computeIfAbsent(response == null ? 0 : response.statusCode(), code -> new LongAdder())
+                .increment();
+          }
+        });
+  }
+
+  private static HttpRequest.Builder post(URI uri, CharSequence body) {
+    return HttpRequest.newBuilder(uri)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+  }
+
+  private void rememberIds(String body) {
+    int from = 0;
+    while ((from = body.indexOf("\"id\":\"", from)) >= 0) {
+      int start = from + 6;
+      int stop = body.indexOf('"', start);
+      if (stop < 0) {
+        return;
+      }
+      knownIds.set((int) (createdIds.getAndIncrement() & (KNOWN_IDS - 1)), body.substring(start, stop));
+      from = stop;
+    }
+  }
+
+  private String submittedPaymentJson(ThreadLocalRandom random) {
+    return random.nextDouble() < settings.invalidRatio()
+        ? invalidPaymentJson(random) : paymentJson(random);
+  }
+
+  /**
+   * A valid payment whose card number ends in 1-9, so the bank simulator's default rules
+   * authorize odd and decline even endings.
+   */
+  private static String paymentJson(ThreadLocalRandom random) {
+    long cardNumber = 4_000_000_000_000_000L + random.nextLong(100_000_000_000_000L) * 10
+        + random.nextInt(1, 10);
+    return "{\"card_number\":\"" + cardNumber
+        + "\",\"expiry_month\":\"" + String.format("%02d", random.nextInt(1, 13))
+        + "\",\"expiry_year\":\"" + random.nextInt(2030, 2035)
+        + "\",\"currency\":\"" + CURRENCIES[random.nextInt(CURRENCIES.length)]
+        + "\",\"amount\":" + random.nextInt(1, 100_000)
+        + ",\"cvv\":\"" + random.nextInt(100, 1000) + "\"}";
+  }
+
+  /**
+   * A payment the gateway rejects: either the card expired years ago or the CVV is not numeric,
+   * exercising the expiry check and the field validation in turn.
+   */
+  private static String invalidPaymentJson(ThreadLocalRandom random) {
+    String payment = paymentJson(random);
+    return random.nextBoolean()
+        ? payment.replaceFirst("\"expiry_year\":\"\\d+\"", "\"expiry_year\":\"2020\"")
+        : payment.replaceFirst("\"cvv\":\"\\d+\"", "\"cvv\":\"12a\"");
+  }
+}
@@ -0,0 +1,74 @@
+package com.checkout.payment.gateway.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency percentiles, throughput and status codes per operation of a {@link LoadGenerator} run.
+ */
+public class LoadReport {
+
+  public record OperationResult(String operation, long requests, long items, double requestsPerSecond,
+                                double itemsPerSecond, Histogram latencyMicros,
+                                Map<Integer, Long> statuses) {
+
+    public double percentileMillis(double percentile) {
+      return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+    }
+  }
+
+  private final LoadSettings settings;
+  private final long dropped;
+  private final List<OperationResult> results = new ArrayList<>();
+
+  LoadReport(LoadSettings settings, long dropped) {
+    this.settings = settings;
+    this.dropped = dropped;
+  }
+
+  void add(String operation, int itemsPerRequest, Histogram latencyMicros,
+      Map<Integer, LongAdder> statusCounts) {
+    long requests = latencyMicros.getTotalCount();
+    if (requests == 0) {
+      return;
+    }
+    double seconds = settings.duration().toNanos() / 1e9;
+    Map<Integer, Long> statuses = new TreeMap<>();
+    statusCounts.forEach((status, count) -> statuses.put(status, count.sum()));
+    results.add(new OperationResult(operation, requests, requests * itemsPerRequest,
+        requests / seconds, requests * itemsPerRequest / seconds, latencyMicros, statuses));
+  }
+
+  public List<OperationResult> getResults() {
+    return results;
+  }
+
+  public long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Formats the report as a table. Latencies are in milliseconds; status 0 counts requests that
+   * got no HTTP answer.
+   */
+  public String format() {
+    StringBuilder report = new StringBuilder(String.format(
+        "%nTarget %d rps for %ds against %s (warm-up %ds), %d request(s) dropped at %d in flight%n%n",
+        settings.rps(), settings.duration().toSeconds(), settings.gatewayUrl(),
+        settings.warmup().toSeconds(), dropped, settings.maxInFlight()));
+    report.append(String.format("%-28s %9s %10s %10s %9s %9s %9s %9s %9s  %s%n", "operation",
+        "requests", "req/s", "items/s", "p50", "p90", "p99", "p99.9", "max", "statuses"));
+    for (OperationResult result : results) {
+      report.append(String.format("%-28s %9d %10.1f %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+          result.operation(), result.requests(), result.requestsPerSecond(),
+          result.itemsPerSecond(), result.percentileMillis(50), result.percentileMillis(90),
+          result.percentileMillis(99), result.percentileMillis(99.9),
+          result.latencyMicros().getMaxValue() / 1000.0, result.statuses()));
+    }
+    return report.toString();
+  }
+}
@@ -0,0 +1,66 @@
+package com.checkout.payment.gateway.loadtest;
+
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * What a {@link LoadGenerator} run sends.
+ *
+ * @param gatewayUrl  base URL of the payment gateway
+ * @param rps         requests started per second, regardless of how fast the gateway answers
+ * @param getRatio    share of requests that read back an earlier payment instead of submitting
+ * @param batchSize   payments per submission; above 1 submissions use the batch endpoint
+ * @param invalidRatio share of submitted payments that are invalid and rejected before the bank
+ * @param maxInFlight requests allowed in flight; a request due while at the limit is counted as
+ *                    dropped instead of being sent
+ */
+public record LoadSettings(URI gatewayUrl, int rps, Duration duration, Duration warmup,
+                           double getRatio, int batchSize, double invalidRatio,
+                           int maxInFlight) {
+
+  public static LoadSettings defaults() {
+    return new LoadSettings(URI.create("http://localhost:8090"), 200, Duration.ofSeconds(30),
+        Duration.ofSeconds(5), 0.2, 1, 0, 10_000);
+  }
+
+  /**
+   * Reads {@code --url=}, {@code --rps=}, {@code --duration=}, {@code --warmup=},
+   * {@code --get-ratio=}, {@code --batch-size=}, {@code --invalid-ratio=} and
+   * {@code --max-in-flight=} options.
+   */
+  public static LoadSettings parse(String[] args) {
+    LoadSettings defaults = defaults();
+    URI gatewayUrl = defaults.gatewayUrl();
+    int rps = defaults.rps();
+    Duration duration = defaults.duration();
+    Duration warmup = defaults.warmup();
+    double getRatio = defaults.getRatio();
+    int batchSize = defaults.batchSize();
+    double invalidRatio = defaults.invalidRatio();
+    int maxInFlight = defaults.maxInFlight();
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2 || !option[0].startsWith("--")) {
+        throw new IllegalArgumentException("Expected --option=value but got: " + arg);
+      }
+      String value = option[1];
+      switch (option[0]) {
+        case "--url" -> gatewayUrl = URI.create(value);
+        case "--rps" -> rps = Integer.parseInt(value);
+        case "--duration" -> duration = LatencyDistribution.parseDuration(value);
+        case "--warmup" -> warmup = LatencyDistribution.parseDuration(value);
+        case "--get-ratio" -> getRatio = Double.parseDouble(value);
+        case "--batch-size" -> batchSize = Integer.parseInt(value);
+        case "--invalid-ratio" -> invalidRatio = Double.parseDouble(value);
+        case "--max-in-flight" -> maxInFlight = Integer.parseInt(value);
+        default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+      }
+    }
+    if (rps <= 0 || batchSize <= 0 || maxInFlight <= 0) {
+      throw new IllegalArgumentException("rps, batch size and max in flight must be positive");
+    }
+    return new LoadSettings(gatewayUrl, rps, duration, warmup, getRatio, batchSize, invalidRatio,
+        maxInFlight);
+  }
+}
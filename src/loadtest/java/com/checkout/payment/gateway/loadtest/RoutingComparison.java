@@ -0,0 +1,173 @@
+package com.checkout.payment.gateway.loadtest;
+
+import com.checkout.payment.gateway.configuration.ApplicationConfiguration;
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import com.checkout.payment.gateway.resilience.Bulkhead;
+import com.checkout.payment.gateway.resilience.CircuitBreaker;
+import com.checkout.payment.gateway.resilience.HedgingPolicy;
+import com.checkout.payment.gateway.resilience.RetryBudget;
+import com.checkout.payment.gateway.routing.Acquirer;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import com.checkout.payment.gateway.routing.AcquirerRouter.OutlierDetection;
+import com.checkout.payment.gateway.service.BankService;
+import com.checkout.payment.gateway.simulator.BankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import com.checkout.payment.gateway.simulator.SimulatorSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.io.CloseMode;
+
+/**
+ * Bank call latency with every call sent to one acquirer endpoint, once for each endpoint, and
+ * with calls routed across all of them by {@link AcquirerRouter}.
+ * <p>
+ * Each endpoint is an embedded {@link BankSimulator} with its own latency profile, given as
+ * repeated {@code --acquirer=<latency>} options. Calls go through {@link BankService} without
+ * retries or hedging, started open loop at {@code --rps} for {@code --duration} after
+ * {@code --warmup}, and each latency is measured from the time the call was due.
+ */
+public class RoutingComparison {
+
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+  private static final List<String> DEFAULT_ACQUIRERS =
+      List.of("lognormal:15ms,0.3", "lognormal:12ms,0.6", "pareto:8ms,1.3");
+
+  private final int rps;
+  private final Duration duration;
+  private final Duration warmup;
+
+  RoutingComparison(int rps, Duration duration, Duration warmup) {
+    this.rps = rps;
+    this.duration = duration;
+    this.warmup = warmup;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int rps = 200;
+    Duration duration = Duration.ofSeconds(20);
+    Duration warmup = Duration.ofSeconds(5);
+    List<String> latencies = new ArrayList<>();
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2 || !option[0].startsWith("--")) {
+        throw new IllegalArgumentException("Expected --option=value but got: " + arg);
+      }
+      switch (option[0]) {
+        case "--rps" -> rps = Integer.parseInt(option[1]);
+        case "--duration" -> duration = LatencyDistribution.parseDuration(option[1]);
+        case "--warmup" -> warmup = LatencyDistribution.parseDuration(option[1]);
+        case "--acquirer" -> latencies.add(option[1]);
+        default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+      }
+    }
+    if (latencies.isEmpty()) {
+      latencies = DEFAULT_ACQUIRERS;
+    }
+
+    List<BankSimulator> simulators = new ArrayList<>();
+    try {
+      for (String latency : latencies) {
+        simulators.add(new BankSimulator(SimulatorSettings.defaults().withPort(0)
+            .withLatency(LatencyDistribution.parse(latency))).start());
+      }
+      RoutingComparison comparison = new RoutingComparison(rps, duration, warmup);
+      StringBuilder report = new StringBuilder(String.format(
+          "%n%d calls/s for %ds per scenario (warm-up %ds), latencies in ms%n%n",
+          rps, duration.toSeconds(), warmup.toSeconds()));
+      report.append(String.format("%-36s %8s %8s %8s %8s %8s %8s %7s%n", "routing", "calls",
+          "p50", "p90", "p99", "p99.9", "max", "errors"));
+      List<Acquirer> acquirers = new ArrayList<>();
+      for (int i = 0; i < simulators.size(); i++) {
+        String name = "acquirer-" + (i + 1);
+        String url = simulators.get(i).getUrl();
+        acquirers.add(new Acquirer(name, url, AcquirerRouter.DEFAULT_DECAY.toNanos()));
+        report.append(comparison.run("static " + name + " (" + latencies.get(i) + ")",
+            AcquirerRouter.single(url)));
+      }
+      report.append(comparison.run("routed across all", new AcquirerRouter(acquirers, List.of(),
+          OutlierDetection.DEFAULTS, System::nanoTime)));
+      System.out.println(report);
+    } finally {
+      simulators.forEach(BankSimulator::close);
+    }
+  }
+
+  /**
+   * Sends calls through a fresh {@link BankService} using the router and formats one report line.
+   */
+  String run(String label, AcquirerRouter router) {
+    ApplicationConfiguration configuration = new ApplicationConfiguration();
+    CloseableHttpAsyncClient httpClient = configuration.bankHttpClient(1000, 30000, 30000, 1000,
+        false);
+    ExecutorService callbackExecutor = configuration.bankCallbackExecutor(4, false);
+    BankService bankService = new BankService(httpClient, callbackExecutor, new ObjectMapper(),
+        new CircuitBreaker(100, 100, 100, 100, Duration.ofMinutes(1), Duration.ofSeconds(1), 1,
+            System::nanoTime),
+        new Bulkhead(10_000), new RetryBudget(0, 0), (HedgingPolicy) null,
+        new PaymentMetrics(new SimpleMeterRegistry(), CurrencyRegistry.defaults()), router,
+        30_000, 1, "Idempotency-Key");
+    Recorder latencies = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    LongAdder errors = new LongAdder();
+    AtomicInteger inFlight = new AtomicInteger();
+    BankPaymentRequest request = new BankPaymentRequest();
+    request.setCardNumber("2222405343248877");
+    request.setExpiryDate("04/2030");
+    request.setCurrency("GBP");
+    request.setAmount(100);
+    request.setCvv("123");
+
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+    long start = System.nanoTime();
+    long measureFrom = start + warmup.toNanos();
+    long end = measureFrom + duration.toNanos();
+    for (long due = start; due < end; due += intervalNanos) {
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      long sent = due;
+      boolean measured = due >= measureFrom;
+      inFlight.incrementAndGet();
+      bankService.processPaymentWithBank(request, UUID.randomUUID())
+          .whenComplete((response, ex) -> {
+            inFlight.decrementAndGet();
+            if (!measured) {
+              return;
+            }
+            if (ex != null) {
+              errors.increment();
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent);
+            latencies.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+          });
+    }
+    long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    httpClient.close(CloseMode.GRACEFUL);
+    callbackExecutor.shutdown();
+
+    Histogram histogram = latencies.getIntervalHistogram();
+    return String.format("%-36s %8d %8.2f %8.2f %8.2f %8.2f %8.2f %7d%n", label,
+        histogram.getTotalCount(), histogram.getValueAtPercentile(50) / 1000.0,
+        histogram.getValueAtPercentile(90) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0,
+        errors.sum());
+  }
+}
@@ -0,0 +1,210 @@
+package com.checkout.payment.gateway.loadtest;
+
+import com.checkout.payment.gateway.simulator.BankSimulator;
+import com.checkout.payment.gateway.simulator.LatencyDistribution;
+import com.checkout.payment.gateway.simulator.SimulatorSettings;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from launching the gateway to its first successful {@code POST /payment/submit}, and its
+ * resident memory once idle, for the ways it can be started.
+ * <p>
+ * Every run starts a fresh JVM against an embedded {@link BankSimulator}, submits a payment every
+ * {@value #POLL_MILLIS} ms until one is accepted, waits {@code --idle} and reads the resident set
+ * size from {@code /proc}. The scenarios are the boot jar as built by {@code bootJar}, and the
+ * fast-start jar given with {@code --fast-jar}: with the {@code fast} profile, with AOT-generated
+ * initializers and, when {@code --archive} exists, with its class data sharing archive.
+ * <p>
+ * {@code --train-archive=<file>} instead starts the fast-start jar once, submits one payment and
+ * stops it, so that the JVM writes the classes it loaded to that archive on exit.
+ */
+public class StartupBenchmark {
+
+  private static final int POLL_MILLIS = 10;
+  private static final String PAYMENT = "{\"card_number\":\"2222405343248877\","
+      + "\"expiry_month\":\"04\",\"expiry_year\":\"2030\",\"currency\":\"GBP\","
+      + "\"amount\":100,\"cvv\":\"123\"}";
+
+  private record Scenario(String label, List<String> jvmArgs, Path jar, List<String> appArgs) {
+
+  }
+
+  private record Startup(long firstPaymentMillis, long idleRssKb) {
+
+  }
+
+  private final String bankUrl;
+  private final Duration idle;
+  private final Duration timeout;
+  private final HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(1))
+      .build();
+
+  StartupBenchmark(String bankUrl, Duration idle, Duration timeout) {
+    this.bankUrl = bankUrl;
+    this.idle = idle;
+    this.timeout = timeout;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int runs = 5;
+    Duration idle = Duration.ofSeconds(5);
+    Duration timeout = Duration.ofMinutes(2);
+    Path bootJar = null;
+    Path fastJar = null;
+    Path archive = null;
+    Path trainArchive = null;
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2 || !option[0].startsWith("--")) {
+        throw new IllegalArgumentException("Expected --option=value but got: " + arg);
+      }
+      switch (option[0]) {
+        case "--runs" -> runs = Integer.parseInt(option[1]);
+        case "--idle" -> idle = LatencyDistribution.parseDuration(option[1]);
+        case "--timeout" -> timeout = LatencyDistribution.parseDuration(option[1]);
+        case "--boot-jar" -> bootJar = Path.of(option[1]);
+        case "--fast-jar" -> fastJar = Path.of(option[1]);
+        case "--archive" -> archive = Path.of(option[1]);
+        case "--train-archive" -> trainArchive = Path.of(option[1]);
+        default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+      }
+    }
+
+    try (BankSimulator bank = new BankSimulator(SimulatorSettings.defaults().withPort(0))
+        .start()) {
+      if (trainArchive != null) {
+        Files.deleteIfExists(trainArchive);
+        Startup startup = new StartupBenchmark(bank.getUrl(), Duration.ZERO, timeout)
+            .start(new Scenario("training", List.of("-XX:ArchiveClassesAtExit=" + trainArchive,
+                "-Dspring.aot.enabled=true"), fastJar, List.of("--spring.profiles.active=fast")));
+        System.out.printf("Trained %s in %d ms%n", trainArchive, startup.firstPaymentMillis());
+        return;
+      }
+
+      List<Scenario> scenarios = new ArrayList<>();
+      if (bootJar != null) {
+        scenarios.add(new Scenario("boot jar", List.of(), bootJar, List.of()));
+      }
+      if (fastJar != null) {
+        List<String> fast = List.of("--spring.profiles.active=fast");
+        scenarios.add(new Scenario("fast profile", List.of(), fastJar, fast));
+        scenarios.add(new Scenario("fast profile, AOT", List.of("-Dspring.aot.enabled=true"),
+            fastJar, fast));
+        if (archive != null && Files.exists(archive)) {
+          scenarios.add(new Scenario("fast profile, AOT, CDS", List.of("-Dspring.aot.enabled=true",
+              "-XX:SharedArchiveFile=" + archive), fastJar, fast));
+        }
+      }
+      StartupBenchmark benchmark = new StartupBenchmark(bank.getUrl(), idle, timeout);
+      StringBuilder report = new StringBuilder(String.format(
+          "%n%d runs per scenario, idle RSS read after %ds%n%n", runs, idle.toSeconds()));
+      report.append(String.format("%-26s %12s %12s %12s %14s%n", "startup",
+          "median ms", "min ms", "max ms", "idle RSS MB"));
+      for (Scenario scenario : scenarios) {
+        long[] millis = new long[runs];
+        long[] rssKb = new long[runs];
+        for (int i = 0; i < runs; i++) {
+          Startup startup = benchmark.start(scenario);
+          millis[i] = startup.firstPaymentMillis();
+          rssKb[i] = startup.idleRssKb();
+        }
+        Arrays.sort(millis);
+        Arrays.sort(rssKb);
+        report.append(String.format("%-26s %12d %12d %12d %14s%n", scenario.label(),
+            millis[runs / 2], millis[0], millis[runs - 1],
+            rssKb[runs / 2] < 0 ? "n/a" : String.valueOf(rssKb[runs / 2] / 1024)));
+      }
+      System.out.println(report);
+    }
+  }
+
+  /**
+   * Starts the gateway, waits for its first accepted payment and for the idle period, then stops
+   * it and waits for it to exit.
+   */
+  Startup start(Scenario scenario) throws IOException, InterruptedException {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.addAll(scenario.jvmArgs());
+    command.add("-jar");
+    command.add(scenario.jar().toString());
+    command.addAll(scenario.appArgs());
+    command.add("--server.port=" + port);
+    command.add("--bank.api.url=" + bankUrl);
+    Path log = Files.createTempFile("gateway-startup", ".log");
+    HttpRequest payment = HttpRequest.newBuilder(
+            URI.create("http://localhost:" + port + "/payment/submit"))
+        .header("Content-Type", "application/json")
+        .timeout(timeout)
+        .POST(HttpRequest.BodyPublishers.ofString(PAYMENT))
+        .build();
+
+    long started = System.nanoTime();
+    Process process = new ProcessBuilder(command).redirectErrorStream(true)
+        .redirectOutput(log.toFile()).start();
+    try {
+      long deadline = started + timeout.toNanos();
+      while (true) {
+        if (!process.isAlive() || System.nanoTime() > deadline) {
+          throw new IllegalStateException(scenario.label() + " did not accept a payment, see "
+              + log);
+        }
+        try {
+          HttpResponse<Void> response = httpClient.send(payment,
+              HttpResponse.BodyHandlers.discarding());
+          if (response.statusCode() / 100 == 2) {
+            break;
+          }
+        } catch (IOException ex) {
+          // Not listening yet.
+        }
+        Thread.sleep(POLL_MILLIS);
+      }
+      long firstPaymentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+      Thread.sleep(idle.toMillis());
+      long idleRssKb = residentSetKb(process.pid());
+      process.destroy();
+      if (!process.waitFor(timeout.toSeconds(), TimeUnit.SECONDS)) {
+        throw new IllegalStateException(scenario.label() + " did not stop, see " + log);
+      }
+      Files.delete(log);
+      return new Startup(firstPaymentMillis, idleRssKb);
+    } finally {
+      process.destroyForcibly();
+    }
+  }
+
+  /**
+   * @return the {@code VmRSS} of the process, or -1 where {@code /proc} is not available
+   */
+  private static long residentSetKb(long pid) throws IOException {
+    Path status = Path.of("/proc", String.valueOf(pid), "status");
+    if (!Files.exists(status)) {
+      return -1;
+    }
+    for (String line : Files.readAllLines(status)) {
+      if (line.startsWith("VmRSS:")) {
+        return Long.parseLong(line.replaceAll("\\D", ""));
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,183 @@
+package com.checkout.payment.gateway.simulator;
+
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import com.checkout.payment.gateway.model.BankPaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stand-in for the acquiring bank's {@code POST /payments} API that can run on its own or be
+ * embedded in tests.
+ * <p>
+ * Each request is answered after a delay drawn from the configured {@link LatencyDistribution}.
+ * A configured share of requests fails with an error status or has its connection dropped; the
+ * rest are authorized or declined by the first matching {@link Rule}. Requests carrying an
+ * {@code Idempotency-Key} the simulator has already answered get the same answer again, as a bank
+ * would give to a retried or hedged payment. Every request is handled on its own virtual thread,
+ * so slow answers do not limit throughput.
+ */
+public class BankSimulator implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BankSimulator.class);
+  private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  private static final byte[] UNSUPPORTED = "{\"errorMessage\":\"The request supplied is not supported by the simulator\"}"
+      .getBytes(StandardCharsets.UTF_8);
+  private static final int MAX_REMEMBERED_KEYS = 1_000_000;
+
+  private final SimulatorSettings settings;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, byte[]> answered = new ConcurrentHashMap<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder replays = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder resets = new LongAdder();
+  private ExecutorService executor;
+  private HttpServer server;
+
+  public BankSimulator(SimulatorSettings settings) {
+    this.settings = settings;
+  }
+
+  public static void main(String[] args) throws IOException {
+    BankSimulator simulator = new BankSimulator(SimulatorSettings.parse(args)).start();
+    Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+    LOG.info("Bank simulator listening on {}", simulator.getUrl());
+  }
+
+  public BankSimulator start() throws IOException {
+    executor = Executors.newVirtualThreadPerTaskExecutor();
+    server = HttpServer.create(new InetSocketAddress(settings.port()), 1024);
+    server.setExecutor(executor);
+    server.createContext("/payments", this::handle);
+    server.start();
+    return this;
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public String getUrl() {
+    return "http://localhost:" + getPort() + "/payments";
+  }
+
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  public long getReplayCount() {
+    return replays.sum();
+  }
+
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  public long getResetCount() {
+    return resets.sum();
+  }
+
+  @Override
+  public void close() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.increment();
+    try (exchange) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long latencyNanos = settings.latency().sampleNanos(random);
+      if (latencyNanos > 0) {
+        TimeUnit.NANOSECONDS.sleep(latencyNanos);
+      }
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        send(exchange, 405, UNSUPPORTED);
+        return;
+      }
+      if (random.nextDouble() < settings.resetRate()) {
+        // Closing the exchange without an answer drops the connection mid-request.
+        resets.increment();
+        return;
+      }
+      if (random.nextDouble() < settings.errorRate()) {
+        errors.increment();
+        send(exchange, settings.errorStatus(), UNSUPPORTED);
+        return;
+      }
+      String idempotencyKey = exchange.getRequestHeaders().getFirst(IDEMPOTENCY_KEY_HEADER);
+      byte[] previous = idempotencyKey == null ? null : answered.get(idempotencyKey);
+      if (previous != null) {
+        replays.increment();
+        send(exchange, 200, previous);
+        return;
+      }
+      answer(exchange, idempotencyKey);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void answer(HttpExchange exchange, String idempotencyKey) throws IOException {
+    BankPaymentRequest request;
+    try (InputStream body = exchange.getRequestBody()) {
+      request = objectMapper.readValue(body, BankPaymentRequest.class);
+    } catch (IOException ex) {
+      send(exchange, 400, UNSUPPORTED);
+      return;
+    }
+    if (request.getCardNumber() == null || request.getExpiryDate() == null
+        || request.getCurrency() == null || request.getCvv() == null) {
+      send(exchange, 400, UNSUPPORTED);
+      return;
+    }
+    Rule.Outcome outcome = Rule.Outcome.AUTHORIZED;
+    for (Rule rule : settings.rules()) {
+      if (rule.matches(request)) {
+        outcome = rule.outcome();
+        break;
+      }
+    }
+    if (outcome.statusCode() != 200) {
+      errors.increment();
+      send(exchange, outcome.statusCode(), UNSUPPORTED);
+      return;
+    }
+    BankPaymentResponse response = new BankPaymentResponse();
+    response.setAuthorized(outcome.authorized());
+    response.setAuthorizationCode(outcome.authorized() ? UUID.randomUUID().toString() : "");
+    byte[] bytes = objectMapper.writeValueAsBytes(response);
+    if (idempotencyKey != null && answered.size() < MAX_REMEMBERED_KEYS) {
+      byte[] raced = answered.putIfAbsent(idempotencyKey, bytes);
+      if (raced != null) {
+        // A concurrent attempt of the same payment answered first.
+        replays.increment();
+        bytes = raced;
+      }
+    }
+    send(exchange, 200, bytes);
+  }
+
+  private static void send(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(statusCode, body.length);
+    exchange.getResponseBody().write(body);
+  }
+}
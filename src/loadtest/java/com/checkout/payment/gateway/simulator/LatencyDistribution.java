@@ -0,0 +1,82 @@
+package com.checkout.payment.gateway.simulator;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * How long the simulated bank takes to answer.
+ * <p>
+ * Parsed from {@code none}, {@code constant:20ms}, {@code uniform:10ms-50ms},
+ * {@code lognormal:20ms,0.8} (median and sigma) or {@code pareto:10ms,1.5} (minimum and shape; the
+ * heavy tail is capped at {@link #MAX_NANOS}).
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+  long MAX_NANOS = Duration.ofSeconds(30).toNanos();
+
+  long sampleNanos(RandomGenerator random);
+
+  static LatencyDistribution none() {
+    return random -> 0;
+  }
+
+  static LatencyDistribution constant(Duration latency) {
+    long nanos = latency.toNanos();
+    return random -> nanos;
+  }
+
+  static LatencyDistribution uniform(Duration min, Duration max) {
+    long minNanos = min.toNanos();
+    long maxNanos = max.toNanos();
+    if (maxNanos < minNanos) {
+      throw new IllegalArgumentException("Uniform latency needs min <= max");
+    }
+    return random -> minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1);
+  }
+
+  static LatencyDistribution logNormal(Duration median, double sigma) {
+    double mu = Math.log(median.toNanos());
+    return random -> (long) Math.min(MAX_NANOS, Math.exp(mu + sigma * random.nextGaussian()));
+  }
+
+  static LatencyDistribution pareto(Duration minimum, double shape) {
+    double scale = minimum.toNanos();
+    return random -> (long) Math.min(MAX_NANOS,
+        scale / Math.pow(1 - random.nextDouble(), 1 / shape));
+  }
+
+  static LatencyDistribution parse(String spec) {
+    String[] kindAndArgs = spec.trim().split(":", 2);
+    String[] args = kindAndArgs.length > 1 ? kindAndArgs[1].split("[,-]") : new String[0];
+    try {
+      return switch (kindAndArgs[0]) {
+        case "none" -> none();
+        case "constant" -> constant(parseDuration(args[0]));
+        case "uniform" -> uniform(parseDuration(args[0]), parseDuration(args[1]));
+        case "lognormal" -> logNormal(parseDuration(args[0]), Double.parseDouble(args[1]));
+        case "pareto" -> pareto(parseDuration(args[0]), Double.parseDouble(args[1]));
+        default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+      };
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+      throw new IllegalArgumentException("Invalid latency distribution: " + spec, ex);
+    }
+  }
+
+  /**
+   * Parses {@code 250us}, {@code 20ms}, {@code 2s} or a plain number of milliseconds.
+   */
+  static Duration parseDuration(String value) {
+    String trimmed = value.trim();
+    if (trimmed.endsWith("us")) {
+      return Duration.ofNanos(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)) * 1000);
+    }
+    if (trimmed.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+    }
+    if (trimmed.endsWith("s")) {
+      return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+    }
+    return Duration.ofMillis(Long.parseLong(trimmed));
+  }
+}
@@ -0,0 +1,55 @@
+package com.checkout.payment.gateway.simulator;
+
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+
+/**
+ * Decides the bank's answer for the payments it matches.
+ * <p>
+ * Parsed from {@code card-suffix:<digits>=<outcome>} or {@code amount-over:<minor units>=<outcome>},
+ * where the outcome is {@code authorized}, {@code declined} or an HTTP status code to fail with.
+ * Several suffixes may be given separated by {@code |}, e.g. {@code card-suffix:2|4=declined}.
+ */
+public record Rule(String[] cardSuffixes, long amountOver, Outcome outcome) {
+
+  public record Outcome(boolean authorized, int statusCode) {
+
+    public static final Outcome AUTHORIZED = new Outcome(true, 200);
+    public static final Outcome DECLINED = new Outcome(false, 200);
+
+    static Outcome parse(String value) {
+      return switch (value) {
+        case "authorized" -> AUTHORIZED;
+        case "declined" -> DECLINED;
+        default -> new Outcome(false, Integer.parseInt(value));
+      };
+    }
+  }
+
+  public boolean matches(BankPaymentRequest request) {
+    if (cardSuffixes != null) {
+      String cardNumber = request.getCardNumber();
+      for (String suffix : cardSuffixes) {
+        if (cardNumber.endsWith(suffix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return request.getAmount() > amountOver;
+  }
+
+  public static Rule parse(String spec) {
+    int colon = spec.indexOf(':');
+    int equals = spec.lastIndexOf('=');
+    if (colon < 0 || equals < colon) {
+      throw new IllegalArgumentException("Invalid rule: " + spec);
+    }
+    String condition = spec.substring(colon + 1, equals);
+    Outcome outcome = Outcome.parse(spec.substring(equals + 1));
+    return switch (spec.substring(0, colon)) {
+      case "card-suffix" -> new Rule(condition.split("\\|"), 0, outcome);
+      case "amount-over" -> new Rule(null, Long.parseLong(condition), outcome);
+      default -> throw new IllegalArgumentException("Unknown rule: " + spec);
+    };
+  }
+}
@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Behaviour of a {@link BankSimulator}.
+ *
+ * @param port        port to listen on, 0 for any free port
+ * @param latency     time taken to answer each request
+ * @param errorRate   share of requests failed with {@code errorStatus}, from 0 to 1
+ * @param errorStatus status answered to the failed share of requests
+ * @param resetRate   share of requests whose connection is dropped without an answer
+ * @param rules       checked in order; the first match decides the answer, and a payment no rule
+ *                    matches is authorized
+ */
+public record SimulatorSettings(int port, LatencyDistribution latency, double errorRate,
+                                int errorStatus, double resetRate, List<Rule> rules) {
+
+  /**
+   * Card numbers ending in an odd digit are authorized, other even digits are declined and 0
+   * fails with 503.
+   */
+  public static final List<Rule> DEFAULT_RULES = List.of(
+      Rule.parse("card-suffix:0=503"),
+      Rule.parse("card-suffix:2|4|6|8=declined"));
+
+  public static SimulatorSettings defaults() {
+    return new SimulatorSettings(8080, LatencyDistribution.none(), 0, 503, 0, DEFAULT_RULES);
+  }
+
+  public SimulatorSettings withPort(int port) {
+    return new SimulatorSettings(port, latency, errorRate, errorStatus, resetRate, rules);
+  }
+
+  public SimulatorSettings withLatency(LatencyDistribution latency) {
+    return new SimulatorSettings(port, latency, errorRate, errorStatus, resetRate, rules);
+  }
+
+  public SimulatorSettings withErrors(double errorRate, int errorStatus) {
+    return new SimulatorSettings(port, latency, errorRate, errorStatus, resetRate, rules);
+  }
+
+  public SimulatorSettings withResetRate(double resetRate) {
+    return new SimulatorSettings(port, latency, errorRate, errorStatus, resetRate, rules);
+  }
+
+  public SimulatorSettings withRules(List<Rule> rules) {
+    return new SimulatorSettings(port, latency, errorRate, errorStatus, resetRate, rules);
+  }
+
+  /**
+   * Reads {@code --port=}, {@code --latency=}, {@code --error-rate=}, {@code --error-status=},
+   * {@code --reset-rate=} and repeated {@code --rule=} options. Rules given on the command line
+   * replace the defaults.
+   */
+  public static SimulatorSettings parse(String[] args) {
+    SimulatorSettings settings = defaults();
+    List<Rule> rules = new ArrayList<>();
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2 || !option[0].startsWith("--")) {
+        throw new IllegalArgumentException("Expected --option=value but got: " + arg);
+      }
+      String value = option[1];
+      settings = switch (option[0]) {
+        case "--port" -> settings.withPort(Integer.parseInt(value));
+        case "--latency" -> settings.withLatency(LatencyDistribution.parse(value));
+        case "--error-rate" -> settings.withErrors(Double.parseDouble(value), settings.errorStatus());
+        case "--error-status" -> settings.withErrors(settings.errorRate(), Integer.parseInt(value));
+        case "--reset-rate" -> settings.withResetRate(Double.parseDouble(value));
+        case "--rule" -> {
+          rules.add(Rule.parse(value));
+          yield settings;
+        }
+        default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+      };
+    }
+    return rules.isEmpty() ? settings : settings.withRules(List.copyOf(rules));
+  }
+}
@@ -1,19 +1,149 @@
 package com.checkout.payment.gateway.configuration;
 
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.service.IdempotencyCache;
+import com.checkout.payment.gateway.service.PaymentReadCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Duration;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class ApplicationConfiguration {
 
-  @Bean
-  public RestTemplate restTemplate(RestTemplateBuilder builder) {
-    return builder
-        .setConnectTimeout(Duration.ofMillis(10000))
-        .setReadTimeout(Duration.ofMillis(10000))
+  /**
+   * Pooled, non-blocking HTTP client for the acquiring bank. Connections are kept alive and
+   * reused up to the pool size, and HTTP/2 is negotiated over TLS when the acquirer offers it.
+   */
+  @Bean(destroyMethod = "close")
+  public CloseableHttpAsyncClient bankHttpClient(
+      @Value("${bank.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+      @Value("${bank.client.read-timeout-ms:10000}") long readTimeoutMs,
+      @Value("${bank.client.keep-alive-ms:30000}") long keepAliveMs,
+      @Value("${bank.client.max-connections:200}") int maxConnections,
+      @Value("${bank.client.http2:true}") boolean http2) {
+    PoolingAsyncClientConnectionManager connectionManager =
+        PoolingAsyncClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setTimeToLive(TimeValue.ofMilliseconds(keepAliveMs))
+                .build())
+            .setDefaultTlsConfig(TlsConfig.custom()
+                .setVersionPolicy(http2 ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                .build())
+            .build();
+    CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+            .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+            .build())
+        .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+        // BankService retries within its retry budget; the client's own retries would bypass it.
+        .disableAutomaticRetries()
         .build();
+    client.start();
+    return client;
+  }
+
+  /**
+   * Runs the work that follows a bank response, so the HTTP client's I/O threads never execute
+   * mapping, storage or logging. In virtual-thread mode every callback gets its own virtual thread.
+   */
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService bankCallbackExecutor(
+      @Value("${bank.client.callback-threads:8}") int threads,
+      @Value("${payment.threads.virtual:false}") boolean virtualThreads) {
+    return virtualThreads ? Executors.newVirtualThreadPerTaskExecutor()
+        : Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   * Accepted currencies as {@code CODE:minorUnits[:min-max]}, separated by commas.
+   */
+  @Bean
+  public CurrencyRegistry currencyRegistry(
+      @Value("${payment.currencies:" + CurrencyRegistry.DEFAULT_CURRENCIES + "}")
+      String currencies) {
+    return new CurrencyRegistry(currencies);
+  }
+
+  /**
+   * Payment and error IDs: time-ordered version 7 UUIDs by default, or {@code random} for
+   * {@link java.util.UUID#randomUUID()}.
+   */
+  @Bean
+  public PaymentIdGenerator paymentIdGenerator(
+      @Value("${payment.id.mode:time-ordered}") String mode) {
+    return PaymentIdGenerator.create(mode);
+  }
+
+  @Bean
+  public IdempotencyCache idempotencyCache(
+      @Value("${payment.idempotency.max-entries:100000}") int maxEntries,
+      @Value("${payment.idempotency.ttl-ms:86400000}") long ttlMs) {
+    return new IdempotencyCache(maxEntries, Duration.ofMillis(ttlMs), System::nanoTime);
+  }
+
+  /**
+   * Payments served by {@code GET /payment/{id}}, and IDs recently found not to exist.
+   */
+  @Bean
+  public PaymentReadCache paymentReadCache(MeterRegistry meterRegistry,
+      @Value("${payment.read-cache.max-entries:100000}") int maxEntries,
+      @Value("${payment.read-cache.negative-ttl-ms:1000}") long negativeTtlMs,
+      @Value("${payment.read-cache.negative-max-entries:10000}") int negativeMaxEntries) {
+    PaymentReadCache cache = new PaymentReadCache(maxEntries, Duration.ofMillis(negativeTtlMs),
+        negativeMaxEntries, System::nanoTime);
+    FunctionCounter.builder("payment.read.cache.requests", cache, PaymentReadCache::getHitCount)
+        .tag("result", "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder("payment.read.cache.requests", cache, PaymentReadCache::getMissCount)
+        .tag("result", "miss")
+        .register(meterRegistry);
+    FunctionCounter.builder("payment.read.cache.requests", cache,
+            PaymentReadCache::getNegativeHitCount)
+        .tag("result", "not_found")
+        .register(meterRegistry);
+    FunctionCounter.builder("payment.read.cache.evictions", cache,
+            PaymentReadCache::getEvictionCount)
+        .register(meterRegistry);
+    Gauge.builder("payment.read.cache.hit.ratio", cache, PaymentReadCache::getHitRatio)
+        .description("Share of payment lookups answered without the repository")
+        .register(meterRegistry);
+    Gauge.builder("payment.read.cache.size", cache, PaymentReadCache::size)
+        .register(meterRegistry);
+    return cache;
+  }
+
+  /**
+   * Serves every HTTP request on its own virtual thread instead of Tomcat's bounded worker pool.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "payment.threads.virtual", havingValue = "true")
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+    return protocolHandler -> protocolHandler.setExecutor(
+        Executors.newVirtualThreadPerTaskExecutor());
   }
 }
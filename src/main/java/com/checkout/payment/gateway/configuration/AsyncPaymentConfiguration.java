@@ -0,0 +1,63 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.service.AsyncPaymentService;
+import com.checkout.payment.gateway.service.IdempotencyCache;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentWorkQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+@Configuration
+@ConditionalOnProperty(name = "payment.async.enabled", havingValue = "true")
+public class AsyncPaymentConfiguration {
+
+  /**
+   * Payments accepted with {@code Prefer: respond-async}, waiting for a worker to send them to the
+   * bank. It is closed before the bank client and its callback executor, so the payments it still
+   * holds can be sent while it drains.
+   */
+  @Bean(destroyMethod = "close")
+  @DependsOn({"bankHttpClient", "bankCallbackExecutor"})
+  public PaymentWorkQueue paymentWorkQueue(MeterRegistry meterRegistry,
+      @Value("${payment.async.queue-capacity:10000}") int capacity,
+      @Value("${payment.async.workers:64}") int workers,
+      @Value("${payment.async.retry-backoff-ms:1000}") long retryBackoffMs,
+      @Value("${payment.async.max-retry-backoff-ms:30000}") long maxRetryBackoffMs,
+      @Value("${payment.async.shutdown-timeout-ms:20000}") long shutdownTimeoutMs) {
+    Timer waitTimer = Timer.builder("payment.queue.wait")
+        .description("Time accepted payments waited for a worker")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    PaymentWorkQueue queue = new PaymentWorkQueue(capacity, workers,
+        Duration.ofMillis(retryBackoffMs), Duration.ofMillis(maxRetryBackoffMs),
+        Duration.ofMillis(shutdownTimeoutMs), waitTimer, System::nanoTime);
+    Gauge.builder("payment.queue.depth", queue, PaymentWorkQueue::depth)
+        .description("Accepted payments waiting for a worker")
+        .register(meterRegistry);
+    FunctionCounter.builder("payment.queue.rejections", queue, PaymentWorkQueue::getRejectedCount)
+        .description("Payments turned away because the queue was full")
+        .register(meterRegistry);
+    FunctionCounter.builder("payment.queue.retries", queue, PaymentWorkQueue::getRetriedCount)
+        .description("Queued payments sent again later because the bank was unavailable")
+        .register(meterRegistry);
+    FunctionCounter.builder("payment.queue.abandoned", queue, PaymentWorkQueue::getAbandonedCount)
+        .description("Queued payments rejected because the queue closed before the bank answered")
+        .register(meterRegistry);
+    queue.start();
+    return queue;
+  }
+
+  @Bean
+  public AsyncPaymentService asyncPaymentService(PaymentGatewayService paymentGatewayService,
+      IdempotencyCache idempotencyCache, PaymentWorkQueue paymentWorkQueue) {
+    return new AsyncPaymentService(paymentGatewayService, idempotencyCache, paymentWorkQueue);
+  }
+}
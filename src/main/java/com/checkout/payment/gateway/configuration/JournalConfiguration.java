@@ -0,0 +1,28 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.repository.PaymentJournal;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "payment.journal.enabled", havingValue = "true")
+public class JournalConfiguration {
+
+  @Bean
+  public PaymentJournal paymentJournal(
+      @Value("${payment.journal.directory:data/journal}") String directory,
+      @Value("${payment.journal.segment-size:67108864}") int segmentSize,
+      @Value("${payment.journal.sync-on-append:true}") boolean syncOnAppend,
+      @Value("${payment.journal.flush-interval-ms:10}") long flushIntervalMs,
+      @Value("${payment.journal.snapshot-interval-ms:600000}") long snapshotIntervalMs,
+      CurrencyRegistry currencyRegistry) {
+    return new PaymentJournal(Path.of(directory), segmentSize, syncOnAppend,
+        Duration.ofMillis(flushIntervalMs), Duration.ofMillis(snapshotIntervalMs),
+        currencyRegistry);
+  }
+}
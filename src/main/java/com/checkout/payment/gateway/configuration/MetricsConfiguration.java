@@ -0,0 +1,43 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.metrics.StageHistogramCollector;
+import com.checkout.payment.gateway.metrics.TimedJsonMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+@Configuration
+public class MetricsConfiguration {
+
+  /**
+   * The stage histograms are published when the Prometheus registry is active.
+   */
+  @Bean
+  public PaymentMetrics paymentMetrics(MeterRegistry meterRegistry,
+      CurrencyRegistry currencyRegistry, ObjectProvider<CollectorRegistry> collectorRegistry) {
+    PaymentMetrics paymentMetrics = new PaymentMetrics(meterRegistry, currencyRegistry);
+    collectorRegistry.ifAvailable(new StageHistogramCollector(paymentMetrics)::register);
+    return paymentMetrics;
+  }
+
+  @Bean
+  public PaymentStatistics paymentStatistics(CurrencyRegistry currencyRegistry) {
+    return new PaymentStatistics(currencyRegistry);
+  }
+
+  /**
+   * Replaces Boot's default Jackson converter, so JSON parsing and writing are timed per stage.
+   */
+  @Bean
+  public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper, PaymentMetrics paymentMetrics) {
+    return new TimedJsonMessageConverter(objectMapper, paymentMetrics);
+  }
+}
@@ -0,0 +1,85 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.resilience.Bulkhead;
+import com.checkout.payment.gateway.resilience.CircuitBreaker;
+import com.checkout.payment.gateway.resilience.HedgingPolicy;
+import com.checkout.payment.gateway.resilience.RetryBudget;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResilienceConfiguration {
+
+  @Bean
+  public CircuitBreaker bankCircuitBreaker(MeterRegistry meterRegistry,
+      @Value("${bank.circuit-breaker.window-size:100}") int windowSize,
+      @Value("${bank.circuit-breaker.minimum-calls:20}") int minimumCalls,
+      @Value("${bank.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+      @Value("${bank.circuit-breaker.slow-call-rate-threshold:80}") int slowCallRateThreshold,
+      @Value("${bank.circuit-breaker.slow-call-threshold-ms:2000}") long slowCallThresholdMs,
+      @Value("${bank.circuit-breaker.open-duration-ms:10000}") long openDurationMs,
+      @Value("${bank.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(windowSize, minimumCalls,
+        failureRateThreshold, slowCallRateThreshold, Duration.ofMillis(slowCallThresholdMs),
+        Duration.ofMillis(openDurationMs), halfOpenCalls, System::nanoTime);
+    Gauge.builder("bank.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+        .description("Bank circuit breaker state: 0 closed, 1 open, 2 half-open")
+        .register(meterRegistry);
+    FunctionCounter.builder("bank.calls.rejected", circuitBreaker, CircuitBreaker::getRejectedCount)
+        .tag("reason", "circuit_open")
+        .register(meterRegistry);
+    circuitBreaker.addListener((from, to) -> meterRegistry.counter("bank.circuit.transitions",
+        "from", from.name(), "to", to.name()).increment());
+    return circuitBreaker;
+  }
+
+  @Bean
+  public Bulkhead bankBulkhead(MeterRegistry meterRegistry,
+      @Value("${bank.bulkhead.max-concurrent-calls:200}") int maxConcurrentCalls) {
+    Bulkhead bulkhead = new Bulkhead(maxConcurrentCalls);
+    Gauge.builder("bank.bulkhead.active", bulkhead, Bulkhead::getActiveCalls)
+        .register(meterRegistry);
+    FunctionCounter.builder("bank.calls.rejected", bulkhead, Bulkhead::getRejectedCount)
+        .tag("reason", "bulkhead_full")
+        .register(meterRegistry);
+    return bulkhead;
+  }
+
+  @Bean
+  public RetryBudget bankRetryBudget(MeterRegistry meterRegistry,
+      @Value("${bank.retry.budget.max-tokens:10}") int maxTokens,
+      @Value("${bank.retry.budget.ratio:0.1}") double retryRatio) {
+    RetryBudget retryBudget = new RetryBudget(maxTokens, retryRatio);
+    Gauge.builder("bank.retry.budget.tokens", retryBudget, RetryBudget::getAvailableTokens)
+        .register(meterRegistry);
+    FunctionCounter.builder("bank.retries", retryBudget, RetryBudget::getGrantedCount)
+        .tag("outcome", "granted")
+        .register(meterRegistry);
+    FunctionCounter.builder("bank.retries", retryBudget, RetryBudget::getDeniedCount)
+        .tag("outcome", "denied")
+        .register(meterRegistry);
+    return retryBudget;
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bank.hedging.enabled", havingValue = "true")
+  public HedgingPolicy bankHedgingPolicy(MeterRegistry meterRegistry,
+      @Value("${bank.hedging.percentile:95}") double percentile,
+      @Value("${bank.hedging.window-size:1024}") int windowSize,
+      @Value("${bank.hedging.min-delay-ms:50}") long minDelayMs) {
+    HedgingPolicy hedgingPolicy = new HedgingPolicy(percentile, windowSize,
+        Duration.ofMillis(minDelayMs));
+    Gauge.builder("bank.hedging.delay", hedgingPolicy, policy -> Math.max(0, policy.getDelayNanos()) / 1e9)
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    FunctionCounter.builder("bank.calls.hedged", hedgingPolicy, HedgingPolicy::getHedgedCount)
+        .register(meterRegistry);
+    return hedgingPolicy;
+  }
+}
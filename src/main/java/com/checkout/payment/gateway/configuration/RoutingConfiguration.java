@@ -0,0 +1,70 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.routing.Acquirer;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import com.checkout.payment.gateway.routing.AcquirerRouter.OutlierDetection;
+import com.checkout.payment.gateway.routing.RoutingRule;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RoutingConfiguration {
+
+  /**
+   * Routes bank calls across {@code bank.acquirers}, given as {@code name=url} entries. Without
+   * any, every call goes to {@code bank.api.url}.
+   */
+  @Bean
+  public AcquirerRouter acquirerRouter(MeterRegistry meterRegistry,
+      @Value("${bank.api.url:http://localhost:8080/payments}") String bankApiUrl,
+      @Value("${bank.acquirers:}") String acquirers,
+      @Value("${bank.routing.rules:}") String rules,
+      @Value("${bank.routing.decay-ms:10000}") long decayMs,
+      @Value("${bank.routing.outlier.consecutive-failures:5}") int consecutiveFailures,
+      @Value("${bank.routing.outlier.latency-factor:3}") double latencyFactor,
+      @Value("${bank.routing.outlier.minimum-calls:20}") int minimumCalls,
+      @Value("${bank.routing.outlier.ejection-ms:30000}") long ejectionMs,
+      @Value("${bank.routing.outlier.max-ejection-percent:50}") int maxEjectionPercent) {
+    long decayNanos = Duration.ofMillis(decayMs).toNanos();
+    List<Acquirer> endpoints = acquirers.isBlank()
+        ? List.of(new Acquirer("default", bankApiUrl, decayNanos))
+        : split(acquirers).stream().map(spec -> Acquirer.parse(spec, decayNanos)).toList();
+    AcquirerRouter router = new AcquirerRouter(endpoints,
+        split(rules).stream().map(RoutingRule::parse).toList(),
+        new OutlierDetection(consecutiveFailures, latencyFactor, minimumCalls,
+            Duration.ofMillis(ejectionMs), maxEjectionPercent),
+        System::nanoTime);
+    for (Acquirer acquirer : router.getAcquirers()) {
+      FunctionCounter.builder("bank.acquirer.requests", acquirer, Acquirer::getRequestCount)
+          .tag("acquirer", acquirer.getName())
+          .register(meterRegistry);
+      FunctionCounter.builder("bank.acquirer.ejections", acquirer, Acquirer::getEjectionCount)
+          .tag("acquirer", acquirer.getName())
+          .register(meterRegistry);
+      Gauge.builder("bank.acquirer.latency", acquirer, a -> a.getLatencyNanos() / 1e9)
+          .description("Peak EWMA of the acquirer's latency, as used for routing")
+          .baseUnit("seconds")
+          .tag("acquirer", acquirer.getName())
+          .register(meterRegistry);
+      Gauge.builder("bank.acquirer.ejected", acquirer,
+              a -> a.isEjected(System.nanoTime()) ? 1 : 0)
+          .tag("acquirer", acquirer.getName())
+          .register(meterRegistry);
+    }
+    return router;
+  }
+
+  private static List<String> split(String value) {
+    return Arrays.stream(value.split(","))
+        .map(String::trim)
+        .filter(entry -> !entry.isEmpty())
+        .toList();
+  }
+}
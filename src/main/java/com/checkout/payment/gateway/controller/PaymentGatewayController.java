@@ -1,52 +1,361 @@
 package com.checkout.payment.gateway.controller;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.exception.InvalidExpiryDateException;
+import com.checkout.payment.gateway.exception.PaymentProcessingException;
+import com.checkout.payment.gateway.exception.PaymentValidationException;
+import com.checkout.payment.gateway.exception.RepositoryCapacityExceededException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import com.checkout.payment.gateway.model.BatchPaymentResult;
+import com.checkout.payment.gateway.model.PaymentFilter;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentSearchRequest;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentQuery;
+import com.checkout.payment.gateway.service.AsyncPaymentService;
+import com.checkout.payment.gateway.service.BatchPaymentService;
+import com.checkout.payment.gateway.service.EncodedPayment;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentSearchService;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPOutputStream;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 @RestController("api")
 public class PaymentGatewayController {
 
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayController.class);
+
+  static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+  static final String PREFER_HEADER = "Prefer";
+
+  static final String RESPOND_ASYNC = "respond-async";
+
+  static final String NDJSON = "application/x-ndjson";
+
+  private static final int EXPORT_GZIP_BUFFER_SIZE = 64 * 1024;
+
   private final PaymentGatewayService paymentGatewayService;
+  private final BatchPaymentService batchPaymentService;
+  private final PaymentSearchService paymentSearchService;
+  private final ObjectMapper objectMapper;
+  private final PaymentRequestValidator paymentRequestValidator;
+  private final PaymentMetrics paymentMetrics;
+  private final AsyncPaymentService asyncPaymentService;
 
-  public PaymentGatewayController(PaymentGatewayService paymentGatewayService) {
+  public PaymentGatewayController(PaymentGatewayService paymentGatewayService,
+      BatchPaymentService batchPaymentService, PaymentSearchService paymentSearchService,
+      ObjectMapper objectMapper, PaymentRequestValidator paymentRequestValidator,
+      PaymentMetrics paymentMetrics, ObjectProvider<AsyncPaymentService> asyncPaymentService) {
     this.paymentGatewayService = paymentGatewayService;
+    this.batchPaymentService = batchPaymentService;
+    this.paymentSearchService = paymentSearchService;
+    this.objectMapper = objectMapper;
+    this.paymentRequestValidator = paymentRequestValidator;
+    this.paymentMetrics = paymentMetrics;
+    this.asyncPaymentService = asyncPaymentService.getIfAvailable();
   }
 
-  @Operation(summary = "Get payment by ID", description = "Retrieves the details of a payment using its unique identifier.")
+  @Operation(summary = "Get payment by ID", description = "Retrieves the details of a payment using its unique identifier. The response carries an ETag; send it back in If-None-Match to get 304 Not Modified while the payment is unchanged.")
   @ApiResponses(value = {
-      @ApiResponse(responseCode = "200", description = "Payment found"),
+      @ApiResponse(responseCode = "200", description = "Payment found", content = @Content(schema = @Schema(implementation = PostPaymentResponse.class))),
+      @ApiResponse(responseCode = "304", description = "Payment unchanged since the ETag given in If-None-Match"),
       @ApiResponse(responseCode = "404", description = "Payment not found")
   })
-  @GetMapping("/payment/{id}")
-  public ResponseEntity<PostPaymentResponse> getPostPaymentEventById(@PathVariable UUID id) {
-    return new ResponseEntity<>(paymentGatewayService.getPaymentById(id), HttpStatus.OK);
+  @GetMapping(value = "/payment/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<byte[]> getPostPaymentEventById(@PathVariable UUID id) {
+    // Pre-encoded bytes; Spring answers a matching If-None-Match with 304 and no body.
+    EncodedPayment payment = paymentGatewayService.getEncodedPaymentById(id);
+    return ResponseEntity.ok()
+        .eTag(payment.etag())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(payment.json());
   }
 
-  @Operation(summary = "Submit a payment", description = "Submits a payment request, validates payment details, and returns the payment status (authorized, declined, or rejected)")
+  @Operation(summary = "Search payments", description = "Lists the payments matching all given filters, oldest first, one page at a time. Follow nextCursor to get the next page.")
   @ApiResponses(value = {
-      @ApiResponse(responseCode = "202", description = "Payment has been authorized"),
+      @ApiResponse(responseCode = "200", description = "A page of matching payments"),
+      @ApiResponse(responseCode = "400", description = "A filter is malformed, or the cursor belongs to other filters or an earlier run of the gateway")
+  })
+  @GetMapping("/payments")
+  public ResponseEntity<PaymentPage> searchPayments(@ParameterObject PaymentSearchRequest searchRequest) {
+    return new ResponseEntity<>(paymentSearchService.search(searchRequest), HttpStatus.OK);
+  }
+
+  @Operation(summary = "Export payments", description = "Streams every payment matching the filters as NDJSON, oldest first, gzip-compressed when the client accepts it. Takes the same filters as the search.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "One line per matching payment"),
+      @ApiResponse(responseCode = "400", description = "A filter is malformed")
+  })
+  @GetMapping("/payments/export")
+  public void exportPayments(@ParameterObject PaymentFilter filter,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      HttpServletResponse response) throws IOException {
+    // Filters are checked before anything is written, so a bad one still gets a JSON error.
+    PaymentQuery query = paymentSearchService.toQuery(filter);
+    boolean gzip = acceptsGzip(acceptEncoding);
+    response.setContentType(NDJSON);
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    long exported = 0;
+    try {
+      OutputStream out = response.getOutputStream();
+      if (gzip) {
+        // Sync flush, so each page the service flushes reaches the client.
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out, EXPORT_GZIP_BUFFER_SIZE, true);
+        exported = paymentSearchService.export(query, gzipOut);
+        gzipOut.finish();
+      } else {
+        exported = paymentSearchService.export(query, out);
+      }
+    } catch (IOException ex) {
+      // The response is already committed, so there is nobody left to report an error to.
+      LOG.warn("Payment export aborted: {}", ex.getMessage());
+      return;
+    }
+    LOG.info("Exported {} payments", exported);
+  }
+
+  @Operation(summary = "Submit a payment", description = "Submits a payment request, validates payment details, and returns the payment status (authorized, declined, or rejected). When async mode is enabled, Prefer: respond-async stores the payment as pending and returns before the bank answers; poll the Location to see the outcome.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "202", description = "Payment has been authorized, or accepted as pending when the request asked to respond async"),
       @ApiResponse(responseCode = "400", description = "Invalid request. The payment was rejected due to bad input (e.g., invalid card details)"),
-      @ApiResponse(responseCode = "422", description = "Payment declined by the acquiring bank.")
+      @ApiResponse(responseCode = "422", description = "Payment declined by the acquiring bank, or the Idempotency-Key was already used for a different payment."),
+      @ApiResponse(responseCode = "503", description = "The bank is unavailable, or too many async payments are waiting for it")
   })
   @PostMapping("/payment/submit")
-  public ResponseEntity<PostPaymentResponse> postPaymentEvent(@Valid @RequestBody PostPaymentRequest paymentRequest) {
-    PostPaymentResponse paymentResponse = paymentGatewayService.processPayment(paymentRequest);
-    HttpStatus httpStatus = mapPaymentStatusToHttpStatus(paymentResponse.getStatus());
-    return new ResponseEntity<>(paymentResponse, httpStatus);
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> postPaymentEvent(@RequestBody PostPaymentRequest paymentRequest,
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+      @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+    validate(paymentRequest);
+    if (asyncPaymentService != null && prefer != null && prefer.contains(RESPOND_ASYNC)) {
+      return asyncPaymentService.acceptPayment(paymentRequest, idempotencyKey)
+          .thenApply(this::mapToAcceptedResponse);
+    }
+    return paymentGatewayService.processPayment(paymentRequest, idempotencyKey).thenApply(paymentResponse -> {
+      HttpStatus httpStatus = mapPaymentStatusToHttpStatus(paymentResponse.getStatus());
+      return new ResponseEntity<>(paymentResponse, httpStatus);
+    });
+  }
+
+  /**
+   * Answers an async submission with the pending payment and where to poll for its outcome.
+   */
+  private ResponseEntity<PostPaymentResponse> mapToAcceptedResponse(
+      PostPaymentResponse paymentResponse) {
+    return ResponseEntity.status(mapPaymentStatusToHttpStatus(paymentResponse.getStatus()))
+        .location(URI.create("/payment/" + paymentResponse.getId()))
+        .header("Preference-Applied", RESPOND_ASYNC)
+        .body(paymentResponse);
+  }
+
+  @Operation(summary = "Submit a batch of payments", description = "Submits a JSON array of payment requests and streams back one NDJSON line per payment, in input order, as the bank answers. An invalid payment is rejected on its own line without failing the batch.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Batch accepted; each line carries the status of one payment"),
+      @ApiResponse(responseCode = "400", description = "The batch is empty or larger than allowed")
+  })
+  @PostMapping(value = "/payment/submit/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = NDJSON)
+  public ResponseEntity<ResponseBodyEmitter> postPaymentBatch(
+      @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(
+          array = @ArraySchema(schema = @Schema(implementation = PostPaymentRequest.class))))
+      InputStream body) throws IOException {
+    Map<Integer, String> unreadable = new HashMap<>();
+    List<PostPaymentRequest> paymentRequests = readBatch(body, "JSON", unreadable);
+    return streamBatchResults(batchPaymentService.processBatch(paymentRequests, unreadable));
+  }
+
+  @Operation(summary = "Submit a batch of payments as NDJSON", description = "Same as the JSON array variant, with one payment request per line.")
+  @PostMapping(value = "/payment/submit/batch", consumes = NDJSON, produces = NDJSON)
+  public ResponseEntity<ResponseBodyEmitter> postPaymentBatchStream(InputStream body) throws IOException {
+    Map<Integer, String> unreadable = new HashMap<>();
+    List<PostPaymentRequest> paymentRequests = readBatch(body, "NDJSON", unreadable);
+    return streamBatchResults(batchPaymentService.processBatch(paymentRequests, unreadable));
+  }
+
+  /**
+   * Reads the payments of a batch one at a time, the elements of a JSON array or the lines of
+   * NDJSON alike, and stops one past the most a batch may hold: an oversized batch is then refused
+   * by {@link BatchPaymentService} without the rest of it being read into memory.
+   * <p>
+   * Only broken JSON fails the whole batch. Each item is read as a tree and bound on its own, so
+   * an item that does not fit a payment request (a string for the amount, say) is left {@code null}
+   * with its reason in {@code unreadable} and rejected on its own line.
+   */
+  private List<PostPaymentRequest> readBatch(InputStream body, String format,
+      Map<Integer, String> unreadable) throws IOException {
+    int limit = batchPaymentService.getMaxItems() + 1;
+    List<PostPaymentRequest> paymentRequests = new ArrayList<>();
+    try (MappingIterator<JsonNode> items = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+      while (paymentRequests.size() < limit && items.hasNextValue()) {
+        JsonNode item = items.nextValue();
+        try {
+          paymentRequests.add(objectMapper.treeToValue(item, PostPaymentRequest.class));
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+          unreadable.put(paymentRequests.size(), "Unreadable payment: " + (ex instanceof
+              JsonProcessingException json ? json.getOriginalMessage() : ex.getMessage()));
+          paymentRequests.add(null);
+        }
+      }
+    } catch (JsonProcessingException ex) {
+      throw new InvalidBatchException("Malformed " + format + " batch: " + ex.getOriginalMessage());
+    }
+    return paymentRequests;
+  }
+
+  /**
+   * Writes the result of each payment as soon as it and every payment before it have completed,
+   * so the response keeps input order without holding a thread while the bank answers.
+   */
+  private ResponseEntity<ResponseBodyEmitter> streamBatchResults(
+      List<CompletableFuture<PostPaymentResponse>> results) {
+    ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+    CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+    for (int i = 0; i < results.size(); i++) {
+      int index = i;
+      CompletableFuture<BatchPaymentResult> result = results.get(i)
+          .handle((paymentResponse, ex) -> mapToBatchPaymentResult(index, paymentResponse, ex));
+      written = written.thenCombine(result, (ignored, batchPaymentResult) -> {
+        writeLine(emitter, batchPaymentResult);
+        return null;
+      });
+    }
+    written.whenComplete((ignored, ex) -> {
+      if (ex == null) {
+        emitter.complete();
+      } else {
+        emitter.completeWithError(ex);
+      }
+    });
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(emitter);
+  }
+
+  private void writeLine(ResponseBodyEmitter emitter, BatchPaymentResult batchPaymentResult) {
+    try {
+      emitter.send(objectMapper.writeValueAsString(batchPaymentResult) + "\n", MediaType.TEXT_PLAIN);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void validate(PostPaymentRequest paymentRequest) {
+    long started = System.nanoTime();
+    String violations = paymentRequestValidator.validate(paymentRequest);
+    paymentMetrics.recordStage(Stage.VALIDATION, System.nanoTime() - started);
+    if (violations != null) {
+      throw new PaymentValidationException(violations);
+    }
+  }
+
+  private BatchPaymentResult mapToBatchPaymentResult(int index, PostPaymentResponse paymentResponse,
+      Throwable ex) {
+    if (ex == null) {
+      return new BatchPaymentResult(index, mapPaymentStatusToHttpStatus(paymentResponse.getStatus()).value(),
+          paymentResponse.getStatus().getName(), paymentResponse, null);
+    }
+    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    HttpStatus httpStatus = mapExceptionToHttpStatus(cause);
+    // Same status field as CommonExceptionHandler gives the single-payment endpoint.
+    String status = cause instanceof RepositoryCapacityExceededException
+        || httpStatus == HttpStatus.INTERNAL_SERVER_ERROR
+        ? httpStatus.getReasonPhrase() : PaymentStatus.REJECTED.getName();
+    if (status.equals(PaymentStatus.REJECTED.getName())) {
+      paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+    }
+    return new BatchPaymentResult(index, httpStatus.value(), status, null, cause.getMessage());
+  }
+
+  /**
+   * Maps a failed payment of a batch to the status it would have received as a single request.
+   */
+  private HttpStatus mapExceptionToHttpStatus(Throwable ex) {
+    if (ex instanceof PaymentValidationException || ex instanceof InvalidExpiryDateException) {
+      return HttpStatus.BAD_REQUEST;
+    }
+    if (ex instanceof PaymentProcessingException) {
+      return HttpStatus.BAD_GATEWAY;
+    }
+    if (ex instanceof BankUnavailableException || ex instanceof RepositoryCapacityExceededException) {
+      return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+    return HttpStatus.INTERNAL_SERVER_ERROR;
+  }
+
+  /**
+   * Reads an {@code Accept-Encoding} header as RFC 9110 describes: {@code gzip} is acceptable when
+   * listed with a non-zero quality, or, when it is not listed, when {@code *} is.
+   */
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    double gzipQuality = -1;
+    double anyQuality = -1;
+    for (String element : acceptEncoding.split(",")) {
+      String[] parameters = element.split(";");
+      String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1;
+      for (int i = 1; i < parameters.length; i++) {
+        String[] parameter = parameters[i].split("=", 2);
+        if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+          try {
+            quality = Double.parseDouble(parameter[1].trim());
+          } catch (NumberFormatException ex) {
+            quality = 0;
+          }
+        }
+      }
+      if (coding.equals("gzip") || coding.equals("x-gzip")) {
+        gzipQuality = Math.max(gzipQuality, quality);
+      } else if (coding.equals("*")) {
+        anyQuality = Math.max(anyQuality, quality);
+      }
+    }
+    return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
   }
 
   /**
@@ -57,7 +366,7 @@ public class PaymentGatewayController {
    */
   private HttpStatus mapPaymentStatusToHttpStatus(PaymentStatus paymentStatus) {
     return switch (paymentStatus) {
-      case AUTHORIZED -> HttpStatus.ACCEPTED;
+      case AUTHORIZED, PENDING -> HttpStatus.ACCEPTED;
       case REJECTED -> HttpStatus.BAD_REQUEST;
       case DECLINED -> HttpStatus.UNPROCESSABLE_ENTITY;
     };
@@ -0,0 +1,30 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class PaymentStatisticsController {
+
+  private final PaymentStatistics paymentStatistics;
+
+  public PaymentStatisticsController(PaymentStatistics paymentStatistics) {
+    this.paymentStatistics = paymentStatistics;
+  }
+
+  @Operation(summary = "Get payment statistics", description = "Returns authorized and declined counts, summed amounts and approval rates per currency over the last minute, five minutes and hour.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Current statistics")
+  })
+  @GetMapping("/stats")
+  public ResponseEntity<PaymentStatisticsResponse> getStatistics() {
+    return new ResponseEntity<>(paymentStatistics.snapshot(), HttpStatus.OK);
+  }
+}
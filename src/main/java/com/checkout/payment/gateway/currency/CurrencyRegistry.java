@@ -0,0 +1,115 @@
+package com.checkout.payment.gateway.currency;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The currencies the gateway accepts, built once from configuration.
+ * <p>
+ * Each currency is given as {@code CODE:minorUnits[:min-max]}, e.g. {@code JPY:0} or
+ * {@code GBP:2:100-5000000}, with the amount limits in minor units. Lookup packs the three
+ * uppercase ASCII letters into an index below 26^3 and reads a table slot, so checking a code,
+ * and with it the amount limits, never hashes or compares strings.
+ */
+public class CurrencyRegistry {
+
+  public static final String DEFAULT_CURRENCIES = "USD:2,EUR:2,GBP:2";
+
+  private static final int LETTERS = 26;
+
+  private final CurrencyUnit[] byCode = new CurrencyUnit[LETTERS * LETTERS * LETTERS];
+  private final CurrencyUnit[] byIndex;
+
+  public CurrencyRegistry(String currencies) {
+    List<CurrencyUnit> units = new ArrayList<>();
+    for (String spec : currencies.split(",")) {
+      if (spec.isBlank()) {
+        continue;
+      }
+      CurrencyUnit unit = parse(spec.trim(), units.size());
+      int key = key(unit.code());
+      if (byCode[key] != null) {
+        throw new IllegalArgumentException("Currency configured twice: " + unit.code());
+      }
+      byCode[key] = unit;
+      units.add(unit);
+    }
+    if (units.isEmpty()) {
+      throw new IllegalArgumentException("At least one currency must be configured");
+    }
+    byIndex = units.toArray(new CurrencyUnit[0]);
+  }
+
+  public static CurrencyRegistry defaults() {
+    return new CurrencyRegistry(DEFAULT_CURRENCIES);
+  }
+
+  /**
+   * @return the configured currency, or null when the code is not one
+   */
+  public CurrencyUnit lookup(String code) {
+    int key = key(code);
+    return key < 0 ? null : byCode[key];
+  }
+
+  /**
+   * Like {@link #lookup(String)}, but a code that is not configured gives an unlisted currency.
+   */
+  public CurrencyUnit resolve(String code) {
+    CurrencyUnit unit = lookup(code);
+    return unit != null ? unit : CurrencyUnit.unlisted(code);
+  }
+
+  public CurrencyUnit get(int index) {
+    return byIndex[index];
+  }
+
+  public int size() {
+    return byIndex.length;
+  }
+
+  /**
+   * @return the packed letters, or -1 when the code is not three uppercase ASCII letters
+   */
+  private static int key(String code) {
+    if (code == null || code.length() != 3) {
+      return -1;
+    }
+    int key = 0;
+    for (int i = 0; i < 3; i++) {
+      int letter = code.charAt(i) - 'A';
+      if (letter < 0 || letter >= LETTERS) {
+        return -1;
+      }
+      key = key * LETTERS + letter;
+    }
+    return key;
+  }
+
+  private static CurrencyUnit parse(String spec, int index) {
+    String[] parts = spec.split(":");
+    if (parts.length < 2 || parts.length > 3 || key(parts[0]) < 0) {
+      throw new IllegalArgumentException(
+          "Currency must be CODE:minorUnits[:min-max], got: " + spec);
+    }
+    try {
+      int minorUnits = Integer.parseInt(parts[1]);
+      int minAmount = 1;
+      int maxAmount = Integer.MAX_VALUE;
+      if (parts.length == 3) {
+        String[] limits = parts[2].split("-");
+        if (limits.length != 2) {
+          throw new IllegalArgumentException("Amount limits must be min-max, got: " + spec);
+        }
+        minAmount = Integer.parseInt(limits[0]);
+        maxAmount = Integer.parseInt(limits[1]);
+      }
+      if (minorUnits < 0 || minAmount < 1 || maxAmount < minAmount) {
+        throw new IllegalArgumentException("Invalid currency limits: " + spec);
+      }
+      return new CurrencyUnit(index, parts[0], minorUnits, minAmount, maxAmount);
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("Invalid number in currency: " + spec, ex);
+    }
+  }
+}
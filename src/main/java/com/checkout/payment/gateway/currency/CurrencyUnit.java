@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.currency;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * A currency the gateway accepts, as configured in {@link CurrencyRegistry}. Serialized as its
+ * ISO 4217 code.
+ *
+ * @param index      position in the registry, or -1 for a currency that is not configured
+ * @param minorUnits ISO 4217 digits after the decimal point, e.g. 2 for GBP and 0 for JPY
+ * @param minAmount  smallest accepted amount in minor units
+ * @param maxAmount  largest accepted amount in minor units
+ */
+public record CurrencyUnit(int index, String code, int minorUnits, int minAmount,
+                           int maxAmount) {
+
+  /**
+   * A currency that is not in the registry, e.g. one read from a journal written under an older
+   * configuration.
+   */
+  @JsonCreator
+  public static CurrencyUnit unlisted(String code) {
+    return new CurrencyUnit(-1, code, -1, 1, Integer.MAX_VALUE);
+  }
+
+  public boolean isAllowed(int amount) {
+    return amount >= minAmount && amount <= maxAmount;
+  }
+
+  @JsonValue
+  @Override
+  public String code() {
+    return code;
+  }
+
+  @Override
+  public String toString() {
+    return code;
+  }
+}
@@ -5,7 +5,10 @@ import com.fasterxml.jackson.annotation.JsonValue;
 public enum PaymentStatus {
   AUTHORIZED("Authorized"),
   DECLINED("Declined"),
-  REJECTED("Rejected");
+  REJECTED("Rejected"),
+  // Accepted for asynchronous processing; the bank has not answered yet. Declared last, so the
+  // ordinals of the other statuses, which journals and the off-heap store record, are unchanged.
+  PENDING("Pending");
 
   private final String name;
 
@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * Raised when a payment is turned away before reaching the bank because the bank is considered
+ * unavailable, already has too many calls in flight, or the queue of payments waiting for it is
+ * full.
+ */
+public class BankUnavailableException extends StacklessException {
+  public BankUnavailableException(String message) {
+    super(message);
+  }
+}
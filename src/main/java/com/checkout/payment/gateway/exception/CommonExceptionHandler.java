@@ -1,6 +1,9 @@
 package com.checkout.payment.gateway.exception;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.logging.LogCategories;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
 import com.checkout.payment.gateway.model.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,27 +12,70 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import java.util.UUID;
 
 @ControllerAdvice
 public class CommonExceptionHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(CommonExceptionHandler.class);
 
+  private final PaymentMetrics paymentMetrics;
+  private final PaymentIdGenerator paymentIdGenerator;
+
+  public CommonExceptionHandler(PaymentMetrics paymentMetrics,
+      PaymentIdGenerator paymentIdGenerator) {
+    this.paymentMetrics = paymentMetrics;
+    this.paymentIdGenerator = paymentIdGenerator;
+  }
+
   @ExceptionHandler(PaymentProcessingException.class)
   public ResponseEntity<ErrorResponse> handleEventProcessingException(PaymentProcessingException ex) {
-    LOG.error("Exception happened while processing the payment with bank {}", ex.getMessage(), ex);
+    LOG.error(LogCategories.BANK, "Exception happened while processing the payment with bank {}",
+        ex.getMessage());
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+    return new ResponseEntity<>(new ErrorResponse(PaymentStatus.REJECTED.getName(), ex.getMessage(),
+        paymentIdGenerator.next().toString()), HttpStatus.BAD_GATEWAY);
+  }
+
+  @ExceptionHandler(BankUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleBankUnavailableException(BankUnavailableException ex) {
+    LOG.warn(LogCategories.BANK, "Payment rejected without calling the bank: {}", ex.getMessage());
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+    return new ResponseEntity<>(new ErrorResponse(PaymentStatus.REJECTED.getName(), ex.getMessage(),
+        paymentIdGenerator.next().toString()), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(IdempotencyKeyConflictException.class)
+  public ResponseEntity<ErrorResponse> handleIdempotencyKeyConflictException(
+      IdempotencyKeyConflictException ex) {
+    LOG.warn(LogCategories.CLIENT_ERROR, "Idempotency key conflict: {}", ex.getMessage());
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
     return new ResponseEntity<>(new ErrorResponse(PaymentStatus.REJECTED.getName(), ex.getMessage(),
-        UUID.randomUUID().toString()), HttpStatus.BAD_GATEWAY);
+        paymentIdGenerator.next().toString()), HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  @ExceptionHandler(RepositoryCapacityExceededException.class)
+  public ResponseEntity<ErrorResponse> handleRepositoryCapacityExceededException(
+      RepositoryCapacityExceededException ex) {
+    LOG.warn(LogCategories.STORAGE, "Payment could not be stored. Details: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+        ex.getMessage(), paymentIdGenerator.next().toString()), HttpStatus.SERVICE_UNAVAILABLE);
   }
 
   @ExceptionHandler(ResourceNotFoundException.class)
   public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException ex) {
-    LOG.error("Requested resource not found. Details: {}", ex.getMessage(), ex);
+    LOG.warn(LogCategories.CLIENT_ERROR, "Requested resource not found. Details: {}",
+        ex.getMessage());
     return new ResponseEntity<>(new ErrorResponse(HttpStatus.NOT_FOUND.getReasonPhrase(), ex.getMessage(),
-        UUID.randomUUID().toString()),
+        paymentIdGenerator.next().toString()),
         HttpStatus.NOT_FOUND);
   }
+  @ExceptionHandler(InvalidQueryException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidQueryException(InvalidQueryException ex) {
+    LOG.warn(LogCategories.CLIENT_ERROR, "Invalid payment search: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(),
+        ex.getMessage(), paymentIdGenerator.next().toString()), HttpStatus.BAD_REQUEST);
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<ErrorResponse> handleMethodArgumentNotValidExceptions(MethodArgumentNotValidException ex) {
     StringBuilder errorMessage = new StringBuilder();
@@ -37,26 +83,38 @@ public class CommonExceptionHandler {
       errorMessage.append(error.getDefaultMessage())
           .append(".");
     });
-    LOG.error("Validation failed for request data. Error(s): {}", errorMessage);
+    LOG.warn(LogCategories.CLIENT_ERROR, "Validation failed for request data. Error(s): {}",
+        errorMessage);
 
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
     ErrorResponse errorResponse = new ErrorResponse(
         PaymentStatus.REJECTED.getName(),
         errorMessage.toString(),
-        UUID.randomUUID().toString()
+        paymentIdGenerator.next().toString()
     );
     return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
   }
 
+  @ExceptionHandler({PaymentValidationException.class, InvalidBatchException.class})
+  public ResponseEntity<ErrorResponse> handlePaymentValidationException(RuntimeException ex) {
+    LOG.warn(LogCategories.CLIENT_ERROR, "Validation failed for request data. Error(s): {}",
+        ex.getMessage());
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+    return new ResponseEntity<>(new ErrorResponse(PaymentStatus.REJECTED.getName(),
+        ex.getMessage(), paymentIdGenerator.next().toString()), HttpStatus.BAD_REQUEST);
+  }
+
   @ExceptionHandler(InvalidExpiryDateException.class)
   public ResponseEntity<ErrorResponse> handleGlobalException(InvalidExpiryDateException ex) {
-    LOG.error("Expiry date validation failed: {}", ex.getMessage(), ex);
+    LOG.warn(LogCategories.CLIENT_ERROR, "Expiry date validation failed: {}", ex.getMessage());
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
     return new ResponseEntity<>(new ErrorResponse(PaymentStatus.REJECTED.getName(),
-        ex.getMessage(), UUID.randomUUID().toString()), HttpStatus.BAD_REQUEST);
+        ex.getMessage(), paymentIdGenerator.next().toString()), HttpStatus.BAD_REQUEST);
   }
   @ExceptionHandler(Exception.class)
   public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex) {
     LOG.error("Unexpected error occurred {}", ex.getMessage(), ex);
     return new ResponseEntity<>(new ErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
-        ex.getMessage(), UUID.randomUUID().toString()), HttpStatus.INTERNAL_SERVER_ERROR);
+        ex.getMessage(), paymentIdGenerator.next().toString()), HttpStatus.INTERNAL_SERVER_ERROR);
   }
 }
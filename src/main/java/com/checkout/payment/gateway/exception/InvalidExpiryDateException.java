@@ -1,6 +1,6 @@
 package com.checkout.payment.gateway.exception;
 
-public class InvalidExpiryDateException extends RuntimeException{
+public class InvalidExpiryDateException extends StacklessException {
   public InvalidExpiryDateException(String message) {
     super(message);
   }
@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class InvalidQueryException extends StacklessException {
+  public InvalidQueryException(String message) {
+    super(message);
+  }
+}
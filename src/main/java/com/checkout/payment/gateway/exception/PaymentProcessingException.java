@@ -1,6 +1,6 @@
 package com.checkout.payment.gateway.exception;
 
-public class PaymentProcessingException extends RuntimeException{
+public class PaymentProcessingException extends StacklessException {
   public PaymentProcessingException(String message) {
     super(message);
   }
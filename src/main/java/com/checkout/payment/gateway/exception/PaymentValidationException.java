@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class PaymentValidationException extends StacklessException {
+  public PaymentValidationException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class RepositoryCapacityExceededException extends StacklessException {
+  public RepositoryCapacityExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,13 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * Base of the exceptions for expected outcomes, such as a rejected payment, an unknown ID or an
+ * unavailable bank. They are thrown in bulk under load or card-testing attacks and answered
+ * without a stack trace, so they are created without one.
+ */
+public abstract class StacklessException extends RuntimeException {
+
+  protected StacklessException(String message) {
+    super(message, null, false, false);
+  }
+}
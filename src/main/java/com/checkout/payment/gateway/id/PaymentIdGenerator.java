@@ -0,0 +1,31 @@
+package com.checkout.payment.gateway.id;
+
+import java.util.UUID;
+
+/**
+ * Creates the IDs given to payments and error responses.
+ */
+@FunctionalInterface
+public interface PaymentIdGenerator {
+
+  UUID next();
+
+  /**
+   * @return whether the IDs carry their creation time, which payment searches filter on
+   */
+  default boolean isTimeOrdered() {
+    return false;
+  }
+
+  /**
+   * @param mode {@code time-ordered} for {@link TimeOrderedPaymentIdGenerator}, or {@code random}
+   *     for {@link UUID#randomUUID()}
+   */
+  static PaymentIdGenerator create(String mode) {
+    return switch (mode) {
+      case "time-ordered" -> new TimeOrderedPaymentIdGenerator();
+      case "random" -> UUID::randomUUID;
+      default -> throw new IllegalArgumentException("Unknown payment ID mode: " + mode);
+    };
+  }
+}
@@ -0,0 +1,120 @@
+package com.checkout.payment.gateway.id;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp, then a 12-bit counter and 62
+ * random bits. IDs sort by creation time, so ordered indexes and journal segments see appends
+ * rather than scattered inserts, while the 73 bits drawn from a {@link SecureRandom} keep them as
+ * hard to guess as a random UUID's 122.
+ * <p>
+ * {@link UUID#randomUUID()} draws every ID from one shared {@code SecureRandom}, which serializes
+ * concurrent callers. Here each platform thread has its own DRBG instance and buffers its output,
+ * so generating an ID takes no shared lock and only calls into the DRBG once every
+ * {@value #IDS_PER_REFILL} IDs. Virtual threads are too many and too short-lived to seed a
+ * generator each, so they share a small set of stripes picked by thread ID instead, each guarded by
+ * a {@link ReentrantLock} so that a virtual thread waiting for a stripe unmounts rather than pins
+ * its carrier.
+ * <p>
+ * The counter starts at a random value each millisecond and increments for every further ID the
+ * same thread or stripe generates within it, so those IDs sort in creation order too. If it runs
+ * out, the timestamp is advanced by a millisecond, as the RFC allows.
+ */
+public class TimeOrderedPaymentIdGenerator implements PaymentIdGenerator {
+
+  private static final int IDS_PER_REFILL = 32;
+  private static final int COUNTER_BITS = 12;
+  private static final int COUNTER_MASK = (1 << COUNTER_BITS) - 1;
+  // Leaves half the counter range for IDs that follow in the same millisecond.
+  private static final int COUNTER_SEED_MASK = COUNTER_MASK >>> 1;
+  private static final long VERSION = 7L << COUNTER_BITS;
+  private static final long VARIANT = 0x8000000000000000L;
+  private static final long RANDOM_MASK = 0x3fffffffffffffffL;
+
+  private final LongSupplier clock;
+  private final ThreadLocal<Entropy> entropy;
+  private final Entropy[] virtualThreadStripes;
+
+  public TimeOrderedPaymentIdGenerator() {
+    this(System::currentTimeMillis);
+  }
+
+  public TimeOrderedPaymentIdGenerator(LongSupplier clock) {
+    this.clock = clock;
+    this.entropy = ThreadLocal.withInitial(Entropy::new);
+    int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+    this.virtualThreadStripes = new Entropy[stripes];
+    for (int i = 0; i < stripes; i++) {
+      virtualThreadStripes[i] = new Entropy();
+    }
+  }
+
+  @Override
+  public UUID next() {
+    Thread thread = Thread.currentThread();
+    if (!thread.isVirtual()) {
+      return entropy.get().next(clock.getAsLong());
+    }
+    Entropy stripe =
+        virtualThreadStripes[(int) thread.threadId() & (virtualThreadStripes.length - 1)];
+    stripe.lock.lock();
+    try {
+      return stripe.next(clock.getAsLong());
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isTimeOrdered() {
+    return true;
+  }
+
+  /**
+   * @return the creation time in Unix milliseconds encoded in a version 7 ID
+   */
+  public static long timestamp(UUID id) {
+    return id.getMostSignificantBits() >>> 16;
+  }
+
+  private static final class Entropy {
+
+    private final SecureRandom random;
+    // Only taken when the instance is a virtual-thread stripe.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(IDS_PER_REFILL * 2 * Long.BYTES);
+    private long lastMillis = Long.MIN_VALUE;
+    private int counter;
+
+    Entropy() {
+      try {
+        random = SecureRandom.getInstance("DRBG");
+      } catch (NoSuchAlgorithmException ex) {
+        throw new IllegalStateException("DRBG SecureRandom is not available", ex);
+      }
+      buffer.position(buffer.limit());
+    }
+
+    UUID next(long nowMillis) {
+      if (!buffer.hasRemaining()) {
+        random.nextBytes(buffer.array());
+        buffer.clear();
+      }
+      long high = buffer.getLong();
+      long low = buffer.getLong();
+      if (nowMillis > lastMillis) {
+        lastMillis = nowMillis;
+        counter = (int) high & COUNTER_SEED_MASK;
+      } else if (++counter > COUNTER_MASK) {
+        lastMillis++;
+        counter = (int) high & COUNTER_SEED_MASK;
+      }
+      return new UUID(lastMillis << 16 | VERSION | counter, VARIANT | low & RANDOM_MASK);
+    }
+  }
+}
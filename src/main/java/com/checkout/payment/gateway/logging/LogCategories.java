@@ -0,0 +1,27 @@
+package com.checkout.payment.gateway.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Markers for the log lines that can be written once per payment. Each category is rate limited
+ * and sampled on its own by {@link RateLimitingTurboFilter}, so a flood of one kind of event does
+ * not crowd out the others.
+ */
+public final class LogCategories {
+
+  /** Authorized and declined payments. */
+  public static final Marker PAYMENT_OUTCOME = MarkerFactory.getMarker("PAYMENT_OUTCOME");
+
+  /** Requests rejected for what the client sent: invalid payments, unknown IDs, key conflicts. */
+  public static final Marker CLIENT_ERROR = MarkerFactory.getMarker("CLIENT_ERROR");
+
+  /** Bank failures, retries, hedges and calls turned away while the bank is unavailable. */
+  public static final Marker BANK = MarkerFactory.getMarker("BANK");
+
+  /** Payments turned away because the repository is full. */
+  public static final Marker STORAGE = MarkerFactory.getMarker("STORAGE");
+
+  private LogCategories() {
+  }
+}
@@ -0,0 +1,130 @@
+package com.checkout.payment.gateway.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Bounds the log volume of each marked category.
+ * <p>
+ * Categories are configured as {@code MARKER:perSecond:sampleEvery}, separated by commas. Within
+ * each one-second window the first {@code perSecond} events of a category are logged; after that
+ * only every {@code sampleEvery}-th one is, and the rest are dropped before a logging event is even
+ * created. How many were dropped is logged when the category's next window opens. Events without a
+ * configured marker, and events below their logger's level, are left alone.
+ * <p>
+ * Marked events logged while {@link #WARM_UP_KEY} is in the MDC are dropped whatever the category,
+ * since they describe synthetic payments.
+ */
+public class RateLimitingTurboFilter extends TurboFilter {
+
+  /** MDC key present while the warm-up sends synthetic payments. */
+  public static final String WARM_UP_KEY = "warmUp";
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final LongSupplier clock;
+  private final Map<String, Budget> budgets = new HashMap<>();
+
+  public RateLimitingTurboFilter() {
+    this(System::nanoTime);
+  }
+
+  RateLimitingTurboFilter(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * @param categories {@code MARKER:perSecond:sampleEvery} entries separated by commas
+   */
+  public void setCategories(String categories) {
+    budgets.clear();
+    for (String spec : categories.split(",")) {
+      if (spec.isBlank()) {
+        continue;
+      }
+      String[] parts = spec.trim().split(":");
+      if (parts.length != 3) {
+        throw new IllegalArgumentException(
+            "Log category must be MARKER:perSecond:sampleEvery, got: " + spec);
+      }
+      int perSecond = Integer.parseInt(parts[1]);
+      int sampleEvery = Integer.parseInt(parts[2]);
+      if (perSecond < 0 || sampleEvery < 1) {
+        throw new IllegalArgumentException("Invalid log category limits: " + spec);
+      }
+      budgets.put(parts[0], new Budget(parts[0], perSecond, sampleEvery, clock.getAsLong()));
+    }
+  }
+
+  @Override
+  public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+      Object[] params, Throwable t) {
+    if (marker == null || !isStarted()) {
+      return FilterReply.NEUTRAL;
+    }
+    if (MDC.get(WARM_UP_KEY) != null) {
+      return FilterReply.DENY;
+    }
+    Budget budget = budgets.get(marker.getName());
+    if (budget == null || level.levelInt < logger.getEffectiveLevel().levelInt) {
+      return FilterReply.NEUTRAL;
+    }
+    return budget.tryAcquire(clock.getAsLong()) ? FilterReply.NEUTRAL : FilterReply.DENY;
+  }
+
+  /**
+   * @return events of the category dropped in the current window, or 0 for an unknown category
+   */
+  long getDropped(String category) {
+    Budget budget = budgets.get(category);
+    return budget == null ? 0 : budget.dropped.sum();
+  }
+
+  private static final class Budget {
+
+    private final String category;
+    private final int perSecond;
+    private final int sampleEvery;
+    private final AtomicLong windowStart;
+    private final AtomicLong events = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    Budget(String category, int perSecond, int sampleEvery, long now) {
+      this.category = category;
+      this.perSecond = perSecond;
+      this.sampleEvery = sampleEvery;
+      this.windowStart = new AtomicLong(now);
+    }
+
+    boolean tryAcquire(long now) {
+      long start = windowStart.get();
+      if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+        // Events counted by other threads between the CAS and this reset are forgiven.
+        events.set(0);
+        long droppedInWindow = dropped.sumThenReset();
+        if (droppedInWindow > 0) {
+          LoggerFactory.getLogger(RateLimitingTurboFilter.class).warn(
+              "Dropped {} {} log events in the last {} ms", droppedInWindow, category,
+              TimeUnit.NANOSECONDS.toMillis(now - start));
+        }
+      }
+      long event = events.incrementAndGet();
+      if (event <= perSecond || (event - perSecond) % sampleEvery == 0) {
+        return true;
+      }
+      dropped.increment();
+      return false;
+    }
+  }
+}
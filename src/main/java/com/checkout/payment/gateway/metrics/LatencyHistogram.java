@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed, log-linear buckets.
+ * <p>
+ * The first bucket holds everything under 1024 ns; above that every power of two is split into
+ * four buckets, so a bucket is at most 25% wider than its lower bound, up to 2^37 ns (about
+ * 137 s). Slower values land in a final overflow bucket. Recording is one bucket increment and
+ * one adder update; there is no rotation, sampling or allocation.
+ */
+public class LatencyHistogram {
+
+  private static final int MIN_EXPONENT = 10;
+  private static final int MAX_EXPONENT = 36;
+  private static final int SUB_BUCKETS = 4;
+
+  /**
+   * Number of buckets, including the overflow bucket.
+   */
+  public static final int BUCKETS = 1 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder sumNanos = new LongAdder();
+
+  public void record(long durationNanos) {
+    counts.getAndIncrement(bucketIndex(durationNanos));
+    sumNanos.add(durationNanos);
+  }
+
+  public long getBucketCount(int index) {
+    return counts.get(index);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  public long getSumNanos() {
+    return sumNanos.sum();
+  }
+
+  static int bucketIndex(long durationNanos) {
+    if (durationNanos < 1L << MIN_EXPONENT) {
+      return 0;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(durationNanos);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (durationNanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+    return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Exclusive upper bound of a bucket, or {@link Long#MAX_VALUE} for the overflow bucket.
+   */
+  public static long upperBoundNanos(int index) {
+    if (index == 0) {
+      return 1L << MIN_EXPONENT;
+    }
+    if (index == BUCKETS - 1) {
+      return Long.MAX_VALUE;
+    }
+    int exponent = MIN_EXPONENT + (index - 1) / SUB_BUCKETS;
+    int subBucket = (index - 1) % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - 2);
+  }
+}
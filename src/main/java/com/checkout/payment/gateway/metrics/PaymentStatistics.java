@@ -0,0 +1,145 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyStatistics;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Authorized and declined payment counts and amounts per currency over rolling windows of the
+ * last minute, five minutes and hour.
+ * <p>
+ * Time is cut into one-second slots, kept in a ring as long as the longest window. A slot holds a
+ * {@link LongAdder} per currency and figure, so concurrent payments rarely contend, and recording a
+ * payment is a clock read and two adder updates. The first payment of a second clears the slot it
+ * reuses. Reading a window sums the slots of its seconds, up to and including the current one, so
+ * the statistics never look at the repository.
+ */
+public class PaymentStatistics {
+
+  public enum Window {
+    ONE_MINUTE("1m", 60),
+    FIVE_MINUTES("5m", 300),
+    ONE_HOUR("1h", 3600);
+
+    private final String label;
+    private final int seconds;
+
+    Window(String label, int seconds) {
+      this.label = label;
+      this.seconds = seconds;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private static final int AUTHORIZED_COUNT = 0;
+  private static final int AUTHORIZED_AMOUNT = 1;
+  private static final int DECLINED_COUNT = 2;
+  private static final int DECLINED_AMOUNT = 3;
+  private static final int FIGURES = 4;
+
+  private final CurrencyRegistry currencyRegistry;
+  private final LongSupplier clock;
+  private final Slot[] slots = new Slot[Window.ONE_HOUR.seconds];
+
+  public PaymentStatistics(CurrencyRegistry currencyRegistry) {
+    this(currencyRegistry, System::currentTimeMillis);
+  }
+
+  public PaymentStatistics(CurrencyRegistry currencyRegistry, LongSupplier clock) {
+    this.currencyRegistry = currencyRegistry;
+    this.clock = clock;
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = new Slot(currencyRegistry.size() * FIGURES);
+    }
+  }
+
+  /**
+   * Counts a payment the bank answered. Other outcomes and currencies that are not configured are
+   * ignored.
+   */
+  public void record(PaymentStatus status, CurrencyUnit currency, int amount) {
+    int figure = switch (status) {
+      case AUTHORIZED -> AUTHORIZED_COUNT;
+      case DECLINED -> DECLINED_COUNT;
+      default -> -1;
+    };
+    if (figure < 0 || currency == null || currency.index() < 0) {
+      return;
+    }
+    long second = clock.getAsLong() / 1000;
+    Slot slot = slots[(int) Math.floorMod(second, (long) slots.length)];
+    if (slot.second != second && !slot.advance(second)) {
+      return;
+    }
+    int offset = currency.index() * FIGURES + figure;
+    slot.counters[offset].increment();
+    slot.counters[offset + 1].add(amount);
+  }
+
+  public PaymentStatisticsResponse snapshot() {
+    long now = clock.getAsLong() / 1000;
+    Map<String, Map<String, CurrencyStatistics>> windows = new LinkedHashMap<>();
+    for (Window window : Window.values()) {
+      windows.put(window.getLabel(), window(now, window.seconds));
+    }
+    return new PaymentStatisticsResponse(windows);
+  }
+
+  private Map<String, CurrencyStatistics> window(long now, int seconds) {
+    long[] totals = new long[currencyRegistry.size() * FIGURES];
+    for (long second = now - seconds + 1; second <= now; second++) {
+      Slot slot = slots[(int) Math.floorMod(second, (long) slots.length)];
+      if (slot.second == second) {
+        for (int i = 0; i < totals.length; i++) {
+          totals[i] += slot.counters[i].sum();
+        }
+      }
+    }
+    Map<String, CurrencyStatistics> currencies = new LinkedHashMap<>();
+    for (int i = 0; i < currencyRegistry.size(); i++) {
+      int offset = i * FIGURES;
+      currencies.put(currencyRegistry.get(i).code(), new CurrencyStatistics(
+          totals[offset + AUTHORIZED_COUNT], totals[offset + AUTHORIZED_AMOUNT],
+          totals[offset + DECLINED_COUNT], totals[offset + DECLINED_AMOUNT]));
+    }
+    return currencies;
+  }
+
+  private static final class Slot {
+
+    private final LongAdder[] counters;
+    private volatile long second = Long.MIN_VALUE;
+
+    Slot(int counters) {
+      this.counters = new LongAdder[counters];
+      for (int i = 0; i < counters; i++) {
+        this.counters[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Clears the slot for a later second. The counters are cleared before the new second is
+     * published, so no payment of that second is lost.
+     *
+     * @return false when the slot already belongs to a later second
+     */
+    synchronized boolean advance(long second) {
+      if (this.second < second) {
+        for (LongAdder counter : counters) {
+          counter.reset();
+        }
+        this.second = second;
+      }
+      return this.second == second;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import io.prometheus.client.Collector;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes the stage histograms of {@link PaymentMetrics} on the Prometheus endpoint as
+ * {@code payment_stage_duration_seconds}, with cumulative buckets labelled by stage.
+ */
+public class StageHistogramCollector extends Collector {
+
+  private static final String NAME = "payment_stage_duration_seconds";
+  private static final List<String> BUCKET_LABELS = List.of("stage", "le");
+  private static final List<String> STAGE_LABEL = List.of("stage");
+  private static final String[] UPPER_BOUNDS = new String[LatencyHistogram.BUCKETS];
+
+  static {
+    for (int i = 0; i < UPPER_BOUNDS.length - 1; i++) {
+      UPPER_BOUNDS[i] =
+          doubleToGoString(LatencyHistogram.upperBoundNanos(i) / NANOSECONDS_PER_SECOND);
+    }
+    UPPER_BOUNDS[UPPER_BOUNDS.length - 1] = "+Inf";
+  }
+
+  private final PaymentMetrics paymentMetrics;
+
+  public StageHistogramCollector(PaymentMetrics paymentMetrics) {
+    this.paymentMetrics = paymentMetrics;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram histogram = paymentMetrics.getStageHistogram(stage);
+      List<String> stageValue = List.of(stage.getTag());
+      long cumulative = 0;
+      for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+        cumulative += histogram.getBucketCount(i);
+        samples.add(new MetricFamilySamples.Sample(NAME + "_bucket", BUCKET_LABELS,
+            List.of(stage.getTag(), UPPER_BOUNDS[i]), cumulative));
+      }
+      samples.add(new MetricFamilySamples.Sample(NAME + "_count", STAGE_LABEL, stageValue,
+          cumulative));
+      samples.add(new MetricFamilySamples.Sample(NAME + "_sum", STAGE_LABEL, stageValue,
+          histogram.getSumNanos() / NANOSECONDS_PER_SECOND));
+    }
+    return List.of(new MetricFamilySamples(NAME, Type.HISTOGRAM,
+        "Time spent in each stage of a payment submission", samples));
+  }
+}
@@ -0,0 +1,47 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Jackson converter for the MVC endpoints that records request parsing and response writing as the
+ * {@link Stage#JSON_READ} and {@link Stage#JSON_WRITE} stages.
+ */
+public class TimedJsonMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  private final PaymentMetrics paymentMetrics;
+
+  public TimedJsonMessageConverter(ObjectMapper objectMapper, PaymentMetrics paymentMetrics) {
+    super(objectMapper);
+    this.paymentMetrics = paymentMetrics;
+  }
+
+  @Override
+  public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+      throws IOException, HttpMessageNotReadableException {
+    long started = System.nanoTime();
+    try {
+      return super.read(type, contextClass, inputMessage);
+    } finally {
+      paymentMetrics.recordStage(Stage.JSON_READ, System.nanoTime() - started);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    long started = System.nanoTime();
+    try {
+      super.writeInternal(object, type, outputMessage);
+    } finally {
+      paymentMetrics.recordStage(Stage.JSON_WRITE, System.nanoTime() - started);
+    }
+  }
+}
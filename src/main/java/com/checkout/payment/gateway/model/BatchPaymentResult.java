@@ -0,0 +1,59 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of one payment of a batch, written as one NDJSON line.")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPaymentResult {
+
+  @JsonProperty("index")
+  @Schema(description = "Position of the payment in the submitted batch.", example = "0")
+  private final int index;
+
+  @JsonProperty("httpStatus")
+  @Schema(description = "HTTP status the payment would have received on its own.", example = "202")
+  private final int httpStatus;
+
+  @JsonProperty("status")
+  @Schema(description = "Status of the payment (e.g., Authorized, Declined, Rejected).", example = "Authorized")
+  private final String status;
+
+  @JsonProperty("payment")
+  @Schema(description = "The processed payment, present when the bank answered.")
+  private final PostPaymentResponse payment;
+
+  @JsonProperty("message")
+  @Schema(description = "Why the payment was not processed.", example = "Invalid Expiration Date")
+  private final String message;
+
+  public BatchPaymentResult(int index, int httpStatus, String status, PostPaymentResponse payment,
+      String message) {
+    this.index = index;
+    this.httpStatus = httpStatus;
+    this.status = status;
+    this.payment = payment;
+    this.message = message;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getHttpStatus() {
+    return httpStatus;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public PostPaymentResponse getPayment() {
+    return payment;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+}
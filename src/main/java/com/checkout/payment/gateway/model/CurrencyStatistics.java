@@ -0,0 +1,56 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Payments the bank answered in one currency over one window.")
+public class CurrencyStatistics {
+
+  @JsonProperty("authorized")
+  @Schema(description = "Number of authorized payments.", example = "120")
+  private final long authorized;
+
+  @JsonProperty("authorizedAmount")
+  @Schema(description = "Sum of the authorized amounts, in minor units.", example = "1250000")
+  private final long authorizedAmount;
+
+  @JsonProperty("declined")
+  @Schema(description = "Number of declined payments.", example = "8")
+  private final long declined;
+
+  @JsonProperty("declinedAmount")
+  @Schema(description = "Sum of the declined amounts, in minor units.", example = "64000")
+  private final long declinedAmount;
+
+  public CurrencyStatistics(long authorized, long authorizedAmount, long declined,
+      long declinedAmount) {
+    this.authorized = authorized;
+    this.authorizedAmount = authorizedAmount;
+    this.declined = declined;
+    this.declinedAmount = declinedAmount;
+  }
+
+  public long getAuthorized() {
+    return authorized;
+  }
+
+  public long getAuthorizedAmount() {
+    return authorizedAmount;
+  }
+
+  public long getDeclined() {
+    return declined;
+  }
+
+  public long getDeclinedAmount() {
+    return declinedAmount;
+  }
+
+  @JsonProperty("approvalRate")
+  @Schema(description = "Share of the answered payments that were authorized, or null when there "
+      + "were none.", example = "0.9375")
+  public Double getApprovalRate() {
+    long answered = authorized + declined;
+    return answered == 0 ? null : (double) authorized / answered;
+  }
+}
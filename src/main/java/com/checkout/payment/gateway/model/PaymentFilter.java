@@ -0,0 +1,90 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Filters of a payment search or export, bound from query parameters. Every filter is optional.
+ */
+public class PaymentFilter {
+
+  @Schema(description = "Only payments with this status.", example = "Authorized")
+  private String status;
+
+  @Schema(description = "Only payments in this ISO currency code.", example = "GBP")
+  private String currency;
+
+  @Schema(description = "Smallest amount in minor units, inclusive.", example = "100")
+  private Integer minAmount;
+
+  @Schema(description = "Largest amount in minor units, inclusive.", example = "10000")
+  private Integer maxAmount;
+
+  @Schema(description = "Earliest creation time, inclusive, as an ISO-8601 instant.",
+      example = "2024-01-01T00:00:00Z")
+  private String from;
+
+  @Schema(description = "Latest creation time, exclusive, as an ISO-8601 instant.",
+      example = "2024-01-02T00:00:00Z")
+  private String to;
+
+  @Schema(description = "Only payments made with a card ending in these four digits.",
+      example = "8877")
+  private String cardNumberLastFour;
+
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public String getCurrency() {
+    return currency;
+  }
+
+  public void setCurrency(String currency) {
+    this.currency = currency;
+  }
+
+  public Integer getMinAmount() {
+    return minAmount;
+  }
+
+  public void setMinAmount(Integer minAmount) {
+    this.minAmount = minAmount;
+  }
+
+  public Integer getMaxAmount() {
+    return maxAmount;
+  }
+
+  public void setMaxAmount(Integer maxAmount) {
+    this.maxAmount = maxAmount;
+  }
+
+  public String getFrom() {
+    return from;
+  }
+
+  public void setFrom(String from) {
+    this.from = from;
+  }
+
+  public String getTo() {
+    return to;
+  }
+
+  public void setTo(String to) {
+    this.to = to;
+  }
+
+  public String getCardNumberLastFour() {
+    return cardNumberLastFour;
+  }
+
+  public void setCardNumberLastFour(String cardNumberLastFour) {
+    this.cardNumberLastFour = cardNumberLastFour;
+  }
+}
@@ -0,0 +1,33 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "One page of payments matching a search, oldest first.")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaymentPage {
+
+  @JsonProperty("payments")
+  @Schema(description = "The payments of this page.")
+  private final List<PostPaymentResponse> payments;
+
+  @JsonProperty("nextCursor")
+  @Schema(description = "Pass as the cursor parameter to get the next page. Absent on the last page.",
+      example = "AAAAAQAAADEAAAAHq5wC3Q")
+  private final String nextCursor;
+
+  public PaymentPage(List<PostPaymentResponse> payments, String nextCursor) {
+    this.payments = payments;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<PostPaymentResponse> getPayments() {
+    return payments;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
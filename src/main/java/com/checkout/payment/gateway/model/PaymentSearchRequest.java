@@ -0,0 +1,31 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Query parameters of a payment search: the filters and the page to return.
+ */
+public class PaymentSearchRequest extends PaymentFilter {
+
+  @Schema(description = "Largest number of payments in the page.", example = "50")
+  private Integer limit;
+
+  @Schema(description = "The nextCursor of the previous page.")
+  private String cursor;
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public void setLimit(Integer limit) {
+    this.limit = limit;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+}
@@ -0,0 +1,22 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.Map;
+
+@Schema(description = "Payment volumes and approval rates per currency over rolling windows.")
+public class PaymentStatisticsResponse {
+
+  @JsonProperty("windows")
+  @Schema(description = "Statistics by window (1m, 5m, 1h), then by currency code. Windows end at "
+      + "the current second.")
+  private final Map<String, Map<String, CurrencyStatistics>> windows;
+
+  public PaymentStatisticsResponse(Map<String, Map<String, CurrencyStatistics>> windows) {
+    this.windows = windows;
+  }
+
+  public Map<String, Map<String, CurrencyStatistics>> getWindows() {
+    return windows;
+  }
+}
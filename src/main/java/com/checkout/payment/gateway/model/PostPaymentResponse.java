@@ -1,5 +1,6 @@
 package com.checkout.payment.gateway.model;
 
+import com.checkout.payment.gateway.currency.CurrencyUnit;
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -24,8 +25,9 @@ public class PostPaymentResponse {
   private String expiryDate;
 
   @JsonProperty("currency")
-  @Schema(description = "The 3-character ISO currency code (e.g., USD).", example = "USD")
-  private String currency;
+  @Schema(description = "The 3-character ISO currency code (e.g., USD).", example = "USD",
+      implementation = String.class)
+  private CurrencyUnit currency;
 
   @JsonProperty("amount")
   @Schema(description = "The amount that was processed.", example = "1050")
@@ -64,11 +66,11 @@ public class PostPaymentResponse {
     this.expiryDate = expiryDate;
   }
 
-  public String getCurrency() {
+  public CurrencyUnit getCurrency() {
     return currency;
   }
 
-  public void setCurrency(String currency) {
+  public void setCurrency(CurrencyUnit currency) {
     this.currency = currency;
   }
 
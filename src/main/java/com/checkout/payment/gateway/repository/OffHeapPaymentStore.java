@@ -0,0 +1,298 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.RepositoryCapacityExceededException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Store that packs each payment into a fixed-width slot of direct memory, so the heap holds no
+ * per-payment objects and stored payments add nothing to GC work.
+ * <p>
+ * A slot is 32 bytes: the 16-byte id, the status, a currency index, the last four digits as a
+ * short, the expiry month and year packed into a short and the amount. Each stripe finds slots
+ * through an open-addressing table of slot numbers, and readers use optimistic stamps so they
+ * never block behind a writer. {@link PostPaymentResponse} views are only built on read.
+ */
+public class OffHeapPaymentStore implements PaymentStore {
+
+  static final int SLOT_SIZE = 32;
+  private static final int MSB = 0;
+  private static final int LSB = 8;
+  private static final int STATUS = 16;
+  private static final int CURRENCY = 17;
+  private static final int LAST_FOUR = 18;
+  private static final int EXPIRY = 20;
+  private static final int AMOUNT = 24;
+  private static final int NO_LAST_FOUR = -1;
+  private static final int MAX_CURRENCIES = 0xFF;
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+  private final int stripeCapacity;
+  private volatile CurrencyUnit[] currencies = new CurrencyUnit[0];
+
+  public OffHeapPaymentStore(int stripes, int capacity) {
+    if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+      throw new IllegalArgumentException("Stripe count must be a positive power of two: " + stripes);
+    }
+    if (capacity < stripes) {
+      throw new IllegalArgumentException("Capacity must be at least the stripe count: " + capacity);
+    }
+    this.stripes = new Stripe[stripes];
+    this.stripeMask = stripes - 1;
+    this.stripeCapacity = capacity / stripes;
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new Stripe(stripeCapacity);
+    }
+  }
+
+  @Override
+  public boolean put(PostPaymentResponse payment) {
+    UUID id = payment.getId();
+    int status = payment.getStatus() == null ? 0 : payment.getStatus().ordinal() + 1;
+    int currency = currencyIndex(payment.getCurrency());
+    int lastFour = packLastFour(payment.getCardNumberLastFour());
+    int expiry = packExpiry(payment.getExpiryDate());
+    return stripeFor(id).put(id.getMostSignificantBits(), id.getLeastSignificantBits(), status,
+        currency, lastFour, expiry, payment.getAmount());
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    return stripeFor(id).get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.count;
+    }
+    return size;
+  }
+
+  @Override
+  public int capacity() {
+    return stripeCapacity * stripes.length;
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    for (Stripe stripe : stripes) {
+      int count = stripe.count;
+      for (int slot = 0; slot < count; slot++) {
+        action.accept(stripe.view(slot));
+      }
+    }
+  }
+
+  private Stripe stripeFor(UUID id) {
+    long bits = id.getLeastSignificantBits();
+    return stripes[(int) (bits ^ (bits >>> 32)) & stripeMask];
+  }
+
+  private int currencyIndex(CurrencyUnit currency) {
+    CurrencyUnit[] known = currencies;
+    for (int i = 0; i < known.length; i++) {
+      if (known[i] == currency || known[i].equals(currency)) {
+        return i;
+      }
+    }
+    synchronized (this) {
+      known = currencies;
+      int index = Arrays.asList(known).indexOf(currency);
+      if (index >= 0) {
+        return index;
+      }
+      if (currency == null || known.length == MAX_CURRENCIES) {
+        throw new IllegalArgumentException("Currency cannot be stored off-heap: " + currency);
+      }
+      CurrencyUnit[] extended = Arrays.copyOf(known, known.length + 1);
+      extended[known.length] = currency;
+      currencies = extended;
+      return known.length;
+    }
+  }
+
+  private static int packLastFour(String lastFour) {
+    if (lastFour == null || lastFour.isEmpty()) {
+      return NO_LAST_FOUR;
+    }
+    if (lastFour.length() != 4 || !lastFour.chars().allMatch(Character::isDigit)) {
+      throw new IllegalArgumentException("Card last four cannot be stored off-heap: " + lastFour);
+    }
+    return Integer.parseInt(lastFour);
+  }
+
+  /**
+   * Packs "MM/YYYY" as {@code month << 12 | year}; zero stands for no expiry date.
+   */
+  private static int packExpiry(String expiryDate) {
+    if (expiryDate == null || expiryDate.isEmpty()) {
+      return 0;
+    }
+    if (expiryDate.length() != 7 || expiryDate.charAt(2) != '/') {
+      throw new IllegalArgumentException("Expiry date cannot be stored off-heap: " + expiryDate);
+    }
+    int month = Integer.parseInt(expiryDate, 0, 2, 10);
+    int year = Integer.parseInt(expiryDate, 3, 7, 10);
+    if (month < 1 || month > 12 || year > 0xFFF) {
+      throw new IllegalArgumentException("Expiry date cannot be stored off-heap: " + expiryDate);
+    }
+    return month << 12 | year;
+  }
+
+  private static String unpackLastFour(int lastFour) {
+    char[] chars = new char[4];
+    writeDigits(chars, 0, 4, lastFour);
+    return new String(chars);
+  }
+
+  private static String unpackExpiry(int expiry) {
+    char[] chars = new char[7];
+    writeDigits(chars, 0, 2, expiry >>> 12);
+    chars[2] = '/';
+    writeDigits(chars, 3, 4, expiry & 0xFFF);
+    return new String(chars);
+  }
+
+  private static void writeDigits(char[] chars, int from, int width, int value) {
+    for (int i = from + width - 1; i >= from; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  private static int hash(long msb, long lsb) {
+    long h = msb ^ lsb;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  private final class Stripe {
+
+    private final ByteBuffer slots;
+    private final int[] index;
+    private final int indexMask;
+    private final int capacity;
+    private final StampedLock lock = new StampedLock();
+    private volatile int count;
+
+    private Stripe(int capacity) {
+      this.capacity = capacity;
+      this.slots = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, SLOT_SIZE));
+      int tableSize = Integer.highestOneBit(Math.max(2, capacity + capacity / 3) - 1) << 1;
+      this.index = new int[tableSize];
+      this.indexMask = tableSize - 1;
+    }
+
+    private boolean put(long msb, long lsb, int status, int currency, int lastFour, int expiry,
+        int amount) {
+      long stamp = lock.writeLock();
+      try {
+        int position = locate(msb, lsb);
+        int slot = index[position] - 1;
+        if (slot < 0) {
+          if (count == capacity) {
+            throw new RepositoryCapacityExceededException("Payment storage is full, payment "
+                + new UUID(msb, lsb) + " could not be stored");
+          }
+          slot = count;
+          index[position] = slot + 1;
+        }
+        int offset = slot * SLOT_SIZE;
+        slots.putLong(offset + MSB, msb)
+            .putLong(offset + LSB, lsb)
+            .put(offset + STATUS, (byte) status)
+            .put(offset + CURRENCY, (byte) currency)
+            .putShort(offset + LAST_FOUR, (short) lastFour)
+            .putShort(offset + EXPIRY, (short) expiry)
+            .putInt(offset + AMOUNT, amount);
+        if (slot == count) {
+          count = slot + 1;
+          return true;
+        }
+        return false;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    private PostPaymentResponse get(long msb, long lsb) {
+      long stamp = lock.tryOptimisticRead();
+      int slot = index[locate(msb, lsb)] - 1;
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          slot = index[locate(msb, lsb)] - 1;
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return slot < 0 ? null : view(slot);
+    }
+
+    /**
+     * Returns the table position holding the id, or the empty position where it would go. The
+     * probe is bounded so that a racing optimistic reader always terminates.
+     */
+    private int locate(long msb, long lsb) {
+      int position = hash(msb, lsb) & indexMask;
+      for (int probes = 0; probes <= indexMask; probes++) {
+        int slot = index[position] - 1;
+        if (slot < 0) {
+          return position;
+        }
+        int offset = slot * SLOT_SIZE;
+        if (slots.getLong(offset + MSB) == msb && slots.getLong(offset + LSB) == lsb) {
+          return position;
+        }
+        position = (position + 1) & indexMask;
+      }
+      return position;
+    }
+
+    /**
+     * Builds a response from a published slot. Slots are only ever overwritten in place with the
+     * same id, so the fields are read under a stamp and re-read if a writer got in between. The
+     * buffer is big-endian, so the first field of the header word sits in its top byte.
+     */
+    private PostPaymentResponse view(int slot) {
+      int offset = slot * SLOT_SIZE;
+      long stamp = lock.tryOptimisticRead();
+      long header = slots.getLong(offset + STATUS);
+      int amount = slots.getInt(offset + AMOUNT);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          header = slots.getLong(offset + STATUS);
+          amount = slots.getInt(offset + AMOUNT);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      int status = (int) (header >>> 56) & 0xFF;
+      int currency = (int) (header >>> 48) & 0xFF;
+      int lastFour = (short) (header >>> 32);
+      int expiry = (int) (header >>> 16) & 0xFFFF;
+
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(new UUID(slots.getLong(offset + MSB), slots.getLong(offset + LSB)));
+      payment.setStatus(status == 0 ? null : STATUSES[status - 1]);
+      payment.setCurrency(currencies[currency]);
+      payment.setCardNumberLastFour(lastFour == NO_LAST_FOUR ? null : unpackLastFour(lastFour));
+      payment.setExpiryDate(expiry == 0 ? null : unpackExpiry(expiry));
+      payment.setAmount(amount);
+      return payment;
+    }
+  }
+}
@@ -0,0 +1,459 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Secondary indexes over stored payments, kept in step with {@link PaymentsRepository#add} so
+ * payments can be searched without visiting the whole store.
+ * <p>
+ * Every indexed payment is given the next row number, and its id, creation time and amount are
+ * kept in column pages by row. Status and currency take few values, so each value is a bitmap over
+ * rows and combining them is a word-wise AND. The card's last four digits map to sorted posting
+ * lists of rows. The creation time is the timestamp of a time-ordered (version 7) id; other ids
+ * carry none, so their payments never match a time range. A skip list of one-minute buckets
+ * records the lowest and highest row created in each minute, which turns a time range into a
+ * window of rows. Rows are numbered in
+ * storage order, which follows creation order to within a bank call, so the window is tight; rows
+ * inside it are still checked against the exact range.
+ * <p>
+ * Indexes only grow, except that a pending payment's row moves to the bitmap of its final status
+ * when that is stored; pending rows are remembered by id until then. Adding takes no lock except
+ * on a posting list and on the rare growth of a page table, and a row becomes visible to scans
+ * only once all of its entries are written.
+ */
+class PaymentIndex {
+
+  private static final int PAGE_SHIFT = 16;
+  private static final int PAGE_ROWS = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_ROWS - 1;
+  private static final int WORD_SHIFT = 6;
+  private static final int WORDS_PER_PAGE = PAGE_ROWS >>> WORD_SHIFT;
+  private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final int LAST_FOUR_VALUES = 10_000;
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+  // Creation time of a row whose id does not carry one.
+  private static final long UNKNOWN_CREATED = Long.MIN_VALUE;
+
+  /**
+   * Receives the rows a scan finds, in ascending row order.
+   */
+  @FunctionalInterface
+  interface RowVisitor {
+
+    /**
+     * @return false to stop the scan
+     */
+    boolean visit(int row, UUID id);
+  }
+
+  private final int epoch = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+  private final AtomicInteger rows = new AtomicInteger();
+  private volatile Columns[] columns = new Columns[0];
+  private final RowBitmap present = new RowBitmap();
+  private final RowBitmap[] statuses = new RowBitmap[PaymentStatus.values().length];
+  private final Map<UUID, Integer> pendingRows = new ConcurrentHashMap<>();
+  // Keyed by currency index; unlisted currencies share the bitmap at -1.
+  private final Map<Integer, RowBitmap> currencies = new ConcurrentHashMap<>();
+  private final RowList[] lastFours = new RowList[LAST_FOUR_VALUES];
+  private final ConcurrentSkipListMap<Long, TimeBucket> buckets = new ConcurrentSkipListMap<>();
+  private volatile TimeBucket latestBucket = new TimeBucket(Long.MIN_VALUE);
+
+  PaymentIndex() {
+    for (int i = 0; i < statuses.length; i++) {
+      statuses[i] = new RowBitmap();
+    }
+    for (int i = 0; i < lastFours.length; i++) {
+      lastFours[i] = new RowList();
+    }
+  }
+
+  /**
+   * Identifies this index instance, as a non-negative number. Row numbers are only meaningful to
+   * the index that gave them.
+   */
+  int epoch() {
+    return epoch;
+  }
+
+  int size() {
+    return rows.get();
+  }
+
+  void add(PostPaymentResponse payment) {
+    UUID id = payment.getId();
+    long created = createdMillis(id);
+    int row = rows.getAndIncrement();
+    Columns page = columnsFor(row);
+    int slot = row & PAGE_MASK;
+    page.msb[slot] = id.getMostSignificantBits();
+    page.lsb[slot] = id.getLeastSignificantBits();
+    page.created[slot] = created;
+    page.amount[slot] = payment.getAmount();
+    if (payment.getStatus() != null) {
+      statuses[payment.getStatus().ordinal()].set(row);
+    }
+    if (payment.getStatus() == PaymentStatus.PENDING) {
+      pendingRows.put(id, row);
+    }
+    if (payment.getCurrency() != null) {
+      currencies.computeIfAbsent(payment.getCurrency().index(), key -> new RowBitmap()).set(row);
+    }
+    int lastFour = parseLastFour(payment.getCardNumberLastFour());
+    if (lastFour >= 0) {
+      lastFours[lastFour].add(row);
+    }
+    if (created != UNKNOWN_CREATED) {
+      bucketFor(Math.floorDiv(created, BUCKET_MILLIS)).include(row);
+    }
+    // Publishes the row: scans read the bitmap before any other entry.
+    present.set(row);
+  }
+
+  /**
+   * Re-indexes the status of a payment stored again, when it was pending and no longer is. Other
+   * changes to a stored payment are not indexed.
+   */
+  void updateStatus(PostPaymentResponse payment) {
+    if (payment.getStatus() == null || payment.getStatus() == PaymentStatus.PENDING) {
+      return;
+    }
+    Integer row = pendingRows.remove(payment.getId());
+    if (row != null) {
+      // Set before clear: a scan in between matches both, and the repository re-checks statuses.
+      statuses[payment.getStatus().ordinal()].set(row);
+      statuses[PaymentStatus.PENDING.ordinal()].clear(row);
+    }
+  }
+
+  /**
+   * Indexes every payment of the store, as after a journal replay, in creation-minute order so
+   * that time ranges map to tight row windows. The store must not be written meanwhile.
+   */
+  void addAll(PaymentStore store) {
+    long[] msb = new long[store.size()];
+    long[] lsb = new long[msb.length];
+    long[] keys = new long[msb.length];
+    int[] count = {0};
+    store.forEach(payment -> {
+      int i = count[0]++;
+      UUID id = payment.getId();
+      msb[i] = id.getMostSignificantBits();
+      lsb[i] = id.getLeastSignificantBits();
+      // Minutes since the epoch fit in the high half until the year 6053. Rows without a
+      // creation time are in no bucket, so they may as well come first.
+      long created = createdMillis(id);
+      long minute = created == UNKNOWN_CREATED ? 0 : Math.floorDiv(created, BUCKET_MILLIS);
+      keys[i] = minute << 32 | i;
+    });
+    Arrays.sort(keys, 0, count[0]);
+    for (int k = 0; k < count[0]; k++) {
+      int i = (int) keys[k];
+      PostPaymentResponse payment = store.get(new UUID(msb[i], lsb[i]));
+      if (payment != null) {
+        add(payment);
+      }
+    }
+  }
+
+  /**
+   * Visits, in row order, the rows after {@code afterRow} whose indexed fields match the query.
+   * Like the store's traversal, the scan is weakly consistent with concurrent adds.
+   *
+   * @return the last row the scan has settled, unless the visitor stopped it: every row from
+   *     {@code afterRow} up to it was published when scanned, so a later scan can resume after it
+   *     without missing a payment whose add was still in flight
+   */
+  int scan(PaymentQuery query, int afterRow, RowVisitor visitor) {
+    int end = rows.get();
+    scanRows(query, afterRow, end, visitor);
+    return publishedThrough(afterRow, end);
+  }
+
+  private void scanRows(PaymentQuery query, int afterRow, int end, RowVisitor visitor) {
+    int from = afterRow + 1;
+    int to = end;
+    if (query.hasTimeRange()) {
+      long[] window = rowWindow(query.fromMillis(), query.toMillis());
+      from = Math.max(from, (int) window[0]);
+      to = Math.min(to, (int) window[1]);
+    }
+    if (from >= to) {
+      return;
+    }
+    RowBitmap status = query.status() == null ? null : statuses[query.status().ordinal()];
+    RowBitmap currency = null;
+    if (query.currency() != null) {
+      currency = currencies.get(query.currency().index());
+      if (currency == null) {
+        return;
+      }
+    }
+    if (query.cardNumberLastFour() == null) {
+      scanBitmaps(query, from, to, status, currency, visitor);
+      return;
+    }
+    int lastFour = parseLastFour(query.cardNumberLastFour());
+    if (lastFour < 0) {
+      return;
+    }
+    for (int row : lastFours[lastFour].between(from, to)) {
+      if (present.get(row) && (status == null || status.get(row))
+          && (currency == null || currency.get(row)) && !visitIfInRange(query, row, visitor)) {
+        return;
+      }
+    }
+  }
+
+  private void scanBitmaps(PaymentQuery query, int from, int to, RowBitmap status,
+      RowBitmap currency, RowVisitor visitor) {
+    int firstWord = from >>> WORD_SHIFT;
+    int lastWord = (to - 1) >>> WORD_SHIFT;
+    for (int word = firstWord; word <= lastWord; word++) {
+      long bits = present.word(word);
+      if (status != null) {
+        bits &= status.word(word);
+      }
+      if (currency != null) {
+        bits &= currency.word(word);
+      }
+      if (word == firstWord) {
+        bits &= -1L << from;
+      }
+      if (word == lastWord) {
+        bits &= -1L >>> ~(to - 1);
+      }
+      while (bits != 0) {
+        int row = word << WORD_SHIFT | Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        if (!visitIfInRange(query, row, visitor)) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the last row of the unbroken run of published rows after {@code afterRow}, stopping
+   *     before {@code to}
+   */
+  private int publishedThrough(int afterRow, int to) {
+    int row = afterRow + 1;
+    while (row < to) {
+      long unpublished = ~present.word(row >>> WORD_SHIFT) & -1L << row;
+      if (unpublished != 0) {
+        return Math.min(to, (row & ~63) + Long.numberOfTrailingZeros(unpublished)) - 1;
+      }
+      row = (row | 63) + 1;
+    }
+    return to - 1;
+  }
+
+  /**
+   * Checks the time and amount of a published row and hands it to the visitor if they match.
+   *
+   * @return false when the visitor stopped the scan
+   */
+  private boolean visitIfInRange(PaymentQuery query, int row, RowVisitor visitor) {
+    Columns page = columns[row >>> PAGE_SHIFT];
+    int slot = row & PAGE_MASK;
+    long created = page.created[slot];
+    int amount = page.amount[slot];
+    if (created < query.fromMillis() || created >= query.toMillis()
+        || (created == UNKNOWN_CREATED && query.hasTimeRange())
+        || amount < query.minAmount() || amount > query.maxAmount()) {
+      return true;
+    }
+    return visitor.visit(row, new UUID(page.msb[slot], page.lsb[slot]));
+  }
+
+  /**
+   * @return the first row and the row after the last one that can hold a payment created in the
+   *     range
+   */
+  private long[] rowWindow(long fromMillis, long toMillis) {
+    NavigableMap<Long, TimeBucket> range = buckets.subMap(
+        Math.floorDiv(fromMillis, BUCKET_MILLIS), true,
+        Math.floorDiv(toMillis - 1, BUCKET_MILLIS), true);
+    long first = Integer.MAX_VALUE;
+    long end = 0;
+    for (TimeBucket bucket : range.values()) {
+      first = Math.min(first, bucket.minRow.get());
+      end = Math.max(end, bucket.maxRow.get() + 1L);
+    }
+    return new long[] {first, end};
+  }
+
+  private TimeBucket bucketFor(long minute) {
+    TimeBucket bucket = latestBucket;
+    if (bucket.minute == minute) {
+      return bucket;
+    }
+    bucket = buckets.computeIfAbsent(minute, TimeBucket::new);
+    if (minute > latestBucket.minute) {
+      latestBucket = bucket;
+    }
+    return bucket;
+  }
+
+  private static long createdMillis(UUID id) {
+    return id.version() == 7 ? id.getMostSignificantBits() >>> 16 : UNKNOWN_CREATED;
+  }
+
+  private Columns columnsFor(int row) {
+    int page = row >>> PAGE_SHIFT;
+    Columns[] pages = columns;
+    if (page < pages.length) {
+      return pages[page];
+    }
+    synchronized (this) {
+      pages = columns;
+      if (page >= pages.length) {
+        Columns[] grown = Arrays.copyOf(pages, page + 1);
+        for (int i = pages.length; i < grown.length; i++) {
+          grown[i] = new Columns();
+        }
+        columns = grown;
+        pages = grown;
+      }
+      return pages[page];
+    }
+  }
+
+  /**
+   * @return the last four digits as a number, or -1 when they are not four digits
+   */
+  private static int parseLastFour(String lastFour) {
+    if (lastFour == null || lastFour.length() != 4) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      char c = lastFour.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + c - '0';
+    }
+    return value;
+  }
+
+  private static final class Columns {
+
+    private final long[] msb = new long[PAGE_ROWS];
+    private final long[] lsb = new long[PAGE_ROWS];
+    private final long[] created = new long[PAGE_ROWS];
+    private final int[] amount = new int[PAGE_ROWS];
+  }
+
+  /**
+   * A growable bitmap over rows. Bits are only ever set, with volatile semantics, so a reader that
+   * sees a row's bit also sees everything written for the row before it.
+   */
+  private static final class RowBitmap {
+
+    private volatile long[][] pages = new long[0][];
+
+    void set(int row) {
+      WORDS.getAndBitwiseOr(page(row >>> PAGE_SHIFT), (row & PAGE_MASK) >>> WORD_SHIFT,
+          1L << row);
+    }
+
+    void clear(int row) {
+      WORDS.getAndBitwiseAnd(page(row >>> PAGE_SHIFT), (row & PAGE_MASK) >>> WORD_SHIFT,
+          ~(1L << row));
+    }
+
+    boolean get(int row) {
+      return (word(row >>> WORD_SHIFT) & 1L << row) != 0;
+    }
+
+    long word(int word) {
+      long[][] current = pages;
+      int page = word / WORDS_PER_PAGE;
+      return page < current.length
+          ? (long) WORDS.getAcquire(current[page], word % WORDS_PER_PAGE) : 0;
+    }
+
+    private long[] page(int page) {
+      long[][] current = pages;
+      if (page < current.length) {
+        return current[page];
+      }
+      synchronized (this) {
+        current = pages;
+        if (page >= current.length) {
+          long[][] grown = Arrays.copyOf(current, page + 1);
+          for (int i = current.length; i < grown.length; i++) {
+            grown[i] = new long[WORDS_PER_PAGE];
+          }
+          pages = grown;
+          current = grown;
+        }
+        return current[page];
+      }
+    }
+  }
+
+  /**
+   * Rows sharing one value, kept sorted. Rows arrive nearly in order, so inserting is an append
+   * with at most a short shift.
+   */
+  private static final class RowList {
+
+    private int[] rows = new int[0];
+    private int size;
+
+    synchronized void add(int row) {
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, Math.max(4, size * 2));
+      }
+      int i = size++;
+      while (i > 0 && rows[i - 1] > row) {
+        rows[i] = rows[i - 1];
+        i--;
+      }
+      rows[i] = row;
+    }
+
+    /**
+     * @return the rows from {@code from} inclusive to {@code to} exclusive
+     */
+    synchronized int[] between(int from, int to) {
+      return Arrays.copyOfRange(rows, lowerBound(from), lowerBound(to));
+    }
+
+    private int lowerBound(int row) {
+      int index = Arrays.binarySearch(rows, 0, size, row);
+      return index >= 0 ? index : -index - 1;
+    }
+  }
+
+  private static final class TimeBucket {
+
+    private final long minute;
+    private final AtomicInteger minRow = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicInteger maxRow = new AtomicInteger(-1);
+
+    TimeBucket(long minute) {
+      this.minute = minute;
+    }
+
+    void include(int row) {
+      minRow.accumulateAndGet(row, Math::min);
+      maxRow.accumulateAndGet(row, Math::max);
+    }
+  }
+}
@@ -0,0 +1,443 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, memory-mapped journal that makes {@link PaymentsRepository} survive restarts.
+ * <p>
+ * Records are appended to fixed-size pre-allocated segments. A background flusher forces the
+ * mapped pages to disk and releases every writer waiting on that flush at once (group commit), so
+ * one fsync covers all payments appended while the previous one was running. Periodic snapshots of
+ * the live payments replace the segments they cover, which keeps replay time bounded.
+ */
+public class PaymentJournal implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentJournal.class);
+  private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{12})\\.journal");
+  private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d{12})\\.snapshot");
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final boolean syncOnAppend;
+  private final Duration flushInterval;
+  private final Duration snapshotInterval;
+  private final CurrencyRegistry currencyRegistry;
+  private final Thread flusher;
+  private final ScheduledExecutorService snapshotScheduler;
+
+  // Explicit locks rather than monitors, so writers waiting for a flush do not pin virtual threads.
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final Condition flushNeeded = flushLock.newCondition();
+  private final Condition flushed = flushLock.newCondition();
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+  private boolean flushRequested;
+  private boolean shutDown;
+  private volatile long durableSequence;
+  private volatile boolean closed;
+
+  // Guarded by appendLock.
+  private long appendedSequence;
+  private long segmentIndex;
+  private long snapshotSegmentIndex = -1;
+  private FileChannel segmentChannel;
+  private MappedByteBuffer segment;
+
+  public PaymentJournal(Path directory, int segmentSize, boolean syncOnAppend,
+      Duration flushInterval, Duration snapshotInterval, CurrencyRegistry currencyRegistry) {
+    if (segmentSize < WRITE_BUFFER_SIZE) {
+      throw new IllegalArgumentException("Journal segment size must be at least "
+          + WRITE_BUFFER_SIZE + " bytes: " + segmentSize);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.syncOnAppend = syncOnAppend;
+    this.flushInterval = flushInterval;
+    this.snapshotInterval = snapshotInterval;
+    this.currencyRegistry = currencyRegistry;
+    this.flusher = new Thread(this::flushLoop, "payment-journal-flusher");
+    this.flusher.setDaemon(true);
+    this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "payment-journal-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Replays the latest snapshot and every later segment into {@code target}, then opens a fresh
+   * segment for appends and starts the flusher and the periodic snapshots of {@code liveSource}.
+   * Segments are decoded in parallel and applied in order, so later records for the same id win.
+   */
+  public void open(Consumer<PostPaymentResponse> target,
+      Consumer<Consumer<PostPaymentResponse>> liveSource) {
+    appendLock.lock();
+    try {
+      Files.createDirectories(directory);
+      long started = System.nanoTime();
+      List<Path> snapshots = list(SNAPSHOT_FILE);
+      List<Path> segments = list(SEGMENT_FILE);
+      List<Path> replayed = new ArrayList<>();
+      if (!snapshots.isEmpty()) {
+        Path snapshot = snapshots.get(snapshots.size() - 1);
+        snapshotSegmentIndex = index(snapshot, SNAPSHOT_FILE);
+        replayed.add(snapshot);
+      }
+      segments.stream().filter(path -> index(path, SEGMENT_FILE) > snapshotSegmentIndex)
+          .forEach(replayed::add);
+
+      List<List<PostPaymentResponse>> decoded = replayed.parallelStream()
+          .map(this::readRecords)
+          .toList();
+      long records = 0;
+      for (List<PostPaymentResponse> file : decoded) {
+        file.forEach(target);
+        records += file.size();
+      }
+      LOG.info("Replayed {} journal records from {} file(s) in {} ms", records, replayed.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+      segmentIndex = segments.isEmpty() ? snapshotSegmentIndex : Math.max(snapshotSegmentIndex,
+          index(segments.get(segments.size() - 1), SEGMENT_FILE));
+      openNextSegment();
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Payment journal could not be opened in " + directory, ex);
+    } finally {
+      appendLock.unlock();
+    }
+    flusher.start();
+    long period = snapshotInterval.toMillis();
+    snapshotScheduler.scheduleWithFixedDelay(() -> snapshotQuietly(liveSource), period, period,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Appends the payment and, when configured to sync, returns only once it is on disk.
+   * <p>
+   * The payment must already be visible to the {@code liveSource} given to {@link #open}: a
+   * snapshot deletes the segment holding the record once it has walked the live payments, so a
+   * payment appended before it is stored could be in neither.
+   *
+   * @throws IllegalStateException when the journal is closed, or closes before a synced payment
+   *     reaches the disk
+   */
+  public void append(PostPaymentResponse payment) {
+    byte[] record = PaymentRecordCodec.encode(payment);
+    long sequence;
+    appendLock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Payment journal is closed");
+      }
+      if (segment.remaining() < record.length + PaymentRecordCodec.HEADER_SIZE) {
+        rollSegment();
+      }
+      segment.put(record);
+      sequence = ++appendedSequence;
+    } finally {
+      appendLock.unlock();
+    }
+    if (syncOnAppend) {
+      awaitDurable(sequence);
+    }
+  }
+
+  /**
+   * Writes every live payment to a new snapshot and deletes the segments and snapshots it
+   * supersedes. Appends continue on a fresh segment while the snapshot is written.
+   */
+  public void snapshot(Consumer<Consumer<PostPaymentResponse>> liveSource) throws IOException {
+    snapshotLock.lock();
+    try {
+      long coveredSegment;
+      appendLock.lock();
+      try {
+        if (segment.position() == 0 && segmentIndex - 1 == snapshotSegmentIndex) {
+          return;
+        }
+        rollSegment();
+        coveredSegment = segmentIndex - 1;
+      } finally {
+        appendLock.unlock();
+      }
+      Path temporary = directory.resolve("snapshot.tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        IOException[] failure = new IOException[1];
+        liveSource.accept(payment -> {
+          if (failure[0] != null) {
+            return;
+          }
+          try {
+            byte[] record = PaymentRecordCodec.encode(payment);
+            if (buffer.remaining() < record.length) {
+              drain(channel, buffer);
+            }
+            buffer.put(record);
+          } catch (IOException ex) {
+            failure[0] = ex;
+          }
+        });
+        if (failure[0] != null) {
+          throw failure[0];
+        }
+        drain(channel, buffer);
+        channel.force(true);
+      }
+      Files.move(temporary, directory.resolve(snapshotName(coveredSegment)),
+          StandardCopyOption.ATOMIC_MOVE);
+      appendLock.lock();
+      try {
+        snapshotSegmentIndex = coveredSegment;
+      } finally {
+        appendLock.unlock();
+      }
+      for (Path path : list(SEGMENT_FILE)) {
+        if (index(path, SEGMENT_FILE) <= coveredSegment) {
+          Files.delete(path);
+        }
+      }
+      for (Path path : list(SNAPSHOT_FILE)) {
+        if (index(path, SNAPSHOT_FILE) < coveredSegment) {
+          Files.delete(path);
+        }
+      }
+      LOG.info("Payment journal compacted up to segment {}", coveredSegment);
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    appendLock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      appendLock.unlock();
+    }
+    snapshotScheduler.shutdownNow();
+    signalAll(flushNeeded);
+    try {
+      flusher.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    appendLock.lock();
+    try {
+      if (segment != null) {
+        segment.force();
+        closeQuietly(segmentChannel);
+        durableSequence = appendedSequence;
+      }
+    } finally {
+      appendLock.unlock();
+      flushLock.lock();
+      try {
+        shutDown = true;
+        flushed.signalAll();
+      } finally {
+        flushLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Waits until the record with this sequence has been forced to disk, by the flusher or by the
+   * final force on close.
+   *
+   * @throws IllegalStateException when the journal shut down without making the record durable
+   */
+  private void awaitDurable(long sequence) {
+    flushLock.lock();
+    try {
+      flushRequested = true;
+      flushNeeded.signal();
+      while (durableSequence < sequence && !shutDown) {
+        flushed.await();
+      }
+      if (durableSequence < sequence) {
+        throw new IllegalStateException("Payment journal closed before the payment was flushed");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the payment journal", ex);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushLoop() {
+    while (!closed) {
+      flushLock.lock();
+      try {
+        if (!flushRequested) {
+          flushNeeded.await(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        flushRequested = false;
+      } catch (InterruptedException ex) {
+        break;
+      } finally {
+        flushLock.unlock();
+      }
+      long target;
+      MappedByteBuffer current;
+      appendLock.lock();
+      try {
+        if (closed) {
+          break;
+        }
+        target = appendedSequence;
+        current = segment;
+      } finally {
+        appendLock.unlock();
+      }
+      if (target == durableSequence) {
+        continue;
+      }
+      // Segments are forced when they are rolled, so only the current one can hold unsynced data.
+      current.force();
+      durableSequence = target;
+      signalAll(flushed);
+    }
+    signalAll(flushed);
+  }
+
+  private void signalAll(Condition condition) {
+    flushLock.lock();
+    try {
+      condition.signalAll();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void snapshotQuietly(Consumer<Consumer<PostPaymentResponse>> liveSource) {
+    try {
+      snapshot(liveSource);
+    } catch (IOException | RuntimeException ex) {
+      LOG.error("Payment journal snapshot failed, segments are kept for replay", ex);
+    }
+  }
+
+  private void rollSegment() {
+    segment.force();
+    closeQuietly(segmentChannel);
+    try {
+      openNextSegment();
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Payment journal segment could not be created", ex);
+    }
+  }
+
+  private void openNextSegment() throws IOException {
+    segmentIndex++;
+    segmentChannel = FileChannel.open(directory.resolve(segmentName(segmentIndex)),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+  }
+
+  private List<Path> list(Pattern pattern) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> pattern.matcher(path.getFileName().toString()).matches())
+          .sorted()
+          .toList();
+    }
+  }
+
+  private List<PostPaymentResponse> readRecords(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      List<PostPaymentResponse> records = new ArrayList<>();
+      PostPaymentResponse payment;
+      while ((payment = PaymentRecordCodec.decode(buffer, currencyRegistry)) != null) {
+        records.add(payment);
+      }
+      int skipped = writtenEnd(buffer) - buffer.position();
+      if (skipped > 0) {
+        LOG.warn("Payment journal file {} is damaged after {} records, skipped its last {} bytes",
+            path.getFileName(), records.size(), skipped);
+      }
+      return records;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Payment journal file could not be read: " + path, ex);
+    }
+  }
+
+  /**
+   * Returns the position after the last non-zero byte. Segments are pre-allocated and zero-filled,
+   * so anything written between the buffer's position and this point could not be decoded.
+   */
+  private static int writtenEnd(ByteBuffer buffer) {
+    int start = buffer.position();
+    int end = buffer.limit();
+    while (end - start >= Long.BYTES && buffer.getLong(end - Long.BYTES) == 0) {
+      end -= Long.BYTES;
+    }
+    while (end > start && buffer.get(end - 1) == 0) {
+      end--;
+    }
+    return end;
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static long index(Path path, Pattern pattern) {
+    Matcher matcher = pattern.matcher(path.getFileName().toString());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException("Not a journal file: " + path);
+    }
+    return Long.parseLong(matcher.group(1));
+  }
+
+  private static String segmentName(long index) {
+    return String.format("segment-%012d.journal", index);
+  }
+
+  private static String snapshotName(long index) {
+    return String.format("snapshot-%012d.snapshot", index);
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      LOG.warn("Payment journal segment could not be closed: {}", ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+
+/**
+ * Filters for {@link PaymentsRepository#search}. A null field matches every payment.
+ *
+ * @param minAmount  smallest amount in minor units, inclusive
+ * @param maxAmount  largest amount in minor units, inclusive
+ * @param fromMillis earliest creation time, inclusive, or {@link Long#MIN_VALUE}
+ * @param toMillis   latest creation time, exclusive, or {@link Long#MAX_VALUE}
+ */
+public record PaymentQuery(PaymentStatus status, CurrencyUnit currency, int minAmount,
+                           int maxAmount, long fromMillis, long toMillis,
+                           String cardNumberLastFour) {
+
+  public boolean hasTimeRange() {
+    return fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+  }
+
+  /**
+   * Checks the fields a payment carries itself. The creation time is only known to the index.
+   */
+  public boolean matches(PostPaymentResponse payment) {
+    return (status == null || status == payment.getStatus())
+        && (currency == null || payment.getCurrency() != null
+            && currency.code().equals(payment.getCurrency().code()))
+        && payment.getAmount() >= minAmount && payment.getAmount() <= maxAmount
+        && (cardNumberLastFour == null
+            || cardNumberLastFour.equals(payment.getCardNumberLastFour()));
+  }
+}
@@ -0,0 +1,111 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of a payment in the journal and in snapshots.
+ * <p>
+ * Each record is {@code [int payloadLength][int crc32][payload]}, where the payload holds the id,
+ * the status ordinal, the three short strings as length-prefixed UTF-8 and the amount. A zero
+ * length marks the end of the written part of a pre-allocated segment.
+ */
+final class PaymentRecordCodec {
+
+  static final int HEADER_SIZE = 2 * Integer.BYTES;
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+  private static final int MAX_STRING_LENGTH = 0xFF;
+
+  private PaymentRecordCodec() {
+  }
+
+  /**
+   * Encodes the payment into a complete record, header included.
+   */
+  static byte[] encode(PostPaymentResponse payment) {
+    byte[] lastFour = bytes(payment.getCardNumberLastFour());
+    byte[] expiryDate = bytes(payment.getExpiryDate());
+    byte[] currency = bytes(payment.getCurrency() == null ? null : payment.getCurrency().code());
+    int payloadLength = 2 * Long.BYTES + 1 + 3 + lastFour.length + expiryDate.length
+        + currency.length + Integer.BYTES;
+
+    ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+    record.putInt(payloadLength).putInt(0);
+    record.putLong(payment.getId().getMostSignificantBits());
+    record.putLong(payment.getId().getLeastSignificantBits());
+    record.put((byte) (payment.getStatus() == null ? -1 : payment.getStatus().ordinal()));
+    putString(record, lastFour);
+    putString(record, expiryDate);
+    putString(record, currency);
+    record.putInt(payment.getAmount());
+
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), HEADER_SIZE, payloadLength);
+    record.putInt(Integer.BYTES, (int) crc.getValue());
+    return record.array();
+  }
+
+  /**
+   * Decodes the record at the buffer's position and advances past it. The currency code is
+   * resolved against the registry, so a payment keeps its currency even if that is no longer
+   * configured.
+   *
+   * @return the payment, or {@code null} when the buffer holds no further complete record, either
+   *     because the written part has ended or because the tail was torn by a crash
+   */
+  static PostPaymentResponse decode(ByteBuffer buffer, CurrencyRegistry currencyRegistry) {
+    if (buffer.remaining() < HEADER_SIZE) {
+      return null;
+    }
+    int start = buffer.position();
+    int payloadLength = buffer.getInt(start);
+    int expectedCrc = buffer.getInt(start + Integer.BYTES);
+    if (payloadLength <= 0 || payloadLength > buffer.remaining() - HEADER_SIZE) {
+      return null;
+    }
+    ByteBuffer payload = buffer.slice(start + HEADER_SIZE, payloadLength);
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    if ((int) crc.getValue() != expectedCrc) {
+      return null;
+    }
+
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(new UUID(payload.getLong(), payload.getLong()));
+    int status = payload.get();
+    payment.setStatus(status < 0 ? null : STATUSES[status]);
+    payment.setCardNumberLastFour(getString(payload));
+    payment.setExpiryDate(getString(payload));
+    String currency = getString(payload);
+    payment.setCurrency(currency.isEmpty() ? null : currencyRegistry.resolve(currency));
+    payment.setAmount(payload.getInt());
+    buffer.position(start + HEADER_SIZE + payloadLength);
+    return payment;
+  }
+
+  private static byte[] bytes(String value) {
+    if (value == null) {
+      return new byte[0];
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING_LENGTH) {
+      throw new IllegalArgumentException("Value too long to journal: " + value.length());
+    }
+    return bytes;
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] value) {
+    buffer.put((byte) value.length).put(value);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] value = new byte[buffer.get() & 0xFF];
+    buffer.get(value);
+    return new String(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,14 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.List;
+
+/**
+ * One page of {@link PaymentsRepository#search}.
+ *
+ * @param position where the next page starts, to be passed back to the search
+ * @param hasMore  whether a payment after this page matched
+ */
+public record PaymentSearchResult(List<PostPaymentResponse> payments, long position,
+                                  boolean hasMore) {
+}
@@ -0,0 +1,33 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Storage backing {@link PaymentsRepository}. Implementations are safe for concurrent use and
+ * never block readers behind writers.
+ */
+public interface PaymentStore {
+
+  /**
+   * Stores the payment, replacing any payment with the same id.
+   *
+   * @return true when no payment with the same id was stored before
+   * @throws com.checkout.payment.gateway.exception.RepositoryCapacityExceededException when the
+   *     store has no room left for a new payment
+   */
+  boolean put(PostPaymentResponse payment);
+
+  PostPaymentResponse get(UUID id);
+
+  int size();
+
+  int capacity();
+
+  /**
+   * Visits every stored payment. The traversal is weakly consistent: payments added while it runs
+   * may or may not be visited.
+   */
+  void forEach(Consumer<PostPaymentResponse> action);
+}
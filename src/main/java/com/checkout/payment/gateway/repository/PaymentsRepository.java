@@ -1,22 +1,167 @@
 package com.checkout.payment.gateway.repository;
 
+import com.checkout.payment.gateway.exception.InvalidQueryException;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+/**
+ * In-memory payment store shared by all request threads.
+ * <p>
+ * Payments live in a {@link PaymentStore}: either the {@link StripedPaymentStore} that keeps the
+ * response objects on the heap, or the {@link OffHeapPaymentStore} that packs them into direct
+ * memory when {@code payment.repository.mode} is {@code off-heap}.
+ * <p>
+ * When a {@link PaymentJournal} is configured, every add is stored first and journaled second, and
+ * the journal is replayed into the store on startup. In that order a full store rejects a payment
+ * before it reaches the journal, and a snapshot taken between the two steps still finds the
+ * payment in the store; an add that fails to journal has still been stored until the restart.
+ * <p>
+ * New payments are also added to a {@link PaymentIndex}, which {@link #search} uses to find
+ * payments by status, currency, amount, creation time and card without scanning the store.
+ * Storing a payment again does not re-index it, except for the final status of a pending payment.
+ */
 @Repository
 public class PaymentsRepository {
 
-  private final HashMap<UUID, PostPaymentResponse> payments = new HashMap<>();
+  private final PaymentStore store;
+  private final PaymentJournal journal;
+  private final PaymentIndex index = new PaymentIndex();
+
+  public PaymentsRepository(int stripes, int capacity) {
+    this(stripes, capacity, (PaymentJournal) null);
+  }
+
+  public PaymentsRepository(int stripes, int capacity, PaymentJournal journal) {
+    this(new StripedPaymentStore(stripes, capacity), journal);
+  }
+
+  @Autowired
+  public PaymentsRepository(@Value("${payment.repository.mode:heap}") String mode,
+      @Value("${payment.repository.stripes:64}") int stripes,
+      @Value("${payment.repository.capacity:1000000}") int capacity,
+      ObjectProvider<PaymentJournal> journal) {
+    this(createStore(mode, stripes, capacity), journal.getIfAvailable());
+  }
+
+  public PaymentsRepository(PaymentStore store, PaymentJournal journal) {
+    this.store = store;
+    this.journal = journal;
+    if (journal != null) {
+      journal.open(store::put, store::forEach);
+    }
+    index.addAll(store);
+  }
 
   public void add(PostPaymentResponse payment) {
-    payments.put(payment.getId(), payment);
+    if (store.put(payment)) {
+      index.add(payment);
+    } else {
+      index.updateStatus(payment);
+    }
+    if (journal != null) {
+      journal.append(payment);
+    }
   }
 
   public Optional<PostPaymentResponse> get(UUID id) {
-    return Optional.ofNullable(payments.get(id));
+    return Optional.ofNullable(store.get(id));
+  }
+
+  /**
+   * Returns the number of stored payments. The value is exact once writers are quiescent and
+   * approximate while adds are in flight.
+   */
+  public int size() {
+    return store.size();
+  }
+
+  /**
+   * Visits every stored payment. The traversal is weakly consistent: payments added while it runs
+   * may or may not be visited.
+   */
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    store.forEach(action);
+  }
+
+  /**
+   * Finds stored payments matching the query, oldest indexed first, one page at a time. Like
+   * {@link #forEach}, a search is weakly consistent with concurrent adds; a payment added after a
+   * page was returned appears on a later page.
+   *
+   * @param after the {@link PaymentSearchResult#position()} of the previous page, or -1 for the
+   *              first page
+   * @throws InvalidQueryException when the position was given by another repository instance,
+   *                               e.g. before a restart
+   */
+  public PaymentSearchResult search(PaymentQuery query, long after, int limit) {
+    int afterRow = -1;
+    if (after >= 0) {
+      if ((int) (after >>> 32) != index.epoch()) {
+        throw new InvalidQueryException("Cursor is no longer valid");
+      }
+      afterRow = (int) after;
+    }
+    Page page = new Page(query, limit, afterRow);
+    int scanned = index.scan(query, afterRow, page);
+    // A full page resumes at the row it stopped on; otherwise past every settled row, matching
+    // or not, so the next page does not scan them again.
+    int lastRow = page.hasMore ? page.lastRow : Math.max(page.lastRow, scanned);
+    return new PaymentSearchResult(page.payments,
+        (long) index.epoch() << 32 | lastRow & 0xFFFFFFFFL, page.hasMore);
   }
 
+  public int capacity() {
+    return store.capacity();
+  }
+
+  private static PaymentStore createStore(String mode, int stripes, int capacity) {
+    return switch (mode) {
+      case "heap" -> new StripedPaymentStore(stripes, capacity);
+      case "off-heap" -> new OffHeapPaymentStore(stripes, capacity);
+      default -> throw new IllegalArgumentException("Unknown payment repository mode: " + mode);
+    };
+  }
+
+  /**
+   * Collects matching rows up to the limit, looking one row further to tell whether more match.
+   * Rows are re-checked against the stored payment, as posting lists only narrow the candidates.
+   */
+  private final class Page implements PaymentIndex.RowVisitor {
+
+    private final PaymentQuery query;
+    private final int limit;
+    private final List<PostPaymentResponse> payments;
+    private int lastRow;
+    private boolean hasMore;
+
+    Page(PaymentQuery query, int limit, int afterRow) {
+      this.query = query;
+      this.limit = limit;
+      this.payments = new ArrayList<>(Math.min(limit, 64));
+      this.lastRow = afterRow;
+    }
+
+    @Override
+    public boolean visit(int row, UUID id) {
+      PostPaymentResponse payment = store.get(id);
+      if (payment == null || !query.matches(payment)) {
+        return true;
+      }
+      if (payments.size() == limit) {
+        hasMore = true;
+        return false;
+      }
+      payments.add(payment);
+      lastRow = row;
+      return true;
+    }
+  }
 }
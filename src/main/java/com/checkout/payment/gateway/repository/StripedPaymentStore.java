@@ -0,0 +1,104 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.exception.RepositoryCapacityExceededException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Heap store that keeps the response objects themselves.
+ * <p>
+ * Payments are striped by the low bits of their id across independent stripes, so writers on
+ * different stripes never contend and reads never take a lock. Memory is bounded by the configured
+ * capacity, split evenly between the stripes, so capacity should be sized with some headroom
+ * because a single stripe can fill up before the total is reached.
+ */
+public class StripedPaymentStore implements PaymentStore {
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+  private final int stripeCapacity;
+
+  public StripedPaymentStore(int stripes, int capacity) {
+    if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+      throw new IllegalArgumentException("Stripe count must be a positive power of two: " + stripes);
+    }
+    if (capacity < stripes) {
+      throw new IllegalArgumentException("Capacity must be at least the stripe count: " + capacity);
+    }
+    this.stripes = new Stripe[stripes];
+    this.stripeMask = stripes - 1;
+    this.stripeCapacity = capacity / stripes;
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new Stripe(stripeCapacity);
+    }
+  }
+
+  @Override
+  public boolean put(PostPaymentResponse payment) {
+    return stripeFor(payment.getId()).put(payment);
+  }
+
+  @Override
+  public PostPaymentResponse get(UUID id) {
+    return stripeFor(id).payments.get(id);
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size.get();
+    }
+    return size;
+  }
+
+  @Override
+  public int capacity() {
+    return stripeCapacity * stripes.length;
+  }
+
+  @Override
+  public void forEach(Consumer<PostPaymentResponse> action) {
+    for (Stripe stripe : stripes) {
+      stripe.payments.values().forEach(action);
+    }
+  }
+
+  private Stripe stripeFor(UUID id) {
+    long bits = id.getLeastSignificantBits();
+    return stripes[(int) (bits ^ (bits >>> 32)) & stripeMask];
+  }
+
+  private static final class Stripe {
+
+    private final ConcurrentHashMap<UUID, PostPaymentResponse> payments;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    private Stripe(int capacity) {
+      this.capacity = capacity;
+      this.payments = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+    }
+
+    private boolean put(PostPaymentResponse payment) {
+      // Reserve a slot before publishing so the stripe can never grow past its capacity.
+      if (size.incrementAndGet() > capacity) {
+        size.decrementAndGet();
+        if (!payments.containsKey(payment.getId())) {
+          throw new RepositoryCapacityExceededException(
+              "Payment storage is full, payment " + payment.getId() + " could not be stored");
+        }
+        payments.put(payment.getId(), payment);
+        return false;
+      }
+      if (payments.put(payment.getId(), payment) != null) {
+        size.decrementAndGet();
+        return false;
+      }
+      return true;
+    }
+  }
+}
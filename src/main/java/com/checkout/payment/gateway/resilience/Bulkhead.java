@@ -0,0 +1,50 @@
+package com.checkout.payment.gateway.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of concurrent calls to a dependency. Callers that find it full are turned away
+ * immediately instead of queueing behind a slow dependency.
+ */
+public class Bulkhead {
+
+  private final int maxConcurrentCalls;
+  private final Semaphore permits;
+  private final LongAdder rejected = new LongAdder();
+
+  public Bulkhead(int maxConcurrentCalls) {
+    if (maxConcurrentCalls <= 0) {
+      throw new IllegalArgumentException("Bulkhead size must be positive: " + maxConcurrentCalls);
+    }
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.permits = new Semaphore(maxConcurrentCalls);
+  }
+
+  /**
+   * Takes a slot without waiting. Every successful call must be paired with {@link #release()}.
+   */
+  public boolean tryAcquire() {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+    rejected.increment();
+    return false;
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public int getActiveCalls() {
+    return maxConcurrentCalls - permits.availablePermits();
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+}
@@ -0,0 +1,200 @@
+package com.checkout.payment.gateway.resilience;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * While CLOSED it records the outcome of the last {@code windowSize} calls and opens once at
+ * least {@code minimumCalls} were recorded and either the failure rate or the slow-call rate
+ * reaches its threshold. While OPEN every call is rejected with a single volatile read. After the
+ * open duration a limited number of trial calls are let through (HALF_OPEN); their outcome decides
+ * whether the breaker closes again or re-opens.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  @FunctionalInterface
+  public interface TransitionListener {
+
+    void onTransition(State from, State to);
+  }
+
+  private static final byte FAILED = 1;
+  private static final byte SLOW = 2;
+
+  private final int windowSize;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallThresholdNanos;
+  private final long openDurationNanos;
+  private final int halfOpenCalls;
+  private final LongSupplier nanoClock;
+  private final List<TransitionListener> listeners = new CopyOnWriteArrayList<>();
+  private final LongAdder rejected = new LongAdder();
+  private final AtomicInteger halfOpenPermits = new AtomicInteger();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile State state = State.CLOSED;
+  private volatile long openUntilNanos;
+
+  // Guarded by lock.
+  private final byte[] window;
+  private int windowPosition;
+  private int recordedCalls;
+  private int failedCalls;
+  private int slowCalls;
+  private int halfOpenCompleted;
+  private int halfOpenFailed;
+  private int halfOpenSlow;
+
+  /**
+   * @param failureRateThreshold  failure percentage at which the breaker opens
+   * @param slowCallRateThreshold slow-call percentage at which the breaker opens
+   */
+  public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold,
+      int slowCallRateThreshold, Duration slowCallThreshold, Duration openDuration,
+      int halfOpenCalls, LongSupplier nanoClock) {
+    if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize || halfOpenCalls <= 0) {
+      throw new IllegalArgumentException("Invalid circuit breaker window configuration");
+    }
+    this.windowSize = windowSize;
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+    this.openDurationNanos = openDuration.toNanos();
+    this.halfOpenCalls = halfOpenCalls;
+    this.nanoClock = nanoClock;
+    this.window = new byte[windowSize];
+  }
+
+  /**
+   * Decides whether a call may go ahead. A permitted call must report its outcome through
+   * {@link #onResult(long, boolean)}.
+   */
+  public boolean tryAcquirePermission() {
+    State current = state;
+    if (current == State.CLOSED) {
+      return true;
+    }
+    if (current == State.OPEN) {
+      if (nanoClock.getAsLong() - openUntilNanos < 0) {
+        rejected.increment();
+        return false;
+      }
+      lock.lock();
+      try {
+        if (state == State.OPEN) {
+          transitionTo(State.HALF_OPEN);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    if (halfOpenPermits.getAndDecrement() > 0) {
+      return true;
+    }
+    rejected.increment();
+    return false;
+  }
+
+  /**
+   * Records the outcome of a permitted call.
+   *
+   * @param durationNanos how long the call took
+   * @param success       whether the dependency handled the call, as opposed to failing it
+   */
+  public void onResult(long durationNanos, boolean success) {
+    byte outcome = (byte) ((success ? 0 : FAILED) | (durationNanos >= slowCallThresholdNanos ? SLOW : 0));
+    lock.lock();
+    try {
+      switch (state) {
+        case CLOSED -> recordClosed(outcome);
+        case HALF_OPEN -> recordHalfOpen(outcome);
+        case OPEN -> {
+          // Late result of a call started before the breaker opened.
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void addListener(TransitionListener listener) {
+    listeners.add(listener);
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  private void recordClosed(byte outcome) {
+    if (recordedCalls == windowSize) {
+      byte evicted = window[windowPosition];
+      failedCalls -= evicted & FAILED;
+      slowCalls -= (evicted & SLOW) >> 1;
+    } else {
+      recordedCalls++;
+    }
+    window[windowPosition] = outcome;
+    windowPosition = (windowPosition + 1) % windowSize;
+    failedCalls += outcome & FAILED;
+    slowCalls += (outcome & SLOW) >> 1;
+    if (recordedCalls >= minimumCalls && exceedsThresholds(failedCalls, slowCalls, recordedCalls)) {
+      transitionTo(State.OPEN);
+    }
+  }
+
+  private void recordHalfOpen(byte outcome) {
+    halfOpenCompleted++;
+    halfOpenFailed += outcome & FAILED;
+    halfOpenSlow += (outcome & SLOW) >> 1;
+    if (halfOpenCompleted == halfOpenCalls) {
+      transitionTo(exceedsThresholds(halfOpenFailed, halfOpenSlow, halfOpenCompleted)
+          ? State.OPEN : State.CLOSED);
+    }
+  }
+
+  private boolean exceedsThresholds(int failed, int slow, int total) {
+    return failed * 100 >= failureRateThreshold * total
+        || slow * 100 >= slowCallRateThreshold * total;
+  }
+
+  private void transitionTo(State next) {
+    State previous = state;
+    switch (next) {
+      case OPEN -> openUntilNanos = nanoClock.getAsLong() + openDurationNanos;
+      case HALF_OPEN -> {
+        halfOpenCompleted = 0;
+        halfOpenFailed = 0;
+        halfOpenSlow = 0;
+        halfOpenPermits.set(halfOpenCalls);
+      }
+      case CLOSED -> {
+        recordedCalls = 0;
+        windowPosition = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+      }
+    }
+    state = next;
+    for (TransitionListener listener : listeners) {
+      listener.onTransition(previous, next);
+    }
+  }
+}
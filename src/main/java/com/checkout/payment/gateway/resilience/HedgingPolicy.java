@@ -0,0 +1,87 @@
+package com.checkout.payment.gateway.resilience;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides when a slow call gets a second, hedged attempt.
+ * <p>
+ * Latencies of recent calls are kept in a ring of {@code windowSize} samples. Every
+ * {@code windowSize / 8} samples the configured percentile is recomputed off the hot path by
+ * whichever caller gets the lock first; callers only read the cached value. A call that has not
+ * completed after that delay (but never less than {@code minDelay}) is hedged. Until
+ * {@code windowSize / 8} samples were recorded no call is hedged.
+ */
+public class HedgingPolicy {
+
+  private final double percentile;
+  private final long minDelayNanos;
+  private final AtomicLongArray samples;
+  private final AtomicLong recorded = new AtomicLong();
+  private final int recomputeEvery;
+  private final ReentrantLock recomputeLock = new ReentrantLock();
+  private final LongAdder hedged = new LongAdder();
+
+  private volatile long delayNanos = -1;
+
+  /**
+   * @param percentile percentile of recent latency after which a call is hedged, e.g. 95
+   */
+  public HedgingPolicy(double percentile, int windowSize, Duration minDelay) {
+    if (percentile <= 0 || percentile >= 100 || windowSize < 8) {
+      throw new IllegalArgumentException("Invalid hedging configuration");
+    }
+    this.percentile = percentile;
+    this.minDelayNanos = minDelay.toNanos();
+    this.samples = new AtomicLongArray(windowSize);
+    this.recomputeEvery = windowSize / 8;
+  }
+
+  /**
+   * Records how long a completed call took.
+   */
+  public void record(long durationNanos) {
+    long count = recorded.getAndIncrement();
+    samples.setOpaque((int) (count % samples.length()), durationNanos);
+    if ((count + 1) % recomputeEvery == 0) {
+      recompute();
+    }
+  }
+
+  /**
+   * @return how long to wait before hedging a call, or -1 while too few calls were recorded
+   */
+  public long getDelayNanos() {
+    return delayNanos;
+  }
+
+  public void onHedge() {
+    hedged.increment();
+  }
+
+  public long getHedgedCount() {
+    return hedged.sum();
+  }
+
+  private void recompute() {
+    if (!recomputeLock.tryLock()) {
+      return;
+    }
+    try {
+      int count = (int) Math.min(recorded.get(), samples.length());
+      long[] sorted = new long[count];
+      for (int i = 0; i < count; i++) {
+        sorted[i] = samples.getOpaque(i);
+      }
+      Arrays.sort(sorted);
+      int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+      delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, rank)]);
+    } finally {
+      recomputeLock.unlock();
+    }
+  }
+}
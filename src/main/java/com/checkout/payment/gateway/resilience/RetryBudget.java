@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket that limits extra attempts (retries and hedges) to a share of the original calls.
+ * <p>
+ * Every original call deposits {@code retryRatio} of a token, up to {@code maxTokens}; every extra
+ * attempt withdraws a whole token. While the dependency is healthy the bucket stays full, and
+ * during an outage it drains after a burst of {@code maxTokens} retries, so extra attempts can
+ * never add more than {@code retryRatio} to the load on a failing dependency.
+ */
+public class RetryBudget {
+
+  // Balances are kept in thousandths of a token.
+  private static final long TOKEN = 1000;
+
+  private final long capacity;
+  private final long deposit;
+  private final AtomicLong balance;
+  private final LongAdder granted = new LongAdder();
+  private final LongAdder denied = new LongAdder();
+
+  /**
+   * @param maxTokens  size of the bucket, which starts full
+   * @param retryRatio extra attempts allowed per original call, e.g. 0.1 for 10%
+   */
+  public RetryBudget(int maxTokens, double retryRatio) {
+    if (maxTokens < 0 || retryRatio < 0 || retryRatio > 1) {
+      throw new IllegalArgumentException("Invalid retry budget configuration");
+    }
+    this.capacity = maxTokens * TOKEN;
+    this.deposit = Math.round(retryRatio * TOKEN);
+    this.balance = new AtomicLong(capacity);
+  }
+
+  /**
+   * Credits the bucket for an original call.
+   */
+  public void onCall() {
+    if (balance.get() < capacity) {
+      balance.accumulateAndGet(deposit, (current, credit) -> Math.min(capacity, current + credit));
+    }
+  }
+
+  /**
+   * Withdraws a token for an extra attempt.
+   *
+   * @return false when the budget is spent and the attempt must not be made
+   */
+  public boolean tryAcquire() {
+    long current;
+    do {
+      current = balance.get();
+      if (current < TOKEN) {
+        denied.increment();
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - TOKEN));
+    granted.increment();
+    return true;
+  }
+
+  public double getAvailableTokens() {
+    return (double) balance.get() / TOKEN;
+  }
+
+  public long getGrantedCount() {
+    return granted.sum();
+  }
+
+  public long getDeniedCount() {
+    return denied.sum();
+  }
+}
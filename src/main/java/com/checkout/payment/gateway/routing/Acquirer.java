@@ -0,0 +1,231 @@
+package com.checkout.payment.gateway.routing;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One acquirer endpoint and what the router has recently seen of it.
+ * <p>
+ * Latency is a peak EWMA: a sample above the average replaces it at once, while lower samples pull
+ * it down with a weight that decays over {@code decay}, so an endpoint that slows down is avoided
+ * straight away and trusted again gradually. Outlier detection compares a plain EWMA of latency
+ * instead, so a single slow answer does not get an endpoint ejected. The error rate is an EWMA
+ * with the same decay.
+ * Samples are recorded under a lock; routing reads volatile fields only.
+ */
+public class Acquirer {
+
+  private final String name;
+  private final String url;
+  private final double decayNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder ejections = new LongAdder();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile double latencyNanos;
+  private volatile double averageLatencyNanos;
+  private volatile double errorRate;
+  private volatile boolean sampled;
+  private volatile boolean ejected;
+  private volatile long ejectedUntilNanos;
+
+  // Guarded by lock.
+  private long lastSampleNanos;
+  private int samplesSinceReturn;
+  private int consecutiveFailures;
+  private int consecutiveEjections;
+
+  /**
+   * @throws IllegalArgumentException when {@code url} is not an absolute http or https URL, so a
+   *                                  bad endpoint fails at startup rather than on every call
+   */
+  public Acquirer(String name, String url, long decayNanos) {
+    this.name = name;
+    this.url = validUrl(name, url);
+    this.decayNanos = decayNanos;
+  }
+
+  /**
+   * Parses {@code name=url}.
+   */
+  public static Acquirer parse(String spec, long decayNanos) {
+    int equals = spec.indexOf('=');
+    if (equals <= 0 || equals == spec.length() - 1) {
+      throw new IllegalArgumentException("Invalid acquirer, expected name=url: " + spec);
+    }
+    return new Acquirer(spec.substring(0, equals).trim(), spec.substring(equals + 1).trim(),
+        decayNanos);
+  }
+
+  private static String validUrl(String name, String url) {
+    URI uri;
+    try {
+      uri = new URI(url);
+    } catch (URISyntaxException ex) {
+      throw new IllegalArgumentException("Invalid URL for acquirer " + name + ": " + url, ex);
+    }
+    if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())
+        || uri.getHost() == null) {
+      throw new IllegalArgumentException(
+          "Acquirer " + name + " needs an absolute http or https URL: " + url);
+    }
+    return url;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Expected cost of sending one more call: latency times the calls already waiting, raised by
+   * the error rate. An endpoint without samples costs nothing while idle, so it is probed, and
+   * is not chosen again until its first call answers.
+   */
+  double cost() {
+    int waiting = inFlight.get();
+    if (!sampled) {
+      return waiting == 0 ? 0 : Double.MAX_VALUE;
+    }
+    return latencyNanos * (waiting + 1) / Math.max(0.01, 1 - errorRate);
+  }
+
+  void begin() {
+    inFlight.incrementAndGet();
+    requests.increment();
+  }
+
+  /**
+   * Records a call that completed.
+   *
+   * @return consecutive failures including this call, 0 after a success
+   */
+  int complete(long nowNanos, long elapsedNanos, boolean success) {
+    inFlight.decrementAndGet();
+    lock.lock();
+    try {
+      double weight = weight(nowNanos);
+      latencyNanos = elapsedNanos > latencyNanos || !sampled
+          ? elapsedNanos : weight * latencyNanos + (1 - weight) * elapsedNanos;
+      averageLatencyNanos = sampled
+          ? weight * averageLatencyNanos + (1 - weight) * elapsedNanos : elapsedNanos;
+      errorRate = weight * errorRate + (success ? 0 : 1 - weight);
+      sampled = true;
+      samplesSinceReturn++;
+      consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+      return consecutiveFailures;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Records a call given up on before it answered, such as the losing attempt of a hedged payment:
+   * it was at least this slow, but did not fail.
+   */
+  void abandon(long nowNanos, long elapsedNanos) {
+    inFlight.decrementAndGet();
+    lock.lock();
+    try {
+      if (sampled && elapsedNanos > latencyNanos) {
+        latencyNanos = elapsedNanos;
+        lastSampleNanos = nowNanos;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private double weight(long nowNanos) {
+    long elapsed = Math.max(0, nowNanos - lastSampleNanos);
+    lastSampleNanos = nowNanos;
+    return Math.exp(-elapsed / decayNanos);
+  }
+
+  /**
+   * Takes the endpoint out of rotation. Each ejection in a row lasts one {@code ejectionNanos}
+   * longer, up to {@code maxMultiplier} of them; when it returns, the endpoint starts over without
+   * samples.
+   */
+  void eject(long nowNanos, long ejectionNanos, int maxMultiplier) {
+    lock.lock();
+    try {
+      consecutiveEjections = Math.min(consecutiveEjections + 1, maxMultiplier);
+      ejectedUntilNanos = nowNanos + ejectionNanos * consecutiveEjections;
+      ejected = true;
+      sampled = false;
+      latencyNanos = 0;
+      averageLatencyNanos = 0;
+      errorRate = 0;
+      samplesSinceReturn = 0;
+      consecutiveFailures = 0;
+      ejections.increment();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return whether at least {@code calls} calls were answered since the endpoint last returned
+   *     from an ejection, or since it was added
+   */
+  boolean hasAnswered(int calls) {
+    lock.lock();
+    try {
+      return samplesSinceReturn >= calls;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Forgets earlier ejections, so the next one is short again.
+   */
+  void forgiveEjections() {
+    lock.lock();
+    try {
+      consecutiveEjections = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public boolean isEjected(long nowNanos) {
+    return ejected && nowNanos - ejectedUntilNanos < 0;
+  }
+
+  boolean isSampled() {
+    return sampled;
+  }
+
+  public double getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  public double getAverageLatencyNanos() {
+    return averageLatencyNanos;
+  }
+
+  public double getErrorRate() {
+    return errorRate;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  public long getEjectionCount() {
+    return ejections.sum();
+  }
+}
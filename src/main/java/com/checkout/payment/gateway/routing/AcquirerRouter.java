@@ -0,0 +1,233 @@
+package com.checkout.payment.gateway.routing;
+
+import com.checkout.payment.gateway.logging.LogCategories;
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the acquirer endpoint for each bank call.
+ * <p>
+ * The first {@link RoutingRule} matching the payment limits the acquirers it may use; without a
+ * match it may use all of them. Of those, two are drawn at random and the one with the lower
+ * {@link Acquirer#cost() cost} is chosen (power of two choices), which keeps traffic off slow or
+ * busy endpoints without herding every call onto the fastest one.
+ * <p>
+ * Outlier detection ejects an endpoint for a while after {@code consecutiveFailures} failed calls
+ * in a row, or when its average latency exceeds {@code latencyFactor} times the median of the
+ * other endpoints once it has answered {@code minimumCalls} calls. At most
+ * {@code maxEjectionPercent} of the endpoints are ejected at once, and never the last one. When
+ * every endpoint a payment may use is ejected, it is routed as if none were.
+ */
+public class AcquirerRouter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AcquirerRouter.class);
+
+  public static final Duration DEFAULT_DECAY = Duration.ofSeconds(10);
+
+  private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+  /**
+   * @param ejection how long the first ejection in a row lasts; each further one lasts one more
+   */
+  public record OutlierDetection(int consecutiveFailures, double latencyFactor, int minimumCalls,
+                                 Duration ejection, int maxEjectionPercent) {
+
+    public static final OutlierDetection DEFAULTS =
+        new OutlierDetection(5, 3, 20, Duration.ofSeconds(30), 50);
+  }
+
+  private final Acquirer[] acquirers;
+  private final RoutingRule[] rules;
+  private final Acquirer[][] ruleAcquirers;
+  private final OutlierDetection outlierDetection;
+  private final LongSupplier nanoClock;
+  private final ReentrantLock ejectionLock = new ReentrantLock();
+
+  public AcquirerRouter(List<Acquirer> acquirers, List<RoutingRule> rules,
+      OutlierDetection outlierDetection, LongSupplier nanoClock) {
+    if (acquirers.isEmpty()) {
+      throw new IllegalArgumentException("At least one acquirer is required");
+    }
+    Map<String, Acquirer> byName = new HashMap<>();
+    for (Acquirer acquirer : acquirers) {
+      if (byName.put(acquirer.getName(), acquirer) != null) {
+        throw new IllegalArgumentException("Duplicate acquirer: " + acquirer.getName());
+      }
+    }
+    this.acquirers = acquirers.toArray(new Acquirer[0]);
+    this.rules = rules.toArray(new RoutingRule[0]);
+    this.ruleAcquirers = new Acquirer[rules.size()][];
+    for (int i = 0; i < ruleAcquirers.length; i++) {
+      ruleAcquirers[i] = rules.get(i).acquirers().stream()
+          .map(name -> {
+            Acquirer acquirer = byName.get(name);
+            if (acquirer == null) {
+              throw new IllegalArgumentException("Routing rule names unknown acquirer: " + name);
+            }
+            return acquirer;
+          })
+          .toArray(Acquirer[]::new);
+    }
+    this.outlierDetection = outlierDetection;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Routes every call to one URL, as before acquirers could be configured.
+   */
+  public static AcquirerRouter single(String url) {
+    return new AcquirerRouter(List.of(new Acquirer("default", url, DEFAULT_DECAY.toNanos())),
+        List.of(), OutlierDetection.DEFAULTS, System::nanoTime);
+  }
+
+  /**
+   * Chooses the acquirer for a call and counts the call as in flight there. Every call routed
+   * must be reported back to {@link #onComplete} or {@link #onAbandoned}.
+   *
+   * @param avoid acquirer of an earlier attempt of the same payment, used only if no other is
+   *              available; null for a first attempt
+   */
+  public Acquirer select(BankPaymentRequest request, Acquirer avoid) {
+    Acquirer[] candidates = candidatesFor(request);
+    long now = nanoClock.getAsLong();
+    Acquirer chosen = pickTwo(candidates, avoid, now, false);
+    if (chosen == null && avoid != null) {
+      chosen = pickTwo(candidates, null, now, false);
+    }
+    if (chosen == null) {
+      chosen = pickTwo(candidates, null, now, true);
+    }
+    chosen.begin();
+    return chosen;
+  }
+
+  /**
+   * Records the answer, or the failure to get one, of a call routed to the acquirer.
+   *
+   * @param success false when the call failed or the acquirer answered with a server error
+   */
+  public void onComplete(Acquirer acquirer, long elapsedNanos, boolean success) {
+    long now = nanoClock.getAsLong();
+    int failures = acquirer.complete(now, elapsedNanos, success);
+    if (failures >= outlierDetection.consecutiveFailures()) {
+      eject(acquirer, now, failures + " consecutive failures");
+      return;
+    }
+    if (!success || !acquirer.hasAnswered(outlierDetection.minimumCalls())) {
+      return;
+    }
+    double median = medianLatencyOfOthers(acquirer, now);
+    double latency = acquirer.getAverageLatencyNanos();
+    if (median > 0 && latency > outlierDetection.latencyFactor() * median) {
+      eject(acquirer, now, String.format("average latency of %.1f ms against a median of %.1f ms",
+          latency / 1e6, median / 1e6));
+    } else {
+      acquirer.forgiveEjections();
+    }
+  }
+
+  /**
+   * Records a call given up on before the acquirer answered.
+   */
+  public void onAbandoned(Acquirer acquirer, long elapsedNanos) {
+    acquirer.abandon(nanoClock.getAsLong(), elapsedNanos);
+  }
+
+  public List<Acquirer> getAcquirers() {
+    return List.of(acquirers);
+  }
+
+  private Acquirer[] candidatesFor(BankPaymentRequest request) {
+    for (int i = 0; i < rules.length; i++) {
+      if (rules[i].matches(request)) {
+        return ruleAcquirers[i];
+      }
+    }
+    return acquirers;
+  }
+
+  private Acquirer pickTwo(Acquirer[] candidates, Acquirer avoid, long now, boolean panic) {
+    int available = 0;
+    for (Acquirer candidate : candidates) {
+      if (isUsable(candidate, avoid, now, panic)) {
+        available++;
+      }
+    }
+    if (available == 0) {
+      return null;
+    }
+    if (available == 1) {
+      return nthUsable(candidates, 0, avoid, now, panic);
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(available);
+    int second = random.nextInt(available - 1);
+    if (second >= first) {
+      second++;
+    }
+    Acquirer one = nthUsable(candidates, first, avoid, now, panic);
+    Acquirer other = nthUsable(candidates, second, avoid, now, panic);
+    return other.cost() < one.cost() ? other : one;
+  }
+
+  private static Acquirer nthUsable(Acquirer[] candidates, int n, Acquirer avoid, long now,
+      boolean panic) {
+    for (Acquirer candidate : candidates) {
+      if (isUsable(candidate, avoid, now, panic) && n-- == 0) {
+        return candidate;
+      }
+    }
+    throw new IllegalStateException("Acquirer list changed while routing");
+  }
+
+  private static boolean isUsable(Acquirer acquirer, Acquirer avoid, long now, boolean panic) {
+    return acquirer != avoid && (panic || !acquirer.isEjected(now));
+  }
+
+  private double medianLatencyOfOthers(Acquirer acquirer, long now) {
+    double[] latencies = new double[acquirers.length];
+    int count = 0;
+    for (Acquirer other : acquirers) {
+      if (other != acquirer && other.isSampled() && !other.isEjected(now)) {
+        latencies[count++] = other.getAverageLatencyNanos();
+      }
+    }
+    if (count == 0) {
+      return 0;
+    }
+    Arrays.sort(latencies, 0, count);
+    return count % 2 == 1
+        ? latencies[count / 2] : (latencies[count / 2 - 1] + latencies[count / 2]) / 2;
+  }
+
+  private void eject(Acquirer acquirer, long now, String reason) {
+    ejectionLock.lock();
+    try {
+      if (acquirer.isEjected(now)) {
+        return;
+      }
+      int ejected = 0;
+      for (Acquirer other : acquirers) {
+        if (other.isEjected(now)) {
+          ejected++;
+        }
+      }
+      if ((ejected + 1) * 100 > outlierDetection.maxEjectionPercent() * acquirers.length) {
+        return;
+      }
+      acquirer.eject(now, outlierDetection.ejection().toNanos(), MAX_EJECTION_MULTIPLIER);
+      LOG.warn(LogCategories.BANK, "Ejected acquirer {} after {}", acquirer.getName(), reason);
+    } finally {
+      ejectionLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.checkout.payment.gateway.routing;
+
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import java.util.List;
+
+/**
+ * Restricts the payments it matches to some of the acquirers.
+ * <p>
+ * Parsed from {@code currency:<codes>=<acquirers>} or {@code bin:<card prefixes>=<acquirers>},
+ * with several values separated by {@code |}, e.g. {@code currency:EUR|GBP=europe} or
+ * {@code bin:4111|5425=primary|backup}.
+ */
+public record RoutingRule(String[] currencies, String[] binPrefixes, List<String> acquirers) {
+
+  public boolean matches(BankPaymentRequest request) {
+    if (currencies != null) {
+      for (String currency : currencies) {
+        if (currency.equals(request.getCurrency())) {
+          return true;
+        }
+      }
+      return false;
+    }
+    String cardNumber = request.getCardNumber();
+    for (String prefix : binPrefixes) {
+      if (cardNumber != null && cardNumber.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static RoutingRule parse(String spec) {
+    int colon = spec.indexOf(':');
+    int equals = spec.lastIndexOf('=');
+    if (colon < 0 || equals < colon || equals == spec.length() - 1) {
+      throw new IllegalArgumentException("Invalid routing rule: " + spec);
+    }
+    String[] values = spec.substring(colon + 1, equals).split("\\|");
+    List<String> acquirers = List.of(spec.substring(equals + 1).split("\\|"));
+    return switch (spec.substring(0, colon)) {
+      case "currency" -> new RoutingRule(values, null, acquirers);
+      case "bin" -> new RoutingRule(null, values, acquirers);
+      default -> throw new IllegalArgumentException("Unknown routing rule: " + spec);
+    };
+  }
+}
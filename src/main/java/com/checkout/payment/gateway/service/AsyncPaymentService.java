@@ -0,0 +1,68 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accepts payments without waiting for the bank: a valid payment is stored as pending, queued on
+ * the {@link PaymentWorkQueue} and returned straight away. A worker later sends it to the bank and
+ * stores the outcome, which {@code GET /payment/{id}} then shows.
+ * <p>
+ * With an idempotency key, a repeated submission gets the payment of the first one as it is now:
+ * pending, or with the status the bank's answer gave it.
+ */
+public class AsyncPaymentService {
+
+  private final PaymentGatewayService paymentGatewayService;
+  private final IdempotencyCache idempotencyCache;
+  private final PaymentWorkQueue paymentWorkQueue;
+
+  public AsyncPaymentService(PaymentGatewayService paymentGatewayService,
+      IdempotencyCache idempotencyCache, PaymentWorkQueue paymentWorkQueue) {
+    this.paymentGatewayService = paymentGatewayService;
+    this.idempotencyCache = idempotencyCache;
+    this.paymentWorkQueue = paymentWorkQueue;
+  }
+
+  /**
+   * @return the pending payment, already completed
+   * @throws BankUnavailableException when the queue is full; nothing is stored
+   */
+  public CompletableFuture<PostPaymentResponse> acceptPayment(PostPaymentRequest paymentRequest,
+      String idempotencyKey) {
+    paymentGatewayService.validateExpiryDate(paymentRequest);
+    if (idempotencyKey == null) {
+      return CompletableFuture.completedFuture(enqueue(paymentRequest));
+    }
+    AtomicBoolean replayed = new AtomicBoolean(true);
+    return idempotencyCache.execute(idempotencyKey, IdempotencyCache.fingerprint(paymentRequest),
+        () -> {
+          replayed.set(false);
+          return CompletableFuture.completedFuture(enqueue(paymentRequest));
+        })
+        // The cache holds the pending payment; the repository has its current status.
+        .thenApply(pending -> replayed.get()
+            ? paymentGatewayService.getPaymentById(pending.getId()) : pending);
+  }
+
+  private PostPaymentResponse enqueue(PostPaymentRequest paymentRequest) {
+    if (!paymentWorkQueue.tryReserve()) {
+      throw new BankUnavailableException(
+          "Too many payments are waiting for the bank. Please try again later.");
+    }
+    PostPaymentResponse pending;
+    try {
+      pending = paymentGatewayService.storePendingPayment(paymentRequest);
+    } catch (RuntimeException ex) {
+      paymentWorkQueue.release();
+      throw ex;
+    }
+    paymentWorkQueue.submit(
+        () -> paymentGatewayService.completePendingPayment(paymentRequest, pending.getId()),
+        () -> paymentGatewayService.abandonPendingPayment(paymentRequest, pending.getId()));
+    return pending;
+  }
+}
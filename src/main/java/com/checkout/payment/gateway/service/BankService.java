@@ -1,50 +1,347 @@
 package com.checkout.payment.gateway.service;
 
+import com.checkout.payment.gateway.exception.BankUnavailableException;
 import com.checkout.payment.gateway.exception.PaymentProcessingException;
+import com.checkout.payment.gateway.logging.LogCategories;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
 import com.checkout.payment.gateway.model.BankPaymentRequest;
 import com.checkout.payment.gateway.model.BankPaymentResponse;
+import com.checkout.payment.gateway.resilience.Bulkhead;
+import com.checkout.payment.gateway.resilience.CircuitBreaker;
+import com.checkout.payment.gateway.resilience.HedgingPolicy;
+import com.checkout.payment.gateway.resilience.RetryBudget;
+import com.checkout.payment.gateway.routing.Acquirer;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
-import java.util.UUID;
 
 @Service
 public class BankService {
 
   private static final Logger LOG = LoggerFactory.getLogger(BankService.class);
-  private final RestTemplate restTemplate;
-  private final String bankApiUrl = "http://localhost:8080/payments";
+  private final CloseableHttpAsyncClient httpClient;
+  private final ExecutorService callbackExecutor;
+  private final ObjectMapper objectMapper;
+  private final AcquirerRouter acquirerRouter;
+  private final long totalTimeoutMs;
+  private final CircuitBreaker circuitBreaker;
+  private final Bulkhead bulkhead;
+  private final RetryBudget retryBudget;
+  private final HedgingPolicy hedgingPolicy;
+  private final int maxAttempts;
+  private final String idempotencyKeyHeader;
+  private final PaymentMetrics paymentMetrics;
 
-  public BankService(RestTemplateBuilder restTemplateBuilder) {
-    this.restTemplate = restTemplateBuilder.build();
+  @Autowired
+  public BankService(CloseableHttpAsyncClient httpClient,
+      @Qualifier("bankCallbackExecutor") ExecutorService callbackExecutor,
+      ObjectMapper objectMapper, CircuitBreaker circuitBreaker, Bulkhead bulkhead,
+      RetryBudget retryBudget, ObjectProvider<HedgingPolicy> hedgingPolicy,
+      PaymentMetrics paymentMetrics, AcquirerRouter acquirerRouter,
+      @Value("${bank.client.total-timeout-ms:15000}") long totalTimeoutMs,
+      @Value("${bank.retry.max-attempts:2}") int maxAttempts,
+      @Value("${bank.client.idempotency-key-header:Idempotency-Key}") String idempotencyKeyHeader) {
+    this(httpClient, callbackExecutor, objectMapper, circuitBreaker, bulkhead, retryBudget,
+        hedgingPolicy.getIfAvailable(), paymentMetrics, acquirerRouter, totalTimeoutMs, maxAttempts,
+        idempotencyKeyHeader);
+  }
+
+  /**
+   * @param hedgingPolicy        null to never hedge
+   * @param maxAttempts          attempts per payment, including retries and the hedge
+   * @param idempotencyKeyHeader header carrying the payment ID to the bank, so that the bank
+   *                             processes repeated attempts once. Retries and hedging are refused
+   *                             without it.
+   */
+  public BankService(CloseableHttpAsyncClient httpClient, ExecutorService callbackExecutor,
+      ObjectMapper objectMapper, CircuitBreaker circuitBreaker, Bulkhead bulkhead,
+      RetryBudget retryBudget, HedgingPolicy hedgingPolicy, PaymentMetrics paymentMetrics,
+      AcquirerRouter acquirerRouter, long totalTimeoutMs, int maxAttempts,
+      String idempotencyKeyHeader) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("Bank calls need at least one attempt: " + maxAttempts);
+    }
+    boolean idempotent = idempotencyKeyHeader != null && !idempotencyKeyHeader.isBlank();
+    if (!idempotent && (maxAttempts > 1 || hedgingPolicy != null)) {
+      throw new IllegalStateException(
+          "Bank retries and hedging require bank.client.idempotency-key-header to be set");
+    }
+    this.httpClient = httpClient;
+    this.callbackExecutor = callbackExecutor;
+    this.objectMapper = objectMapper;
+    this.acquirerRouter = acquirerRouter;
+    this.totalTimeoutMs = totalTimeoutMs;
+    this.circuitBreaker = circuitBreaker;
+    this.bulkhead = bulkhead;
+    this.retryBudget = retryBudget;
+    this.hedgingPolicy = hedgingPolicy;
+    this.maxAttempts = maxAttempts;
+    this.idempotencyKeyHeader = idempotent ? idempotencyKeyHeader : null;
+    this.paymentMetrics = paymentMetrics;
   }
 
-  public BankPaymentResponse processPaymentWithBank(BankPaymentRequest paymentRequestToBank, UUID uuid) {
+  /**
+   * Sends the payment to the bank without blocking the calling thread. The returned future
+   * completes on the callback executor, either with the bank's answer or exceptionally with a
+   * {@link PaymentProcessingException}. While the circuit breaker is open or the bulkhead is
+   * full, it fails immediately with a {@link BankUnavailableException} and the bank is not called.
+   * <p>
+   * Connection failures and 502/503/504 answers are retried while the {@link RetryBudget} allows,
+   * and with a {@link HedgingPolicy} a call the bank is slow to answer gets a second attempt. All
+   * attempts carry the payment ID as idempotency key and the first answer wins.
+   * <p>
+   * Each attempt goes to the acquirer endpoint the {@link AcquirerRouter} chooses; a retry or
+   * hedge goes to a different one when another may take the payment.
+   */
+  public CompletableFuture<BankPaymentResponse> processPaymentWithBank(
+      BankPaymentRequest paymentRequestToBank, UUID uuid) {
+    LOG.debug("Sending payment request to bank: ID: {}, Amount: {}, Currency: {}",
+        uuid, paymentRequestToBank.getAmount(), paymentRequestToBank.getCurrency());
+    byte[] body;
     try {
-      LOG.info("Sending payment request to bank: ID: {}, Amount: {}, Currency: {}",
-          uuid , paymentRequestToBank.getAmount(), paymentRequestToBank.getCurrency());
-      ResponseEntity<BankPaymentResponse> bankPaymentResponse = restTemplate.postForEntity(
-          bankApiUrl, paymentRequestToBank, BankPaymentResponse.class
-      );
-      LOG.info("Received response from bank: Status Code: {}", bankPaymentResponse.getStatusCode());
-      handleResponseErrors(bankPaymentResponse);
-      return bankPaymentResponse.getBody();
-    } catch (RestClientException ex) {
-      LOG.error("Failed to communicate with the bank. Error: {}", ex.getMessage(), ex);
-      throw new PaymentProcessingException("We couldn't reach the bank to process your payment. Please check your connection or try again later.");
+      body = objectMapper.writeValueAsBytes(paymentRequestToBank);
+    } catch (JsonProcessingException ex) {
+      LOG.error("Failed to serialize the payment request for the bank. Error: {}", ex.getMessage(), ex);
+      return CompletableFuture.failedFuture(new PaymentProcessingException(
+          "We couldn't reach the bank to process your payment. Please check your connection or try again later."));
+    }
+
+    if (!bulkhead.tryAcquire()) {
+      LOG.debug("Bank bulkhead full, rejecting payment ID: {}", uuid);
+      return CompletableFuture.failedFuture(new BankUnavailableException(
+          "Too many payments are waiting for the bank. Please try again later."));
+    }
+    if (!circuitBreaker.tryAcquirePermission()) {
+      bulkhead.release();
+      LOG.debug("Bank circuit breaker open, rejecting payment ID: {}", uuid);
+      return CompletableFuture.failedFuture(new BankUnavailableException(
+          "The bank is currently unavailable. Please try again later."));
+    }
+    retryBudget.onCall();
+
+    long started = System.nanoTime();
+    BankCall call = new BankCall(paymentRequestToBank, body, uuid);
+    call.attempt();
+    if (hedgingPolicy != null && hedgingPolicy.getDelayNanos() > 0) {
+      CompletableFuture.delayedExecutor(hedgingPolicy.getDelayNanos(), TimeUnit.NANOSECONDS)
+          .execute(call::hedge);
+    }
+    return call.response
+        .orTimeout(totalTimeoutMs, TimeUnit.MILLISECONDS)
+        // Released on the completing thread: the callback executor may reject work while shutting
+        // down, and a lost half-open trial permit would keep the circuit breaker from closing.
+        .whenComplete((result, ex) -> {
+          bulkhead.release();
+          // Client errors are about the payment, not the bank's health.
+          boolean bankFailed = ex != null || result.getCode() >= 500;
+          long elapsed = System.nanoTime() - started;
+          circuitBreaker.onResult(elapsed, !bankFailed);
+          paymentMetrics.recordStage(Stage.BANK, elapsed);
+          paymentMetrics.recordBankResponse(ex != null ? 0 : result.getCode());
+        })
+        .handleAsync((result, ex) -> {
+          if (ex != null) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null
+                ? ex.getCause() : ex;
+            // Every payment fails this way during an outage; the trace adds nothing per payment.
+            LOG.error(LogCategories.BANK, "Failed to communicate with the bank. Error: {}: {}",
+                cause.getClass().getSimpleName(), cause.getMessage());
+            LOG.debug("Bank communication failure", cause);
+            throw new PaymentProcessingException("We couldn't reach the bank to process your payment. Please check your connection or try again later.");
+          }
+          return readResponse(result);
+        }, callbackExecutor);
+  }
+
+  private static boolean isTransient(int statusCode) {
+    return statusCode == 502 || statusCode == 503 || statusCode == 504;
+  }
+
+  /**
+   * The attempts made for one payment. {@link #response} completes with the first answer that is
+   * not retried, or with the last failure once no attempt is left in flight. Completing it,
+   * including by the total timeout, cancels the exchanges still running.
+   */
+  private final class BankCall {
+
+    private final BankPaymentRequest paymentRequest;
+    private final byte[] body;
+    private final UUID uuid;
+    private final CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+    private final List<Future<SimpleHttpResponse>> exchanges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger attempts = new AtomicInteger(1);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Acquirer firstAcquirer;
+
+    BankCall(BankPaymentRequest paymentRequest, byte[] body, UUID uuid) {
+      this.paymentRequest = paymentRequest;
+      this.body = body;
+      this.uuid = uuid;
+      response.whenComplete((result, ex) -> exchanges.forEach(exchange -> exchange.cancel(true)));
+    }
+
+    void attempt() {
+      inFlight.incrementAndGet();
+      send();
+    }
+
+    private void send() {
+      Acquirer acquirer = acquirerRouter.select(paymentRequest, firstAcquirer);
+      if (firstAcquirer == null) {
+        firstAcquirer = acquirer;
+      }
+      long attemptStarted = System.nanoTime();
+      Future<SimpleHttpResponse> exchange;
+      try {
+        exchange = execute(acquirer, attemptStarted);
+      } catch (RuntimeException ex) {
+        // Nothing reached the acquirer, e.g. the client is shut down: release its slot and let
+        // the attempt fail or be retried like any other, so the call's permits are released.
+        acquirerRouter.onAbandoned(acquirer, System.nanoTime() - attemptStarted);
+        settle(() -> response.completeExceptionally(ex), ex.toString());
+        return;
+      }
+      exchanges.add(exchange);
+      if (response.isDone()) {
+        // Lost the race with the answer of another attempt.
+        exchange.cancel(true);
+      }
+    }
+
+    private Future<SimpleHttpResponse> execute(Acquirer acquirer, long attemptStarted) {
+      SimpleRequestBuilder builder = SimpleRequestBuilder.post(acquirer.getUrl())
+          .setBody(body, ContentType.APPLICATION_JSON);
+      if (idempotencyKeyHeader != null) {
+        builder.addHeader(idempotencyKeyHeader, uuid.toString());
+      }
+      SimpleHttpRequest request = builder.build();
+      return httpClient.execute(request, new FutureCallback<>() {
+        @Override
+        public void completed(SimpleHttpResponse result) {
+          acquirerRouter.onComplete(acquirer, System.nanoTime() - attemptStarted,
+              result.getCode() < 500);
+          if (isTransient(result.getCode())) {
+            settle(() -> response.complete(result), "HTTP " + result.getCode());
+            return;
+          }
+          if (hedgingPolicy != null) {
+            hedgingPolicy.record(System.nanoTime() - attemptStarted);
+          }
+          response.complete(result);
+          inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void failed(Exception ex) {
+          acquirerRouter.onComplete(acquirer, System.nanoTime() - attemptStarted, false);
+          settle(() -> response.completeExceptionally(ex), ex.getMessage());
+        }
+
+        @Override
+        public void cancelled() {
+          acquirerRouter.onAbandoned(acquirer, System.nanoTime() - attemptStarted);
+          inFlight.decrementAndGet();
+          response.completeExceptionally(new CancellationException("Bank call cancelled"));
+        }
+      });
+    }
+
+    void hedge() {
+      if (!response.isDone() && reserveExtraAttempt()) {
+        LOG.info(LogCategories.BANK, "Bank slow to answer, hedging payment ID: {}", uuid);
+        hedgingPolicy.onHedge();
+        attempt();
+      }
+    }
+
+    /**
+     * Retries a failed attempt if possible; otherwise reports the failure unless another attempt
+     * is still running and may yet succeed.
+     */
+    private void settle(Runnable fail, String reason) {
+      boolean retried = !response.isDone() && reserveExtraAttempt();
+      if (retried) {
+        LOG.warn(LogCategories.BANK, "Retrying payment ID: {} after failed bank call: {}", uuid,
+            reason);
+        // Counted before this attempt is released; sent off the client's I/O thread.
+        inFlight.incrementAndGet();
+        try {
+          callbackExecutor.execute(this::send);
+        } catch (RejectedExecutionException ex) {
+          inFlight.decrementAndGet();
+          retried = false;
+        }
+      }
+      if (inFlight.decrementAndGet() == 0 && !retried) {
+        fail.run();
+      }
+    }
+
+    private boolean reserveExtraAttempt() {
+      int current;
+      do {
+        current = attempts.get();
+        if (current >= maxAttempts) {
+          return false;
+        }
+      } while (!attempts.compareAndSet(current, current + 1));
+      if (retryBudget.tryAcquire()) {
+        return true;
+      }
+      attempts.decrementAndGet();
+      return false;
+    }
+  }
+
+  private BankPaymentResponse readResponse(SimpleHttpResponse response) {
+    HttpStatusCode statusCode = HttpStatusCode.valueOf(response.getCode());
+    LOG.debug("Received response from bank: Status Code: {}", statusCode);
+    handleResponseErrors(statusCode, response);
+    try {
+      return objectMapper.readValue(response.getBodyBytes(), BankPaymentResponse.class);
+    } catch (IOException | IllegalArgumentException ex) {
+      LOG.error(LogCategories.BANK, "Failed to read the bank response. Error: {}: {}",
+          ex.getClass().getSimpleName(), ex.getMessage());
+      LOG.debug("Unreadable bank response", ex);
+      throw new PaymentProcessingException("We’re currently experiencing issues processing your payment. Please try again later.");
     }
   }
 
-  private void handleResponseErrors(ResponseEntity<BankPaymentResponse> response) {
-    if (response.getStatusCode().is4xxClientError()) {
-      LOG.error("Client error occurred: Status Code: {}, Response: {}", response.getStatusCode(), response.getBody());
+  private void handleResponseErrors(HttpStatusCode statusCode, SimpleHttpResponse response) {
+    if (statusCode.is4xxClientError()) {
+      LOG.error(LogCategories.BANK, "Client error occurred: Status Code: {}, Response: {}",
+          statusCode, response.getBodyText());
       throw new PaymentProcessingException("There was an issue with your payment details. Please review and try again.");
-    } else if (response.getStatusCode().is5xxServerError()) {
-      LOG.error("Server error at the bank's side. Status Code: {}, Response: {}", response.getStatusCode(), response.getBody());
+    } else if (statusCode.is5xxServerError()) {
+      LOG.error(LogCategories.BANK, "Server error at the bank's side. Status Code: {}, Response: {}",
+          statusCode, response.getBodyText());
       throw new PaymentProcessingException("We’re currently experiencing issues processing your payment. Please try again later.");
     }
   }
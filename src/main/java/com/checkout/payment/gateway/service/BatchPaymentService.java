@@ -0,0 +1,130 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.exception.PaymentValidationException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Submits a batch of payments with a bounded number of bank calls in flight.
+ * <p>
+ * Every payment is validated up front; invalid ones fail on their own without taking the batch
+ * down. Valid payments are pulled from a shared cursor by at most {@code maxParallelism} lanes:
+ * when a lane's payment completes it starts the next one, so the bank never sees more than that
+ * many calls from one batch while no thread waits in between.
+ */
+@Service
+public class BatchPaymentService {
+
+  private final PaymentGatewayService paymentGatewayService;
+  private final PaymentRequestValidator paymentRequestValidator;
+  private final int maxItems;
+  private final int maxParallelism;
+
+  public BatchPaymentService(PaymentGatewayService paymentGatewayService,
+      PaymentRequestValidator paymentRequestValidator,
+      @Value("${payment.batch.max-items:1000}") int maxItems,
+      @Value("${payment.batch.max-parallelism:32}") int maxParallelism) {
+    this.paymentGatewayService = paymentGatewayService;
+    this.paymentRequestValidator = paymentRequestValidator;
+    this.maxItems = maxItems;
+    this.maxParallelism = maxParallelism;
+  }
+
+  public int getMaxItems() {
+    return maxItems;
+  }
+
+  /**
+   * Starts processing the batch.
+   *
+   * @return one future per request, in input order. A payment that could not be processed completes
+   * its future exceptionally.
+   * @throws InvalidBatchException when the batch is empty or larger than allowed
+   */
+  public List<CompletableFuture<PostPaymentResponse>> processBatch(
+      List<PostPaymentRequest> paymentRequests) {
+    return processBatch(paymentRequests, Map.of());
+  }
+
+  /**
+   * Starts processing a batch some of whose items could not be read as payment requests. Those
+   * items hold {@code null} in {@code paymentRequests} and are rejected like invalid payments,
+   * with the reason given for their index in {@code unreadable}.
+   */
+  public List<CompletableFuture<PostPaymentResponse>> processBatch(
+      List<PostPaymentRequest> paymentRequests, Map<Integer, String> unreadable) {
+    if (paymentRequests == null || paymentRequests.isEmpty()) {
+      throw new InvalidBatchException("Batch must contain at least one payment");
+    }
+    if (paymentRequests.size() > maxItems) {
+      throw new InvalidBatchException("Batch must not contain more than " + maxItems + " payments");
+    }
+    List<CompletableFuture<PostPaymentResponse>> results = new ArrayList<>(paymentRequests.size());
+    List<Integer> valid = new ArrayList<>(paymentRequests.size());
+    for (int i = 0; i < paymentRequests.size(); i++) {
+      CompletableFuture<PostPaymentResponse> result = new CompletableFuture<>();
+      results.add(result);
+      String violations = unreadable.containsKey(i) ? unreadable.get(i)
+          : paymentRequestValidator.validate(paymentRequests.get(i));
+      if (violations == null) {
+        valid.add(i);
+      } else {
+        result.completeExceptionally(new PaymentValidationException(violations));
+      }
+    }
+    AtomicInteger cursor = new AtomicInteger();
+    for (int lane = 0; lane < Math.min(maxParallelism, valid.size()); lane++) {
+      runLane(paymentRequests, valid, results, cursor);
+    }
+    return results;
+  }
+
+  /**
+   * Processes payments from the cursor until one has to wait for the bank, then resumes from that
+   * payment's completion. Payments that finish synchronously (e.g. rejected by the circuit breaker)
+   * are handled in the loop rather than by recursion.
+   */
+  private void runLane(List<PostPaymentRequest> paymentRequests, List<Integer> valid,
+      List<CompletableFuture<PostPaymentResponse>> results, AtomicInteger cursor) {
+    int next;
+    while ((next = cursor.getAndIncrement()) < valid.size()) {
+      int index = valid.get(next);
+      CompletableFuture<PostPaymentResponse> payment = submit(paymentRequests.get(index));
+      CompletableFuture<PostPaymentResponse> result = results.get(index);
+      if (!payment.isDone()) {
+        payment.whenComplete((response, ex) -> {
+          complete(result, response, ex);
+          runLane(paymentRequests, valid, results, cursor);
+        });
+        return;
+      }
+      payment.whenComplete((response, ex) -> complete(result, response, ex));
+    }
+  }
+
+  private CompletableFuture<PostPaymentResponse> submit(PostPaymentRequest paymentRequest) {
+    try {
+      return paymentGatewayService.processPayment(paymentRequest, null);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+  }
+
+  private static void complete(CompletableFuture<PostPaymentResponse> result,
+      PostPaymentResponse response, Throwable ex) {
+    if (ex == null) {
+      result.complete(response);
+    } else {
+      result.completeExceptionally(ex);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A payment together with its JSON representation, encoded once and served as is by
+ * {@code GET /payment/{id}}. The bytes must not be modified.
+ *
+ * @param etag strong entity tag derived from the bytes, quoted as sent in the {@code ETag} header
+ */
+public record EncodedPayment(PostPaymentResponse payment, byte[] json, String etag) {
+
+  private static final HexFormat HEX = HexFormat.of();
+
+  public static EncodedPayment encode(PostPaymentResponse payment, ObjectWriter writer) {
+    byte[] json;
+    try {
+      json = writer.writeValueAsBytes(payment);
+    } catch (JsonProcessingException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return new EncodedPayment(payment, json, etag(json));
+  }
+
+  /**
+   * The first 128 bits of the SHA-256 of the bytes, so any change to the representation changes
+   * the tag.
+   */
+  static String etag(byte[] json) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(json);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+    return '"' + HEX.formatHex(digest, 0, 16) + '"';
+  }
+}
@@ -0,0 +1,71 @@
+package com.checkout.payment.gateway.service;
+
+/**
+ * Approximate access counts for {@link PaymentReadCache} admission: a count-min sketch of 4-bit
+ * counters, sixteen to a {@code long}, with four counters per key.
+ * <p>
+ * Counters saturate at 15, and once as many increments as ten times the table width have been
+ * recorded every counter is halved, so the sketch follows recent popularity rather than all-time
+ * counts. Not thread-safe; the cache calls it under its policy lock.
+ */
+class FrequencySketch {
+
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private final long[] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int maxEntries) {
+    int width = Integer.highestOneBit(Math.max(16, maxEntries - 1) << 1);
+    table = new long[width];
+    mask = width - 1;
+    sampleSize = 10 * width;
+  }
+
+  int frequency(int hash) {
+    int frequency = 15;
+    for (int i = 0; i < 4; i++) {
+      frequency = Math.min(frequency, (int) (table[indexOf(hash, i)] >>> shift(hash, i)) & 15);
+    }
+    return frequency;
+  }
+
+  void increment(int hash) {
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int shift = shift(hash, i);
+      if (((table[index] >>> shift) & 15) != 15) {
+        table[index] += 1L << shift;
+        added = true;
+      }
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & mask;
+  }
+
+  /**
+   * Bit offset of the key's counter for hash function {@code i} within its word.
+   */
+  private static int shift(int hash, int i) {
+    return ((hash >>> (i << 3)) & 15) << 2;
+  }
+}
@@ -0,0 +1,147 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyConflictException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded table of payment submissions keyed by the merchant's {@code Idempotency-Key}.
+ * <p>
+ * The first submission for a key runs the payment; every later submission with the same key gets
+ * the same future, whether the payment is still in flight or already completed, so retries never
+ * reach the bank twice. Entries expire after the TTL and the oldest entries are dropped once the
+ * table is full. Failed payments are forgotten straight away so that a retry can go through.
+ */
+public class IdempotencyCache {
+
+  private record Entry(byte[] fingerprint, CompletableFuture<PostPaymentResponse> result,
+                       long expiresAtNanos) {
+
+  }
+
+  private record Insertion(String key, Entry entry) {
+
+  }
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  // Entries share one TTL, so insertion order is also expiry order.
+  private final ConcurrentLinkedQueue<Insertion> insertions = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LongAdder replays = new LongAdder();
+  private final int maxEntries;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+
+  public IdempotencyCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+    this.maxEntries = maxEntries;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Runs {@code payment} unless a submission with the same key is known, in which case its result
+   * is shared.
+   *
+   * @param fingerprint identifies the request content, see {@link #fingerprint}, so a key reused
+   *                    for a different payment is refused instead of returning an unrelated result
+   * @throws IdempotencyKeyConflictException when the key was used for a different request
+   */
+  public CompletableFuture<PostPaymentResponse> execute(String key, byte[] fingerprint,
+      Supplier<CompletableFuture<PostPaymentResponse>> payment) {
+    long now = nanoClock.getAsLong();
+    evict(now);
+    Entry created = new Entry(fingerprint, new CompletableFuture<>(), now + ttlNanos);
+    Entry entry = entries.compute(key, (k, current) ->
+        current == null || current.expiresAtNanos() - now <= 0 ? created : current);
+    if (entry != created) {
+      if (!Arrays.equals(entry.fingerprint(), fingerprint)) {
+        throw new IdempotencyKeyConflictException(
+            "Idempotency key was already used for a different payment");
+      }
+      replays.increment();
+      return entry.result();
+    }
+    insertions.add(new Insertion(key, created));
+    queued.incrementAndGet();
+
+    CompletableFuture<PostPaymentResponse> result;
+    try {
+      result = payment.get();
+    } catch (RuntimeException ex) {
+      entries.remove(key, created);
+      created.result().completeExceptionally(ex);
+      throw ex;
+    }
+    result.whenComplete((response, ex) -> {
+      if (ex != null) {
+        entries.remove(key, created);
+        created.result().completeExceptionally(ex);
+      } else {
+        created.result().complete(response);
+      }
+    });
+    return created.result();
+  }
+
+  /**
+   * SHA-256 over every field of the request, each prefixed with its length. Unlike
+   * {@link PostPaymentRequest#hashCode()}, two different payments practically never share it, and
+   * the table holds no card number or CVV.
+   */
+  public static byte[] fingerprint(PostPaymentRequest request) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+    update(digest, request.getCardNumber());
+    update(digest, request.getExpiryMonth());
+    update(digest, request.getExpiryYear());
+    update(digest, request.getCurrency());
+    update(digest, request.getCvv());
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(request.getAmount()).array());
+    return digest.digest();
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value == null ? -1 : bytes.length)
+        .array());
+    digest.update(bytes);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getReplayCount() {
+    return replays.sum();
+  }
+
+  private void evict(long now) {
+    Insertion oldest;
+    while ((oldest = insertions.peek()) != null
+        && (oldest.entry().expiresAtNanos() - now <= 0 || queued.get() > maxEntries)) {
+      Insertion evicted = insertions.poll();
+      if (evicted == null) {
+        return;
+      }
+      queued.decrementAndGet();
+      entries.remove(evicted.key(), evicted.entry());
+    }
+  }
+}
@@ -1,15 +1,27 @@
 package com.checkout.payment.gateway.service;
 
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
 import com.checkout.payment.gateway.exception.InvalidExpiryDateException;
 import com.checkout.payment.gateway.exception.ResourceNotFoundException;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.logging.LogCategories;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
 import com.checkout.payment.gateway.model.BankPaymentRequest;
 import com.checkout.payment.gateway.model.BankPaymentResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
-import java.time.YearMonth;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -20,47 +32,155 @@ public class PaymentGatewayService {
 
   private final PaymentsRepository paymentsRepository;
   private final BankService bankService;
+  private final IdempotencyCache idempotencyCache;
+  private final PaymentRequestValidator paymentRequestValidator;
+  private final CurrencyRegistry currencyRegistry;
+  private final PaymentIdGenerator paymentIdGenerator;
+  private final PaymentMetrics paymentMetrics;
+  private final PaymentStatistics paymentStatistics;
+  private final PaymentReadCache paymentReadCache;
+  private final ObjectWriter paymentWriter;
+  private final Function<UUID, EncodedPayment> paymentLoader;
 
-  public PaymentGatewayService(PaymentsRepository paymentsRepository, BankService bankService) {
+  public PaymentGatewayService(PaymentsRepository paymentsRepository, BankService bankService,
+      IdempotencyCache idempotencyCache, PaymentRequestValidator paymentRequestValidator,
+      CurrencyRegistry currencyRegistry, PaymentIdGenerator paymentIdGenerator,
+      PaymentMetrics paymentMetrics, PaymentStatistics paymentStatistics,
+      PaymentReadCache paymentReadCache, ObjectMapper objectMapper) {
     this.paymentsRepository = paymentsRepository;
     this.bankService = bankService;
+    this.idempotencyCache = idempotencyCache;
+    this.paymentRequestValidator = paymentRequestValidator;
+    this.currencyRegistry = currencyRegistry;
+    this.paymentIdGenerator = paymentIdGenerator;
+    this.paymentMetrics = paymentMetrics;
+    this.paymentStatistics = paymentStatistics;
+    this.paymentReadCache = paymentReadCache;
+    this.paymentWriter = objectMapper.writerFor(PostPaymentResponse.class);
+    this.paymentLoader = id -> paymentsRepository.get(id)
+        .map(payment -> EncodedPayment.encode(payment, paymentWriter))
+        .orElse(null);
   }
 
   public PostPaymentResponse getPaymentById(UUID id) {
+    return getEncodedPaymentById(id).payment();
+  }
+
+  /**
+   * Reads through {@link PaymentReadCache}, which also remembers IDs that were not found. A
+   * payment is only encoded when it is stored or loaded into the cache, not on every read.
+   */
+  public EncodedPayment getEncodedPaymentById(UUID id) {
     LOG.debug("Requesting access to the payment with ID {}", id);
-    return paymentsRepository.get(id).orElseThrow(() ->
-        new ResourceNotFoundException("Payment not found with ID: " + id)
-    );
+    EncodedPayment payment = paymentReadCache.get(id, paymentLoader);
+    if (payment == null) {
+      throw new ResourceNotFoundException("Payment not found with ID: " + id);
+    }
+    return payment;
   }
 
-  public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest) {
+  /**
+   * Validates the request and sends it to the bank. Validation failures are thrown straight away;
+   * the bank's answer arrives asynchronously, so no request thread waits for the bank.
+   * <p>
+   * With an idempotency key, a repeated submission shares the result of the first one instead of
+   * creating a new payment.
+   */
+  public CompletableFuture<PostPaymentResponse> processPayment(PostPaymentRequest paymentRequest,
+      String idempotencyKey) {
     validateExpiryDate(paymentRequest);
-    UUID uuid = UUID.randomUUID();
+    if (idempotencyKey == null) {
+      return submitPayment(paymentRequest);
+    }
+    return idempotencyCache.execute(idempotencyKey, IdempotencyCache.fingerprint(paymentRequest),
+        () -> submitPayment(paymentRequest));
+  }
+
+  private CompletableFuture<PostPaymentResponse> submitPayment(PostPaymentRequest paymentRequest) {
+    UUID uuid = paymentIdGenerator.next();
     LOG.debug("Processing payment request with UUID: {}", uuid);
     return processPaymentWithBank(paymentRequest, uuid);
   }
 
-  private PostPaymentResponse processPaymentWithBank(PostPaymentRequest paymentRequest, UUID uuid) {
+  /**
+   * Stores the payment as pending under a new ID, before it is queued for the bank.
+   */
+  PostPaymentResponse storePendingPayment(PostPaymentRequest paymentRequest) {
+    UUID uuid = paymentIdGenerator.next();
+    LOG.debug("Accepting payment request with UUID: {}", uuid);
+    return mapToPaymentResponse(paymentRequest, PaymentStatus.PENDING, uuid);
+  }
+
+  /**
+   * Sends a pending payment to the bank and stores its outcome in place of the pending one. When
+   * the bank cannot process it, the payment is stored as rejected: there is no merchant connection
+   * left to report the failure on. A payment turned away before it reached the bank stays pending
+   * and the returned future fails with {@link BankUnavailableException}, so the caller can send it
+   * again later.
+   */
+  CompletableFuture<PostPaymentResponse> completePendingPayment(PostPaymentRequest paymentRequest,
+      UUID uuid) {
+    return processPaymentWithBank(paymentRequest, uuid).exceptionally(ex -> {
+      Throwable cause = ex instanceof CompletionException && ex.getCause() != null
+          ? ex.getCause() : ex;
+      if (cause instanceof BankUnavailableException unavailable) {
+        LOG.warn(LogCategories.BANK, "Pending payment kept for retry, UUID: {}, Reason: {}", uuid,
+            unavailable.getMessage());
+        throw unavailable;
+      }
+      LOG.warn(LogCategories.BANK, "Pending payment rejected for UUID: {}, Reason: {}", uuid,
+          cause.getMessage());
+      paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+      return mapToPaymentResponse(paymentRequest, PaymentStatus.REJECTED, uuid);
+    });
+  }
+
+  /**
+   * Stores a pending payment as rejected when the gateway stops before the bank has answered for
+   * it. Card details are never stored, so it could not be sent once the gateway is back.
+   */
+  void abandonPendingPayment(PostPaymentRequest paymentRequest, UUID uuid) {
+    LOG.warn(LogCategories.BANK, "Pending payment rejected at shutdown, UUID: {}", uuid);
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+    mapToPaymentResponse(paymentRequest, PaymentStatus.REJECTED, uuid);
+  }
+
+  private CompletableFuture<PostPaymentResponse> processPaymentWithBank(
+      PostPaymentRequest paymentRequest, UUID uuid) {
     BankPaymentRequest bankPaymentRequest = mapToBankPaymentRequest(paymentRequest);
-    BankPaymentResponse bankPaymentResponse = bankService.processPaymentWithBank(bankPaymentRequest, uuid);
+    return bankService.processPaymentWithBank(bankPaymentRequest, uuid)
+        .thenApply(bankPaymentResponse -> completePayment(paymentRequest, bankPaymentResponse, uuid));
+  }
+
+  private PostPaymentResponse completePayment(PostPaymentRequest paymentRequest,
+      BankPaymentResponse bankPaymentResponse, UUID uuid) {
     PaymentStatus paymentStatus = bankPaymentResponse.isAuthorized() ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED;
     if (paymentStatus.equals(PaymentStatus.AUTHORIZED)) {
-      LOG.info("Payment authorized for UUID: {}, Amount: {}, Currency: {}",
+      LOG.info(LogCategories.PAYMENT_OUTCOME,
+          "Payment authorized for UUID: {}, Amount: {}, Currency: {}",
           uuid, paymentRequest.getAmount(), paymentRequest.getCurrency());
     } else {
-      LOG.warn("Payment declined for UUID: {}, Amount: {}, Currency: {}",
+      LOG.warn(LogCategories.PAYMENT_OUTCOME,
+          "Payment declined for UUID: {}, Amount: {}, Currency: {}",
           uuid, paymentRequest.getAmount(), paymentRequest.getCurrency());
     }
-    return mapToPaymentResponse(paymentRequest, paymentStatus, uuid);
+    PostPaymentResponse paymentResponse = mapToPaymentResponse(paymentRequest, paymentStatus, uuid);
+    paymentMetrics.recordPayment(paymentStatus, paymentResponse.getCurrency());
+    paymentStatistics.record(paymentStatus, paymentResponse.getCurrency(),
+        paymentResponse.getAmount());
+    return paymentResponse;
   }
 
-  private void validateExpiryDate(PostPaymentRequest paymentRequest) {
-    if (!checkExpiryDateIsValid(paymentRequest.getExpiryYear(), paymentRequest.getExpiryMonth())) {
+  void validateExpiryDate(PostPaymentRequest paymentRequest) {
+    long started = System.nanoTime();
+    boolean valid = paymentRequestValidator.isExpiryInFuture(paymentRequest);
+    paymentMetrics.recordStage(Stage.EXPIRY_CHECK, System.nanoTime() - started);
+    if (!valid) {
       throw new InvalidExpiryDateException("Invalid Expiration Date");
     }
   }
 
-  private BankPaymentRequest mapToBankPaymentRequest(PostPaymentRequest paymentRequest) {
+  BankPaymentRequest mapToBankPaymentRequest(PostPaymentRequest paymentRequest) {
     BankPaymentRequest bankPaymentRequest = new BankPaymentRequest();
     bankPaymentRequest.setCardNumber(paymentRequest.getCardNumber());
     bankPaymentRequest.setExpiryDate(paymentRequest.getExpiryDate());
@@ -71,27 +191,23 @@ public class PaymentGatewayService {
   }
 
 
-  private PostPaymentResponse mapToPaymentResponse(PostPaymentRequest paymentRequest,
+  PostPaymentResponse mapToPaymentResponse(PostPaymentRequest paymentRequest,
       PaymentStatus paymentStatus, UUID uuid) {
     PostPaymentResponse paymentResponse = new PostPaymentResponse();
     paymentResponse.setAmount(paymentRequest.getAmount());
-    paymentResponse.setCurrency(paymentRequest.getCurrency());
+    paymentResponse.setCurrency(currencyRegistry.resolve(paymentRequest.getCurrency()));
     paymentResponse.setExpiryDate(paymentRequest.getExpiryDate());
     paymentResponse.setCardNumberLastFour(paymentRequest.getCardNumberLastFourDigits());
     paymentResponse.setStatus(paymentStatus);
     paymentResponse.setId(uuid);
+    long started = System.nanoTime();
     paymentsRepository.add(paymentResponse);
+    paymentMetrics.recordStage(Stage.REPOSITORY, System.nanoTime() - started);
+    paymentReadCache.put(EncodedPayment.encode(paymentResponse, paymentWriter));
     LOG.debug("Payment saved to repository. UUID: {}, Amount: {}, Status: {}",
         paymentResponse.getId(), paymentResponse.getAmount(), paymentResponse.getStatus());
     return paymentResponse;
 
   }
-  private boolean checkExpiryDateIsValid(String expiryYear, String expiryMonth) {
-    int requestYear = Integer.parseInt(expiryYear);
-    int requestMonth = Integer.parseInt(expiryMonth);
-    YearMonth currentYearMonth = YearMonth.now();
-    YearMonth expiryYearMonth = YearMonth.of(requestYear, requestMonth);
-    return expiryYearMonth.isAfter(currentYearMonth);
-  }
 
 }
@@ -0,0 +1,360 @@
+package com.checkout.payment.gateway.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded read-through cache of payments by ID, with W-TinyLFU admission. Payments are held with
+ * their JSON already encoded, so a hit is served without serializing anything.
+ * <p>
+ * New entries go into a small LRU window (1% of the entries). When the window overflows, its
+ * oldest entry competes with the oldest entry of the main space, and a {@link FrequencySketch} of
+ * recent lookups decides which one stays. The main space is a segmented LRU: an entry read while
+ * on probation moves to the protected segment (80% of the main space), whose oldest entries fall
+ * back to probation. A burst of one-off reads therefore cannot flush the popular payments.
+ * <p>
+ * Lookups read a {@link ConcurrentHashMap} without locking, and stores and loads update it
+ * directly. Their changes to the policy are buffered and applied by whichever thread next takes
+ * the policy lock, which nothing waits for: when another thread holds it, a hit is not recorded,
+ * a loss that barely changes the frequencies of popular payments, and buffered changes are left to
+ * the holder.
+ * <p>
+ * A load that overlaps a store of the same ID may have read a stale payment, so its result is not
+ * cached. Each load registers itself for its ID and a store cancels that registration; stores of
+ * other payments do not affect it.
+ * <p>
+ * IDs the loader does not know are remembered for a short TTL, so repeated lookups of unknown
+ * payments do not reach the repository either.
+ */
+public class PaymentReadCache {
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private static final class Node {
+
+    final UUID id;
+    final int hash;
+    final EncodedPayment payment;
+    int segment = -1;
+    Node previous;
+    Node next;
+
+    Node(UUID id, int hash, EncodedPayment payment) {
+      this.id = id;
+      this.hash = hash;
+      this.payment = payment;
+    }
+  }
+
+  /**
+   * Doubly linked access order of one segment, oldest first.
+   */
+  private static final class AccessOrder {
+
+    Node head;
+    Node tail;
+    int size;
+
+    void addLast(Node node) {
+      node.previous = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      size++;
+    }
+
+    void unlink(Node node) {
+      if (node.previous == null) {
+        head = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      size--;
+    }
+
+    void moveToLast(Node node) {
+      if (node != tail) {
+        unlink(node);
+        addLast(node);
+      }
+    }
+  }
+
+  /**
+   * A change to {@link #entries} the policy has not seen yet: {@code removed} leaves its segment
+   * and {@code added}, if still cached, enters the window.
+   */
+  private record Write(Node removed, Node added) {
+
+  }
+
+  private final ConcurrentHashMap<UUID, Node> entries;
+  private final ConcurrentHashMap<UUID, Long> unknown = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<UUID, Object> loading = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<Write> writes = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock policyLock = new ReentrantLock();
+  private final AccessOrder[] segments = {new AccessOrder(), new AccessOrder(), new AccessOrder()};
+  private final FrequencySketch sketch;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final int maxEntries;
+  private final int maxWindow;
+  private final int maxProtected;
+  private final long negativeTtlNanos;
+  private final int maxNegativeEntries;
+  private final LongSupplier nanoClock;
+
+  public PaymentReadCache(int maxEntries, Duration negativeTtl, int maxNegativeEntries,
+      LongSupplier nanoClock) {
+    this.maxEntries = Math.max(2, maxEntries);
+    this.maxWindow = Math.max(1, this.maxEntries / 100);
+    this.maxProtected = (this.maxEntries - maxWindow) * 4 / 5;
+    this.negativeTtlNanos = negativeTtl.toNanos();
+    this.maxNegativeEntries = maxNegativeEntries;
+    this.nanoClock = nanoClock;
+    this.entries = new ConcurrentHashMap<>(this.maxEntries * 4 / 3 + 1);
+    this.sketch = new FrequencySketch(this.maxEntries);
+  }
+
+  /**
+   * Returns the cached payment, or loads it and caches the result.
+   *
+   * @param loader reads the payment from the repository; {@code null} when it does not exist
+   * @return the payment, or {@code null} when the ID is unknown
+   */
+  public EncodedPayment get(UUID id, Function<UUID, EncodedPayment> loader) {
+    Node node = entries.get(id);
+    if (node != null) {
+      hits.increment();
+      if (policyLock.tryLock()) {
+        try {
+          sketch.increment(node.hash);
+          onHit(node);
+          applyWrites();
+        } finally {
+          policyLock.unlock();
+        }
+        drainWrites();
+      }
+      return node.payment;
+    }
+    Long unknownUntil = unknown.get(id);
+    if (unknownUntil != null) {
+      if (unknownUntil - nanoClock.getAsLong() > 0) {
+        negativeHits.increment();
+        return null;
+      }
+      unknown.remove(id, unknownUntil);
+    }
+    misses.increment();
+    Object load = new Object();
+    loading.put(id, load);
+    EncodedPayment payment;
+    try {
+      payment = loader.apply(id);
+    } catch (RuntimeException ex) {
+      loading.remove(id, load);
+      throw ex;
+    }
+    // The result is cached first and withdrawn if a store of this ID cancelled the load meanwhile,
+    // so a store that comes after the check still finds and replaces it.
+    if (payment == null) {
+      Long until = rememberUnknown(id);
+      if (!loading.remove(id, load)) {
+        unknown.remove(id, until);
+      }
+    } else {
+      Node loaded = new Node(id, spread(id), payment);
+      // Unless another lookup or a store cached it first.
+      boolean added = entries.putIfAbsent(id, loaded) == null;
+      if (!loading.remove(id, load)) {
+        entries.remove(id, loaded);
+      } else if (added) {
+        write(new Write(null, loaded));
+      }
+    }
+    return payment;
+  }
+
+  /**
+   * Caches a payment that was just stored, replacing what was cached for its ID, so the merchant's
+   * first lookups find it already encoded.
+   */
+  public void put(EncodedPayment payment) {
+    UUID id = payment.payment().getId();
+    loading.remove(id);
+    unknown.remove(id);
+    Node node = new Node(id, spread(id), payment);
+    write(new Write(entries.put(id, node), node));
+  }
+
+  /**
+   * Drops the cached payment, or the record that it does not exist, after the payment is stored.
+   */
+  public void invalidate(UUID id) {
+    loading.remove(id);
+    unknown.remove(id);
+    Node removed = entries.remove(id);
+    if (removed != null) {
+      write(new Write(removed, null));
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getNegativeHitCount() {
+    return negativeHits.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Share of lookups answered without the repository, counting known-unknown IDs as hits.
+   */
+  public double getHitRatio() {
+    long answered = hits.sum() + negativeHits.sum();
+    long total = answered + misses.sum();
+    return total == 0 ? 0 : (double) answered / total;
+  }
+
+  private void write(Write write) {
+    writes.add(write);
+    drainWrites();
+  }
+
+  /**
+   * Applies the buffered writes unless another thread holds the lock, which then applies them.
+   * Checks again after unlocking, for writes buffered after the holder's last look.
+   */
+  private void drainWrites() {
+    while (!writes.isEmpty() && policyLock.tryLock()) {
+      try {
+        applyWrites();
+      } finally {
+        policyLock.unlock();
+      }
+    }
+  }
+
+  private void applyWrites() {
+    Write write;
+    while ((write = writes.poll()) != null) {
+      Node removed = write.removed();
+      if (removed != null && removed.segment >= 0) {
+        segments[removed.segment].unlink(removed);
+        removed.segment = -1;
+      }
+      Node added = write.added();
+      // Not if it was replaced or removed before the policy saw it.
+      if (added != null && added.segment < 0 && entries.get(added.id) == added) {
+        sketch.increment(added.hash);
+        add(WINDOW, added);
+        evict();
+      }
+    }
+  }
+
+  private void onHit(Node node) {
+    switch (node.segment) {
+      case WINDOW, PROTECTED -> segments[node.segment].moveToLast(node);
+      case PROBATION -> {
+        segments[PROBATION].unlink(node);
+        add(PROTECTED, node);
+        if (segments[PROTECTED].size > maxProtected) {
+          Node demoted = segments[PROTECTED].head;
+          segments[PROTECTED].unlink(demoted);
+          add(PROBATION, demoted);
+        }
+      }
+      default -> {
+        // Removed after the lookup found it, or not yet seen by the policy.
+      }
+    }
+  }
+
+  private void evict() {
+    while (segments[WINDOW].size > maxWindow) {
+      Node candidate = segments[WINDOW].head;
+      segments[WINDOW].unlink(candidate);
+      add(PROBATION, candidate);
+      if (entries.size() <= maxEntries) {
+        continue;
+      }
+      Node victim = segments[PROBATION].head;
+      if (victim != candidate
+          && sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+        victim = candidate;
+      }
+      remove(victim);
+      evictions.increment();
+    }
+  }
+
+  private void add(int segment, Node node) {
+    node.segment = segment;
+    segments[segment].addLast(node);
+  }
+
+  private void remove(Node node) {
+    segments[node.segment].unlink(node);
+    node.segment = -1;
+    entries.remove(node.id, node);
+  }
+
+  /**
+   * @return the time until which the ID is remembered
+   */
+  private Long rememberUnknown(UUID id) {
+    long now = nanoClock.getAsLong();
+    if (unknown.size() >= maxNegativeEntries) {
+      unknown.values().removeIf(until -> until - now <= 0);
+      if (unknown.size() >= maxNegativeEntries) {
+        // Someone is guessing IDs faster than they expire; start over rather than grow.
+        unknown.clear();
+      }
+    }
+    Long until = now + negativeTtlNanos;
+    unknown.put(id, until);
+    return until;
+  }
+
+  private static int spread(UUID id) {
+    int h = id.hashCode();
+    h ^= h >>> 16;
+    h *= 0x45d9f3b;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,195 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidQueryException;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.model.PaymentFilter;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentSearchRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentQuery;
+import com.checkout.payment.gateway.repository.PaymentSearchResult;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Turns search parameters into a {@link PaymentQuery} and pages through the results, or streams
+ * all of them for an export.
+ * <p>
+ * The cursor handed out with a page is opaque to clients: it holds the repository position where
+ * the next page starts and a hash of the filters, so a cursor cannot be replayed with different
+ * filters. Positions are only valid for the lifetime of the process.
+ * <p>
+ * Creation times are read from time-ordered payment IDs, so with {@code payment.id.mode=random}
+ * the {@code from} and {@code to} filters are refused rather than matched against nothing.
+ */
+@Service
+public class PaymentSearchService {
+
+  private static final int CURSOR_BYTES = Long.BYTES + Integer.BYTES;
+
+  private final PaymentsRepository paymentsRepository;
+  private final CurrencyRegistry currencyRegistry;
+  private final boolean timeOrderedIds;
+  private final int defaultPageSize;
+  private final int maxPageSize;
+  private final int exportPageSize;
+  private final ObjectWriter exportWriter;
+
+  public PaymentSearchService(PaymentsRepository paymentsRepository,
+      CurrencyRegistry currencyRegistry, PaymentIdGenerator paymentIdGenerator,
+      ObjectMapper objectMapper,
+      @Value("${payment.search.default-page-size:50}") int defaultPageSize,
+      @Value("${payment.search.max-page-size:1000}") int maxPageSize,
+      @Value("${payment.export.page-size:1024}") int exportPageSize) {
+    this.paymentsRepository = paymentsRepository;
+    this.currencyRegistry = currencyRegistry;
+    this.timeOrderedIds = paymentIdGenerator.isTimeOrdered();
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
+    this.exportPageSize = exportPageSize;
+    // Flushed once per page instead of after every payment.
+    this.exportWriter = objectMapper.writerFor(PostPaymentResponse.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * @throws InvalidQueryException when a filter is malformed or the cursor does not belong to the
+   *                               same filters and process
+   */
+  public PaymentPage search(PaymentSearchRequest request) {
+    PaymentQuery query = toQuery(request);
+    int limit = request.getLimit() == null ? defaultPageSize : request.getLimit();
+    if (limit < 1 || limit > maxPageSize) {
+      throw new InvalidQueryException("Limit must be between 1 and " + maxPageSize);
+    }
+    int fingerprint = fingerprint(query);
+    long after = request.getCursor() == null ? -1 : decodeCursor(request.getCursor(), fingerprint);
+    PaymentSearchResult result = paymentsRepository.search(query, after, limit);
+    return new PaymentPage(result.payments(),
+        result.hasMore() ? encodeCursor(result.position(), fingerprint) : null);
+  }
+
+  /**
+   * Writes every payment matching the query to {@code out} as NDJSON, oldest first. Payments are
+   * read from the repository a page at a time and written as they are read, so memory use does not
+   * grow with the number of payments, and a slow reader slows the export down rather than
+   * buffering it. Submits are not blocked meanwhile; payments added during the export may or may
+   * not be included.
+   *
+   * @return the number of payments written
+   */
+  public long export(PaymentQuery query, OutputStream out) throws IOException {
+    long written = 0;
+    // The caller owns the stream: closing the generator only releases its buffers.
+    try (JsonGenerator generator = exportWriter.createGenerator(out)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+      long position = -1;
+      PaymentSearchResult page;
+      do {
+        page = paymentsRepository.search(query, position, exportPageSize);
+        for (PostPaymentResponse payment : page.payments()) {
+          exportWriter.writeValue(generator, payment);
+          generator.writeRaw('\n');
+        }
+        generator.flush();
+        written += page.payments().size();
+        position = page.position();
+      } while (page.hasMore());
+    }
+    return written;
+  }
+
+  /**
+   * @throws InvalidQueryException when a filter is malformed
+   */
+  public PaymentQuery toQuery(PaymentFilter request) {
+    PaymentStatus status = null;
+    if (request.getStatus() != null) {
+      status = parseStatus(request.getStatus());
+    }
+    int minAmount = request.getMinAmount() == null ? 0 : request.getMinAmount();
+    int maxAmount = request.getMaxAmount() == null ? Integer.MAX_VALUE : request.getMaxAmount();
+    if (minAmount > maxAmount) {
+      throw new InvalidQueryException("minAmount must not be greater than maxAmount");
+    }
+    if ((request.getFrom() != null || request.getTo() != null) && !timeOrderedIds) {
+      throw new InvalidQueryException(
+          "from and to are not supported: payment IDs do not record their creation time");
+    }
+    long from = request.getFrom() == null ? Long.MIN_VALUE : parseInstant("from", request.getFrom());
+    long to = request.getTo() == null ? Long.MAX_VALUE : parseInstant("to", request.getTo());
+    if (from >= to) {
+      throw new InvalidQueryException("from must be before to");
+    }
+    String lastFour = request.getCardNumberLastFour();
+    if (lastFour != null && !lastFour.matches("\\d{4}")) {
+      throw new InvalidQueryException("cardNumberLastFour must be four digits");
+    }
+    return new PaymentQuery(status,
+        request.getCurrency() == null ? null : currencyRegistry.resolve(request.getCurrency()),
+        minAmount, maxAmount, from, to, lastFour);
+  }
+
+  private static long parseInstant(String parameter, String value) {
+    try {
+      return Instant.parse(value).toEpochMilli();
+    } catch (DateTimeParseException | ArithmeticException ex) {
+      throw new InvalidQueryException(parameter + " must be an ISO-8601 instant");
+    }
+  }
+
+  private static PaymentStatus parseStatus(String name) {
+    for (PaymentStatus status : PaymentStatus.values()) {
+      if (status.getName().equalsIgnoreCase(name)) {
+        return status;
+      }
+    }
+    throw new InvalidQueryException("Unknown payment status: " + name);
+  }
+
+  /**
+   * Hashes the filters with hash codes that do not change between runs.
+   */
+  private static int fingerprint(PaymentQuery query) {
+    return Objects.hash(query.status() == null ? null : query.status().getName(),
+        query.currency() == null ? null : query.currency().code(), query.minAmount(),
+        query.maxAmount(), query.fromMillis(), query.toMillis(), query.cardNumberLastFour());
+  }
+
+  private static String encodeCursor(long position, int fingerprint) {
+    ByteBuffer cursor = ByteBuffer.allocate(CURSOR_BYTES).putLong(position).putInt(fingerprint);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.array());
+  }
+
+  private static long decodeCursor(String cursor, int fingerprint) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException ex) {
+      bytes = null;
+    }
+    if (bytes == null || bytes.length != CURSOR_BYTES) {
+      throw new InvalidQueryException("Malformed cursor");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    long position = buffer.getLong();
+    if (buffer.getInt() != fingerprint || position < 0) {
+      throw new InvalidQueryException("Cursor does not match the search filters");
+    }
+    return position;
+  }
+}
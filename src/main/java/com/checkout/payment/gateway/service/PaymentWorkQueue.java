@@ -0,0 +1,322 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded queue of accepted payments waiting for the bank, drained by a dedicated pool of worker
+ * threads.
+ * <p>
+ * A submitter reserves a slot before it stores the payment as pending, so once a payment is
+ * accepted it is certain to fit, and a full queue turns payments away before anything is stored.
+ * The slot is held until the payment's work has finished for good. Each worker runs one payment at
+ * a time and waits for its bank call to finish before taking the next, so the number of workers
+ * bounds the bank calls made for queued payments and a burst waits here rather than in request
+ * threads.
+ * <p>
+ * Work that fails with {@link BankUnavailableException} never reached the bank, so it is queued
+ * again after an exponential backoff with jitter, starting at {@code retryBackoff} and capped at
+ * {@code maxRetryBackoff}, for as long as the bank stays unavailable. It keeps its slot meanwhile.
+ * <p>
+ * {@link #close} stops taking payments and lets the workers carry on through the queue for up to
+ * {@code shutdownTimeout}. Work still queued, waiting to be retried or waiting for the bank when
+ * that runs out is abandoned: its {@code abandon} callback gives the payment a final status, so
+ * nothing is left pending once the gateway has stopped.
+ */
+public class PaymentWorkQueue implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentWorkQueue.class);
+  // Once the deadline has passed, workers only abandon what they hold, which takes no time.
+  private static final long ABANDON_GRACE_MILLIS = 1000;
+
+  private record Task(Supplier<CompletableFuture<?>> work, Runnable abandon, long enqueuedNanos,
+      int attempts) {
+
+  }
+
+  private final Semaphore slots;
+  private final BlockingQueue<Task> tasks;
+  private final Thread[] workers;
+  private final long retryBackoffNanos;
+  private final long maxRetryBackoffNanos;
+  private final long shutdownTimeoutNanos;
+  private final ScheduledExecutorService retryScheduler;
+  private final Set<Task> waitingForRetry = ConcurrentHashMap.newKeySet();
+  private final Timer waitTimer;
+  private final LongSupplier nanoClock;
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder abandoned = new LongAdder();
+  // Submitters share it; close() takes it alone, so no task is added after close() has drained.
+  private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private volatile boolean closing;
+  private volatile long closeDeadlineNanos;
+
+  /**
+   * @param shutdownTimeout how long {@link #close} lets the workers carry on before it abandons
+   *     what is left
+   * @param waitTimer records how long each payment waited for a worker
+   */
+  public PaymentWorkQueue(int capacity, int workerCount, Duration retryBackoff,
+      Duration maxRetryBackoff, Duration shutdownTimeout, Timer waitTimer, LongSupplier nanoClock) {
+    this.slots = new Semaphore(capacity);
+    this.tasks = new ArrayBlockingQueue<>(capacity);
+    this.retryBackoffNanos = Math.max(1, retryBackoff.toNanos());
+    this.maxRetryBackoffNanos = Math.max(retryBackoffNanos, maxRetryBackoff.toNanos());
+    this.shutdownTimeoutNanos = shutdownTimeout.toNanos();
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "payment-retry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.waitTimer = waitTimer;
+    this.nanoClock = nanoClock;
+    this.workers = new Thread[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Thread(this::drain, "payment-worker-" + i);
+      workers[i].setDaemon(true);
+    }
+  }
+
+  public void start() {
+    for (Thread worker : workers) {
+      worker.start();
+    }
+  }
+
+  /**
+   * Reserves room for one payment.
+   *
+   * @return false when the queue is full or closing
+   */
+  public boolean tryReserve() {
+    if (!closing && slots.tryAcquire()) {
+      return true;
+    }
+    rejections.increment();
+    return false;
+  }
+
+  /**
+   * Gives back a reservation that will not be used.
+   */
+  public void release() {
+    slots.release();
+  }
+
+  /**
+   * Queues work for a reservation taken with {@link #tryReserve}. The future the work returns is
+   * waited for before the worker takes the next payment. The work is run again later if the
+   * future fails with {@link BankUnavailableException}, and handles its other failures itself.
+   *
+   * @param abandon gives the payment a final status if the queue closes before the work is done,
+   *     including when it closed after the reservation was taken
+   */
+  public void submit(Supplier<CompletableFuture<?>> work, Runnable abandon) {
+    Task task = new Task(work, abandon, nanoClock.getAsLong(), 0);
+    closeLock.readLock().lock();
+    try {
+      if (!closing) {
+        tasks.add(task);
+        return;
+      }
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    abandon(task);
+  }
+
+  public int depth() {
+    return tasks.size();
+  }
+
+  public long getRejectedCount() {
+    return rejections.sum();
+  }
+
+  /**
+   * @return how many times work was queued again because the bank was unavailable
+   */
+  public long getRetriedCount() {
+    return retries.sum();
+  }
+
+  /**
+   * @return how many payments were abandoned because the queue closed before their work was done
+   */
+  public long getAbandonedCount() {
+    return abandoned.sum();
+  }
+
+  /**
+   * Stops taking payments and waits up to the shutdown timeout for the workers to finish the
+   * queued ones. Payments waiting to be retried are abandoned straight away, and so is whatever is
+   * left when the timeout runs out.
+   */
+  @Override
+  public void close() {
+    closeLock.writeLock().lock();
+    try {
+      closeDeadlineNanos = System.nanoTime() + shutdownTimeoutNanos;
+      closing = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+    retryScheduler.shutdownNow();
+    for (Task task : waitingForRetry) {
+      if (waitingForRetry.remove(task)) {
+        abandon(task);
+      }
+    }
+    // Wakes idle workers; a worker waiting for the bank goes on waiting until the deadline.
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+    try {
+      for (Thread worker : workers) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(
+            closeDeadlineNanos - System.nanoTime());
+        worker.join(Math.max(0, remainingMillis) + ABANDON_GRACE_MILLIS);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    Task task;
+    while ((task = tasks.poll()) != null) {
+      abandon(task);
+    }
+    long count = abandoned.sum();
+    if (count > 0) {
+      LOG.warn("{} queued payments were not completed by the bank before the queue closed", count);
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      Task task;
+      if (closing) {
+        task = tasks.poll();
+        if (task == null) {
+          return;
+        }
+      } else {
+        try {
+          task = tasks.take();
+        } catch (InterruptedException ex) {
+          continue;
+        }
+      }
+      if (closing && System.nanoTime() - closeDeadlineNanos >= 0) {
+        abandon(task);
+        continue;
+      }
+      waitTimer.record(nanoClock.getAsLong() - task.enqueuedNanos(), TimeUnit.NANOSECONDS);
+      run(task);
+    }
+  }
+
+  private void run(Task task) {
+    // An interrupt from close() only wakes idle workers; it must not cut the work short.
+    Thread.interrupted();
+    CompletableFuture<?> future;
+    try {
+      future = task.work().get();
+    } catch (RuntimeException ex) {
+      failed(task, ex);
+      return;
+    }
+    while (true) {
+      try {
+        if (closing) {
+          future.get(closeDeadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } else {
+          future.get();
+        }
+        slots.release();
+        return;
+      } catch (InterruptedException ex) {
+        // close() was called: wait again, now bounded by its deadline.
+      } catch (TimeoutException ex) {
+        future.cancel(false);
+        abandon(task);
+        return;
+      } catch (ExecutionException ex) {
+        failed(task, ex.getCause() != null ? ex.getCause() : ex);
+        return;
+      } catch (CancellationException ex) {
+        failed(task, ex);
+        return;
+      }
+    }
+  }
+
+  private void failed(Task task, Throwable cause) {
+    if (cause instanceof BankUnavailableException) {
+      if (closing) {
+        abandon(task);
+      } else {
+        retryLater(task);
+      }
+      return;
+    }
+    LOG.error("Queued payment failed: {}", cause.getMessage(), cause);
+    slots.release();
+  }
+
+  private void abandon(Task task) {
+    abandoned.increment();
+    try {
+      task.abandon().run();
+    } catch (RuntimeException ex) {
+      LOG.error("Abandoned payment could not be given a final status: {}", ex.getMessage(), ex);
+    } finally {
+      slots.release();
+    }
+  }
+
+  private void retryLater(Task task) {
+    long backoff = retryBackoffNanos;
+    for (int i = 0; i < task.attempts() && backoff < maxRetryBackoffNanos; i++) {
+      backoff *= 2;
+    }
+    backoff = Math.min(backoff, maxRetryBackoffNanos);
+    // Between half and all of the backoff, so payments queued together are not retried together.
+    long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    retries.increment();
+    waitingForRetry.add(task);
+    try {
+      retryScheduler.schedule(() -> {
+        if (waitingForRetry.remove(task)) {
+          tasks.add(new Task(task.work(), task.abandon(), nanoClock.getAsLong(),
+              task.attempts() + 1));
+        }
+      }, delay, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException ex) {
+      // close() shut the scheduler down after this worker saw the queue open.
+      if (waitingForRetry.remove(task)) {
+        abandon(task);
+      }
+    }
+  }
+}
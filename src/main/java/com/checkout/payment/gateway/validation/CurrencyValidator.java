@@ -1,32 +1,29 @@
 package com.checkout.payment.gateway.validation;
 
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
-import javax.money.Monetary;
-import javax.money.UnknownCurrencyException;
-import java.util.Arrays;
-import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
 
 
 public class CurrencyValidator implements ConstraintValidator<ValidCurrency, String> {
 
-  private static final List<String> ALLOWED_CURRENCY_CODES = Arrays.asList("USD", "EUR", "GBP");
+  private final CurrencyRegistry currencyRegistry;
 
-  @Override
-  public boolean isValid(String value, ConstraintValidatorContext context) {
-    if (value == null || value.isEmpty()) {
-      return false;
-    }
+  /**
+   * Checks against the default currencies when the validator is not created by Spring.
+   */
+  public CurrencyValidator() {
+    this(CurrencyRegistry.defaults());
+  }
 
-    if (ALLOWED_CURRENCY_CODES.contains(value)) {
-      try {
-        Monetary.getCurrency(value);
-        return true;
-      } catch (UnknownCurrencyException e) {
-        return false;
-      }
-    }
+  @Autowired
+  public CurrencyValidator(CurrencyRegistry currencyRegistry) {
+    this.currencyRegistry = currencyRegistry;
+  }
 
-    return false;
+  @Override
+  public boolean isValid(String value, ConstraintValidatorContext context) {
+    return currencyRegistry.lookup(value) != null;
   }
 }
@@ -0,0 +1,202 @@
+package com.checkout.payment.gateway.validation;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hand-written equivalent of the bean validation constraints on {@link PostPaymentRequest}.
+ * <p>
+ * Each field is checked in a single pass over its characters, without regexes, reflection or
+ * allocation for a valid request. Violations produce the same messages as the constraint
+ * annotations, in field declaration order. The currency must be in the {@link CurrencyRegistry},
+ * whose lookup also gives the amount limits checked with it. Optionally the card number must also
+ * pass the Luhn check.
+ */
+@Component
+public class PaymentRequestValidator {
+
+  private record CurrentMonth(int monthIndex, long nextMonthStartMillis) {
+
+  }
+
+  private final CurrencyRegistry currencyRegistry;
+  private final boolean luhnCheck;
+  private final Clock clock;
+  private volatile CurrentMonth currentMonth = new CurrentMonth(0, Long.MIN_VALUE);
+
+  @Autowired
+  public PaymentRequestValidator(CurrencyRegistry currencyRegistry,
+      @Value("${payment.validation.luhn:false}") boolean luhnCheck) {
+    this(currencyRegistry, luhnCheck, Clock.systemDefaultZone());
+  }
+
+  public PaymentRequestValidator(CurrencyRegistry currencyRegistry, boolean luhnCheck,
+      Clock clock) {
+    this.currencyRegistry = currencyRegistry;
+    this.luhnCheck = luhnCheck;
+    this.clock = clock;
+  }
+
+  /**
+   * @return the violation messages, each followed by a full stop like the messages of a rejected
+   * payment, or null when the request is valid
+   */
+  public String validate(PostPaymentRequest paymentRequest) {
+    if (paymentRequest == null) {
+      return "Payment must not be null.";
+    }
+    StringBuilder errors = null;
+
+    String cardNumber = paymentRequest.getCardNumber();
+    if (cardNumber == null) {
+      errors = append(errors, "Card number is required");
+    } else {
+      boolean digits = isDigits(cardNumber);
+      boolean length = cardNumber.length() >= 14 && cardNumber.length() <= 19;
+      if (!digits) {
+        errors = append(errors, "Card number must contain only numeric characters");
+      }
+      if (!length) {
+        errors = append(errors, "Card number must be between 14 and 19 characters");
+      }
+      if (luhnCheck && digits && length && !passesLuhn(cardNumber)) {
+        errors = append(errors, "Card number is invalid");
+      }
+    }
+
+    String expiryMonth = paymentRequest.getExpiryMonth();
+    if (expiryMonth == null) {
+      errors = append(errors, "Expiry month is required");
+    } else if (parseMonth(expiryMonth) < 0) {
+      errors = append(errors, "Expiry month must be a valid 2-digit month (01-12)");
+    }
+
+    String expiryYear = paymentRequest.getExpiryYear();
+    if (expiryYear == null) {
+      errors = append(errors, "Expiry year is required");
+    } else if (expiryYear.length() != 4 || !isDigits(expiryYear)) {
+      errors = append(errors, "Expiry year must be a 4-digit number");
+    }
+
+    String currency = paymentRequest.getCurrency();
+    CurrencyUnit currencyUnit = currencyRegistry.lookup(currency);
+    if (currency == null) {
+      errors = append(errors, "Currency is required");
+    } else if (currency.length() != 3) {
+      errors = append(errors, "Currency must be a 3-character ISO code");
+    }
+    if (currencyUnit == null) {
+      errors = append(errors, "Invalid ISO currency code");
+    }
+
+    int amount = paymentRequest.getAmount();
+    if (amount < 1) {
+      errors = append(errors, "Amount should be more than 0");
+    } else if (currencyUnit != null && !currencyUnit.isAllowed(amount)) {
+      errors = append(errors, "Amount must be between " + currencyUnit.minAmount() + " and "
+          + currencyUnit.maxAmount() + " for " + currencyUnit.code());
+    }
+
+    String cvv = paymentRequest.getCvv();
+    if (cvv == null) {
+      errors = append(errors, "CVV is required");
+    } else {
+      if (cvv.length() < 3 || cvv.length() > 4) {
+        errors = append(errors, "CVV must be between 3 and 4 digits");
+      }
+      if (!isDigits(cvv)) {
+        errors = append(errors, "CVV must only contain numeric characters");
+      }
+    }
+    return errors == null ? null : errors.toString();
+  }
+
+  /**
+   * Whether the card expires after the current month. Expects expiry fields that passed
+   * {@link #validate(PostPaymentRequest)}.
+   */
+  public boolean isExpiryInFuture(PostPaymentRequest paymentRequest) {
+    String expiryYear = paymentRequest.getExpiryYear();
+    int year = 0;
+    for (int i = 0; i < expiryYear.length(); i++) {
+      year = year * 10 + expiryYear.charAt(i) - '0';
+    }
+    return year * 12 + parseMonth(paymentRequest.getExpiryMonth()) - 1 > currentMonthIndex();
+  }
+
+  private int currentMonthIndex() {
+    CurrentMonth month = currentMonth;
+    if (clock.millis() >= month.nextMonthStartMillis()) {
+      // The month changed or was never computed; cached so that YearMonth.now() is rare.
+      YearMonth now = YearMonth.now(clock);
+      long nextMonthStart = ZonedDateTime.of(now.plusMonths(1).atDay(1).atStartOfDay(),
+          clock.getZone()).toInstant().toEpochMilli();
+      month = new CurrentMonth(now.getYear() * 12 + now.getMonthValue() - 1, nextMonthStart);
+      currentMonth = month;
+    }
+    return month.monthIndex();
+  }
+
+  /**
+   * @return the month of a two-digit {@code 01}-{@code 12} value, or -1 when it is not one
+   */
+  private static int parseMonth(String month) {
+    if (month.length() != 2) {
+      return -1;
+    }
+    char tens = month.charAt(0);
+    char units = month.charAt(1);
+    if (tens == '0' && units >= '1' && units <= '9') {
+      return units - '0';
+    }
+    if (tens == '1' && units >= '0' && units <= '2') {
+      return 10 + units - '0';
+    }
+    return -1;
+  }
+
+  /**
+   * Non-empty and ASCII digits only, like the {@code \d+} pattern.
+   */
+  private static boolean isDigits(String value) {
+    if (value.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean passesLuhn(String digits) {
+    int sum = 0;
+    boolean doubled = false;
+    for (int i = digits.length() - 1; i >= 0; i--) {
+      int digit = digits.charAt(i) - '0';
+      if (doubled) {
+        digit *= 2;
+        if (digit > 9) {
+          digit -= 9;
+        }
+      }
+      sum += digit;
+      doubled = !doubled;
+    }
+    return sum % 10 == 0;
+  }
+
+  private static StringBuilder append(StringBuilder errors, String message) {
+    StringBuilder builder = errors == null ? new StringBuilder() : errors;
+    return builder.append(message).append('.');
+  }
+}
@@ -0,0 +1,374 @@
+package com.checkout.payment.gateway.warmup;
+
+import com.checkout.payment.gateway.controller.PaymentGatewayController;
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.exception.CommonExceptionHandler;
+import com.checkout.payment.gateway.exception.InvalidExpiryDateException;
+import com.checkout.payment.gateway.exception.PaymentValidationException;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.logging.RateLimitingTurboFilter;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.metrics.TimedJsonMessageConverter;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.resilience.Bulkhead;
+import com.checkout.payment.gateway.resilience.CircuitBreaker;
+import com.checkout.payment.gateway.resilience.HedgingPolicy;
+import com.checkout.payment.gateway.resilience.RetryBudget;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import com.checkout.payment.gateway.service.AsyncPaymentService;
+import com.checkout.payment.gateway.service.BankService;
+import com.checkout.payment.gateway.service.IdempotencyCache;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentReadCache;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends synthetic payments through the submit and lookup path on startup, so the JIT has compiled
+ * it before real payments arrive.
+ * <p>
+ * The payments go through a controller, service, repository, caches and metrics of their own,
+ * built from the same classes as the live ones. Their bank calls go through a {@link BankService}
+ * with its own circuit breaker, bulkhead and retry budget, over the live HTTP client and callback
+ * executor, to a stub acquirer on a loopback port that answers at once. Compiled code belongs to
+ * classes rather than instances, so this warms the live path, bank client included, without
+ * storing anything in the live repository, calling an acquirer or counting towards the live
+ * metrics. Each payment is
+ * read from JSON and its response written with the converter the endpoints use; one in ten is
+ * invalid and one in ten has expired, so rejections go through {@link CommonExceptionHandler}.
+ * Their per-payment log lines are dropped by {@link RateLimitingTurboFilter}.
+ * <p>
+ * Spring Boot reports the application ready for traffic only once its runners return, so
+ * {@code /actuator/health/readiness} answers 503 until warm-up has sent {@code payments} or used
+ * up its time budget.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.warmup.enabled", havingValue = "true")
+public class PaymentWarmUp implements ApplicationRunner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentWarmUp.class);
+
+  private final ObjectMapper objectMapper;
+  private final PaymentRequestValidator paymentRequestValidator;
+  private final CurrencyRegistry currencyRegistry;
+  private final PaymentIdGenerator paymentIdGenerator;
+  private final CloseableHttpAsyncClient bankHttpClient;
+  private final ExecutorService bankCallbackExecutor;
+  private final long bankTotalTimeoutMs;
+  private final int bankMaxAttempts;
+  private final String idempotencyKeyHeader;
+  private final int payments;
+  private final Duration budget;
+
+  public PaymentWarmUp(ObjectMapper objectMapper, PaymentRequestValidator paymentRequestValidator,
+      CurrencyRegistry currencyRegistry, PaymentIdGenerator paymentIdGenerator,
+      CloseableHttpAsyncClient bankHttpClient,
+      @Qualifier("bankCallbackExecutor") ExecutorService bankCallbackExecutor,
+      @Value("${bank.client.total-timeout-ms:15000}") long bankTotalTimeoutMs,
+      @Value("${bank.retry.max-attempts:2}") int bankMaxAttempts,
+      @Value("${bank.client.idempotency-key-header:Idempotency-Key}") String idempotencyKeyHeader,
+      @Value("${payment.warmup.payments:20000}") int payments,
+      @Value("${payment.warmup.budget-ms:30000}") long budgetMs) {
+    this.objectMapper = objectMapper;
+    this.paymentRequestValidator = paymentRequestValidator;
+    this.currencyRegistry = currencyRegistry;
+    this.paymentIdGenerator = paymentIdGenerator;
+    this.bankHttpClient = bankHttpClient;
+    this.bankCallbackExecutor = bankCallbackExecutor;
+    this.bankTotalTimeoutMs = bankTotalTimeoutMs;
+    this.bankMaxAttempts = bankMaxAttempts;
+    this.idempotencyKeyHeader = idempotencyKeyHeader;
+    this.payments = payments;
+    this.budget = Duration.ofMillis(budgetMs);
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    long started = System.nanoTime();
+    int sent = warmUp();
+    LOG.info("Warm-up sent {} payments in {} ms", sent,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  /**
+   * Sends the payments through a fresh set of instances, which are garbage once it returns.
+   *
+   * @return the number of payments sent before all were sent or the budget ran out
+   */
+  int warmUp() throws IOException {
+    long deadline = System.nanoTime() + budget.toNanos();
+    try (StubAcquirer acquirer = new StubAcquirer()) {
+      return warmUp(deadline, acquirer.url());
+    }
+  }
+
+  private int warmUp(long deadline, String acquirerUrl) throws IOException {
+    PaymentMetrics paymentMetrics = new PaymentMetrics(new SimpleMeterRegistry(), currencyRegistry);
+    BankService bankService = new BankService(bankHttpClient, bankCallbackExecutor, objectMapper,
+        new CircuitBreaker(100, 20, 50, 80, Duration.ofSeconds(2), Duration.ofSeconds(10), 5,
+            System::nanoTime),
+        new Bulkhead(16), new RetryBudget(10, 0.1), (HedgingPolicy) null, paymentMetrics,
+        AcquirerRouter.single(acquirerUrl), bankTotalTimeoutMs, bankMaxAttempts,
+        idempotencyKeyHeader);
+    PaymentGatewayService paymentGatewayService = new PaymentGatewayService(
+        new PaymentsRepository(1, Math.max(1, payments)), bankService,
+        new IdempotencyCache(1024, Duration.ofMinutes(1), System::nanoTime),
+        paymentRequestValidator, currencyRegistry, paymentIdGenerator, paymentMetrics,
+        new PaymentStatistics(currencyRegistry),
+        new PaymentReadCache(1024, Duration.ofSeconds(1), 1024, System::nanoTime), objectMapper);
+    PaymentGatewayController controller = new PaymentGatewayController(paymentGatewayService,
+        null, null, objectMapper, paymentRequestValidator, paymentMetrics,
+        new DefaultListableBeanFactory().getBeanProvider(AsyncPaymentService.class));
+    CommonExceptionHandler exceptionHandler =
+        new CommonExceptionHandler(paymentMetrics, paymentIdGenerator);
+    TimedJsonMessageConverter converter = new TimedJsonMessageConverter(objectMapper,
+        paymentMetrics);
+    Request request = new Request();
+    Response response = new Response();
+    int sent = 0;
+    try (MDC.MDCCloseable ignored = MDC.putCloseable(RateLimitingTurboFilter.WARM_UP_KEY, "true")) {
+      while (sent < payments && System.nanoTime() - deadline < 0) {
+        request.json = paymentJson(sent);
+        response.reset();
+        PostPaymentRequest paymentRequest = (PostPaymentRequest) converter.read(
+            PostPaymentRequest.class, null, request);
+        ResponseEntity<?> entity;
+        try {
+          ResponseEntity<PostPaymentResponse> submitted = controller.postPaymentEvent(
+              paymentRequest, sent % 4 == 0 ? "warm-up-" + sent : null, null).join();
+          response.body.write(
+              controller.getPostPaymentEventById(submitted.getBody().getId()).getBody());
+          entity = submitted;
+        } catch (PaymentValidationException ex) {
+          entity = exceptionHandler.handlePaymentValidationException(ex);
+        } catch (InvalidExpiryDateException ex) {
+          entity = exceptionHandler.handleGlobalException(ex);
+        }
+        converter.write(entity.getBody(), entity.getBody().getClass(), MediaType.APPLICATION_JSON,
+            response);
+        sent++;
+      }
+    }
+    return sent;
+  }
+
+  /**
+   * A payment with a Luhn-valid card number; every tenth has a malformed CVV and every tenth, from
+   * the fifth on, has expired.
+   */
+  private static byte[] paymentJson(int index) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    StringBuilder cardNumber = new StringBuilder("4");
+    for (int i = 0; i < 14; i++) {
+      cardNumber.append(random.nextInt(10));
+    }
+    cardNumber.append(luhnCheckDigit(cardNumber));
+    String expiryYear = index % 10 == 5 ? "2020" : String.valueOf(random.nextInt(2030, 2035));
+    String cvv = index % 10 == 0 ? "12a" : String.valueOf(random.nextInt(100, 1000));
+    return ("{\"card_number\":\"" + cardNumber
+        + "\",\"expiry_month\":\"" + String.format("%02d", random.nextInt(1, 13))
+        + "\",\"expiry_year\":\"" + expiryYear
+        + "\",\"currency\":\"" + (index % 3 == 0 ? "USD" : index % 3 == 1 ? "EUR" : "GBP")
+        + "\",\"amount\":" + random.nextInt(1, 100_000)
+        + ",\"cvv\":\"" + cvv + "\"}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int luhnCheckDigit(CharSequence digits) {
+    int sum = 0;
+    for (int i = digits.length() - 1, position = 0; i >= 0; i--, position++) {
+      int digit = digits.charAt(i) - '0';
+      if (position % 2 == 0) {
+        digit *= 2;
+        if (digit > 9) {
+          digit -= 9;
+        }
+      }
+      sum += digit;
+    }
+    return (10 - sum % 10) % 10;
+  }
+
+  private static final class Request implements HttpInputMessage {
+
+    private final HttpHeaders headers = new HttpHeaders();
+    private byte[] json;
+
+    private Request() {
+      headers.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(json);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+
+  private static final class Response implements HttpOutputMessage {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private HttpHeaders headers = new HttpHeaders();
+
+    private void reset() {
+      body.reset();
+      headers = new HttpHeaders();
+    }
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+
+  /**
+   * An acquirer on a loopback port that authorizes three payments in four and declines the rest.
+   * Each answer is written in one go: when headers and body are written apart, as the JDK's
+   * {@code HttpServer} does, the body waits for the client's delayed ACK and every call takes tens
+   * of milliseconds.
+   */
+  private static final class StubAcquirer implements AutoCloseable {
+
+    private static final byte[] AUTHORIZED =
+        answer("{\"authorized\":true,\"authorization_code\":\"warm-up\"}");
+    private static final byte[] DECLINED =
+        answer("{\"authorized\":false,\"authorization_code\":\"\"}");
+
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong calls = new AtomicLong();
+
+    private StubAcquirer() throws IOException {
+      serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      Thread.ofVirtual().name("warm-up-acquirer").start(this::accept);
+    }
+
+    private String url() {
+      return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+          + serverSocket.getLocalPort() + "/payments";
+    }
+
+    private void accept() {
+      while (true) {
+        Socket socket;
+        try {
+          socket = serverSocket.accept();
+        } catch (IOException ex) {
+          return;
+        }
+        connections.add(socket);
+        Thread.ofVirtual().start(() -> serve(socket));
+      }
+    }
+
+    private void serve(Socket socket) {
+      try (socket) {
+        socket.setTcpNoDelay(true);
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+        int contentLength;
+        while ((contentLength = readHeaders(in)) >= 0) {
+          in.skipNBytes(contentLength);
+          out.write(calls.incrementAndGet() % 4 != 0 ? AUTHORIZED : DECLINED);
+        }
+      } catch (IOException ex) {
+        // The client or close() dropped the connection.
+      } finally {
+        connections.remove(socket);
+      }
+    }
+
+    /**
+     * @return the request's {@code Content-Length}, 0 without one, or -1 once the client has
+     *     closed the connection
+     */
+    private static int readHeaders(InputStream in) throws IOException {
+      StringBuilder line = new StringBuilder();
+      boolean requestLine = true;
+      int contentLength = 0;
+      int next;
+      while ((next = in.read()) != -1) {
+        if (next == '\r') {
+          continue;
+        }
+        if (next != '\n') {
+          line.append((char) next);
+          continue;
+        }
+        if (line.isEmpty()) {
+          if (!requestLine) {
+            return contentLength;
+          }
+          continue;
+        }
+        int colon = line.indexOf(":");
+        if (!requestLine && colon > 0
+            && line.substring(0, colon).trim().equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+          contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+        }
+        requestLine = false;
+        line.setLength(0);
+      }
+      return -1;
+    }
+
+    private static byte[] answer(String json) {
+      byte[] body = json.getBytes(StandardCharsets.UTF_8);
+      return ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+          + body.length + "\r\n\r\n" + json).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      serverSocket.close();
+      for (Socket connection : connections) {
+        connection.close();
+      }
+    }
+  }
+}
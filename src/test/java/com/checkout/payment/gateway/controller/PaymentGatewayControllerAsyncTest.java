@@ -0,0 +1,163 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.PaymentProcessingException;
+import com.checkout.payment.gateway.model.BankPaymentResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.service.BankService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(properties = {"payment.async.enabled=true", "payment.async.retry-backoff-ms=10"})
+@AutoConfigureMockMvc
+class PaymentGatewayControllerAsyncTest {
+
+  @MockBean
+  private BankService bankService;
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Test
+  void whenAsyncIsPreferredThenPaymentIsAcceptedAsPendingAndCompletedLater() throws Exception {
+    CompletableFuture<BankPaymentResponse> bankAnswer = new CompletableFuture<>();
+    when(bankService.processPaymentWithBank(any(), any())).thenReturn(bankAnswer);
+
+    String location = submit(paymentRequest(), true)
+        .andExpect(status().isAccepted())
+        .andExpect(header().string("Preference-Applied", "respond-async"))
+        .andExpect(jsonPath("$.status").value("Pending"))
+        .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+    mvc.perform(MockMvcRequestBuilders.get(location))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("Pending"));
+
+    BankPaymentResponse bankPaymentResponse = new BankPaymentResponse();
+    bankPaymentResponse.setAuthorized(true);
+    bankAnswer.complete(bankPaymentResponse);
+
+    assertEquals("Authorized", awaitFinalStatus(location));
+  }
+
+  @Test
+  void whenBankFailsForPendingPaymentThenItIsStoredAsRejected() throws Exception {
+    when(bankService.processPaymentWithBank(any(), any())).thenReturn(
+        CompletableFuture.failedFuture(new PaymentProcessingException("Bank error")));
+
+    String location = submit(paymentRequest(), true)
+        .andExpect(status().isAccepted())
+        .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+    assertEquals("Rejected", awaitFinalStatus(location));
+  }
+
+  @Test
+  void whenBankIsUnavailableForPendingPaymentThenItIsSentAgainLater() throws Exception {
+    BankPaymentResponse bankPaymentResponse = new BankPaymentResponse();
+    bankPaymentResponse.setAuthorized(true);
+    when(bankService.processPaymentWithBank(any(), any())).thenReturn(
+        CompletableFuture.failedFuture(new BankUnavailableException("Bank is down")),
+        CompletableFuture.completedFuture(bankPaymentResponse));
+
+    String location = submit(paymentRequest(), true)
+        .andExpect(status().isAccepted())
+        .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+    assertEquals("Authorized", awaitFinalStatus(location));
+  }
+
+  @Test
+  void whenIdempotentSubmissionIsReplayedAfterTheBankAnswersThenReplayHasTheFinalStatus()
+      throws Exception {
+    BankPaymentResponse bankPaymentResponse = new BankPaymentResponse();
+    bankPaymentResponse.setAuthorized(true);
+    when(bankService.processPaymentWithBank(any(), any())).thenReturn(
+        CompletableFuture.completedFuture(bankPaymentResponse));
+
+    String location = submit(paymentRequest(), true, "replayed-after-answer")
+        .andExpect(jsonPath("$.status").value("Pending"))
+        .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+    assertEquals("Authorized", awaitFinalStatus(location));
+
+    submit(paymentRequest(), true, "replayed-after-answer")
+        .andExpect(header().string(HttpHeaders.LOCATION, location))
+        .andExpect(jsonPath("$.status").value("Authorized"));
+  }
+
+  @Test
+  void whenAsyncIsNotPreferredThenBankAnswerIsAwaited() throws Exception {
+    BankPaymentResponse bankPaymentResponse = new BankPaymentResponse();
+    bankPaymentResponse.setAuthorized(false);
+    when(bankService.processPaymentWithBank(any(), any())).thenReturn(
+        CompletableFuture.completedFuture(bankPaymentResponse));
+
+    submit(paymentRequest(), false)
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(jsonPath("$.status").value("Declined"));
+  }
+
+  private String awaitFinalStatus(String location) throws Exception {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (true) {
+      String body = mvc.perform(MockMvcRequestBuilders.get(location))
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString();
+      String paymentStatus = objectMapper.readTree(body).path("status").asText();
+      if (!paymentStatus.equals("Pending") || System.nanoTime() > deadline) {
+        return paymentStatus;
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private ResultActions submit(PostPaymentRequest paymentRequest, boolean respondAsync)
+      throws Exception {
+    return submit(paymentRequest, respondAsync, null);
+  }
+
+  private ResultActions submit(PostPaymentRequest paymentRequest, boolean respondAsync,
+      String idempotencyKey) throws Exception {
+    MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/payment/submit")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("Prefer", respondAsync ? "respond-async" : "return=representation")
+        .content(objectMapper.writeValueAsString(paymentRequest));
+    if (idempotencyKey != null) {
+      request.header("Idempotency-Key", idempotencyKey);
+    }
+    ResultActions actions = mvc.perform(request);
+    MvcResult result = actions.andReturn();
+    return result.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(result)) : actions;
+  }
+
+  private static PostPaymentRequest paymentRequest() {
+    PostPaymentRequest paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("4111111111111234");
+    paymentRequest.setExpiryMonth("12");
+    paymentRequest.setExpiryYear("2030");
+    paymentRequest.setCurrency("USD");
+    paymentRequest.setAmount(1000);
+    paymentRequest.setCvv("123");
+    return paymentRequest;
+  }
+}
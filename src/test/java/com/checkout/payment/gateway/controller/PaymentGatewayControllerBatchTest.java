@@ -0,0 +1,208 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.PaymentProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaymentGatewayControllerBatchTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  private static final int MAX_ITEMS = 1000;
+
+  private static final String AUTHORIZED_CARD = "4111111111111234";
+  private static final String DECLINED_CARD = "5417611333117865";
+  private static final String FAILING_CARD = "2222405343248877";
+
+  @MockBean
+  private PaymentGatewayService paymentGatewayService;
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Test
+  void whenBatchIsSubmittedThenEachPaymentGetsItsOwnStatusInInputOrder() throws Exception {
+    CompletableFuture<PostPaymentResponse> slowAuthorization = new CompletableFuture<>();
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any()))
+        .thenAnswer(invocation -> switch (invocation.<PostPaymentRequest>getArgument(0).getCardNumber()) {
+          case AUTHORIZED_CARD -> slowAuthorization;
+          case DECLINED_CARD -> CompletableFuture.completedFuture(response(PaymentStatus.DECLINED));
+          default -> CompletableFuture.failedFuture(new PaymentProcessingException("Bank unavailable"));
+        });
+    List<PostPaymentRequest> batch = List.of(
+        request(AUTHORIZED_CARD, "12"),
+        request(DECLINED_CARD, "13"),
+        request(DECLINED_CARD, "02"),
+        request(FAILING_CARD, "04"));
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment/submit/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(batch)))
+        .andReturn();
+    assertEquals("", result.getResponse().getContentAsString());
+    slowAuthorization.complete(response(PaymentStatus.AUTHORIZED));
+
+    List<JsonNode> lines = lines(result);
+    assertEquals(4, lines.size());
+    assertLine(lines.get(0), 0, 202, "Authorized");
+    assertLine(lines.get(1), 1, 400, "Rejected");
+    assertEquals("Expiry month must be a valid 2-digit month (01-12).",
+        lines.get(1).get("message").asText());
+    assertLine(lines.get(2), 2, 422, "Declined");
+    assertLine(lines.get(3), 3, 502, "Rejected");
+    assertEquals("Bank unavailable", lines.get(3).get("message").asText());
+  }
+
+  @Test
+  void whenBatchIsSentAsNdjsonThenEachLineIsAPayment() throws Exception {
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any()))
+        .thenReturn(CompletableFuture.completedFuture(response(PaymentStatus.AUTHORIZED)));
+    String body = objectMapper.writeValueAsString(request(AUTHORIZED_CARD, "12")) + "\n"
+        + objectMapper.writeValueAsString(request(AUTHORIZED_CARD, "11")) + "\n";
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment/submit/batch")
+            .contentType(PaymentGatewayController.NDJSON)
+            .content(body))
+        .andReturn();
+
+    List<JsonNode> lines = lines(result);
+    assertEquals(2, lines.size());
+    assertLine(lines.get(0), 0, 202, "Authorized");
+    assertLine(lines.get(1), 1, 202, "Authorized");
+  }
+
+  @Test
+  void whenAnItemDoesNotBindThenOnlyThatItemIsRejected() throws Exception {
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any()))
+        .thenReturn(CompletableFuture.completedFuture(response(PaymentStatus.AUTHORIZED)));
+    String payment = objectMapper.writeValueAsString(request(AUTHORIZED_CARD, "12"));
+    String body = "[" + payment + "," + payment.replace("\"amount\":100", "\"amount\":\"abc\"")
+        + ",42," + payment + "]";
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment/submit/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andReturn();
+
+    List<JsonNode> lines = lines(result);
+    assertEquals(4, lines.size());
+    assertLine(lines.get(0), 0, 202, "Authorized");
+    assertLine(lines.get(1), 1, 400, "Rejected");
+    assertTrue(lines.get(1).get("message").asText().startsWith("Unreadable payment: "));
+    assertLine(lines.get(2), 2, 400, "Rejected");
+    assertLine(lines.get(3), 3, 202, "Authorized");
+    verify(paymentGatewayService, times(2)).processPayment(any(), any());
+  }
+
+  @Test
+  void whenBatchIsEmptyThenItIsRejected() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.post("/payment/submit/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.status").value("Rejected"))
+        .andExpect(jsonPath("$.message").value("Batch must contain at least one payment"));
+    verify(paymentGatewayService, never()).processPayment(any(), any());
+  }
+
+  @Test
+  void whenNdjsonBatchIsTooLargeThenItIsRejectedWithoutReadingTheRest() throws Exception {
+    String line = objectMapper.writeValueAsString(request(AUTHORIZED_CARD, "12")) + "\n";
+    // Malformed past the limit, so reading on would fail with a different message.
+    String body = line.repeat(MAX_ITEMS + 1) + "{not json";
+
+    mvc.perform(MockMvcRequestBuilders.post("/payment/submit/batch")
+            .contentType(PaymentGatewayController.NDJSON)
+            .content(body))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message")
+            .value("Batch must not contain more than " + MAX_ITEMS + " payments"));
+    verify(paymentGatewayService, never()).processPayment(any(), any());
+  }
+
+  @Test
+  void whenJsonBatchIsTooLargeThenItIsRejectedWithoutReadingTheRest() throws Exception {
+    String payment = objectMapper.writeValueAsString(request(AUTHORIZED_CARD, "12"));
+    String body = "[" + (payment + ",").repeat(MAX_ITEMS + 1) + "{not json";
+
+    mvc.perform(MockMvcRequestBuilders.post("/payment/submit/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message")
+            .value("Batch must not contain more than " + MAX_ITEMS + " payments"));
+    verify(paymentGatewayService, never()).processPayment(any(), any());
+  }
+
+  private List<JsonNode> lines(MvcResult result) throws Exception {
+    String content = mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    return content.lines().map(line -> {
+      try {
+        return objectMapper.readTree(line);
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+    }).toList();
+  }
+
+  private static void assertLine(JsonNode line, int index, int httpStatus, String status) {
+    assertEquals(index, line.get("index").asInt());
+    assertEquals(httpStatus, line.get("httpStatus").asInt());
+    assertEquals(status, line.get("status").asText());
+  }
+
+  private static PostPaymentRequest request(String cardNumber, String expiryMonth) {
+    PostPaymentRequest paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber(cardNumber);
+    paymentRequest.setExpiryMonth(expiryMonth);
+    paymentRequest.setExpiryYear("2030");
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(100);
+    paymentRequest.setCvv("123");
+    return paymentRequest;
+  }
+
+  private static PostPaymentResponse response(PaymentStatus paymentStatus) {
+    PostPaymentResponse paymentResponse = new PostPaymentResponse();
+    paymentResponse.setId(UUID.randomUUID());
+    paymentResponse.setStatus(paymentStatus);
+    paymentResponse.setCardNumberLastFour("1234");
+    paymentResponse.setExpiryDate("12/2030");
+    paymentResponse.setCurrency(CURRENCIES.lookup("GBP"));
+    paymentResponse.setAmount(100);
+    return paymentResponse;
+  }
+}
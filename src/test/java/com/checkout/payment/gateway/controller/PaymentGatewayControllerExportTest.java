@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(properties = "payment.export.page-size=16")
+@AutoConfigureMockMvc
+class PaymentGatewayControllerExportTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  PaymentsRepository paymentsRepository;
+
+  @Test
+  void whenExportingThenEveryMatchingPaymentIsWrittenAsOneLine() throws Exception {
+    String[] range = addPayments(100);
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/payments/export")
+            .param("status", "Declined").param("from", range[0]).param("to", range[1]))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_TYPE, PaymentGatewayController.NDJSON))
+        .andReturn();
+
+    List<JsonNode> lines = lines(
+        new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+    assertEquals(25, lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      assertEquals("Declined", lines.get(i).get("status").asText());
+      assertEquals(i * 4, lines.get(i).get("amount").asInt());
+    }
+  }
+
+  @Test
+  void whenClientAcceptsGzipThenExportIsCompressed() throws Exception {
+    String[] range = addPayments(100);
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/payments/export")
+            .param("from", range[0]).param("to", range[1])
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andReturn();
+
+    List<JsonNode> lines = lines(new GZIPInputStream(
+        new ByteArrayInputStream(result.getResponse().getContentAsByteArray())));
+    assertEquals(100, lines.size());
+    assertEquals(99, lines.get(99).get("amount").asInt());
+  }
+
+  @Test
+  void whenClientRefusesGzipThenExportIsNotCompressed() throws Exception {
+    String[] range = addPayments(10);
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/payments/export")
+            .param("from", range[0]).param("to", range[1])
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+        .andReturn();
+
+    List<JsonNode> lines = lines(
+        new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+    assertEquals(10, lines.size());
+  }
+
+  @Test
+  void whenFilterIsMalformedThenExportIsRejectedBeforeStreaming() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.get("/payments/export").param("to", "tomorrow")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+        .andExpect(status().isBadRequest())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+        .andExpect(jsonPath("$.message").value("to must be an ISO-8601 instant"));
+  }
+
+  /**
+   * Adds payments created within an hour of their own, so other tests' payments do not match.
+   * Every fourth one is declined.
+   *
+   * @return the hour as from and to parameters
+   */
+  private String[] addPayments(int count) {
+    long start = Instant.parse("2002-01-01T00:00:00Z").toEpochMilli()
+        + ThreadLocalRandom.current().nextLong(1000) * 3_600_000L;
+    TimeOrderedPaymentIdGenerator ids = new TimeOrderedPaymentIdGenerator(() -> start);
+    for (int i = 0; i < count; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(ids.next());
+      payment.setAmount(i);
+      payment.setCurrency(CURRENCIES.lookup("EUR"));
+      payment.setStatus(i % 4 == 0 ? PaymentStatus.DECLINED : PaymentStatus.AUTHORIZED);
+      payment.setExpiryDate("12/2030");
+      payment.setCardNumberLastFour("1234");
+      paymentsRepository.add(payment);
+    }
+    return new String[] {Instant.ofEpochMilli(start).toString(),
+        Instant.ofEpochMilli(start + 3_600_000L).toString()};
+  }
+
+  private List<JsonNode> lines(InputStream body) throws IOException {
+    List<JsonNode> lines = new ArrayList<>();
+    for (String line : new String(body.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+      lines.add(objectMapper.readTree(line));
+    }
+    return lines;
+  }
+}
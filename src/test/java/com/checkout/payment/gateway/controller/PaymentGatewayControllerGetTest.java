@@ -1,9 +1,13 @@
 package com.checkout.payment.gateway.controller;
 
 
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
@@ -12,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
 
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -20,6 +25,8 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 @AutoConfigureMockMvc
 class PaymentGatewayControllerGetTest {
 
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
   @Autowired
   private MockMvc mvc;
   @Autowired
@@ -30,7 +37,7 @@ class PaymentGatewayControllerGetTest {
     PostPaymentResponse payment = new PostPaymentResponse();
     payment.setId(UUID.randomUUID());
     payment.setAmount(10);
-    payment.setCurrency("USD");
+    payment.setCurrency(CURRENCIES.lookup("USD"));
     payment.setStatus(PaymentStatus.AUTHORIZED);
     payment.setExpiryDate("12/2024");
     payment.setCardNumberLastFour("4321");
@@ -42,10 +49,38 @@ class PaymentGatewayControllerGetTest {
         .andExpect(jsonPath("$.status").value(payment.getStatus().getName()))
         .andExpect(jsonPath("$.cardNumberLastFour").value(payment.getCardNumberLastFour()))
         .andExpect(jsonPath("$.expiryDate").value(payment.getExpiryDate()))
-        .andExpect(jsonPath("$.currency").value(payment.getCurrency()))
+        .andExpect(jsonPath("$.currency").value(payment.getCurrency().code()))
         .andExpect(jsonPath("$.amount").value(payment.getAmount()));
   }
 
+  @Test
+  void whenIfNoneMatchCarriesTheETagThen304IsReturnedWithoutBody() throws Exception {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setAmount(10);
+    payment.setCurrency(CURRENCIES.lookup("USD"));
+    payment.setStatus(PaymentStatus.DECLINED);
+    payment.setExpiryDate("12/2024");
+    payment.setCardNumberLastFour("4321");
+    paymentsRepository.add(payment);
+
+    String etag = mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+
+    mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().bytes(new byte[0]));
+    mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(jsonPath("$.id").value(payment.getId().toString()));
+  }
+
   @Test
   void whenPaymentWithIdDoesNotExistThen404IsReturned() throws Exception {
     UUID uuid = UUID.randomUUID();
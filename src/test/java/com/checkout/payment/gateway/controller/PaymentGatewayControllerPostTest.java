@@ -1,16 +1,23 @@
 package com.checkout.payment.gateway.controller;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.exception.PaymentProcessingException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -26,6 +33,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -34,12 +43,16 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 @ExtendWith(MockitoExtension.class)
 class PaymentGatewayControllerPostTest {
 
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
   @MockBean
   private PaymentGatewayService paymentGatewayService;
   @Autowired
   private MockMvc mvc;
   @Autowired
   private ObjectMapper objectMapper;
+  @Autowired
+  private PaymentMetrics paymentMetrics;
 
   @ParameterizedTest
   @MethodSource("validPaymentRequestAndAuthorizedResponse")
@@ -47,18 +60,16 @@ class PaymentGatewayControllerPostTest {
       PostPaymentResponse paymentResponse)
       throws Exception {
 
-    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class))).thenReturn(
-        paymentResponse);
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any())).thenReturn(
+        CompletableFuture.completedFuture(paymentResponse));
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(objectMapper.writeValueAsString(paymentRequest)))
+    submit(paymentRequest)
         .andExpect(status().isAccepted())
         .andExpect(jsonPath("$.id").isNotEmpty())
         .andExpect(jsonPath("$.status").value(paymentResponse.getStatus().getName()))
         .andExpect(jsonPath("$.cardNumberLastFour").value(paymentResponse.getCardNumberLastFour()))
         .andExpect(jsonPath("$.expiryDate").value(paymentResponse.getExpiryDate()))
-        .andExpect(jsonPath("$.currency").value(paymentResponse.getCurrency()))
+        .andExpect(jsonPath("$.currency").value(paymentResponse.getCurrency().code()))
         .andExpect(jsonPath("$.amount").value(paymentResponse.getAmount()));
   }
 
@@ -68,12 +79,10 @@ class PaymentGatewayControllerPostTest {
       PostPaymentResponse paymentResponse)
       throws Exception {
 
-    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class))).thenReturn(
-        paymentResponse);
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any())).thenReturn(
+        CompletableFuture.completedFuture(paymentResponse));
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(objectMapper.writeValueAsString(paymentRequest)))
+    submit(paymentRequest)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.status").value(paymentResponse.getStatus().getName()))
         .andExpect(jsonPath("$.traceId").isNotEmpty())
@@ -87,18 +96,16 @@ class PaymentGatewayControllerPostTest {
       PostPaymentResponse paymentResponse)
       throws Exception {
 
-    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class))).thenReturn(
-        paymentResponse);
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any())).thenReturn(
+        CompletableFuture.completedFuture(paymentResponse));
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(objectMapper.writeValueAsString(paymentRequest)))
+    submit(paymentRequest)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").isNotEmpty())
         .andExpect(jsonPath("$.status").value(paymentResponse.getStatus().getName()))
         .andExpect(jsonPath("$.cardNumberLastFour").value(paymentResponse.getCardNumberLastFour()))
         .andExpect(jsonPath("$.expiryDate").value(paymentResponse.getExpiryDate()))
-        .andExpect(jsonPath("$.currency").value(paymentResponse.getCurrency()))
+        .andExpect(jsonPath("$.currency").value(paymentResponse.getCurrency().code()))
         .andExpect(jsonPath("$.amount").value(paymentResponse.getAmount()));
   }
 
@@ -107,12 +114,10 @@ class PaymentGatewayControllerPostTest {
   void shouldReturnBadGatewayInTheMessageWhenResponseFromBankFailed(PostPaymentRequest paymentRequest)
       throws Exception {
 
-    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class))).thenThrow(
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any())).thenThrow(
         PaymentProcessingException.class);
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(objectMapper.writeValueAsString(paymentRequest)))
+    submit(paymentRequest)
         .andExpect(status().isBadGateway())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
         .andExpect(jsonPath("$.traceId").isNotEmpty());
@@ -123,9 +128,7 @@ class PaymentGatewayControllerPostTest {
     PostPaymentRequest paymentRequest = generatePaymentRequest("112234564367325", "01",
         "2028", "NOT", 1234, "055");
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(objectMapper.writeValueAsString(paymentRequest)))
+    submit(paymentRequest)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.traceId").isNotEmpty())
         .andExpect(jsonPath("$.status").value("Rejected"))
@@ -137,15 +140,77 @@ class PaymentGatewayControllerPostTest {
     PostPaymentRequest paymentRequest = generatePaymentRequest("112234564367325", "01",
         "2028", "GBP", 1234567890, "05576");
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(objectMapper.writeValueAsString(paymentRequest)))
+    submit(paymentRequest)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.traceId").isNotEmpty())
         .andExpect(jsonPath("$.status").value("Rejected"))
         .andExpect(jsonPath("$.message").value("CVV must be between 3 and 4 digits."));
   }
 
+  @ParameterizedTest
+  @MethodSource("validPaymentRequestAndAuthorizedResponse")
+  void shouldReturnBadGatewayWhenBankCallFailsAsynchronously(PostPaymentRequest paymentRequest)
+      throws Exception {
+
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any())).thenReturn(
+        CompletableFuture.failedFuture(new PaymentProcessingException("Bank unavailable")));
+
+    submit(paymentRequest)
+        .andExpect(status().isBadGateway())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
+        .andExpect(jsonPath("$.message").value("Bank unavailable"));
+  }
+
+  @ParameterizedTest
+  @MethodSource("validPaymentRequestAndAuthorizedResponse")
+  void whenIdempotencyKeyIsSentThenItIsPassedToTheService(PostPaymentRequest paymentRequest,
+      PostPaymentResponse paymentResponse) throws Exception {
+
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), eq("order-42")))
+        .thenReturn(CompletableFuture.completedFuture(paymentResponse));
+
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
+            .header("Idempotency-Key", "order-42")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(paymentRequest)))
+        .andReturn();
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.id").value(paymentResponse.getId().toString()));
+  }
+
+  @ParameterizedTest
+  @MethodSource("validPaymentRequestAndAuthorizedResponse")
+  void whenPaymentIsSubmittedThenRequestStagesAreTimed(PostPaymentRequest paymentRequest,
+      PostPaymentResponse paymentResponse) throws Exception {
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any())).thenReturn(
+        CompletableFuture.completedFuture(paymentResponse));
+    long validations = stageCount(Stage.VALIDATION);
+    long reads = stageCount(Stage.JSON_READ);
+    long writes = stageCount(Stage.JSON_WRITE);
+
+    submit(paymentRequest).andExpect(status().isAccepted());
+
+    assertEquals(validations + 1, stageCount(Stage.VALIDATION));
+    assertEquals(reads + 1, stageCount(Stage.JSON_READ));
+    assertEquals(writes + 1, stageCount(Stage.JSON_WRITE));
+  }
+
+  private long stageCount(Stage stage) {
+    return paymentMetrics.getStageHistogram(stage).getCount();
+  }
+
+  /**
+   * Posts the request and, when the controller answered asynchronously, dispatches the result.
+   */
+  private ResultActions submit(PostPaymentRequest paymentRequest) throws Exception {
+    ResultActions actions = mvc.perform(MockMvcRequestBuilders.post("/payment/submit")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(paymentRequest)));
+    MvcResult result = actions.andReturn();
+    return result.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(result)) : actions;
+  }
+
   private static Stream<Arguments> validPaymentRequestAndAuthorizedResponse() {
     return Stream.of(
         Arguments.of(
@@ -196,7 +261,7 @@ class PaymentGatewayControllerPostTest {
     paymentResponse.setId(uuid);
     paymentResponse.setCardNumberLastFour(cardNrLastFour);
     paymentResponse.setExpiryDate(expiryDate);
-    paymentResponse.setCurrency(currency);
+    paymentResponse.setCurrency(CURRENCIES.lookup(currency));
     paymentResponse.setAmount(amount);
     paymentResponse.setStatus(paymentStatus);
     return paymentResponse;
@@ -0,0 +1,93 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaymentGatewayControllerSearchTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  PaymentsRepository paymentsRepository;
+
+  @Test
+  void whenSearchingThenMatchingPaymentsArePagedWithCursor() throws Exception {
+    // Payments created at an hour of their own, so other tests' payments do not match.
+    long start = Instant.parse("2001-01-01T00:00:00Z").toEpochMilli()
+        + ThreadLocalRandom.current().nextLong(1000) * 3_600_000L;
+    TimeOrderedPaymentIdGenerator ids = new TimeOrderedPaymentIdGenerator(() -> start);
+    for (int i = 0; i < 5; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(ids.next());
+      payment.setAmount(100 + i);
+      payment.setCurrency(CURRENCIES.lookup("GBP"));
+      payment.setStatus(i == 2 ? PaymentStatus.DECLINED : PaymentStatus.AUTHORIZED);
+      payment.setExpiryDate("12/2030");
+      payment.setCardNumberLastFour("8877");
+      paymentsRepository.add(payment);
+    }
+    String from = Instant.ofEpochMilli(start).toString();
+    String to = Instant.ofEpochMilli(start + 3_600_000L).toString();
+
+    String body = mvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("status", "Authorized").param("currency", "GBP")
+            .param("from", from).param("to", to).param("limit", "3"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.payments", hasSize(3)))
+        .andExpect(jsonPath("$.payments[0].amount").value(100))
+        .andExpect(jsonPath("$.payments[2].amount").value(103))
+        .andReturn().getResponse().getContentAsString();
+    String cursor = objectMapper.readTree(body).get("nextCursor").asText();
+
+    mvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("status", "Authorized").param("currency", "GBP")
+            .param("from", from).param("to", to).param("limit", "3").param("cursor", cursor))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.payments", hasSize(1)))
+        .andExpect(jsonPath("$.payments[0].amount").value(104))
+        .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+    mvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("status", "Declined").param("from", from).param("to", to)
+            .param("cursor", cursor))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Cursor does not match the search filters"));
+  }
+
+  @Test
+  void whenFilterIsMalformedThen400IsReturned() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("status", "Settled"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Unknown payment status: Settled"));
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("from", "yesterday"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("from must be an ISO-8601 instant"));
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("limit", "0"))
+        .andExpect(status().isBadRequest());
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("cursor", "not a cursor"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Malformed cursor"));
+  }
+}
@@ -0,0 +1,38 @@
+package com.checkout.payment.gateway.controller;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(properties = "payment.currencies=JPY:0")
+@AutoConfigureMockMvc
+class PaymentStatisticsControllerTest {
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private PaymentStatistics paymentStatistics;
+
+  @Test
+  void whenStatisticsAreRequestedThenEveryWindowIsReturnedPerCurrency() throws Exception {
+    CurrencyRegistry currencies = new CurrencyRegistry("JPY:0");
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, currencies.lookup("JPY"), 3000);
+    paymentStatistics.record(PaymentStatus.DECLINED, currencies.lookup("JPY"), 1000);
+
+    mvc.perform(MockMvcRequestBuilders.get("/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.windows['1m'].JPY.authorized").value(1))
+        .andExpect(jsonPath("$.windows['5m'].JPY.declinedAmount").value(1000))
+        .andExpect(jsonPath("$.windows['1h'].JPY.authorizedAmount").value(3000))
+        .andExpect(jsonPath("$.windows['1h'].JPY.approvalRate").value(0.5));
+  }
+}
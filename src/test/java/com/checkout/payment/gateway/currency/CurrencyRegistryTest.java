@@ -0,0 +1,49 @@
+package com.checkout.payment.gateway.currency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CurrencyRegistryTest {
+
+  @Test
+  void whenCurrenciesAreConfiguredThenTheyAreLookedUpByCodeAndIndex() {
+    CurrencyRegistry registry = new CurrencyRegistry("GBP:2:100-5000, JPY:0");
+
+    CurrencyUnit gbp = registry.lookup("GBP");
+    assertEquals(new CurrencyUnit(0, "GBP", 2, 100, 5000), gbp);
+    assertEquals(new CurrencyUnit(1, "JPY", 0, 1, Integer.MAX_VALUE), registry.lookup("JPY"));
+    assertSame(gbp, registry.get(0));
+    assertEquals(2, registry.size());
+    assertTrue(gbp.isAllowed(5000));
+    assertFalse(gbp.isAllowed(99));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"USD", "gbp", "GB", "GBPX", "G1P", ""})
+  void whenCodeIsNotConfiguredThenLookupGivesNull(String code) {
+    assertNull(new CurrencyRegistry("GBP:2").lookup(code));
+  }
+
+  @Test
+  void whenCodeIsNotConfiguredThenResolveGivesUnlistedCurrency() {
+    CurrencyUnit unit = CurrencyRegistry.defaults().resolve("JPY");
+
+    assertEquals(-1, unit.index());
+    assertEquals("JPY", unit.toString());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "GBP", "GBP:x", "gbp:2", "GBP:2:100", "GBP:2:0-10",
+      "GBP:2:10-5", "GBP:-1", "GBP:2,GBP:0"})
+  void whenConfigurationIsInvalidThenRegistryIsNotBuilt(String currencies) {
+    assertThrows(IllegalArgumentException.class, () -> new CurrencyRegistry(currencies));
+  }
+}
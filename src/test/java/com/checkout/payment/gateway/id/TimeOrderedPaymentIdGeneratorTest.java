@@ -0,0 +1,103 @@
+package com.checkout.payment.gateway.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedPaymentIdGeneratorTest {
+
+  private static final long NOW = 1_792_310_400_000L;
+
+  @Test
+  void whenIdIsGeneratedThenItIsVersion7WithTheCurrentTime() {
+    UUID id = new TimeOrderedPaymentIdGenerator(() -> NOW).next();
+
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    assertEquals(NOW, TimeOrderedPaymentIdGenerator.timestamp(id));
+  }
+
+  @Test
+  void whenIdsAreGeneratedOnOneThreadThenTheySortInCreationOrder() {
+    AtomicLong clock = new AtomicLong(NOW);
+    TimeOrderedPaymentIdGenerator generator = new TimeOrderedPaymentIdGenerator(clock::get);
+
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      if (i % 1000 == 0) {
+        clock.incrementAndGet();
+      }
+      ids.add(generator.next());
+    }
+
+    for (int i = 1; i < ids.size(); i++) {
+      assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+    }
+  }
+
+  @Test
+  void whenCounterRunsOutThenTimestampMovesAhead() {
+    TimeOrderedPaymentIdGenerator generator = new TimeOrderedPaymentIdGenerator(() -> NOW);
+
+    UUID last = null;
+    for (int i = 0; i < 5000; i++) {
+      last = generator.next();
+    }
+
+    assertTrue(TimeOrderedPaymentIdGenerator.timestamp(last) > NOW);
+  }
+
+  @Test
+  void whenThreadsGenerateConcurrentlyThenIdsAreUnique() throws Exception {
+    TimeOrderedPaymentIdGenerator generator = new TimeOrderedPaymentIdGenerator();
+    Set<UUID> ids = ConcurrentHashMap.newKeySet();
+    try (ExecutorService platform = Executors.newFixedThreadPool(4);
+        ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(platform.submit(() -> generate(generator, ids, 10_000)));
+      }
+      for (int i = 0; i < 1000; i++) {
+        futures.add(virtual.submit(() -> generate(generator, ids, 10)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+
+    assertEquals(50_000, ids.size());
+  }
+
+  @Test
+  void whenTwoGeneratorsRunInTheSameMillisecondThenRandomBitsDiffer() {
+    UUID first = new TimeOrderedPaymentIdGenerator(() -> NOW).next();
+    UUID second = new TimeOrderedPaymentIdGenerator(() -> NOW).next();
+
+    assertNotEquals(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+  }
+
+  @Test
+  void whenModeIsUnknownThenGeneratorIsNotCreated() {
+    assertEquals(4, PaymentIdGenerator.create("random").next().version());
+    assertEquals(7, PaymentIdGenerator.create("time-ordered").next().version());
+    assertThrows(IllegalArgumentException.class, () -> PaymentIdGenerator.create("sequential"));
+  }
+
+  private static void generate(PaymentIdGenerator generator, Set<UUID> ids, int count) {
+    for (int i = 0; i < count; i++) {
+      ids.add(generator.next());
+    }
+  }
+}
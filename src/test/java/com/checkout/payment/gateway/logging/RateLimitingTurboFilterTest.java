@@ -0,0 +1,99 @@
+package com.checkout.payment.gateway.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.slf4j.MarkerFactory;
+
+class RateLimitingTurboFilterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final Logger logger = new LoggerContext().getLogger("payments");
+  private RateLimitingTurboFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    logger.setLevel(Level.INFO);
+    filter = new RateLimitingTurboFilter(clock::get);
+    filter.setCategories("CLIENT_ERROR:3:4, BANK:0:1");
+    filter.start();
+  }
+
+  @Test
+  void whenCategoryExceedsItsRateThenOnlySampledEventsPass() {
+    int passed = 0;
+    for (int i = 0; i < 15; i++) {
+      if (decide("CLIENT_ERROR", Level.WARN) == FilterReply.NEUTRAL) {
+        passed++;
+      }
+    }
+
+    // The first 3, then the 4th and 8th and 12th beyond them.
+    assertEquals(6, passed);
+    assertEquals(9, filter.getDropped("CLIENT_ERROR"));
+  }
+
+  @Test
+  void whenWindowPassesThenCategoryGetsItsBudgetBack() {
+    for (int i = 0; i < 4; i++) {
+      decide("CLIENT_ERROR", Level.WARN);
+    }
+    assertEquals(FilterReply.DENY, decide("CLIENT_ERROR", Level.WARN));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    assertEquals(FilterReply.NEUTRAL, decide("CLIENT_ERROR", Level.WARN));
+    assertEquals(0, filter.getDropped("CLIENT_ERROR"));
+  }
+
+  @Test
+  void whenEventIsUnmarkedOrDisabledThenItIsNotCounted() {
+    for (int i = 0; i < 10; i++) {
+      assertEquals(FilterReply.NEUTRAL, decide("PAYMENT_OUTCOME", Level.INFO));
+      assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.ERROR, "", null, null));
+      assertEquals(FilterReply.NEUTRAL, decide("CLIENT_ERROR", Level.DEBUG));
+    }
+
+    assertEquals(FilterReply.NEUTRAL, decide("CLIENT_ERROR", Level.WARN));
+    assertEquals(0, filter.getDropped("CLIENT_ERROR"));
+  }
+
+  @Test
+  void whenSampleEveryIsOneThenEveryEventPasses() {
+    for (int i = 0; i < 5; i++) {
+      assertEquals(FilterReply.NEUTRAL, decide("BANK", Level.ERROR));
+    }
+  }
+
+  @Test
+  void whenWarmingUpThenMarkedEventsAreDroppedWithoutUsingTheBudget() {
+    try (MDC.MDCCloseable ignored = MDC.putCloseable(RateLimitingTurboFilter.WARM_UP_KEY, "true")) {
+      assertEquals(FilterReply.DENY, decide("CLIENT_ERROR", Level.WARN));
+      assertEquals(FilterReply.DENY, decide("PAYMENT_OUTCOME", Level.INFO));
+      assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.INFO, "", null, null));
+    }
+
+    assertEquals(FilterReply.NEUTRAL, decide("CLIENT_ERROR", Level.WARN));
+    assertEquals(0, filter.getDropped("CLIENT_ERROR"));
+  }
+
+  @Test
+  void whenCategoryIsMalformedThenFilterIsNotConfigured() {
+    assertThrows(IllegalArgumentException.class, () -> filter.setCategories("BANK:10"));
+    assertThrows(IllegalArgumentException.class, () -> filter.setCategories("BANK:10:0"));
+    assertThrows(NumberFormatException.class, () -> filter.setCategories("BANK:x:1"));
+  }
+
+  private FilterReply decide(String category, Level level) {
+    return filter.decide(MarkerFactory.getMarker(category), logger, level, "", null, null);
+  }
+}
@@ -0,0 +1,47 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void whenValuesAreRecordedThenEachFallsInTheBucketBelowItsUpperBound() {
+    long[] values = {0, 1023, 1024, 1279, 1280, 3000, 999_999, TimeUnit.SECONDS.toNanos(15),
+        TimeUnit.SECONDS.toNanos(137)};
+    for (long value : values) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(value < LatencyHistogram.upperBoundNanos(index), "upper bound of " + value);
+      if (index > 0) {
+        assertTrue(value >= LatencyHistogram.upperBoundNanos(index - 1), "lower bound of " + value);
+      }
+    }
+    assertEquals(LatencyHistogram.BUCKETS - 1,
+        LatencyHistogram.bucketIndex(TimeUnit.SECONDS.toNanos(138)));
+  }
+
+  @Test
+  void whenBucketsAreAdjacentThenTheyGrowByAtMostAQuarter() {
+    for (int i = 2; i < LatencyHistogram.BUCKETS - 1; i++) {
+      long lower = LatencyHistogram.upperBoundNanos(i - 1);
+      long width = LatencyHistogram.upperBoundNanos(i) - lower;
+      assertTrue(width * 4 <= lower, "bucket " + i);
+    }
+  }
+
+  @Test
+  void whenValuesAreRecordedThenCountAndSumAreKept() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(500);
+    histogram.record(1500);
+    histogram.record(1300);
+
+    assertEquals(3, histogram.getCount());
+    assertEquals(3300, histogram.getSumNanos());
+    assertEquals(1, histogram.getBucketCount(0));
+    assertEquals(2, histogram.getBucketCount(LatencyHistogram.bucketIndex(1500)));
+  }
+}
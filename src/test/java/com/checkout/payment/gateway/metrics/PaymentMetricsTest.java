@@ -0,0 +1,73 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PaymentMetricsTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  private PrometheusMeterRegistry meterRegistry;
+  private PaymentMetrics paymentMetrics;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    paymentMetrics = new PaymentMetrics(meterRegistry, CURRENCIES);
+  }
+
+  @Test
+  void whenStageIsRecordedThenItIsPublishedAsHistogram() {
+    new StageHistogramCollector(paymentMetrics).register(meterRegistry.getPrometheusRegistry());
+    paymentMetrics.recordStage(Stage.VALIDATION, TimeUnit.MICROSECONDS.toNanos(3));
+    paymentMetrics.recordStage(Stage.BANK, TimeUnit.MILLISECONDS.toNanos(120));
+
+    String scrape = meterRegistry.scrape();
+    assertTrue(scrape.contains("# TYPE payment_stage_duration_seconds histogram"));
+    assertTrue(scrape.contains("payment_stage_duration_seconds_count{stage=\"validation\",} 1.0"));
+    assertTrue(scrape.contains("payment_stage_duration_seconds_sum{stage=\"bank\",} 0.12"));
+    assertTrue(scrape.contains(
+        "payment_stage_duration_seconds_bucket{stage=\"validation\",le=\"3.072E-6\",} 1.0"));
+    assertTrue(scrape.contains(
+        "payment_stage_duration_seconds_bucket{stage=\"bank\",le=\"+Inf\",} 1.0"));
+  }
+
+  @Test
+  void whenPaymentsAreRecordedThenTheyAreCountedByStatusAndCurrency() {
+    paymentMetrics.recordPayment(PaymentStatus.AUTHORIZED, CURRENCIES.lookup("GBP"));
+    paymentMetrics.recordPayment(PaymentStatus.AUTHORIZED, CURRENCIES.lookup("GBP"));
+    paymentMetrics.recordPayment(PaymentStatus.DECLINED, CURRENCIES.lookup("USD"));
+    paymentMetrics.recordPayment(PaymentStatus.DECLINED, CurrencyUnit.unlisted("JPY"));
+    paymentMetrics.recordPayment(PaymentStatus.REJECTED, null);
+
+    assertEquals(2, meterRegistry.get("payments").tag("status", "Authorized").counter().count());
+    assertEquals(1, meterRegistry.get("payments").tag("status", "Rejected").counter().count());
+    assertEquals(2, meterRegistry.get("payments.currency").tag("currency", "GBP").counter()
+        .count());
+    assertEquals(0, meterRegistry.get("payments.currency").tag("currency", "EUR").counter()
+        .count());
+    assertEquals(3, meterRegistry.get("payments.currency").counters().size());
+  }
+
+  @Test
+  void whenBankAnswersThenResponsesAreCountedByStatusClass() {
+    paymentMetrics.recordBankResponse(200);
+    paymentMetrics.recordBankResponse(503);
+    paymentMetrics.recordBankResponse(0);
+    paymentMetrics.recordBankResponse(999);
+
+    assertEquals(1, meterRegistry.get("bank.responses").tag("status", "2xx").counter().count());
+    assertEquals(1, meterRegistry.get("bank.responses").tag("status", "5xx").counter().count());
+    assertEquals(2, meterRegistry.get("bank.responses").tag("status", "error").counter().count());
+  }
+}
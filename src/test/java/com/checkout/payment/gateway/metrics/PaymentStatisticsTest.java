@@ -0,0 +1,97 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyStatistics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class PaymentStatisticsTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+  private static final CurrencyUnit GBP = CURRENCIES.lookup("GBP");
+  private static final CurrencyUnit USD = CURRENCIES.lookup("USD");
+
+  private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+  private final PaymentStatistics paymentStatistics = new PaymentStatistics(CURRENCIES, clock::get);
+
+  @Test
+  void whenPaymentsAreRecordedThenEachWindowSumsItsOwnSeconds() {
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, GBP, 100);
+    clock.addAndGet(TimeUnit.MINUTES.toMillis(2));
+    paymentStatistics.record(PaymentStatus.DECLINED, GBP, 40);
+    clock.addAndGet(TimeUnit.MINUTES.toMillis(10));
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, GBP, 300);
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, USD, 7);
+    paymentStatistics.record(PaymentStatus.REJECTED, GBP, 1000);
+
+    assertStatistics(window("1m", "GBP"), 1, 300, 0, 0);
+    assertStatistics(window("5m", "GBP"), 1, 300, 0, 0);
+    assertStatistics(window("1h", "GBP"), 2, 400, 1, 40);
+    assertEquals(2.0 / 3, window("1h", "GBP").getApprovalRate(), 1e-9);
+    assertStatistics(window("1m", "USD"), 1, 7, 0, 0);
+    assertStatistics(window("1h", "EUR"), 0, 0, 0, 0);
+    assertNull(window("1h", "EUR").getApprovalRate());
+  }
+
+  @Test
+  void whenAnHourHasPassedThenReusedSlotsStartFromZero() {
+    paymentStatistics.record(PaymentStatus.AUTHORIZED, GBP, 100);
+    clock.addAndGet(TimeUnit.HOURS.toMillis(1));
+    assertStatistics(window("1h", "GBP"), 0, 0, 0, 0);
+
+    paymentStatistics.record(PaymentStatus.DECLINED, GBP, 50);
+
+    assertStatistics(window("1m", "GBP"), 0, 0, 1, 50);
+    assertStatistics(window("1h", "GBP"), 0, 0, 1, 50);
+  }
+
+  @Test
+  void whenRecordedConcurrentlyThenNothingIsLost() throws Exception {
+    int threads = 4;
+    int perThread = 100_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          paymentStatistics.record(PaymentStatus.AUTHORIZED, GBP, 2);
+          if (i % 1000 == 0) {
+            clock.addAndGet(100);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    assertStatistics(window("1h", "GBP"), threads * perThread, 2L * threads * perThread, 0, 0);
+  }
+
+  private CurrencyStatistics window(String window, String currency) {
+    Map<String, Map<String, CurrencyStatistics>> windows = paymentStatistics.snapshot()
+        .getWindows();
+    return windows.get(window).get(currency);
+  }
+
+  private static void assertStatistics(CurrencyStatistics statistics, long authorized,
+      long authorizedAmount, long declined, long declinedAmount) {
+    assertEquals(authorized, statistics.getAuthorized());
+    assertEquals(authorizedAmount, statistics.getAuthorizedAmount());
+    assertEquals(declined, statistics.getDeclined());
+    assertEquals(declinedAmount, statistics.getDeclinedAmount());
+  }
+}
@@ -0,0 +1,120 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.RepositoryCapacityExceededException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class OffHeapPaymentStoreTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  @Test
+  void whenPaymentIsStoredThenReadViewMatchesIt() {
+    OffHeapPaymentStore store = new OffHeapPaymentStore(4, 100);
+    PostPaymentResponse payment = payment("0042", "01/2031", "EUR", Integer.MAX_VALUE);
+    store.put(payment);
+
+    PostPaymentResponse view = store.get(payment.getId());
+
+    assertEquals(payment.getId(), view.getId());
+    assertEquals(PaymentStatus.AUTHORIZED, view.getStatus());
+    assertEquals("0042", view.getCardNumberLastFour());
+    assertEquals("01/2031", view.getExpiryDate());
+    assertEquals(CURRENCIES.lookup("EUR"), view.getCurrency());
+    assertEquals(Integer.MAX_VALUE, view.getAmount());
+    assertNull(store.get(UUID.randomUUID()));
+  }
+
+  @Test
+  void whenPaymentIsStoredAgainThenSlotIsOverwritten() {
+    OffHeapPaymentStore store = new OffHeapPaymentStore(1, 1);
+    PostPaymentResponse payment = payment("1234", "12/2030", "USD", 10);
+    store.put(payment);
+    payment.setStatus(PaymentStatus.DECLINED);
+    store.put(payment);
+
+    assertEquals(1, store.size());
+    assertEquals(PaymentStatus.DECLINED, store.get(payment.getId()).getStatus());
+    assertThrows(RepositoryCapacityExceededException.class,
+        () -> store.put(payment("1234", "12/2030", "USD", 10)));
+  }
+
+  @Test
+  void whenOptionalFieldsAreMissingThenViewLeavesThemNull() {
+    OffHeapPaymentStore store = new OffHeapPaymentStore(1, 10);
+    PostPaymentResponse payment = payment(null, null, "GBP", 10);
+    store.put(payment);
+
+    PostPaymentResponse view = store.get(payment.getId());
+
+    assertNull(view.getCardNumberLastFour());
+    assertNull(view.getExpiryDate());
+  }
+
+  @Test
+  void whenValueCannotBePackedThenItIsRejected() {
+    OffHeapPaymentStore store = new OffHeapPaymentStore(1, 10);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> store.put(payment("12a4", "12/2030", "USD", 10)));
+    assertThrows(IllegalArgumentException.class,
+        () -> store.put(payment("1234", "2030-12", "USD", 10)));
+  }
+
+  @Test
+  void whenManyThreadsWriteAndReadThenEveryPaymentIsFound() throws Exception {
+    int threads = 4;
+    int perThread = 10_000;
+    OffHeapPaymentStore store = new OffHeapPaymentStore(16, 2 * threads * perThread);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<List<UUID>>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < perThread; i++) {
+          PostPaymentResponse payment = payment("4321", "06/2029", i % 2 == 0 ? "GBP" : "USD", i);
+          store.put(payment);
+          ids.add(payment.getId());
+        }
+        return ids;
+      }));
+    }
+    AtomicInteger found = new AtomicInteger();
+    for (Future<List<UUID>> future : futures) {
+      for (UUID id : future.get(60, TimeUnit.SECONDS)) {
+        assertEquals(id, store.get(id).getId());
+        found.incrementAndGet();
+      }
+    }
+    executor.shutdown();
+
+    assertEquals(threads * perThread, found.get());
+    assertEquals(threads * perThread, store.size());
+  }
+
+  private static PostPaymentResponse payment(String lastFour, String expiryDate, String currency,
+      int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour(lastFour);
+    payment.setExpiryDate(expiryDate);
+    payment.setCurrency(CURRENCIES.lookup(currency));
+    payment.setAmount(amount);
+    return payment;
+  }
+}
@@ -0,0 +1,204 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.RepositoryCapacityExceededException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PaymentJournalTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  private static final int SEGMENT_SIZE = 1 << 16;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void whenRepositoryIsReopenedThenJournaledPaymentsAreRecovered() {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository repository = new PaymentsRepository(4, 10_000, journal);
+      for (int i = 0; i < 5_000; i++) {
+        PostPaymentResponse payment = payment(i);
+        repository.add(payment);
+        payments.add(payment);
+      }
+    }
+
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository recovered = new PaymentsRepository(4, 10_000, journal);
+      assertEquals(payments.size(), recovered.size());
+      for (PostPaymentResponse payment : payments) {
+        PostPaymentResponse stored = recovered.get(payment.getId()).orElseThrow();
+        assertEquals(payment.toString(), stored.toString());
+      }
+    }
+  }
+
+  @Test
+  void whenPaymentIsUpdatedThenLatestVersionIsRecovered() {
+    PostPaymentResponse payment = payment(1);
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository repository = new PaymentsRepository(4, 100, journal);
+      repository.add(payment);
+      payment.setStatus(PaymentStatus.DECLINED);
+      repository.add(payment);
+    }
+
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository recovered = new PaymentsRepository(4, 100, journal);
+      assertEquals(PaymentStatus.DECLINED, recovered.get(payment.getId()).orElseThrow().getStatus());
+    }
+  }
+
+  @Test
+  void whenSnapshotIsTakenThenCoveredSegmentsAreCompacted() throws IOException {
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository repository = new PaymentsRepository(4, 10_000, journal);
+      for (int i = 0; i < 5_000; i++) {
+        PostPaymentResponse payment = payment(i);
+        repository.add(payment);
+        payments.add(payment);
+      }
+      assertTrue(count("segment-") > 1);
+
+      journal.snapshot(repository::forEach);
+      repository.add(payment(5_000));
+
+      assertEquals(1, count("snapshot-"));
+      assertEquals(1, count("segment-"));
+    }
+
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository recovered = new PaymentsRepository(4, 10_000, journal);
+      assertEquals(payments.size() + 1, recovered.size());
+      payments.forEach(payment -> assertTrue(recovered.get(payment.getId()).isPresent()));
+    }
+  }
+
+  @Test
+  void whenSnapshotRunsWhileAPaymentIsAddedThenThePaymentIsRecovered() {
+    PostPaymentResponse payment = payment(1);
+    try (PaymentJournal journal = journal()) {
+      SnapshottingStore store = new SnapshottingStore(journal);
+      PaymentsRepository repository = new PaymentsRepository(store, journal);
+      repository.add(payment(0));
+      store.snapshotOnPut = true;
+      repository.add(payment);
+    }
+
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository recovered = new PaymentsRepository(4, 100, journal);
+      assertEquals(2, recovered.size());
+      assertTrue(recovered.get(payment.getId()).isPresent());
+    }
+  }
+
+  @Test
+  void whenStoreIsFullThenRejectedPaymentIsNotJournaled() {
+    PostPaymentResponse kept = payment(1);
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository repository = new PaymentsRepository(1, 1, journal);
+      repository.add(kept);
+      assertThrows(RepositoryCapacityExceededException.class,
+          () -> repository.add(payment(2)));
+    }
+
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository recovered = new PaymentsRepository(1, 1, journal);
+      assertEquals(1, recovered.size());
+      assertTrue(recovered.get(kept.getId()).isPresent());
+    }
+  }
+
+  @Test
+  void whenSegmentTailIsTornThenReplayStopsAtLastCompleteRecord() throws IOException {
+    PostPaymentResponse kept = payment(1);
+    try (PaymentJournal journal = journal()) {
+      new PaymentsRepository(1, 100, journal).add(kept);
+    }
+    Path segment = files("segment-").get(0);
+    byte[] content = Files.readAllBytes(segment);
+    byte[] torn = PaymentRecordCodec.encode(payment(2));
+    int tail = PaymentRecordCodec.encode(kept).length;
+    System.arraycopy(torn, 0, content, tail, torn.length - 3);
+    Files.write(segment, content);
+
+    try (PaymentJournal journal = journal()) {
+      PaymentsRepository recovered = new PaymentsRepository(1, 100, journal);
+      assertEquals(1, recovered.size());
+      assertTrue(recovered.get(kept.getId()).isPresent());
+    }
+  }
+
+  /**
+   * Takes a snapshot at the start of every put once enabled, the latest point at which a
+   * concurrent snapshot could run before the payment is stored.
+   */
+  private static final class SnapshottingStore extends StripedPaymentStore {
+
+    private final PaymentJournal journal;
+    private boolean snapshotOnPut;
+
+    private SnapshottingStore(PaymentJournal journal) {
+      super(4, 100);
+      this.journal = journal;
+    }
+
+    @Override
+    public boolean put(PostPaymentResponse payment) {
+      if (snapshotOnPut) {
+        try {
+          journal.snapshot(this::forEach);
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }
+      return super.put(payment);
+    }
+  }
+
+  private PaymentJournal journal() {
+    return new PaymentJournal(directory, SEGMENT_SIZE, true, Duration.ofMillis(5),
+        Duration.ofHours(1), CurrencyRegistry.defaults());
+  }
+
+  private long count(String prefix) throws IOException {
+    return files(prefix).size();
+  }
+
+  private List<Path> files(String prefix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.getFileName().toString().startsWith(prefix)).sorted()
+          .toList();
+    }
+  }
+
+  private static PostPaymentResponse payment(int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour("4321");
+    payment.setExpiryDate("12/2030");
+    payment.setCurrency(CURRENCIES.lookup("GBP"));
+    payment.setAmount(amount);
+    return payment;
+  }
+}
@@ -0,0 +1,105 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.RepositoryCapacityExceededException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PaymentsRepositoryConcurrencyTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+
+  private static final int PAYMENTS_PER_THREAD = 50_000;
+
+  @Test
+  void whenManyThreadsAddConcurrentlyThenNoWriteIsLost() throws Exception {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    PaymentsRepository repository = new PaymentsRepository(64, 2 * threads * PAYMENTS_PER_THREAD);
+
+    List<List<PostPaymentResponse>> written = runConcurrently(repository, threads);
+
+    assertEquals(threads * PAYMENTS_PER_THREAD, repository.size());
+    for (List<PostPaymentResponse> payments : written) {
+      for (PostPaymentResponse payment : payments) {
+        assertTrue(repository.get(payment.getId()).filter(stored -> stored == payment).isPresent(),
+            "Payment " + payment.getId() + " was lost");
+      }
+    }
+  }
+
+  @Test
+  void whenCapacityIsReachedThenNewPaymentsAreRejected() {
+    PaymentsRepository repository = new PaymentsRepository(1, 2);
+    repository.add(payment());
+    repository.add(payment());
+
+    assertThrows(RepositoryCapacityExceededException.class, () -> repository.add(payment()));
+    assertEquals(2, repository.size());
+  }
+
+  @Test
+  void whenSamePaymentIsAddedTwiceThenItIsStoredOnce() {
+    PaymentsRepository repository = new PaymentsRepository(1, 1);
+    PostPaymentResponse payment = payment();
+    repository.add(payment);
+    payment.setStatus(PaymentStatus.DECLINED);
+    repository.add(payment);
+
+    assertEquals(1, repository.size());
+    assertEquals(PaymentStatus.DECLINED, repository.get(payment.getId()).orElseThrow().getStatus());
+  }
+
+  /**
+   * Starts all writers at once; each one adds its own payments and reads every one of them back.
+   */
+  private static List<List<PostPaymentResponse>> runConcurrently(PaymentsRepository repository,
+      int threads) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<List<PostPaymentResponse>>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(() -> {
+        List<PostPaymentResponse> payments = new ArrayList<>(PAYMENTS_PER_THREAD);
+        start.await();
+        for (int n = 0; n < PAYMENTS_PER_THREAD; n++) {
+          PostPaymentResponse payment = payment();
+          repository.add(payment);
+          repository.get(payment.getId()).orElseThrow();
+          payments.add(payment);
+        }
+        return payments;
+      }));
+    }
+    start.countDown();
+    List<List<PostPaymentResponse>> written = new ArrayList<>();
+    for (Future<List<PostPaymentResponse>> future : futures) {
+      written.add(future.get(60, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+    return written;
+  }
+
+  private static PostPaymentResponse payment() {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour("4321");
+    payment.setExpiryDate("12/2030");
+    payment.setCurrency(CURRENCIES.lookup("USD"));
+    payment.setAmount(100);
+    return payment;
+  }
+}
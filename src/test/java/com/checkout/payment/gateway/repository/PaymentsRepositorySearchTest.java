@@ -0,0 +1,262 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.currency.CurrencyUnit;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidQueryException;
+import com.checkout.payment.gateway.id.TimeOrderedPaymentIdGenerator;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class PaymentsRepositorySearchTest {
+
+  private static final CurrencyRegistry CURRENCIES = CurrencyRegistry.defaults();
+  private static final long START = 1_700_000_000_000L;
+
+  private final AtomicLong clock = new AtomicLong(START);
+  private final TimeOrderedPaymentIdGenerator ids = new TimeOrderedPaymentIdGenerator(clock::get);
+
+  @Test
+  void whenFiltersAreCombinedThenOnlyMatchingPaymentsAreFound() {
+    PaymentsRepository repository = new PaymentsRepository(4, 1000);
+    for (int i = 0; i < 300; i++) {
+      repository.add(payment(i % 3 == 0 ? PaymentStatus.DECLINED : PaymentStatus.AUTHORIZED,
+          i % 2 == 0 ? "GBP" : "USD", i, String.format("%04d", i % 10)));
+    }
+
+    List<PostPaymentResponse> found = repository.search(
+        query(PaymentStatus.DECLINED, CURRENCIES.lookup("GBP"), 100, 199, null), -1, 1000)
+        .payments();
+
+    // Multiples of 6 between 100 and 199.
+    assertEquals(17, found.size());
+    found.forEach(payment -> {
+      assertEquals(PaymentStatus.DECLINED, payment.getStatus());
+      assertEquals("GBP", payment.getCurrency().code());
+      assertEquals(0, payment.getAmount() % 6);
+    });
+    assertEquals(30, repository.search(query(null, null, 0, Integer.MAX_VALUE, "0007"), -1, 1000)
+        .payments().size());
+    assertEquals(20, repository.search(
+        query(PaymentStatus.AUTHORIZED, CURRENCIES.lookup("USD"), 0, Integer.MAX_VALUE, "0007"),
+        -1, 1000).payments().size());
+    assertTrue(repository.search(query(null, CURRENCIES.lookup("EUR"), 0, Integer.MAX_VALUE, null),
+        -1, 1000).payments().isEmpty());
+  }
+
+  @Test
+  void whenPagingThenEveryMatchIsReturnedOnceInOrder() {
+    PaymentsRepository repository = new PaymentsRepository(4, 1000);
+    List<UUID> added = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      PostPaymentResponse payment = payment(PaymentStatus.AUTHORIZED, "EUR", i, "1234");
+      repository.add(payment);
+      added.add(payment.getId());
+    }
+    PaymentQuery query = query(PaymentStatus.AUTHORIZED, null, 0, Integer.MAX_VALUE, null);
+
+    List<UUID> paged = new ArrayList<>();
+    long position = -1;
+    int pages = 0;
+    PaymentSearchResult page;
+    do {
+      page = repository.search(query, position, 100);
+      page.payments().forEach(payment -> paged.add(payment.getId()));
+      position = page.position();
+      pages++;
+    } while (page.hasMore());
+
+    assertEquals(added, paged);
+    assertEquals(3, pages);
+  }
+
+  @Test
+  void whenLastPageIsReturnedThenPositionIsPastEveryScannedRow() {
+    PaymentsRepository repository = new PaymentsRepository(4, 1000);
+    repository.add(payment(PaymentStatus.DECLINED, "EUR", 1, "1234"));
+    for (int i = 0; i < 99; i++) {
+      repository.add(payment(PaymentStatus.AUTHORIZED, "EUR", i, "1234"));
+    }
+    PaymentQuery query = query(PaymentStatus.DECLINED, null, 0, Integer.MAX_VALUE, null);
+
+    PaymentSearchResult page = repository.search(query, -1, 10);
+    assertEquals(1, page.payments().size());
+    assertFalse(page.hasMore());
+    assertEquals(99, (int) page.position());
+
+    PostPaymentResponse later = payment(PaymentStatus.DECLINED, "EUR", 2, "1234");
+    repository.add(later);
+    List<PostPaymentResponse> next = repository.search(query, page.position(), 10).payments();
+    assertEquals(1, next.size());
+    assertEquals(later.getId(), next.get(0).getId());
+  }
+
+  @Test
+  void whenTimeRangeIsGivenThenPaymentsAreFilteredByCreationTime() {
+    PaymentsRepository repository = new PaymentsRepository(4, 1000);
+    for (int minute = 0; minute < 10; minute++) {
+      for (int i = 0; i < 20; i++) {
+        clock.set(START + minute * 60_000L + i * 1000L);
+        repository.add(payment(PaymentStatus.AUTHORIZED, "GBP", minute, "1234"));
+      }
+    }
+
+    List<PostPaymentResponse> found = repository.search(new PaymentQuery(null, null, 0,
+        Integer.MAX_VALUE, START + 3 * 60_000L + 5000L, START + 5 * 60_000L, null), -1, 1000)
+        .payments();
+
+    assertEquals(35, found.size());
+    found.forEach(payment -> {
+      long created = TimeOrderedPaymentIdGenerator.timestamp(payment.getId());
+      assertTrue(created >= START + 3 * 60_000L + 5000L && created < START + 5 * 60_000L);
+    });
+    assertTrue(repository.search(new PaymentQuery(null, null, 0, Integer.MAX_VALUE,
+        START - 60_000L, START, null), -1, 1000).payments().isEmpty());
+  }
+
+  @Test
+  void whenIdDoesNotCarryCreationTimeThenPaymentMatchesNoTimeRange() {
+    PaymentsRepository repository = new PaymentsRepository(4, 1000);
+    long now = System.currentTimeMillis();
+    clock.set(now);
+    PostPaymentResponse random = payment(PaymentStatus.AUTHORIZED, "GBP", 1, "1234");
+    random.setId(UUID.randomUUID());
+    repository.add(random);
+    repository.add(payment(PaymentStatus.AUTHORIZED, "GBP", 2, "1234"));
+
+    assertEquals(2, repository.search(query(null, null, 0, Integer.MAX_VALUE, null), -1, 1000)
+        .payments().size());
+    // Covers the time the random ID was indexed at.
+    List<PostPaymentResponse> found = repository.search(new PaymentQuery(null, null, 0,
+        Integer.MAX_VALUE, now - 3_600_000L, now + 3_600_000L, null), -1, 1000).payments();
+    assertEquals(1, found.size());
+    assertEquals(2, found.get(0).getAmount());
+  }
+
+  @Test
+  void whenPendingPaymentIsCompletedThenItIsFoundByItsFinalStatusOnly() {
+    PaymentsRepository repository = new PaymentsRepository(4, 1000);
+    PostPaymentResponse pending = payment(PaymentStatus.PENDING, "GBP", 100, "1234");
+    repository.add(pending);
+    repository.add(payment(PaymentStatus.PENDING, "GBP", 200, "1234"));
+    assertEquals(2, repository.search(query(PaymentStatus.PENDING, null, 0, Integer.MAX_VALUE,
+        null), -1, 10).payments().size());
+
+    PostPaymentResponse declined = payment(PaymentStatus.DECLINED, "GBP", 100, "1234");
+    declined.setId(pending.getId());
+    repository.add(declined);
+
+    List<PostPaymentResponse> found = repository.search(query(PaymentStatus.DECLINED, null, 0,
+        Integer.MAX_VALUE, null), -1, 10).payments();
+    assertEquals(1, found.size());
+    assertEquals(pending.getId(), found.get(0).getId());
+    assertEquals(1, repository.search(query(PaymentStatus.PENDING, null, 0, Integer.MAX_VALUE,
+        null), -1, 10).payments().size());
+    assertEquals(2, repository.search(query(null, null, 0, Integer.MAX_VALUE, "1234"), -1, 10)
+        .payments().size());
+  }
+
+  @Test
+  void whenStoreIsAlreadyFilledThenItIsIndexedOnStartup() {
+    OffHeapPaymentStore store = new OffHeapPaymentStore(4, 1000);
+    for (int i = 0; i < 100; i++) {
+      long created = START + (100 - i) * 60_000L;
+      PostPaymentResponse payment = payment(PaymentStatus.AUTHORIZED, "USD", i, "5678");
+      payment.setId(new TimeOrderedPaymentIdGenerator(() -> created).next());
+      store.put(payment);
+    }
+
+    PaymentsRepository repository = new PaymentsRepository(store, null);
+    List<PostPaymentResponse> found = repository.search(
+        query(null, null, 0, Integer.MAX_VALUE, "5678"), -1, 1000).payments();
+
+    assertEquals(100, found.size());
+    // Indexed oldest first, whatever order the store visits them in.
+    assertEquals(99, found.get(0).getAmount());
+    assertEquals(0, found.get(99).getAmount());
+  }
+
+  @Test
+  void whenPositionComesFromAnotherRepositoryThenItIsRejected() {
+    PaymentsRepository first = new PaymentsRepository(4, 100);
+    PaymentsRepository second = new PaymentsRepository(4, 100);
+    for (int i = 0; i < 3; i++) {
+      first.add(payment(PaymentStatus.AUTHORIZED, "USD", i, "1111"));
+    }
+    PaymentQuery query = query(null, null, 0, Integer.MAX_VALUE, null);
+    PaymentSearchResult page = first.search(query, -1, 1);
+
+    assertTrue(page.hasMore());
+    assertEquals(1, first.search(query, page.position(), 1).payments().get(0).getAmount());
+    assertThrows(InvalidQueryException.class, () -> second.search(query, page.position(), 1));
+  }
+
+  @Test
+  void whenPaymentsAreAddedConcurrentlyThenSearchesSeeOnlyCompleteRows() throws Exception {
+    int threads = 4;
+    int perThread = 20_000;
+    PaymentsRepository repository = new PaymentsRepository(16, 2 * threads * perThread);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> writers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      writers.add(executor.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          repository.add(payment(i % 2 == 0 ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED,
+              "GBP", i, "4242"));
+        }
+      }));
+    }
+    PaymentQuery declined = query(PaymentStatus.DECLINED, null, 0, Integer.MAX_VALUE, "4242");
+    while (!writers.stream().allMatch(Future::isDone)) {
+      repository.search(declined, -1, 1000).payments()
+          .forEach(payment -> assertEquals(PaymentStatus.DECLINED, payment.getStatus()));
+    }
+    for (Future<?> writer : writers) {
+      writer.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    Set<UUID> found = new HashSet<>();
+    long position = -1;
+    PaymentSearchResult page;
+    do {
+      page = repository.search(declined, position, 1000);
+      page.payments().forEach(payment -> assertTrue(found.add(payment.getId())));
+      position = page.position();
+    } while (page.hasMore());
+    assertEquals(threads * perThread / 2, found.size());
+  }
+
+  private static PaymentQuery query(PaymentStatus status, CurrencyUnit currency, int minAmount,
+      int maxAmount, String lastFour) {
+    return new PaymentQuery(status, currency, minAmount, maxAmount, Long.MIN_VALUE, Long.MAX_VALUE,
+        lastFour);
+  }
+
+  private PostPaymentResponse payment(PaymentStatus status, String currency, int amount,
+      String lastFour) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(ids.next());
+    payment.setStatus(status);
+    payment.setCardNumberLastFour(lastFour);
+    payment.setExpiryDate("12/2030");
+    payment.setCurrency(CURRENCIES.lookup(currency));
+    payment.setAmount(amount);
+    return payment;
+  }
+}
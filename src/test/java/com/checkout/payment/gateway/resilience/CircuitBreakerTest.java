@@ -0,0 +1,104 @@
+package com.checkout.payment.gateway.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.resilience.CircuitBreaker.State;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.SECONDS.toNanos(3);
+
+  private long now;
+  private CircuitBreaker circuitBreaker;
+  private final List<String> transitions = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    circuitBreaker = new CircuitBreaker(10, 5, 50, 80, Duration.ofSeconds(2),
+        Duration.ofSeconds(10), 2, () -> now);
+    circuitBreaker.addListener((from, to) -> transitions.add(from + "->" + to));
+  }
+
+  @Test
+  void whenFailureRateReachesThresholdThenCircuitOpens() {
+    record(3, true, FAST);
+    record(2, false, FAST);
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+
+    record(1, false, FAST);
+
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+    assertEquals(1, circuitBreaker.getRejectedCount());
+  }
+
+  @Test
+  void whenTooFewCallsWereRecordedThenCircuitStaysClosed() {
+    record(4, false, FAST);
+
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void whenSlowCallRateReachesThresholdThenCircuitOpens() {
+    record(1, true, FAST);
+    record(4, true, SLOW);
+
+    assertEquals(State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  void whenOldFailuresLeaveTheWindowThenTheyNoLongerCount() {
+    record(2, false, FAST);
+    record(18, true, FAST);
+    record(4, false, FAST);
+
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void whenTrialCallsSucceedAfterOpenDurationThenCircuitCloses() {
+    record(5, false, FAST);
+    now += TimeUnit.SECONDS.toNanos(10);
+
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    circuitBreaker.onResult(FAST, true);
+    circuitBreaker.onResult(FAST, true);
+
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+    assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+  }
+
+  @Test
+  void whenTrialCallsFailThenCircuitReopens() {
+    record(5, false, FAST);
+    now += TimeUnit.SECONDS.toNanos(10);
+
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onResult(FAST, true);
+    circuitBreaker.onResult(FAST, false);
+
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+  }
+
+  private void record(int calls, boolean success, long duration) {
+    for (int i = 0; i < calls; i++) {
+      assertTrue(circuitBreaker.tryAcquirePermission());
+      circuitBreaker.onResult(duration, success);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.checkout.payment.gateway.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+  private final RetryBudget retryBudget = new RetryBudget(2, 0.25);
+
+  @Test
+  void whenBucketIsDrainedThenRetriesAreDeniedUntilCallsRefillIt() {
+    assertTrue(retryBudget.tryAcquire());
+    assertTrue(retryBudget.tryAcquire());
+    assertFalse(retryBudget.tryAcquire());
+
+    for (int i = 0; i < 4; i++) {
+      retryBudget.onCall();
+    }
+
+    assertTrue(retryBudget.tryAcquire());
+    assertFalse(retryBudget.tryAcquire());
+    assertEquals(3, retryBudget.getGrantedCount());
+    assertEquals(2, retryBudget.getDeniedCount());
+  }
+
+  @Test
+  void whenBucketIsFullThenCallsDoNotOverfillIt() {
+    for (int i = 0; i < 100; i++) {
+      retryBudget.onCall();
+    }
+
+    assertEquals(2.0, retryBudget.getAvailableTokens());
+  }
+}
@@ -0,0 +1,180 @@
+package com.checkout.payment.gateway.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import com.checkout.payment.gateway.routing.AcquirerRouter.OutlierDetection;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AcquirerRouterTest {
+
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final OutlierDetection OUTLIER_DETECTION =
+      new OutlierDetection(3, 3, 5, Duration.ofSeconds(30), 50);
+
+  private long now = 1;
+
+  @Test
+  void whenOneAcquirerIsSlowerThenCallsGoToTheFasterOne() {
+    AcquirerRouter router = router(List.of(), "fast", "slow");
+    Acquirer fast = router.getAcquirers().get(0);
+    Acquirer slow = router.getAcquirers().get(1);
+    router.onComplete(begin(fast), 10 * MILLIS, true);
+    router.onComplete(begin(slow), 50 * MILLIS, true);
+
+    int toFast = 0;
+    for (int i = 0; i < 100; i++) {
+      Acquirer chosen = router.select(request("GBP", "2222405343248877"), null);
+      if (chosen == fast) {
+        toFast++;
+      }
+      now += MILLIS;
+      router.onComplete(chosen, (chosen == fast ? 10 : 50) * MILLIS, true);
+    }
+
+    assertEquals(100, toFast);
+  }
+
+  @Test
+  void whenFasterAcquirerIsBusyThenCallsSpillToTheOther() {
+    AcquirerRouter router = router(List.of(), "fast", "slow");
+    Acquirer fast = router.getAcquirers().get(0);
+    Acquirer slow = router.getAcquirers().get(1);
+    router.onComplete(begin(fast), 10 * MILLIS, true);
+    router.onComplete(begin(slow), 30 * MILLIS, true);
+
+    Set<Acquirer> chosen = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      chosen.add(router.select(request("GBP", "2222405343248877"), null));
+    }
+
+    assertEquals(Set.of(fast, slow), chosen);
+  }
+
+  @Test
+  void whenAcquirerFailsRepeatedlyThenItIsEjectedUntilTheEjectionEnds() {
+    AcquirerRouter router = router(List.of(), "a", "b", "c");
+    Acquirer failing = router.getAcquirers().get(0);
+    for (int i = 0; i < 3; i++) {
+      router.onComplete(begin(failing), MILLIS, false);
+    }
+
+    assertTrue(failing.isEjected(now));
+    assertEquals(1, failing.getEjectionCount());
+    for (int i = 0; i < 50; i++) {
+      Acquirer chosen = router.select(request("GBP", "2222405343248877"), null);
+      assertNotSame(failing, chosen);
+      router.onComplete(chosen, MILLIS, true);
+    }
+
+    now += Duration.ofSeconds(30).toNanos();
+    assertFalse(failing.isEjected(now));
+  }
+
+  @Test
+  void whenAverageLatencyIsAnOutlierThenAcquirerIsEjected() {
+    AcquirerRouter router = router(List.of(), "a", "b", "c");
+    Acquirer outlier = router.getAcquirers().get(0);
+    for (int i = 0; i < 5; i++) {
+      now += MILLIS;
+      router.onComplete(begin(router.getAcquirers().get(1)), 10 * MILLIS, true);
+      router.onComplete(begin(router.getAcquirers().get(2)), 12 * MILLIS, true);
+      router.onComplete(begin(outlier), 100 * MILLIS, true);
+    }
+
+    assertTrue(outlier.isEjected(now));
+  }
+
+  @Test
+  void whenEjectingWouldExceedTheLimitThenAcquirerStaysInRotation() {
+    AcquirerRouter router = router(List.of(), "a", "b");
+    for (Acquirer acquirer : router.getAcquirers()) {
+      for (int i = 0; i < 3; i++) {
+        router.onComplete(begin(acquirer), MILLIS, false);
+      }
+    }
+
+    assertTrue(router.getAcquirers().get(0).isEjected(now));
+    assertFalse(router.getAcquirers().get(1).isEjected(now));
+  }
+
+  @Test
+  void whenRuleMatchesThenOnlyItsAcquirersAreUsedEvenIfEjected() {
+    AcquirerRouter router = router(List.of(
+        RoutingRule.parse("currency:EUR=europe"),
+        RoutingRule.parse("bin:4111|5425=cards|europe")), "default", "europe", "cards");
+    Acquirer europe = router.getAcquirers().get(1);
+
+    assertSame(europe, router.select(request("EUR", "4111111111111111"), null));
+    Set<String> chosen = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      chosen.add(router.select(request("GBP", "4111111111111111"), null).getName());
+    }
+    assertEquals(Set.of("cards", "europe"), chosen);
+
+    for (int i = 0; i < 3; i++) {
+      router.onComplete(begin(europe), MILLIS, false);
+    }
+    assertTrue(europe.isEjected(now));
+    assertSame(europe, router.select(request("EUR", "2222405343248877"), null));
+  }
+
+  @Test
+  void whenRetryingThenAnotherAcquirerIsPreferred() {
+    AcquirerRouter router = router(List.of(), "a", "b");
+    Acquirer first = router.select(request("GBP", "2222405343248877"), null);
+
+    Acquirer retry = router.select(request("GBP", "2222405343248877"), first);
+
+    assertNotSame(first, retry);
+  }
+
+  @Test
+  void whenRuleNamesUnknownAcquirerThenRouterIsRefused() {
+    assertThrows(IllegalArgumentException.class,
+        () -> router(List.of(RoutingRule.parse("currency:EUR=nowhere")), "a"));
+    assertThrows(IllegalArgumentException.class, () -> RoutingRule.parse("country:FR=a"));
+  }
+
+  @Test
+  void whenAcquirerUrlIsNotAnAbsoluteHttpUrlThenItIsRefused() {
+    assertThrows(IllegalArgumentException.class, () -> Acquirer.parse("a=localhost:8080", 1));
+    assertThrows(IllegalArgumentException.class, () -> Acquirer.parse("a=http://bad host/", 1));
+    assertThrows(IllegalArgumentException.class, () -> Acquirer.parse("a=ftp://bank/payments", 1));
+    assertEquals("https://bank/payments", Acquirer.parse("a=https://bank/payments", 1).getUrl());
+  }
+
+  private Acquirer begin(Acquirer acquirer) {
+    acquirer.begin();
+    return acquirer;
+  }
+
+  private AcquirerRouter router(List<RoutingRule> rules, String... names) {
+    List<Acquirer> acquirers = Arrays.stream(names)
+        .map(name -> new Acquirer(name, "http://localhost/" + name,
+            Duration.ofSeconds(10).toNanos()))
+        .toList();
+    return new AcquirerRouter(acquirers, rules, OUTLIER_DETECTION, () -> now);
+  }
+
+  private static BankPaymentRequest request(String currency, String cardNumber) {
+    BankPaymentRequest request = new BankPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryDate("04/2030");
+    request.setCurrency(currency);
+    request.setAmount(100);
+    request.setCvv("123");
+    return request;
+  }
+}
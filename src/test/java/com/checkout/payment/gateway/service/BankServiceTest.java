@@ -0,0 +1,332 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.checkout.payment.gateway.configuration.ApplicationConfiguration;
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.PaymentProcessingException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
+import com.checkout.payment.gateway.metrics.PaymentMetrics.Stage;
+import com.checkout.payment.gateway.model.BankPaymentRequest;
+import com.checkout.payment.gateway.model.BankPaymentResponse;
+import com.checkout.payment.gateway.resilience.Bulkhead;
+import com.checkout.payment.gateway.resilience.CircuitBreaker;
+import com.checkout.payment.gateway.resilience.HedgingPolicy;
+import com.checkout.payment.gateway.resilience.RetryBudget;
+import com.checkout.payment.gateway.routing.Acquirer;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import com.checkout.payment.gateway.routing.AcquirerRouter.OutlierDetection;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BankServiceTest {
+
+  private HttpServer bank;
+  private CloseableHttpAsyncClient httpClient;
+  private ExecutorService callbackExecutor;
+  private BankService bankService;
+  private CircuitBreaker circuitBreaker;
+  private Bulkhead bulkhead;
+  private RetryBudget retryBudget;
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final PaymentMetrics paymentMetrics = new PaymentMetrics(meterRegistry,
+      CurrencyRegistry.defaults());
+  private final AtomicInteger bankCalls = new AtomicInteger();
+  private final AtomicInteger failingAcquirerCalls = new AtomicInteger();
+  private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+  private volatile int statusCode;
+  private volatile String body;
+  private volatile long delayMs;
+  private volatile int failingCalls;
+  private volatile long firstCallDelayMs;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    bank.setExecutor(Executors.newCachedThreadPool());
+    bank.createContext("/payments", this::respond);
+    bank.createContext("/failing", this::fail);
+    bank.start();
+
+    ApplicationConfiguration configuration = new ApplicationConfiguration();
+    httpClient = configuration.bankHttpClient(1000, 1000, 30000, 10, false);
+    callbackExecutor = configuration.bankCallbackExecutor(2, false);
+    circuitBreaker = new CircuitBreaker(4, 4, 50, 100, Duration.ofSeconds(5),
+        Duration.ofMinutes(1), 1, System::nanoTime);
+    bulkhead = new Bulkhead(1);
+    retryBudget = new RetryBudget(1, 0.1);
+    bankService = bankService(null);
+  }
+
+  private BankService bankService(HedgingPolicy hedgingPolicy) {
+    return bankService(hedgingPolicy,
+        AcquirerRouter.single("http://localhost:" + bank.getAddress().getPort() + "/payments"));
+  }
+
+  private BankService bankService(HedgingPolicy hedgingPolicy, AcquirerRouter acquirerRouter) {
+    return new BankService(httpClient, callbackExecutor, new ObjectMapper(), circuitBreaker,
+        bulkhead, retryBudget, hedgingPolicy, paymentMetrics, acquirerRouter, 500, 2,
+        "Idempotency-Key");
+  }
+
+  @AfterEach
+  void tearDown() {
+    httpClient.close(CloseMode.IMMEDIATE);
+    callbackExecutor.shutdown();
+    bank.stop(0);
+  }
+
+  @Test
+  void whenBankAuthorizesThenResponseIsReturned() throws Exception {
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+
+    BankPaymentResponse response = bankService.processPaymentWithBank(request(), UUID.randomUUID())
+        .get(5, TimeUnit.SECONDS);
+
+    assertTrue(response.isAuthorized());
+    assertEquals("0bb07405", response.getAuthorizationCode());
+    assertEquals(1, meterRegistry.get("bank.responses").tag("status", "2xx").counter().count());
+    assertEquals(1, paymentMetrics.getStageHistogram(Stage.BANK).getCount());
+  }
+
+  @Test
+  void whenBankFailsThenPaymentProcessingExceptionIsRaised() {
+    statusCode = 503;
+    body = "";
+
+    ExecutionException ex = assertThrows(ExecutionException.class,
+        () -> bankService.processPaymentWithBank(request(), UUID.randomUUID())
+            .get(5, TimeUnit.SECONDS));
+    assertInstanceOf(PaymentProcessingException.class, ex.getCause());
+  }
+
+  @Test
+  void whenBankIsSlowerThanTotalTimeoutThenPaymentProcessingExceptionIsRaised() {
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+    delayMs = 800;
+
+    ExecutionException ex = assertThrows(ExecutionException.class,
+        () -> bankService.processPaymentWithBank(request(), UUID.randomUUID())
+            .get(5, TimeUnit.SECONDS));
+    assertInstanceOf(PaymentProcessingException.class, ex.getCause());
+  }
+
+  @Test
+  void whenBankKeepsFailingThenCircuitOpensAndCallsAreRejectedWithoutReachingTheBank() {
+    statusCode = 500;
+    body = "";
+    for (int i = 0; i < 4; i++) {
+      assertThrows(ExecutionException.class,
+          () -> bankService.processPaymentWithBank(request(), UUID.randomUUID())
+              .get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+    ExecutionException ex = assertThrows(ExecutionException.class,
+        () -> bankService.processPaymentWithBank(request(), UUID.randomUUID())
+            .get(5, TimeUnit.SECONDS));
+    assertInstanceOf(BankUnavailableException.class, ex.getCause());
+    assertEquals(4, bankCalls.get());
+    assertEquals(1, circuitBreaker.getRejectedCount());
+  }
+
+  @Test
+  void whenBulkheadIsFullThenCallIsRejectedImmediately() throws Exception {
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+    delayMs = 300;
+    CompletableFuture<BankPaymentResponse> inFlight =
+        bankService.processPaymentWithBank(request(), UUID.randomUUID());
+
+    CompletableFuture<BankPaymentResponse> rejected =
+        bankService.processPaymentWithBank(request(), UUID.randomUUID());
+
+    assertTrue(rejected.isCompletedExceptionally());
+    assertTrue(inFlight.get(5, TimeUnit.SECONDS).isAuthorized());
+    assertEquals(1, bulkhead.getRejectedCount());
+    assertEquals(0, bulkhead.getActiveCalls());
+  }
+
+  @Test
+  void whenBankFailsTransientlyThenCallIsRetriedWithTheSameIdempotencyKey() throws Exception {
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+    failingCalls = 1;
+    UUID uuid = UUID.randomUUID();
+
+    BankPaymentResponse response = bankService.processPaymentWithBank(request(), uuid)
+        .get(5, TimeUnit.SECONDS);
+
+    assertTrue(response.isAuthorized());
+    assertEquals(List.of(uuid.toString(), uuid.toString()), idempotencyKeys);
+    assertEquals(1, retryBudget.getGrantedCount());
+  }
+
+  @Test
+  void whenRetryBudgetIsSpentThenFailureIsNotRetried() {
+    statusCode = 503;
+    body = "";
+    for (int i = 0; i < 2; i++) {
+      assertThrows(ExecutionException.class,
+          () -> bankService.processPaymentWithBank(request(), UUID.randomUUID())
+              .get(5, TimeUnit.SECONDS));
+    }
+
+    assertEquals(3, bankCalls.get());
+    assertEquals(1, retryBudget.getDeniedCount());
+  }
+
+  @Test
+  void whenBankIsSlowerThanTheHedgingDelayThenSecondAttemptAnswers() throws Exception {
+    HedgingPolicy hedgingPolicy = new HedgingPolicy(50, 8, Duration.ofMillis(20));
+    hedgingPolicy.record(TimeUnit.MILLISECONDS.toNanos(20));
+    bankService = bankService(hedgingPolicy);
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+    firstCallDelayMs = 2000;
+
+    long started = System.nanoTime();
+    BankPaymentResponse response = bankService.processPaymentWithBank(request(), UUID.randomUUID())
+        .get(5, TimeUnit.SECONDS);
+
+    assertTrue(response.isAuthorized());
+    assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(450));
+    assertEquals(1, hedgingPolicy.getHedgedCount());
+    assertEquals(2, bankCalls.get());
+  }
+
+  @Test
+  void whenAcquirerFailsTransientlyThenRetryGoesToAnotherAcquirer() throws Exception {
+    String baseUrl = "http://localhost:" + bank.getAddress().getPort();
+    AcquirerRouter router = new AcquirerRouter(List.of(
+        new Acquirer("failing", baseUrl + "/failing", Duration.ofSeconds(10).toNanos()),
+        new Acquirer("healthy", baseUrl + "/payments", Duration.ofSeconds(10).toNanos())),
+        List.of(), OutlierDetection.DEFAULTS, System::nanoTime);
+    // A call held in flight on the healthy acquirer sends the first attempt to the failing one.
+    Acquirer held;
+    do {
+      held = router.select(request(), null);
+      if (!held.getName().equals("healthy")) {
+        router.onAbandoned(held, 0);
+      }
+    } while (!held.getName().equals("healthy"));
+    bankService = bankService(null, router);
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+    UUID uuid = UUID.randomUUID();
+
+    BankPaymentResponse response = bankService.processPaymentWithBank(request(), uuid)
+        .get(5, TimeUnit.SECONDS);
+
+    assertTrue(response.isAuthorized());
+    assertEquals(1, failingAcquirerCalls.get());
+    assertEquals(List.of(uuid.toString()), idempotencyKeys);
+  }
+
+  @Test
+  void whenRequestCannotBeSentThenCallFailsAndReleasesItsPermits() {
+    CloseableHttpAsyncClient failingClient = mock(CloseableHttpAsyncClient.class);
+    when(failingClient.execute(any(SimpleHttpRequest.class), any()))
+        .thenThrow(new IllegalStateException("Request execution cancelled"));
+    AcquirerRouter router = AcquirerRouter.single("http://localhost/payments");
+    bankService = new BankService(failingClient, callbackExecutor, new ObjectMapper(),
+        circuitBreaker, bulkhead, retryBudget, (HedgingPolicy) null, paymentMetrics, router, 5000,
+        2, "Idempotency-Key");
+
+    for (int i = 0; i < 2; i++) {
+      CompletableFuture<BankPaymentResponse> call =
+          bankService.processPaymentWithBank(request(), UUID.randomUUID());
+      ExecutionException ex = assertThrows(ExecutionException.class,
+          () -> call.get(1, TimeUnit.SECONDS));
+      assertInstanceOf(PaymentProcessingException.class, ex.getCause());
+    }
+    assertEquals(0, bulkhead.getActiveCalls());
+    assertEquals(0, bulkhead.getRejectedCount());
+    assertEquals(0, router.getAcquirers().get(0).getInFlight());
+  }
+
+  @Test
+  void whenCallbackExecutorRejectsTheAnswerThenPermitsAreStillReleased() throws Exception {
+    statusCode = 200;
+    body = "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}";
+    delayMs = 100;
+    ExecutorService stoppedExecutor = Executors.newSingleThreadExecutor();
+    stoppedExecutor.shutdown();
+    bankService = new BankService(httpClient, stoppedExecutor, new ObjectMapper(), circuitBreaker,
+        bulkhead, retryBudget, (HedgingPolicy) null, paymentMetrics,
+        AcquirerRouter.single("http://localhost:" + bank.getAddress().getPort() + "/payments"),
+        500, 2, "Idempotency-Key");
+
+    bankService.processPaymentWithBank(request(), UUID.randomUUID());
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (paymentMetrics.getStageHistogram(Stage.BANK).getCount() == 0
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, paymentMetrics.getStageHistogram(Stage.BANK).getCount());
+    assertEquals(0, bulkhead.getActiveCalls());
+  }
+
+  private void fail(HttpExchange exchange) throws IOException {
+    failingAcquirerCalls.incrementAndGet();
+    exchange.sendResponseHeaders(503, -1);
+    exchange.close();
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    int call = bankCalls.incrementAndGet();
+    idempotencyKeys.add(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+    try {
+      Thread.sleep(call == 1 && firstCallDelayMs > 0 ? firstCallDelayMs : delayMs);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    int code = call <= failingCalls ? 503 : statusCode;
+    exchange.sendResponseHeaders(code, bytes.length == 0 || code != statusCode ? -1 : bytes.length);
+    exchange.getResponseBody().write(bytes);
+    exchange.close();
+  }
+
+  private static BankPaymentRequest request() {
+    BankPaymentRequest request = new BankPaymentRequest();
+    request.setCardNumber("2222405343248877");
+    request.setExpiryDate("04/2030");
+    request.setCurrency("GBP");
+    request.setAmount(100);
+    request.setCvv("123");
+    return request;
+  }
+}
@@ -0,0 +1,87 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchPaymentServiceTest {
+
+  private final List<CompletableFuture<PostPaymentResponse>> bankCalls =
+      Collections.synchronizedList(new ArrayList<>());
+  private PaymentGatewayService paymentGatewayService;
+  private BatchPaymentService batchPaymentService;
+
+  @BeforeEach
+  void setUp() {
+    paymentGatewayService = mock(PaymentGatewayService.class);
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any()))
+        .thenAnswer(invocation -> {
+          CompletableFuture<PostPaymentResponse> call = new CompletableFuture<>();
+          bankCalls.add(call);
+          return call;
+        });
+    batchPaymentService = new BatchPaymentService(paymentGatewayService,
+        new PaymentRequestValidator(CurrencyRegistry.defaults(), false), 10, 2);
+  }
+
+  @Test
+  void whenBatchIsLargerThanParallelismThenBankCallsAreStartedAsOthersComplete() {
+    List<CompletableFuture<PostPaymentResponse>> results =
+        batchPaymentService.processBatch(Collections.nCopies(5, request()));
+    assertEquals(2, bankCalls.size());
+
+    bankCalls.get(1).complete(new PostPaymentResponse());
+    assertEquals(3, bankCalls.size());
+    bankCalls.get(0).complete(new PostPaymentResponse());
+    bankCalls.get(2).complete(new PostPaymentResponse());
+    bankCalls.get(3).complete(new PostPaymentResponse());
+    bankCalls.get(4).complete(new PostPaymentResponse());
+
+    assertEquals(5, bankCalls.size());
+    results.forEach(result -> assertTrue(result.isDone() && !result.isCompletedExceptionally()));
+  }
+
+  @Test
+  void whenPaymentsFailSynchronouslyThenTheLaneMovesOn() {
+    when(paymentGatewayService.processPayment(any(PostPaymentRequest.class), any()))
+        .thenReturn(CompletableFuture.failedFuture(new BankUnavailableException("Circuit open")));
+
+    List<CompletableFuture<PostPaymentResponse>> results =
+        batchPaymentService.processBatch(Collections.nCopies(10, request()));
+
+    results.forEach(result -> assertTrue(result.isCompletedExceptionally()));
+  }
+
+  @Test
+  void whenBatchIsTooLargeThenItIsRefused() {
+    assertThrows(InvalidBatchException.class,
+        () -> batchPaymentService.processBatch(Collections.nCopies(11, request())));
+  }
+
+  private static PostPaymentRequest request() {
+    PostPaymentRequest paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber("2222405343248877");
+    paymentRequest.setExpiryMonth("04");
+    paymentRequest.setExpiryYear("2030");
+    paymentRequest.setCurrency("GBP");
+    paymentRequest.setAmount(100);
+    paymentRequest.setCvv("123");
+    return paymentRequest;
+  }
+}
@@ -0,0 +1,134 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyConflictException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyCacheTest {
+
+  private static final byte[] FIRST = {1};
+  private static final byte[] OTHER = {2};
+
+  private long now;
+  private IdempotencyCache idempotencyCache;
+  private final AtomicInteger bankCalls = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    idempotencyCache = new IdempotencyCache(3, Duration.ofMinutes(1), () -> now);
+  }
+
+  @Test
+  void whenDuplicatesArriveWhileFirstIsInFlightThenTheyShareOneBankCall() {
+    CompletableFuture<PostPaymentResponse> bank = new CompletableFuture<>();
+    List<CompletableFuture<PostPaymentResponse>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      results.add(idempotencyCache.execute("key", FIRST, () -> {
+        bankCalls.incrementAndGet();
+        return bank;
+      }));
+    }
+    PostPaymentResponse response = response();
+    bank.complete(response);
+
+    assertEquals(1, bankCalls.get());
+    results.forEach(result -> assertSame(response, result.join()));
+    assertEquals(9, idempotencyCache.getReplayCount());
+  }
+
+  @Test
+  void whenKeyIsRepeatedAfterCompletionThenStoredResponseIsReturned() {
+    PostPaymentResponse response = response();
+    idempotencyCache.execute("key", FIRST, () -> call(response));
+
+    PostPaymentResponse replayed =
+        idempotencyCache.execute("key", FIRST, () -> call(response())).join();
+
+    assertSame(response, replayed);
+    assertEquals(1, bankCalls.get());
+  }
+
+  @Test
+  void whenKeyIsReusedForDifferentRequestThenItIsRefused() {
+    idempotencyCache.execute("key", FIRST, () -> call(response()));
+
+    assertThrows(IdempotencyKeyConflictException.class,
+        () -> idempotencyCache.execute("key", OTHER, () -> call(response())));
+  }
+
+  @Test
+  void whenPaymentFailsThenRetryReachesTheBank() {
+    CompletableFuture<PostPaymentResponse> failed =
+        idempotencyCache.execute("key", FIRST, () -> CompletableFuture.failedFuture(
+            new IllegalStateException("bank down")));
+    assertTrue(failed.isCompletedExceptionally());
+
+    idempotencyCache.execute("key", FIRST, () -> call(response()));
+
+    assertEquals(1, bankCalls.get());
+  }
+
+  @Test
+  void whenEntryExpiresOrTableIsFullThenKeyIsForgotten() {
+    idempotencyCache.execute("expiring", FIRST, () -> call(response()));
+    now += TimeUnit.MINUTES.toNanos(2);
+    idempotencyCache.execute("expiring", FIRST, () -> call(response()));
+    assertEquals(2, bankCalls.get());
+
+    for (int i = 0; i < 5; i++) {
+      idempotencyCache.execute("key-" + i, FIRST, () -> call(response()));
+    }
+    assertTrue(idempotencyCache.size() <= 4);
+  }
+
+  @Test
+  void whenRequestsShareAHashCodeButDifferThenTheirFingerprintsDiffer() {
+    PostPaymentRequest first = request("Aa");
+    PostPaymentRequest second = request("BB");
+    assertEquals(first.hashCode(), second.hashCode());
+
+    assertFalse(Arrays.equals(IdempotencyCache.fingerprint(first),
+        IdempotencyCache.fingerprint(second)));
+    assertArrayEquals(IdempotencyCache.fingerprint(first),
+        IdempotencyCache.fingerprint(request("Aa")));
+  }
+
+  private CompletableFuture<PostPaymentResponse> call(PostPaymentResponse response) {
+    bankCalls.incrementAndGet();
+    return CompletableFuture.completedFuture(response);
+  }
+
+  private static PostPaymentRequest request(String cvv) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("2222405343248877");
+    request.setExpiryMonth("04");
+    request.setExpiryYear("2030");
+    request.setCurrency("GBP");
+    request.setAmount(100);
+    request.setCvv(cvv);
+    return request;
+  }
+
+  private static PostPaymentResponse response() {
+    PostPaymentResponse response = new PostPaymentResponse();
+    response.setId(UUID.randomUUID());
+    return response;
+  }
+}
@@ -1,17 +1,30 @@
 package com.checkout.payment.gateway.service;
 
 
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
 import com.checkout.payment.gateway.exception.InvalidExpiryDateException;
+import com.checkout.payment.gateway.metrics.PaymentMetrics;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 class PaymentGatewayServiceTest {
+  @Mock
+  private PaymentMetrics paymentMetrics;
+  @Spy
+  private PaymentRequestValidator paymentRequestValidator =
+      new PaymentRequestValidator(CurrencyRegistry.defaults(), false);
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
   @InjectMocks
   private PaymentGatewayService paymentGatewayService;
 
@@ -32,7 +45,7 @@ class PaymentGatewayServiceTest {
   @Test
   void testProcessPaymentThrowsExceptionWhenInvalidExpiryDate() {
     paymentRequest.setExpiryYear("2020");
-    assertThrows(InvalidExpiryDateException.class, () -> paymentGatewayService.processPayment(paymentRequest));
+    assertThrows(InvalidExpiryDateException.class, () -> paymentGatewayService.processPayment(paymentRequest, null));
   }
 
 }
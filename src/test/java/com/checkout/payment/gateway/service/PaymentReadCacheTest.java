@@ -0,0 +1,200 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PaymentReadCacheTest {
+
+  private long now;
+  private int loads;
+  private final Map<UUID, EncodedPayment> repository = new HashMap<>();
+  private final Function<UUID, EncodedPayment> loader = id -> {
+    loads++;
+    return repository.get(id);
+  };
+  private PaymentReadCache paymentReadCache;
+
+  @BeforeEach
+  void setUp() {
+    paymentReadCache = new PaymentReadCache(100, Duration.ofSeconds(1), 10, () -> now);
+  }
+
+  @Test
+  void whenPaymentIsReadAgainThenItIsServedFromTheCache() {
+    EncodedPayment payment = store();
+
+    assertSame(payment, paymentReadCache.get(payment.payment().getId(), loader));
+    assertSame(payment, paymentReadCache.get(payment.payment().getId(), loader));
+
+    assertEquals(1, loads);
+    assertEquals(1, paymentReadCache.getHitCount());
+    assertEquals(1, paymentReadCache.getMissCount());
+    assertEquals(0.5, paymentReadCache.getHitRatio());
+  }
+
+  @Test
+  void whenUnknownIdIsReadAgainThenRepositoryIsNotAskedUntilTtlExpires() {
+    UUID id = UUID.randomUUID();
+
+    assertNull(paymentReadCache.get(id, loader));
+    assertNull(paymentReadCache.get(id, loader));
+    assertEquals(1, loads);
+    assertEquals(1, paymentReadCache.getNegativeHitCount());
+
+    now += TimeUnit.SECONDS.toNanos(1);
+    assertNull(paymentReadCache.get(id, loader));
+    assertEquals(2, loads);
+  }
+
+  @Test
+  void whenPaymentIsStoredThenInvalidationReplacesTheCachedAnswer() {
+    UUID id = UUID.randomUUID();
+    assertNull(paymentReadCache.get(id, loader));
+
+    EncodedPayment payment = store(id);
+    paymentReadCache.invalidate(id);
+    assertSame(payment, paymentReadCache.get(id, loader));
+
+    EncodedPayment updated = store(id);
+    paymentReadCache.invalidate(id);
+    assertSame(updated, paymentReadCache.get(id, loader));
+  }
+
+  @Test
+  void whenStoredPaymentIsPutThenLookupsDoNotLoadIt() {
+    UUID id = UUID.randomUUID();
+    assertNull(paymentReadCache.get(id, loader));
+
+    EncodedPayment payment = store(id);
+    paymentReadCache.put(payment);
+    EncodedPayment updated = store(id);
+    paymentReadCache.put(updated);
+
+    assertSame(updated, paymentReadCache.get(id, loader));
+    assertEquals(1, loads);
+    assertEquals(1, paymentReadCache.size());
+  }
+
+  @Test
+  void whenPaymentIsStoredDuringALoadThenTheLoadedValueIsNotCached() {
+    EncodedPayment stale = store();
+    UUID id = stale.payment().getId();
+    EncodedPayment[] updated = new EncodedPayment[1];
+
+    assertSame(stale, paymentReadCache.get(id, key -> {
+      EncodedPayment loaded = repository.get(key);
+      updated[0] = store(key);
+      paymentReadCache.invalidate(key);
+      return loaded;
+    }));
+
+    assertSame(updated[0], paymentReadCache.get(id, loader));
+  }
+
+  @Test
+  void whenAnotherPaymentIsStoredDuringALoadThenTheLoadedValueIsCached() {
+    EncodedPayment payment = store();
+    UUID id = payment.payment().getId();
+    UUID unknownId = UUID.randomUUID();
+    Function<UUID, EncodedPayment> loaderStoringAnother = key -> {
+      paymentReadCache.put(store());
+      return loader.apply(key);
+    };
+
+    assertSame(payment, paymentReadCache.get(id, loaderStoringAnother));
+    assertNull(paymentReadCache.get(unknownId, loaderStoringAnother));
+    loads = 0;
+
+    assertSame(payment, paymentReadCache.get(id, loader));
+    assertNull(paymentReadCache.get(unknownId, loader));
+    assertEquals(0, loads);
+  }
+
+  @Test
+  void whenPaymentsAreStoredConcurrentlyWithLookupsThenEveryStoredPaymentIsFound()
+      throws Exception {
+    EncodedPayment[] stored = new EncodedPayment[1000];
+    for (int i = 0; i < stored.length; i++) {
+      PostPaymentResponse payment = new PostPaymentResponse();
+      payment.setId(UUID.randomUUID());
+      stored[i] = new EncodedPayment(payment, new byte[0], "\"" + i + "\"");
+    }
+    Thread writer = new Thread(() -> {
+      for (EncodedPayment payment : stored) {
+        paymentReadCache.put(payment);
+      }
+    });
+    writer.start();
+    for (int i = 0; i < 1000; i++) {
+      paymentReadCache.get(UUID.randomUUID(), id -> null);
+    }
+    writer.join();
+
+    EncodedPayment last = stored[stored.length - 1];
+    assertSame(last, paymentReadCache.get(last.payment().getId(), id -> {
+      throw new AssertionError("loaded " + id);
+    }));
+    assertTrue(paymentReadCache.size() <= 100);
+  }
+
+  @Test
+  void whenOneOffReadsFloodTheCacheThenFrequentlyReadPaymentsStay() {
+    List<EncodedPayment> popular = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      popular.add(store());
+    }
+    for (int round = 0; round < 10; round++) {
+      popular.forEach(payment -> paymentReadCache.get(payment.payment().getId(), loader));
+    }
+    for (int i = 0; i < 1000; i++) {
+      paymentReadCache.get(store().payment().getId(), loader);
+    }
+
+    loads = 0;
+    popular.forEach(payment -> paymentReadCache.get(payment.payment().getId(), loader));
+
+    assertEquals(0, loads);
+    assertTrue(paymentReadCache.size() <= 100);
+    assertTrue(paymentReadCache.getEvictionCount() >= 950);
+  }
+
+  @Test
+  void whenUnknownIdsExceedTheLimitThenLatestIsStillRemembered() {
+    for (int i = 0; i < 25; i++) {
+      paymentReadCache.get(UUID.randomUUID(), loader);
+    }
+    UUID id = UUID.randomUUID();
+    paymentReadCache.get(id, loader);
+    loads = 0;
+
+    paymentReadCache.get(id, loader);
+
+    assertEquals(0, loads);
+  }
+
+  private EncodedPayment store() {
+    return store(UUID.randomUUID());
+  }
+
+  private EncodedPayment store(UUID id) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(id);
+    EncodedPayment encoded = new EncodedPayment(payment, new byte[0], "\"" + id + "\"");
+    repository.put(id, encoded);
+    return encoded;
+  }
+}
@@ -0,0 +1,222 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.Timer;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PaymentWorkQueueTest {
+
+  private static final Duration RETRY_BACKOFF = Duration.ofMillis(1);
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+  private static final Runnable NOT_ABANDONED = () -> {
+    throw new AssertionError("abandoned");
+  };
+
+  private final AtomicLong now = new AtomicLong();
+  private final Timer waitTimer = Timer.builder("payment.queue.wait")
+      .register(new SimpleMeterRegistry());
+  private PaymentWorkQueue queue;
+
+  @AfterEach
+  void tearDown() {
+    queue.close();
+  }
+
+  @Test
+  void whenQueueIsFullThenReservationIsRefusedUntilASlotIsReleased() {
+    queue = new PaymentWorkQueue(2, 1, RETRY_BACKOFF, RETRY_BACKOFF, SHUTDOWN_TIMEOUT,
+        waitTimer, now::get);
+
+    assertTrue(queue.tryReserve());
+    assertTrue(queue.tryReserve());
+    assertFalse(queue.tryReserve());
+    assertEquals(1, queue.getRejectedCount());
+
+    queue.release();
+    assertTrue(queue.tryReserve());
+  }
+
+  @Test
+  void whenWorkersAreBusyThenPaymentsWaitAndTheirWaitIsRecorded() throws Exception {
+    queue = new PaymentWorkQueue(4, 1, RETRY_BACKOFF, RETRY_BACKOFF, SHUTDOWN_TIMEOUT,
+        waitTimer, now::get);
+    CompletableFuture<Void> bank = new CompletableFuture<>();
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch secondDone = new CountDownLatch(1);
+    AtomicInteger started = new AtomicInteger();
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      started.incrementAndGet();
+      firstStarted.countDown();
+      return bank;
+    }, NOT_ABANDONED);
+    assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      started.incrementAndGet();
+      secondDone.countDown();
+      return CompletableFuture.completedFuture(null);
+    }, NOT_ABANDONED);
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+    assertEquals(1, queue.depth());
+    assertEquals(1, started.get());
+
+    bank.complete(null);
+    assertTrue(secondDone.await(5, TimeUnit.SECONDS));
+    assertEquals(2, waitTimer.count());
+    assertEquals(30, waitTimer.max(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void whenWorkFailsThenWorkerCarriesOn() throws Exception {
+    queue = new PaymentWorkQueue(4, 1, RETRY_BACKOFF, RETRY_BACKOFF, SHUTDOWN_TIMEOUT,
+        waitTimer, now::get);
+    CountDownLatch done = new CountDownLatch(1);
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> CompletableFuture.failedFuture(new IllegalStateException("lost")),
+        NOT_ABANDONED);
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      done.countDown();
+      return CompletableFuture.completedFuture(null);
+    }, NOT_ABANDONED);
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void whenBankIsUnavailableThenWorkIsRetriedAndKeepsItsSlot() throws Exception {
+    queue = new PaymentWorkQueue(1, 1, RETRY_BACKOFF, RETRY_BACKOFF, SHUTDOWN_TIMEOUT,
+        waitTimer, now::get);
+    AtomicInteger attempts = new AtomicInteger();
+    CountDownLatch unavailable = new CountDownLatch(1);
+    CompletableFuture<Void> bank = new CompletableFuture<>();
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      if (attempts.incrementAndGet() < 3) {
+        return CompletableFuture.failedFuture(new BankUnavailableException("Bank is down"));
+      }
+      unavailable.countDown();
+      return bank;
+    }, NOT_ABANDONED);
+
+    assertTrue(unavailable.await(5, TimeUnit.SECONDS));
+    assertEquals(2, queue.getRetriedCount());
+    assertFalse(queue.tryReserve());
+    bank.complete(null);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!queue.tryReserve()) {
+      assertTrue(System.nanoTime() < deadline, "slot was not released");
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  void whenQueueClosesThenQueuedWorkIsFinishedFirst() throws Exception {
+    queue = new PaymentWorkQueue(4, 1, RETRY_BACKOFF, RETRY_BACKOFF, SHUTDOWN_TIMEOUT,
+        waitTimer, now::get);
+    CompletableFuture<Void> bank = new CompletableFuture<>();
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    AtomicInteger completed = new AtomicInteger();
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      firstStarted.countDown();
+      return bank.thenRun(completed::incrementAndGet);
+    }, NOT_ABANDONED);
+    assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      completed.incrementAndGet();
+      return CompletableFuture.completedFuture(null);
+    }, NOT_ABANDONED);
+    CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> bank.complete(null));
+
+    queue.close();
+
+    assertEquals(2, completed.get());
+    assertEquals(0, queue.getAbandonedCount());
+    assertFalse(queue.tryReserve());
+  }
+
+  @Test
+  void whenQueueClosesBetweenReservationAndSubmissionThenPaymentIsAbandoned() {
+    queue = new PaymentWorkQueue(1, 1, RETRY_BACKOFF, RETRY_BACKOFF, SHUTDOWN_TIMEOUT,
+        waitTimer, now::get);
+    AtomicInteger abandoned = new AtomicInteger();
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.close();
+    queue.submit(() -> CompletableFuture.completedFuture(null), abandoned::incrementAndGet);
+
+    assertEquals(1, abandoned.get());
+    assertEquals(0, queue.depth());
+  }
+
+  @Test
+  void whenBankDoesNotAnswerBeforeTheDeadlineThenPaymentsAreAbandoned() throws Exception {
+    queue = new PaymentWorkQueue(4, 1, RETRY_BACKOFF, RETRY_BACKOFF, Duration.ofMillis(50),
+        waitTimer, now::get);
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicInteger abandoned = new AtomicInteger();
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> {
+      started.countDown();
+      return new CompletableFuture<>();
+    }, abandoned::incrementAndGet);
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> CompletableFuture.completedFuture(null), abandoned::incrementAndGet);
+
+    long closeStarted = System.nanoTime();
+    queue.close();
+
+    assertTrue(System.nanoTime() - closeStarted < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(2, abandoned.get());
+    assertEquals(2, queue.getAbandonedCount());
+  }
+
+  @Test
+  void whenQueueClosesThenPaymentsWaitingForRetryAreAbandoned() throws Exception {
+    queue = new PaymentWorkQueue(1, 1, Duration.ofMinutes(1), Duration.ofMinutes(1),
+        SHUTDOWN_TIMEOUT, waitTimer, now::get);
+    AtomicInteger abandoned = new AtomicInteger();
+    queue.start();
+
+    assertTrue(queue.tryReserve());
+    queue.submit(() -> CompletableFuture.failedFuture(new BankUnavailableException("Bank is down")),
+        abandoned::incrementAndGet);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (queue.getRetriedCount() == 0) {
+      assertTrue(System.nanoTime() < deadline, "work was not retried");
+      Thread.sleep(1);
+    }
+
+    queue.close();
+
+    assertEquals(1, abandoned.get());
+  }
+}
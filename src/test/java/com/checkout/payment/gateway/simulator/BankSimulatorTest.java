@@ -0,0 +1,93 @@
+package com.checkout.payment.gateway.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BankSimulatorTest {
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private BankSimulator simulator;
+
+  @AfterEach
+  void tearDown() {
+    simulator.close();
+  }
+
+  @Test
+  void whenNoRulesAreGivenThenCardEndingDecidesTheAnswer() throws Exception {
+    start(SimulatorSettings.defaults());
+
+    assertTrue(post("2222405343248877", 100, null).body().contains("\"authorized\":true"));
+    assertTrue(post("2222405343248112", 100, null).body().contains("\"authorized\":false"));
+    assertEquals(503, post("2222405343248110", 100, null).statusCode());
+  }
+
+  @Test
+  void whenAmountRuleMatchesThenItWinsOverLaterRules() throws Exception {
+    start(SimulatorSettings.defaults().withRules(List.of(
+        Rule.parse("amount-over:50000=declined"),
+        Rule.parse("card-suffix:7=authorized"))));
+
+    assertTrue(post("2222405343248877", 60000, null).body().contains("\"authorized\":false"));
+    assertTrue(post("2222405343248877", 100, null).body().contains("\"authorized\":true"));
+  }
+
+  @Test
+  void whenIdempotencyKeyIsRepeatedThenSameAnswerIsReturned() throws Exception {
+    start(SimulatorSettings.defaults());
+
+    String first = post("2222405343248877", 100, "payment-1").body();
+    String second = post("2222405343248877", 100, "payment-1").body();
+
+    assertEquals(first, second);
+    assertEquals(1, simulator.getReplayCount());
+  }
+
+  @Test
+  void whenErrorsAndResetsAreConfiguredThenRequestsFail() throws Exception {
+    start(SimulatorSettings.defaults().withErrors(1, 502));
+    assertEquals(502, post("2222405343248877", 100, null).statusCode());
+    simulator.close();
+
+    start(SimulatorSettings.defaults().withResetRate(1));
+    assertThrows(IOException.class, () -> post("2222405343248877", 100, null));
+    assertEquals(1, simulator.getResetCount());
+  }
+
+  @Test
+  void whenLatencyIsConfiguredThenAnswerIsDelayed() throws Exception {
+    start(SimulatorSettings.defaults().withLatency(LatencyDistribution.parse("constant:100ms")));
+
+    long started = System.nanoTime();
+    post("2222405343248877", 100, null);
+
+    assertTrue(System.nanoTime() - started >= 100_000_000L);
+  }
+
+  private void start(SimulatorSettings settings) throws IOException {
+    simulator = new BankSimulator(settings.withPort(0)).start();
+  }
+
+  private HttpResponse<String> post(String cardNumber, int amount, String idempotencyKey)
+      throws IOException, InterruptedException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(simulator.getUrl()))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString("{\"card_number\":\"" + cardNumber
+            + "\",\"expiry_date\":\"04/2030\",\"currency\":\"GBP\",\"amount\":" + amount
+            + ",\"cvv\":\"123\"}"));
+    if (idempotencyKey != null) {
+      request.header("Idempotency-Key", idempotencyKey);
+    }
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -0,0 +1,121 @@
+package com.checkout.payment.gateway.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class PaymentRequestValidatorTest {
+
+  private static ValidatorFactory validatorFactory;
+  private final PaymentRequestValidator paymentRequestValidator =
+      new PaymentRequestValidator(CurrencyRegistry.defaults(), false);
+
+  @BeforeAll
+  static void setUpValidatorFactory() {
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+  }
+
+  @AfterAll
+  static void closeValidatorFactory() {
+    validatorFactory.close();
+  }
+
+  @ParameterizedTest
+  @MethodSource("requests")
+  void whenRequestIsValidatedThenMessagesMatchBeanValidation(PostPaymentRequest paymentRequest) {
+    Set<String> expected = validatorFactory.getValidator().validate(paymentRequest).stream()
+        .map(ConstraintViolation::getMessage)
+        .collect(Collectors.toSet());
+
+    String violations = paymentRequestValidator.validate(paymentRequest);
+
+    if (expected.isEmpty()) {
+      assertNull(violations);
+    } else {
+      assertTrue(violations.endsWith("."));
+      assertEquals(expected, Set.of(violations.substring(0, violations.length() - 1).split("\\.")));
+    }
+  }
+
+  @Test
+  void whenLuhnCheckIsEnabledThenInvalidCheckDigitIsRejected() {
+    PaymentRequestValidator luhnValidator =
+        new PaymentRequestValidator(CurrencyRegistry.defaults(), true);
+
+    assertNull(luhnValidator.validate(request("4111111111111111", "04", "2030", "GBP", 100,
+        "123")));
+    assertEquals("Card number is invalid.", luhnValidator.validate(request("4111111111111112",
+        "04", "2030", "GBP", 100, "123")));
+  }
+
+  @Test
+  void whenAmountIsOutsideCurrencyLimitsThenItIsRejected() {
+    PaymentRequestValidator validator =
+        new PaymentRequestValidator(new CurrencyRegistry("GBP:2:100-5000,JPY:0"), false);
+
+    assertNull(validator.validate(request("4111111111111111", "04", "2030", "GBP", 100, "123")));
+    assertNull(validator.validate(request("4111111111111111", "04", "2030", "JPY", 1, "123")));
+    assertEquals("Amount must be between 100 and 5000 for GBP.", validator.validate(
+        request("4111111111111111", "04", "2030", "GBP", 5001, "123")));
+    assertEquals("Invalid ISO currency code.", validator.validate(
+        request("4111111111111111", "04", "2030", "USD", 100, "123")));
+  }
+
+  @Test
+  void whenExpiryIsCheckedThenOnlyLaterMonthsAreInTheFuture() {
+    Clock clock = Clock.fixed(Instant.parse("2026-10-18T10:00:00Z"), ZoneOffset.UTC);
+    PaymentRequestValidator validator =
+        new PaymentRequestValidator(CurrencyRegistry.defaults(), false, clock);
+
+    assertTrue(validator.isExpiryInFuture(request("4111111111111111", "11", "2026", "GBP", 1,
+        "123")));
+    assertFalse(validator.isExpiryInFuture(request("4111111111111111", "10", "2026", "GBP", 1,
+        "123")));
+    assertFalse(validator.isExpiryInFuture(request("4111111111111111", "12", "2025", "GBP", 1,
+        "123")));
+  }
+
+  private static Stream<Arguments> requests() {
+    return Stream.of(
+        request("2222405343248877", "04", "2030", "GBP", 100, "123"),
+        request("2222405343248877", "12", "2030", "USD", 1, "1234"),
+        request(null, null, null, null, 0, null),
+        request("", "", "", "", -5, ""),
+        request("22224053432488x", "13", "30", "XYZ", 0, "12a45"),
+        request("1234", "4", "20301", "GBPX", 1, "12"),
+        request("12345678901234567890", "00", "2o30", "gbp", 1, "1 3"),
+        request("222240534324887٣", "1٢", "٢030", "EUR", 1, "١٢٣")
+    ).map(Arguments::of);
+  }
+
+  private static PostPaymentRequest request(String cardNumber, String expiryMonth,
+      String expiryYear, String currency, int amount, String cvv) {
+    PostPaymentRequest paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber(cardNumber);
+    paymentRequest.setExpiryMonth(expiryMonth);
+    paymentRequest.setExpiryYear(expiryYear);
+    paymentRequest.setCurrency(currency);
+    paymentRequest.setAmount(amount);
+    paymentRequest.setCvv(cvv);
+    return paymentRequest;
+  }
+}
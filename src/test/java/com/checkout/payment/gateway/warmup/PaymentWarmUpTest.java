@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.warmup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.currency.CurrencyRegistry;
+import com.checkout.payment.gateway.id.PaymentIdGenerator;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.service.BankService;
+import com.checkout.payment.gateway.validation.PaymentRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ExecutorService;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(properties = {"payment.warmup.enabled=true", "payment.warmup.payments=2000",
+    "payment.validation.luhn=true"})
+@AutoConfigureMockMvc
+class PaymentWarmUpTest {
+
+  @MockBean
+  private BankService bankService;
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private PaymentWarmUp paymentWarmUp;
+  @Autowired
+  private PaymentsRepository paymentsRepository;
+  @Autowired
+  private MeterRegistry meterRegistry;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private PaymentRequestValidator paymentRequestValidator;
+  @Autowired
+  private CurrencyRegistry currencyRegistry;
+  @Autowired
+  private PaymentIdGenerator paymentIdGenerator;
+  @Autowired
+  private CloseableHttpAsyncClient bankHttpClient;
+  @Autowired
+  @Qualifier("bankCallbackExecutor")
+  private ExecutorService bankCallbackExecutor;
+
+  @Test
+  void warmUpLeavesTheRepositoryTheBankAndTheMetricsUntouched() throws Exception {
+    assertEquals(2000, paymentWarmUp.warmUp());
+
+    assertEquals(0, paymentsRepository.size());
+    verifyNoInteractions(bankService);
+    assertEquals(0, meterRegistry.find("payments").counters().stream()
+        .mapToDouble(Counter::count).sum());
+  }
+
+  @Test
+  void whenWarmUpHasRunThenTheGatewayIsReady() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.get("/actuator/health/readiness"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("UP"));
+  }
+
+  @Test
+  void whenTheBudgetRunsOutThenWarmUpStops() throws Exception {
+    PaymentWarmUp unaffordable = new PaymentWarmUp(objectMapper, paymentRequestValidator,
+        currencyRegistry, paymentIdGenerator, bankHttpClient, bankCallbackExecutor, 15_000, 2,
+        "Idempotency-Key", 1_000_000, 0);
+
+    assertEquals(0, unaffordable.warmUp());
+  }
+}